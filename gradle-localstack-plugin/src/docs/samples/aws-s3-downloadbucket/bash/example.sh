@@ -0,0 +1,2 @@
+./gradlew downloadS3Bucket --bucketName=bucket1
+./gradlew downloadS3Bucket --bucketName=bucket1 --prefix=tenant-1/ --modifiedSince=2020-01-01T00:00:00Z --outputDir=build/snapshot
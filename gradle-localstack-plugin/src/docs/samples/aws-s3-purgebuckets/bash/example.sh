@@ -1 +1,2 @@
-./gradlew deleteS3Buckets --buckets=bucket1,bucket2
\ No newline at end of file
+./gradlew purgeS3Buckets --buckets=bucket1,bucket2
+./gradlew purgeS3Buckets --buckets=bucket1,bucket2 --sharded --parallelism=16
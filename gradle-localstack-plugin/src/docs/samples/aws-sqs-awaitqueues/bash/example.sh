@@ -0,0 +1 @@
+./gradlew awaitSqsQueues --queueNames=queue1,queue2 --timeoutSeconds="120"
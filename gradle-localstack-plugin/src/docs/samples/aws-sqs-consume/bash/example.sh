@@ -0,0 +1,3 @@
+./gradlew consumeSqs --queueNames=queue1,queue2 --workers=8 --processingDelayMillis=50
+
+./gradlew consumeSqs --queueNames=queue1 --failurePercent=5 --messagesPerSecond=200 --durationSeconds=120
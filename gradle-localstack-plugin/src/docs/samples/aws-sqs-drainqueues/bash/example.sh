@@ -0,0 +1 @@
+./gradlew drainSqsQueues --queueNames=queue1,queue2 --outputDir="{path to directory for message files}" --idleTimeoutSeconds="10"
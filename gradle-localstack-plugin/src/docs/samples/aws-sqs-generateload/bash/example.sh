@@ -0,0 +1 @@
+./gradlew generateSqsLoad --queueNames="queue1,queue2" --count="100000" --seed="42" --template='{ "id": {{seq}}, "orderId": "{{uuid}}", "quantity": {{random:1:10}}, "status": "{{choice:CREATED=8|CANCELLED=1|SHIPPED=1}}" }'
@@ -0,0 +1 @@
+./gradlew publishSqs --queueNames="shard1,shard2,shard3" --messages="{path to message file}" --distribution="keyHash" --distributionKeyField="order.customerId"
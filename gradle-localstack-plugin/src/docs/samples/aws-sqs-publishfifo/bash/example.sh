@@ -0,0 +1 @@
+./gradlew publishSqs --queueNames="orders.fifo" --messages="{path to message file}" --messageGroupIdField="order.customerId" --deduplicationIdField="order.id"
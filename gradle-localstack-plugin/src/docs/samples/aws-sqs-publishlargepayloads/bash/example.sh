@@ -0,0 +1 @@
+./gradlew publishSqs --queueNames="queue1" --messages="{path to message file}" --largePayloadBucket="large-payloads"
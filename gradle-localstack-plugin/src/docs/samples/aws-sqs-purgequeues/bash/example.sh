@@ -1 +1,3 @@
 ./gradlew purgeSqsQueues --queueNames=queue1,queue2
+
+./gradlew purgeSqsQueues --queueNames=queue1,queue2 --awaitEmpty=true
@@ -0,0 +1 @@
+./gradlew redriveSqsDlq --dlqName=queue1-dlq --messagesPerSecond="100"
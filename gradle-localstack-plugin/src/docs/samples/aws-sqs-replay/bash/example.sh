@@ -0,0 +1 @@
+./gradlew replaySqs --queueNames="queue1,queue2" --message="{path to captured message file or archive}" --timestampField="timestamp" --speed="10"
@@ -0,0 +1,188 @@
+/*
+ * Copyright 2020-present, Nike, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the Apache-2.0 license found in
+ * the LICENSE file in the root directory of this source tree.
+ */
+package com.nike.pdm.localstack.aws.s3
+
+import com.amazonaws.client.builder.AwsClientBuilder
+import com.amazonaws.services.s3.AmazonS3ClientBuilder
+import com.nike.pdm.localstack.LocalStackDockerTestUtil
+import com.nike.pdm.localstack.util.ComposeFile
+import org.gradle.testkit.runner.GradleRunner
+import org.junit.Rule
+import org.junit.rules.TemporaryFolder
+import spock.lang.Specification
+import spock.lang.Timeout
+
+import java.util.concurrent.TimeUnit
+
+import static org.gradle.testkit.runner.TaskOutcome.SUCCESS
+
+@Timeout(value = 3, unit = TimeUnit.MINUTES)
+class DownloadS3BucketFunctionalTest extends Specification {
+
+    @Rule TemporaryFolder testProjectDir = new TemporaryFolder()
+    File buildFile
+    File composeFile
+
+    LocalStackDockerTestUtil dockerTestUtil = new LocalStackDockerTestUtil()
+
+    def setup() {
+        buildFile = testProjectDir.newFile('build.gradle')
+
+        testProjectDir.newFolder('localstack')
+        composeFile = testProjectDir.newFile('localstack/localstack-docker-compose.yml')
+    }
+
+    def cleanup() {
+        dockerTestUtil.killLocalStack()
+    }
+
+    def "should download s3 bucket"() {
+        given:
+        buildFile << """
+            import com.nike.pdm.localstack.aws.s3.CreateS3BucketsTask
+
+            plugins {
+                id "java"
+                id "org.springframework.boot"           version "2.2.4.RELEASE"
+                id "io.spring.dependency-management"    version "1.0.9.RELEASE"
+            }
+            
+            apply plugin: "com.nike.pdm.localstack"
+            
+            task setupS3Bucket(type: CreateS3BucketsTask) {
+                buckets = [ 'catalog-product-bucket' ]
+            }
+
+            downloadS3Bucket {
+                bucketName = 'catalog-product-bucket'
+                partSize = 1024
+            }
+        """
+
+        composeFile << ComposeFile.getContents()
+
+        def large = new byte[10_000]
+        for (int i = 0; i < large.length; i++) {
+            large[i] = (byte) (i % 251)
+        }
+
+        def s3Client = AmazonS3ClientBuilder.standard()
+                .withEndpointConfiguration(new AwsClientBuilder.EndpointConfiguration('http://localhost:4566', 'us-east-1'))
+                .withPathStyleAccessEnabled(true)
+                .build()
+
+        when:
+        def setupResult = GradleRunner.create()
+                .withProjectDir(testProjectDir.root)
+                .withArguments('startLocalStack')
+                .withPluginClasspath()
+                .build()
+
+        s3Client.putObject('catalog-product-bucket', 'catalog.json', '{}')
+        s3Client.putObject('catalog-product-bucket', 'products/1.json', '{"id":1}')
+        s3Client.putObject('catalog-product-bucket', 'products/2.json', '{"id":2}')
+        def largeFile = testProjectDir.newFile('large.bin')
+        largeFile.bytes = large
+        s3Client.putObject('catalog-product-bucket', 'images/large.bin', largeFile)
+
+        def result = GradleRunner.create()
+                .withProjectDir(testProjectDir.root)
+                .withArguments('downloadS3Bucket')
+                .withPluginClasspath()
+                .build()
+
+        def prefixResult = GradleRunner.create()
+                .withProjectDir(testProjectDir.root)
+                .withArguments('downloadS3Bucket', '--prefix=products/')
+                .withPluginClasspath()
+                .build()
+
+        then:
+        result.task(":downloadS3Bucket").outcome == SUCCESS
+        result.output.contains('(4 objects')
+        prefixResult.task(":downloadS3Bucket").outcome == SUCCESS
+        prefixResult.output.contains('(2 objects')
+
+        def outputDir = new File(testProjectDir.root, 'build/localstack/s3/catalog-product-bucket')
+        new File(outputDir, 'products/2.json').text == '{"id":2}'
+        !new File(outputDir, 'catalog.json').exists()
+    }
+
+    def "should only download objects modified since"() {
+        given:
+        buildFile << """
+            import com.nike.pdm.localstack.aws.s3.CreateS3BucketsTask
+
+            plugins {
+                id "java"
+                id "org.springframework.boot"           version "2.2.4.RELEASE"
+                id "io.spring.dependency-management"    version "1.0.9.RELEASE"
+            }
+            
+            apply plugin: "com.nike.pdm.localstack"
+            
+            task setupS3Bucket(type: CreateS3BucketsTask) {
+                buckets = [ 'catalog-product-bucket' ]
+            }
+        """
+
+        composeFile << ComposeFile.getContents()
+
+        def s3Client = AmazonS3ClientBuilder.standard()
+                .withEndpointConfiguration(new AwsClientBuilder.EndpointConfiguration('http://localhost:4566', 'us-east-1'))
+                .withPathStyleAccessEnabled(true)
+                .build()
+
+        when:
+        def setupResult = GradleRunner.create()
+                .withProjectDir(testProjectDir.root)
+                .withArguments('startLocalStack')
+                .withPluginClasspath()
+                .build()
+
+        s3Client.putObject('catalog-product-bucket', 'products/1.json', '{"id":1}')
+
+        def result = GradleRunner.create()
+                .withProjectDir(testProjectDir.root)
+                .withArguments('downloadS3Bucket', '--bucketName=catalog-product-bucket', '--modifiedSince=2999-01-01T00:00:00Z')
+                .withPluginClasspath()
+                .build()
+
+        then:
+        result.task(":downloadS3Bucket").outcome == SUCCESS
+        result.output.contains('Skipped 1 object(s) last modified before 2999-01-01T00:00:00Z')
+        result.output.contains('(0 objects')
+    }
+
+    def "should refuse to empty the project directory"() {
+        given:
+        buildFile << """
+            plugins {
+                id "java"
+                id "org.springframework.boot"           version "2.2.4.RELEASE"
+                id "io.spring.dependency-management"    version "1.0.9.RELEASE"
+            }
+            
+            apply plugin: "com.nike.pdm.localstack"
+        """
+
+        composeFile << ComposeFile.getContents()
+
+        when:
+        def result = GradleRunner.create()
+                .withProjectDir(testProjectDir.root)
+                .withArguments('downloadS3Bucket', '--bucketName=catalog-product-bucket', '--outputDir=.')
+                .withPluginClasspath()
+                .buildAndFail()
+
+        then:
+        result.output.contains('Output directory is emptied before every download')
+        buildFile.exists()
+        composeFile.exists()
+    }
+}
@@ -89,4 +89,55 @@ class PurgeS3BucketsFunctionalTest extends Specification {
         then:
         purgeResult.task(":purgeS3Buckets").outcome == SUCCESS
     }
+
+    def "should purge s3 bucket by top-level prefix"() {
+        given:
+        buildFile << """
+            import com.nike.pdm.localstack.aws.s3.CreateS3BucketsTask
+
+            plugins {
+                id "java"
+                id "org.springframework.boot"           version "2.2.4.RELEASE"
+                id "io.spring.dependency-management"    version "1.0.9.RELEASE"
+            }
+            
+            apply plugin: "com.nike.pdm.localstack"
+            
+            task setupS3Bucket(type: CreateS3BucketsTask) {
+                buckets = [ 'catalog-product-bucket' ]
+            }
+        """
+
+        composeFile << ComposeFile.getContents()
+
+        def s3Client = AmazonS3ClientBuilder.standard()
+                .withEndpointConfiguration(new AwsClientBuilder.EndpointConfiguration('http://localhost:4566', 'us-east-1'))
+                .withPathStyleAccessEnabled(true)
+                .build()
+
+        when:
+        def setupResult = GradleRunner.create()
+                .withProjectDir(testProjectDir.root)
+                .withArguments('startLocalStack')
+                .withPluginClasspath()
+                .build()
+
+        ['tenant-1', 'tenant-2', 'tenant-3'].each { tenant ->
+            (1..5).each { i ->
+                s3Client.putObject('catalog-product-bucket', "${tenant}/2020-01-0${i}/product.json", '{}')
+            }
+        }
+        s3Client.putObject('catalog-product-bucket', 'manifest.json', '{}')
+
+        def purgeResult = GradleRunner.create()
+                .withProjectDir(testProjectDir.root)
+                .withArguments('purgeS3Buckets', '--buckets=catalog-product-bucket', '--sharded', '--parallelism=2')
+                .withPluginClasspath()
+                .build()
+
+        then:
+        purgeResult.task(":purgeS3Buckets").outcome == SUCCESS
+        purgeResult.output.contains('Purged S3 bucket: catalog-product-bucket (16 objects deleted)')
+        s3Client.listObjectsV2('catalog-product-bucket').objectSummaries.isEmpty()
+    }
 }
@@ -0,0 +1,185 @@
+/*
+ * Copyright 2020-present, Nike, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the Apache-2.0 license found in
+ * the LICENSE file in the root directory of this source tree.
+ */
+package com.nike.pdm.localstack.aws.s3
+
+import com.amazonaws.client.builder.AwsClientBuilder
+import com.amazonaws.services.s3.AmazonS3ClientBuilder
+import com.nike.pdm.localstack.LocalStackDockerTestUtil
+import com.nike.pdm.localstack.util.ComposeFile
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream
+import org.apache.commons.compress.compressors.gzip.GzipCompressorOutputStream
+import org.gradle.testkit.runner.GradleRunner
+import org.junit.Rule
+import org.junit.rules.TemporaryFolder
+import spock.lang.Specification
+import spock.lang.Timeout
+
+import java.util.concurrent.TimeUnit
+
+import static org.gradle.testkit.runner.TaskOutcome.SUCCESS
+import static org.gradle.testkit.runner.TaskOutcome.UP_TO_DATE
+
+@Timeout(value = 3, unit = TimeUnit.MINUTES)
+class UploadS3FixturesFunctionalTest extends Specification {
+
+    @Rule TemporaryFolder testProjectDir = new TemporaryFolder()
+    File buildFile
+    File composeFile
+
+    LocalStackDockerTestUtil dockerTestUtil = new LocalStackDockerTestUtil()
+
+    def setup() {
+        buildFile = testProjectDir.newFile('build.gradle')
+
+        testProjectDir.newFolder('localstack')
+        composeFile = testProjectDir.newFile('localstack/localstack-docker-compose.yml')
+    }
+
+    def cleanup() {
+        dockerTestUtil.killLocalStack()
+    }
+
+    def "should upload s3 fixtures and skip unchanged files"() {
+        given:
+        buildFile << """
+            import com.nike.pdm.localstack.aws.s3.CreateS3BucketsTask
+
+            plugins {
+                id "java"
+                id "org.springframework.boot"           version "2.2.4.RELEASE"
+                id "io.spring.dependency-management"    version "1.0.9.RELEASE"
+            }
+            
+            apply plugin: "com.nike.pdm.localstack"
+            
+            task setupS3Bucket(type: CreateS3BucketsTask) {
+                buckets = [ 'catalog-product-bucket' ]
+            }
+
+            uploadS3Fixtures {
+                bucketName = 'catalog-product-bucket'
+                prefix = 'seed'
+                fixturesDir = file('fixtures')
+            }
+        """
+
+        composeFile << ComposeFile.getContents()
+
+        testProjectDir.newFolder('fixtures', 'products')
+        testProjectDir.newFile('fixtures/catalog.json') << '{}'
+        testProjectDir.newFile('fixtures/products/1.json') << '{"id":1}'
+        def product2 = testProjectDir.newFile('fixtures/products/2.json')
+        product2 << '{"id":2}'
+
+        def s3Client = AmazonS3ClientBuilder.standard()
+                .withEndpointConfiguration(new AwsClientBuilder.EndpointConfiguration('http://localhost:4566', 'us-east-1'))
+                .withPathStyleAccessEnabled(true)
+                .build()
+
+        when:
+        def setupResult = GradleRunner.create()
+                .withProjectDir(testProjectDir.root)
+                .withArguments('startLocalStack')
+                .withPluginClasspath()
+                .build()
+
+        def firstResult = GradleRunner.create()
+                .withProjectDir(testProjectDir.root)
+                .withArguments('uploadS3Fixtures')
+                .withPluginClasspath()
+                .build()
+
+        def secondResult = GradleRunner.create()
+                .withProjectDir(testProjectDir.root)
+                .withArguments('uploadS3Fixtures')
+                .withPluginClasspath()
+                .build()
+
+        product2.text = '{"id":2,"name":"shoe"}'
+
+        def thirdResult = GradleRunner.create()
+                .withProjectDir(testProjectDir.root)
+                .withArguments('uploadS3Fixtures')
+                .withPluginClasspath()
+                .build()
+
+        then:
+        firstResult.task(":uploadS3Fixtures").outcome == SUCCESS
+        firstResult.output.contains('(3 uploaded')
+        secondResult.task(":uploadS3Fixtures").outcome == UP_TO_DATE
+        thirdResult.task(":uploadS3Fixtures").outcome == SUCCESS
+        thirdResult.output.contains('(1 uploaded')
+        thirdResult.output.contains('2 unchanged)')
+        s3Client.getObjectAsString('catalog-product-bucket', 'seed/products/2.json') == '{"id":2,"name":"shoe"}'
+        new File(testProjectDir.root, 'localstack/.manifests/uploadS3Fixtures.properties').exists()
+    }
+
+    def "should upload s3 fixtures from archive"() {
+        given:
+        buildFile << """
+            import com.nike.pdm.localstack.aws.s3.CreateS3BucketsTask
+
+            plugins {
+                id "java"
+                id "org.springframework.boot"           version "2.2.4.RELEASE"
+                id "io.spring.dependency-management"    version "1.0.9.RELEASE"
+            }
+            
+            apply plugin: "com.nike.pdm.localstack"
+            
+            task setupS3Bucket(type: CreateS3BucketsTask) {
+                buckets = [ 'catalog-product-bucket' ]
+            }
+
+            uploadS3Fixtures {
+                bucketName = 'catalog-product-bucket'
+                prefix = 'seed'
+                archives = [ file('fixtures.tar.gz') ]
+            }
+        """
+
+        composeFile << ComposeFile.getContents()
+
+        def archive = testProjectDir.newFile('fixtures.tar.gz')
+        new TarArchiveOutputStream(new GzipCompressorOutputStream(new FileOutputStream(archive))).withCloseable { tar ->
+            ['catalog.json': '{}', 'products/1.json': '{"id":1}', 'products/2.json': '{"id":2}'].each { name, content ->
+                def bytes = content.getBytes('UTF-8')
+                def entry = new TarArchiveEntry(name)
+                entry.setSize(bytes.length)
+                tar.putArchiveEntry(entry)
+                tar.write(bytes)
+                tar.closeArchiveEntry()
+            }
+        }
+
+        def s3Client = AmazonS3ClientBuilder.standard()
+                .withEndpointConfiguration(new AwsClientBuilder.EndpointConfiguration('http://localhost:4566', 'us-east-1'))
+                .withPathStyleAccessEnabled(true)
+                .build()
+
+        when:
+        def setupResult = GradleRunner.create()
+                .withProjectDir(testProjectDir.root)
+                .withArguments('startLocalStack')
+                .withPluginClasspath()
+                .build()
+
+        def result = GradleRunner.create()
+                .withProjectDir(testProjectDir.root)
+                .withArguments('uploadS3Fixtures')
+                .withPluginClasspath()
+                .build()
+
+        then:
+        result.task(":uploadS3Fixtures").outcome == SUCCESS
+        result.output.contains('(3 uploaded')
+        s3Client.getObjectAsString('catalog-product-bucket', 'seed/products/2.json') == '{"id":2}'
+        !new File(testProjectDir.root, 'products').exists()
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2020-present, Nike, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the Apache-2.0 license found in
+ * the LICENSE file in the root directory of this source tree.
+ */
+package com.nike.pdm.localstack.aws.sqs
+
+import com.amazonaws.client.builder.AwsClientBuilder
+import com.amazonaws.services.sqs.AmazonSQSClientBuilder
+import com.nike.pdm.localstack.LocalStackDockerTestUtil
+import com.nike.pdm.localstack.util.ComposeFile
+import org.gradle.testkit.runner.GradleRunner
+import org.junit.Rule
+import org.junit.rules.TemporaryFolder
+import spock.lang.Specification
+import spock.lang.Timeout
+
+import java.util.concurrent.TimeUnit
+
+import static org.gradle.testkit.runner.TaskOutcome.FAILED
+import static org.gradle.testkit.runner.TaskOutcome.SUCCESS
+
+@Timeout(value = 3, unit = TimeUnit.MINUTES)
+class AwaitSqsQueuesFunctionalTest extends Specification {
+
+    @Rule TemporaryFolder testProjectDir = new TemporaryFolder()
+    File buildFile
+    File composeFile
+
+    LocalStackDockerTestUtil dockerTestUtil = new LocalStackDockerTestUtil()
+
+    def setup() {
+        buildFile = testProjectDir.newFile('build.gradle')
+
+        testProjectDir.newFolder('localstack')
+        composeFile = testProjectDir.newFile('localstack/localstack-docker-compose.yml')
+    }
+
+    def cleanup() {
+        dockerTestUtil.killLocalStack()
+    }
+
+    def "should wait for sqs queue to drain"() {
+        given:
+        buildFile << BUILD_FILE
+
+        composeFile << ComposeFile.getContents()
+
+        def sqsClient = AmazonSQSClientBuilder.standard()
+                .withEndpointConfiguration(new AwsClientBuilder.EndpointConfiguration('http://localhost:4566', 'us-east-1'))
+                .build()
+
+        when:
+        GradleRunner.create()
+                .withProjectDir(testProjectDir.root)
+                .withArguments('startLocalStack', 'setupLocalQueue')
+                .withPluginClasspath()
+                .build()
+
+        def queueUrl = sqsClient.getQueueUrl('catalog-product-change-notification').getQueueUrl()
+        (1..20).each { sqsClient.sendMessage(queueUrl, "{\"id\":${it}}") }
+
+        // Consume the messages slowly while the task waits
+        def consumer = Thread.start {
+            def messages
+            while (!(messages = sqsClient.receiveMessage(queueUrl).getMessages()).isEmpty()) {
+                messages.each { sqsClient.deleteMessage(queueUrl, it.receiptHandle) }
+                Thread.sleep(100)
+            }
+        }
+
+        def awaitResult = GradleRunner.create()
+                .withProjectDir(testProjectDir.root)
+                .withArguments('awaitSqsQueues', '--queueNames=catalog-product-change-notification', '--timeoutSeconds=60')
+                .withPluginClasspath()
+                .build()
+
+        consumer.join()
+
+        then:
+        awaitResult.task(":awaitSqsQueues").outcome == SUCCESS
+        awaitResult.output.contains('Drain rate:')
+    }
+
+    def "should fail when sqs queue does not drain before timeout"() {
+        given:
+        buildFile << BUILD_FILE
+
+        composeFile << ComposeFile.getContents()
+
+        def sqsClient = AmazonSQSClientBuilder.standard()
+                .withEndpointConfiguration(new AwsClientBuilder.EndpointConfiguration('http://localhost:4566', 'us-east-1'))
+                .build()
+
+        when:
+        GradleRunner.create()
+                .withProjectDir(testProjectDir.root)
+                .withArguments('startLocalStack', 'setupLocalQueue')
+                .withPluginClasspath()
+                .build()
+
+        def queueUrl = sqsClient.getQueueUrl('catalog-product-change-notification').getQueueUrl()
+        sqsClient.sendMessage(queueUrl, 'This is a test message')
+
+        def awaitResult = GradleRunner.create()
+                .withProjectDir(testProjectDir.root)
+                .withArguments('awaitSqsQueues', '--queueNames=catalog-product-change-notification', '--timeoutSeconds=2')
+                .withPluginClasspath()
+                .buildAndFail()
+
+        then:
+        awaitResult.task(":awaitSqsQueues").outcome == FAILED
+        awaitResult.output.contains('Timed out')
+    }
+
+    static final String BUILD_FILE = """
+            import com.nike.pdm.localstack.aws.sqs.CreateSqsQueuesTask
+
+            plugins {
+                id "java"
+                id "org.springframework.boot"           version "2.2.4.RELEASE"
+                id "io.spring.dependency-management"    version "1.0.9.RELEASE"
+            }
+            
+            apply plugin: "com.nike.pdm.localstack"
+            
+            task setupLocalQueue(type: CreateSqsQueuesTask) {
+                queueNames = [ 'catalog-product-change-notification' ]
+            }
+        """
+}
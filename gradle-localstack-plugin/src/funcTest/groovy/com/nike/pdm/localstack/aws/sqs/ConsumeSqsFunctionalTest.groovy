@@ -0,0 +1,93 @@
+/*
+ * Copyright 2020-present, Nike, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the Apache-2.0 license found in
+ * the LICENSE file in the root directory of this source tree.
+ */
+package com.nike.pdm.localstack.aws.sqs
+
+import com.amazonaws.client.builder.AwsClientBuilder
+import com.amazonaws.services.sqs.AmazonSQSClientBuilder
+import com.nike.pdm.localstack.LocalStackDockerTestUtil
+import com.nike.pdm.localstack.util.ComposeFile
+import org.gradle.testkit.runner.GradleRunner
+import org.junit.Rule
+import org.junit.rules.TemporaryFolder
+import spock.lang.Specification
+import spock.lang.Timeout
+
+import java.util.concurrent.TimeUnit
+
+import static org.gradle.testkit.runner.TaskOutcome.SUCCESS
+
+@Timeout(value = 3, unit = TimeUnit.MINUTES)
+class ConsumeSqsFunctionalTest extends Specification {
+
+    @Rule TemporaryFolder testProjectDir = new TemporaryFolder()
+    File buildFile
+    File composeFile
+
+    LocalStackDockerTestUtil dockerTestUtil = new LocalStackDockerTestUtil()
+
+    def setup() {
+        buildFile = testProjectDir.newFile('build.gradle')
+
+        testProjectDir.newFolder('localstack')
+        composeFile = testProjectDir.newFile('localstack/localstack-docker-compose.yml')
+    }
+
+    def cleanup() {
+        dockerTestUtil.killLocalStack()
+    }
+
+    def "should consume sqs queue"() {
+        given:
+        buildFile << BUILD_FILE
+
+        composeFile << ComposeFile.getContents()
+
+        def sqsClient = AmazonSQSClientBuilder.standard()
+                .withEndpointConfiguration(new AwsClientBuilder.EndpointConfiguration('http://localhost:4566', 'us-east-1'))
+                .build()
+
+        when:
+        GradleRunner.create()
+                .withProjectDir(testProjectDir.root)
+                .withArguments('startLocalStack', 'setupLocalQueue')
+                .withPluginClasspath()
+                .build()
+
+        def queueUrl = sqsClient.getQueueUrl('catalog-product-change-notification').getQueueUrl()
+        (1..50).each { sqsClient.sendMessage(queueUrl, "{\"id\":${it}}") }
+
+        def consumeResult = GradleRunner.create()
+                .withProjectDir(testProjectDir.root)
+                .withArguments('consumeSqs', '--queueNames=catalog-product-change-notification', '--workers=2',
+                        '--processingDelayMillis=10', '--messagesPerSecond=100', '--idleTimeoutSeconds=3')
+                .withPluginClasspath()
+                .build()
+
+        then:
+        consumeResult.task(":consumeSqs").outcome == SUCCESS
+        consumeResult.output.contains('Throughput')
+        consumeResult.output.contains('Processing latency')
+        sqsClient.getQueueAttributes(queueUrl, ['ApproximateNumberOfMessages']).getAttributes().get('ApproximateNumberOfMessages') == '0'
+    }
+
+    static final String BUILD_FILE = """
+            import com.nike.pdm.localstack.aws.sqs.CreateSqsQueuesTask
+
+            plugins {
+                id "java"
+                id "org.springframework.boot"           version "2.2.4.RELEASE"
+                id "io.spring.dependency-management"    version "1.0.9.RELEASE"
+            }
+            
+            apply plugin: "com.nike.pdm.localstack"
+            
+            task setupLocalQueue(type: CreateSqsQueuesTask) {
+                queueNames = [ 'catalog-product-change-notification' ]
+            }
+        """
+}
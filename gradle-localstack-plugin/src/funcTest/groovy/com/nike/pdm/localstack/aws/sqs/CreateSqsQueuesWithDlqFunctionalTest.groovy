@@ -0,0 +1,78 @@
+/*
+ * Copyright 2020-present, Nike, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the Apache-2.0 license found in
+ * the LICENSE file in the root directory of this source tree.
+ */
+package com.nike.pdm.localstack.aws.sqs
+
+import com.nike.pdm.localstack.LocalStackDockerTestUtil
+import com.nike.pdm.localstack.util.ComposeFile
+import org.gradle.testkit.runner.GradleRunner
+import org.junit.Rule
+import org.junit.rules.TemporaryFolder
+import spock.lang.Specification
+import spock.lang.Timeout
+
+import java.util.concurrent.TimeUnit
+
+import static org.gradle.testkit.runner.TaskOutcome.SUCCESS
+
+@Timeout(value = 3, unit = TimeUnit.MINUTES)
+class CreateSqsQueuesWithDlqFunctionalTest extends Specification {
+
+    @Rule TemporaryFolder testProjectDir = new TemporaryFolder()
+    File buildFile
+    File composeFile
+
+    LocalStackDockerTestUtil dockerTestUtil = new LocalStackDockerTestUtil()
+
+    def setup() {
+        buildFile = testProjectDir.newFile('build.gradle')
+
+        testProjectDir.newFolder('localstack')
+        composeFile = testProjectDir.newFile('localstack/localstack-docker-compose.yml')
+    }
+
+    def cleanup() {
+        dockerTestUtil.killLocalStack()
+    }
+
+    def "should create sqs queues with dlqs"() {
+        given:
+        buildFile << """
+            import com.nike.pdm.localstack.aws.sqs.CreateSqsQueuesWithDlqTask
+
+            plugins {
+                id "java"
+                id "org.springframework.boot"           version "2.2.4.RELEASE"
+                id "io.spring.dependency-management"    version "1.0.9.RELEASE"
+            }
+            
+            apply plugin: "com.nike.pdm.localstack"
+            
+            task setupLocalQueues(type: CreateSqsQueuesWithDlqTask) {
+                queue('catalog-product-change-notification')
+                queue('catalog-price-change-notification') {
+                    deadletterQueueName = 'catalog-price-change-notification-failed'
+                    maxReceiveCount = 3
+                }
+            }
+        """
+
+        composeFile << ComposeFile.getContents()
+
+        when:
+        def result = GradleRunner.create()
+                .withProjectDir(testProjectDir.root)
+                .withArguments('startLocalStack', 'setupLocalQueues', 'listSqsQueues')
+                .withPluginClasspath()
+                .build()
+
+        then:
+        result.task(":setupLocalQueues").outcome == SUCCESS
+        result.output.contains('catalog-product-change-notification-dlq')
+        result.output.contains('catalog-price-change-notification-failed')
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2020-present, Nike, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the Apache-2.0 license found in
+ * the LICENSE file in the root directory of this source tree.
+ */
+package com.nike.pdm.localstack.aws.sqs
+
+import com.amazonaws.client.builder.AwsClientBuilder
+import com.amazonaws.services.sqs.AmazonSQSClientBuilder
+import com.nike.pdm.localstack.LocalStackDockerTestUtil
+import com.nike.pdm.localstack.util.ComposeFile
+import org.gradle.testkit.runner.GradleRunner
+import org.junit.Rule
+import org.junit.rules.TemporaryFolder
+import spock.lang.Specification
+import spock.lang.Timeout
+
+import java.util.concurrent.TimeUnit
+
+import static org.gradle.testkit.runner.TaskOutcome.SUCCESS
+
+@Timeout(value = 3, unit = TimeUnit.MINUTES)
+class DrainSqsQueuesFunctionalTest extends Specification {
+
+    @Rule TemporaryFolder testProjectDir = new TemporaryFolder()
+    File buildFile
+    File composeFile
+
+    LocalStackDockerTestUtil dockerTestUtil = new LocalStackDockerTestUtil()
+
+    def setup() {
+        buildFile = testProjectDir.newFile('build.gradle')
+
+        testProjectDir.newFolder('localstack')
+        composeFile = testProjectDir.newFile('localstack/localstack-docker-compose.yml')
+    }
+
+    def cleanup() {
+        dockerTestUtil.killLocalStack()
+    }
+
+    def "should drain sqs queue to message file"() {
+        given:
+        buildFile << """
+            import com.nike.pdm.localstack.aws.sqs.CreateSqsQueuesTask
+
+            plugins {
+                id "java"
+                id "org.springframework.boot"           version "2.2.4.RELEASE"
+                id "io.spring.dependency-management"    version "1.0.9.RELEASE"
+            }
+            
+            apply plugin: "com.nike.pdm.localstack"
+            
+            task setupLocalQueue(type: CreateSqsQueuesTask) {
+                queueNames = [ 'catalog-product-change-notification' ]
+            }
+        """
+
+        composeFile << ComposeFile.getContents()
+
+        def sqsClient = AmazonSQSClientBuilder.standard()
+                .withEndpointConfiguration(new AwsClientBuilder.EndpointConfiguration('http://localhost:4566', 'us-east-1'))
+                .build()
+
+        when:
+        GradleRunner.create()
+                .withProjectDir(testProjectDir.root)
+                .withArguments('startLocalStack')
+                .withPluginClasspath()
+                .build()
+
+        def queueUrl = sqsClient.getQueueUrl('catalog-product-change-notification').getQueueUrl()
+        (1..25).each { sqsClient.sendMessage(queueUrl, "{\"id\":${it}}") }
+
+        def drainResult = GradleRunner.create()
+                .withProjectDir(testProjectDir.root)
+                .withArguments('drainSqsQueues', '--queueNames=catalog-product-change-notification', '--idleTimeoutSeconds=2')
+                .withPluginClasspath()
+                .build()
+
+        def messageFile = new File(testProjectDir.root, 'build/localstack/sqs/catalog-product-change-notification.ndjson')
+
+        then:
+        drainResult.task(":drainSqsQueues").outcome == SUCCESS
+        messageFile.readLines().toSet() == (1..25).collect { "{\"id\":${it}}".toString() }.toSet()
+        sqsClient.receiveMessage(queueUrl).getMessages().isEmpty()
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2020-present, Nike, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the Apache-2.0 license found in
+ * the LICENSE file in the root directory of this source tree.
+ */
+package com.nike.pdm.localstack.aws.sqs
+
+import com.nike.pdm.localstack.LocalStackDockerTestUtil
+import com.nike.pdm.localstack.util.ComposeFile
+import org.gradle.testkit.runner.GradleRunner
+import org.junit.Rule
+import org.junit.rules.TemporaryFolder
+import spock.lang.Specification
+import spock.lang.Timeout
+
+import java.util.concurrent.TimeUnit
+
+import static org.gradle.testkit.runner.TaskOutcome.SUCCESS
+
+@Timeout(value = 3, unit = TimeUnit.MINUTES)
+class GenerateSqsLoadFunctionalTest extends Specification {
+
+    @Rule TemporaryFolder testProjectDir = new TemporaryFolder()
+    File buildFile
+    File composeFile
+
+    LocalStackDockerTestUtil dockerTestUtil = new LocalStackDockerTestUtil()
+
+    def setup() {
+        buildFile = testProjectDir.newFile('build.gradle')
+
+        testProjectDir.newFolder('localstack')
+        composeFile = testProjectDir.newFile('localstack/localstack-docker-compose.yml')
+    }
+
+    def cleanup() {
+        dockerTestUtil.killLocalStack()
+    }
+
+    def "should publish generated messages to sqs queue"() {
+        given:
+        buildFile << """
+            import com.nike.pdm.localstack.aws.sqs.CreateSqsQueuesTask
+
+            plugins {
+                id "java"
+                id "org.springframework.boot"           version "2.2.4.RELEASE"
+                id "io.spring.dependency-management"    version "1.0.9.RELEASE"
+            }
+            
+            apply plugin: "com.nike.pdm.localstack"
+            
+            task setupLocalQueue(type: CreateSqsQueuesTask) {
+                queueNames = [ 'catalog-product-change-notification' ]
+                queueAttributes = [
+                        VisibilityTimeout: '10'
+                ]
+            }
+        """
+
+        composeFile << ComposeFile.getContents()
+
+        when:
+        def setupResult = GradleRunner.create()
+                .withProjectDir(testProjectDir.root)
+                .withArguments('startLocalStack')
+                .withPluginClasspath()
+                .build()
+
+        def generateResult = GradleRunner.create()
+                .withProjectDir(testProjectDir.root)
+                .withArguments('generateSqsLoad', '--queueNames=catalog-product-change-notification', '--count=25', '--seed=42',
+                        '--template={ "productId": {{seq}}, "color": "{{choice:red=2|blue}}" }')
+                .withPluginClasspath()
+                .build()
+
+        then:
+        generateResult.task(":generateSqsLoad").outcome == SUCCESS
+        generateResult.output.contains("Sent: 25, Failed: 0")
+    }
+}
@@ -83,4 +83,93 @@ class PublishSqsFunctionalTest extends Specification {
         then:
         publishResult.task(":publishSqs").outcome == SUCCESS
     }
+
+    def "should publish messages to sqs fifo queue by message group"() {
+        given:
+        buildFile << """
+            import com.nike.pdm.localstack.aws.sqs.CreateSqsQueuesTask
+
+            plugins {
+                id "java"
+                id "org.springframework.boot"           version "2.2.4.RELEASE"
+                id "io.spring.dependency-management"    version "1.0.9.RELEASE"
+            }
+            
+            apply plugin: "com.nike.pdm.localstack"
+            
+            task setupLocalQueue(type: CreateSqsQueuesTask) {
+                queueNames = [ 'catalog-product-change-notification.fifo' ]
+                queueAttributes = [
+                        FifoQueue: 'true'
+                ]
+            }
+        """
+
+        composeFile << ComposeFile.getContents()
+
+        (1..100).each { i ->
+            messageFile << "{ \"productId\": \"${i % 5}\", \"eventId\": \"${i}\" }\n"
+        }
+
+        when:
+        def setupResult = GradleRunner.create()
+                .withProjectDir(testProjectDir.root)
+                .withArguments('startLocalStack')
+                .withPluginClasspath()
+                .build()
+
+        def publishResult = GradleRunner.create()
+                .withProjectDir(testProjectDir.root)
+                .withArguments('publishSqs', '--queueNames=catalog-product-change-notification.fifo', '--message=\"' + messageFile.path + '\"',
+                        '--messageGroupIdField=productId', '--deduplicationIdField=eventId')
+                .withPluginClasspath()
+                .build()
+
+        then:
+        publishResult.task(":publishSqs").outcome == SUCCESS
+        publishResult.output.contains("Sent: 100, Failed: 0")
+    }
+
+    def "should offload large message payloads to s3"() {
+        given:
+        buildFile << """
+            import com.nike.pdm.localstack.aws.sqs.CreateSqsQueuesTask
+
+            plugins {
+                id "java"
+                id "org.springframework.boot"           version "2.2.4.RELEASE"
+                id "io.spring.dependency-management"    version "1.0.9.RELEASE"
+            }
+            
+            apply plugin: "com.nike.pdm.localstack"
+            
+            task setupLocalQueue(type: CreateSqsQueuesTask) {
+                queueNames = [ 'catalog-product-change-notification' ]
+            }
+        """
+
+        composeFile << ComposeFile.getContents()
+
+        messageFile << "{ \"productId\": \"12345\" }\n"
+        messageFile << "{ \"description\": \"${'a' * 300_000}\" }\n"
+
+        when:
+        def setupResult = GradleRunner.create()
+                .withProjectDir(testProjectDir.root)
+                .withArguments('startLocalStack')
+                .withPluginClasspath()
+                .build()
+
+        def publishResult = GradleRunner.create()
+                .withProjectDir(testProjectDir.root)
+                .withArguments('publishSqs', '--queueNames=catalog-product-change-notification', '--message=\"' + messageFile.path + '\"',
+                        '--largePayloadBucket=large-payloads')
+                .withPluginClasspath()
+                .build()
+
+        then:
+        publishResult.task(":publishSqs").outcome == SUCCESS
+        publishResult.output.contains("Sent: 2, Failed: 0")
+        publishResult.output.contains("Offloaded 1 message payload(s) to S3 bucket: large-payloads")
+    }
 }
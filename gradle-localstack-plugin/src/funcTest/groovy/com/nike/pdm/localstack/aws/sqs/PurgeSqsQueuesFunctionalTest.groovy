@@ -87,4 +87,55 @@ class PurgeSqsQueuesFunctionalTest extends Specification {
         then:
         purgeResult.task(":purgeSqsQueues").outcome == SUCCESS
     }
+
+    def "should empty sqs queue purged twice and await empty"() {
+        given:
+        buildFile << """
+            import com.nike.pdm.localstack.aws.sqs.CreateSqsQueuesTask
+
+            plugins {
+                id "java"
+                id "org.springframework.boot"           version "2.2.4.RELEASE"
+                id "io.spring.dependency-management"    version "1.0.9.RELEASE"
+            }
+            
+            apply plugin: "com.nike.pdm.localstack"
+            
+            task setupLocalQueue(type: CreateSqsQueuesTask) {
+                queueNames = [ 'catalog-product-change-notification', 'catalog-price-change-notification' ]
+            }
+        """
+
+        composeFile << ComposeFile.getContents()
+
+        def sqsClient = AmazonSQSClientBuilder.standard()
+                .withEndpointConfiguration(new AwsClientBuilder.EndpointConfiguration('http://localhost:4566', 'us-east-1'))
+                .build()
+
+        when:
+        GradleRunner.create()
+                .withProjectDir(testProjectDir.root)
+                .withArguments('startLocalStack')
+                .withPluginClasspath()
+                .build()
+
+        GradleRunner.create()
+                .withProjectDir(testProjectDir.root)
+                .withArguments('purgeSqsQueues', '--queueNames=catalog-product-change-notification,catalog-price-change-notification')
+                .withPluginClasspath()
+                .build()
+
+        def queueUrl = sqsClient.getQueueUrl('catalog-product-change-notification').getQueueUrl()
+        25.times { sqsClient.sendMessage(queueUrl, "Message ${it}") }
+
+        def purgeResult = GradleRunner.create()
+                .withProjectDir(testProjectDir.root)
+                .withArguments('purgeSqsQueues', '--queueNames=catalog-product-change-notification,catalog-price-change-notification', '--awaitEmpty=true')
+                .withPluginClasspath()
+                .build()
+
+        then:
+        purgeResult.task(":purgeSqsQueues").outcome == SUCCESS
+        sqsClient.getQueueAttributes(queueUrl, ['ApproximateNumberOfMessages']).getAttributes().get('ApproximateNumberOfMessages') == '0'
+    }
 }
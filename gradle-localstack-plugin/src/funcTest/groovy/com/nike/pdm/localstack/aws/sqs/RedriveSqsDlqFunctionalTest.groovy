@@ -0,0 +1,101 @@
+/*
+ * Copyright 2020-present, Nike, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the Apache-2.0 license found in
+ * the LICENSE file in the root directory of this source tree.
+ */
+package com.nike.pdm.localstack.aws.sqs
+
+import com.amazonaws.client.builder.AwsClientBuilder
+import com.amazonaws.services.sqs.AmazonSQSClientBuilder
+import com.amazonaws.services.sqs.model.ReceiveMessageRequest
+import com.nike.pdm.localstack.LocalStackDockerTestUtil
+import com.nike.pdm.localstack.util.ComposeFile
+import org.gradle.testkit.runner.GradleRunner
+import org.junit.Rule
+import org.junit.rules.TemporaryFolder
+import spock.lang.Specification
+import spock.lang.Timeout
+
+import java.util.concurrent.TimeUnit
+
+import static org.gradle.testkit.runner.TaskOutcome.SUCCESS
+
+@Timeout(value = 3, unit = TimeUnit.MINUTES)
+class RedriveSqsDlqFunctionalTest extends Specification {
+
+    @Rule TemporaryFolder testProjectDir = new TemporaryFolder()
+    File buildFile
+    File composeFile
+
+    LocalStackDockerTestUtil dockerTestUtil = new LocalStackDockerTestUtil()
+
+    def setup() {
+        buildFile = testProjectDir.newFile('build.gradle')
+
+        testProjectDir.newFolder('localstack')
+        composeFile = testProjectDir.newFile('localstack/localstack-docker-compose.yml')
+    }
+
+    def cleanup() {
+        dockerTestUtil.killLocalStack()
+    }
+
+    def "should redrive sqs dlq to source queue"() {
+        given:
+        buildFile << """
+            import com.nike.pdm.localstack.aws.sqs.CreateSqsQueueWithDlqTask
+
+            plugins {
+                id "java"
+                id "org.springframework.boot"           version "2.2.4.RELEASE"
+                id "io.spring.dependency-management"    version "1.0.9.RELEASE"
+            }
+            
+            apply plugin: "com.nike.pdm.localstack"
+            
+            task setupLocalQueue(type: CreateSqsQueueWithDlqTask) {
+                queueName = 'catalog-product-change-notification'
+            }
+        """
+
+        composeFile << ComposeFile.getContents()
+
+        def sqsClient = AmazonSQSClientBuilder.standard()
+                .withEndpointConfiguration(new AwsClientBuilder.EndpointConfiguration('http://localhost:4566', 'us-east-1'))
+                .build()
+
+        when:
+        GradleRunner.create()
+                .withProjectDir(testProjectDir.root)
+                .withArguments('startLocalStack', 'setupLocalQueue')
+                .withPluginClasspath()
+                .build()
+
+        def dlqUrl = sqsClient.getQueueUrl('catalog-product-change-notification-dlq').getQueueUrl()
+        (1..25).each { sqsClient.sendMessage(dlqUrl, "{\"id\":${it}}") }
+
+        def redriveResult = GradleRunner.create()
+                .withProjectDir(testProjectDir.root)
+                .withArguments('redriveSqsDlq',
+                        '--dlqName=catalog-product-change-notification-dlq',
+                        '--sourceQueueName=catalog-product-change-notification',
+                        '--idleTimeoutSeconds=2')
+                .withPluginClasspath()
+                .build()
+
+        def queueUrl = sqsClient.getQueueUrl('catalog-product-change-notification').getQueueUrl()
+        def received = [] as Set
+        def messages
+        while (!(messages = sqsClient.receiveMessage(new ReceiveMessageRequest(queueUrl).withMaxNumberOfMessages(10)).getMessages()).isEmpty()) {
+            received.addAll(messages*.body)
+        }
+
+        then:
+        redriveResult.task(":redriveSqsDlq").outcome == SUCCESS
+        redriveResult.output.contains('Moved: 25, Failed: 0')
+        received == (1..25).collect { "{\"id\":${it}}".toString() }.toSet()
+        sqsClient.receiveMessage(dlqUrl).getMessages().isEmpty()
+    }
+}
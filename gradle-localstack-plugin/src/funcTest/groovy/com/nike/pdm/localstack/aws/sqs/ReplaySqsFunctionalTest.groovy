@@ -0,0 +1,88 @@
+/*
+ * Copyright 2020-present, Nike, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the Apache-2.0 license found in
+ * the LICENSE file in the root directory of this source tree.
+ */
+package com.nike.pdm.localstack.aws.sqs
+
+import com.nike.pdm.localstack.LocalStackDockerTestUtil
+import com.nike.pdm.localstack.util.ComposeFile
+import org.gradle.testkit.runner.GradleRunner
+import org.junit.Rule
+import org.junit.rules.TemporaryFolder
+import spock.lang.Specification
+import spock.lang.Timeout
+
+import java.util.concurrent.TimeUnit
+
+import static org.gradle.testkit.runner.TaskOutcome.SUCCESS
+
+@Timeout(value = 3, unit = TimeUnit.MINUTES)
+class ReplaySqsFunctionalTest extends Specification {
+
+    @Rule TemporaryFolder testProjectDir = new TemporaryFolder()
+    File buildFile
+    File composeFile
+    File messageFile
+
+    LocalStackDockerTestUtil dockerTestUtil = new LocalStackDockerTestUtil()
+
+    def setup() {
+        buildFile = testProjectDir.newFile('build.gradle')
+
+        testProjectDir.newFolder('localstack')
+        composeFile = testProjectDir.newFile('localstack/localstack-docker-compose.yml')
+
+        messageFile = testProjectDir.newFile('messages.ndjson')
+    }
+
+    def cleanup() {
+        dockerTestUtil.killLocalStack()
+    }
+
+    def "should replay timestamped messages to sqs queue"() {
+        given:
+        buildFile << """
+            import com.nike.pdm.localstack.aws.sqs.CreateSqsQueuesTask
+
+            plugins {
+                id "java"
+                id "org.springframework.boot"           version "2.2.4.RELEASE"
+                id "io.spring.dependency-management"    version "1.0.9.RELEASE"
+            }
+            
+            apply plugin: "com.nike.pdm.localstack"
+            
+            task setupLocalQueue(type: CreateSqsQueuesTask) {
+                queueNames = [ 'catalog-product-change-notification' ]
+                queueAttributes = [
+                        VisibilityTimeout: '10'
+                ]
+            }
+        """
+
+        composeFile << ComposeFile.getContents()
+
+        messageFile << "{ \"timestamp\": \"2020-09-13T12:26:40.000Z\", \"body\": { \"productId\": \"12345\" } }\n"
+        messageFile << "{ \"timestamp\": \"2020-09-13T12:26:40.500Z\", \"body\": { \"productId\": \"67890\" } }\n"
+
+        when:
+        def setupResult = GradleRunner.create()
+                .withProjectDir(testProjectDir.root)
+                .withArguments('startLocalStack')
+                .withPluginClasspath()
+                .build()
+
+        def replayResult = GradleRunner.create()
+                .withProjectDir(testProjectDir.root)
+                .withArguments('replaySqs', '--queueNames=catalog-product-change-notification', '--message=\"' + messageFile.path + '\"', '--bodyField=body', '--speed=10')
+                .withPluginClasspath()
+                .build()
+
+        then:
+        replayResult.task(":replaySqs").outcome == SUCCESS
+        replayResult.output.contains("Sent: 2, Failed: 0")
+    }
+}
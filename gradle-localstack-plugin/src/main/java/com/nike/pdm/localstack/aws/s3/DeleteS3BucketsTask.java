@@ -8,11 +8,6 @@
 package com.nike.pdm.localstack.aws.s3;
 
 import com.amazonaws.services.s3.AmazonS3;
-import com.amazonaws.services.s3.model.ListVersionsRequest;
-import com.amazonaws.services.s3.model.ObjectListing;
-import com.amazonaws.services.s3.model.S3ObjectSummary;
-import com.amazonaws.services.s3.model.S3VersionSummary;
-import com.amazonaws.services.s3.model.VersionListing;
 import com.amazonaws.util.StringUtils;
 import com.nike.pdm.localstack.aws.AwsClientFactory;
 import com.nike.pdm.localstack.compose.LocalStackModule;
@@ -28,7 +23,6 @@ import org.gradle.api.tasks.options.Option;
 
 import java.util.Arrays;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -61,46 +55,18 @@ public class DeleteS3BucketsTask extends DefaultTask {
                 buckets.forEach(bucketName -> {
                     ConsoleLogger.log("Deleting S3 bucket: %s", bucketName);
 
-                    ObjectListing objectListing = amazonS3.listObjects(bucketName);
-                    while (true) {
-                        Iterator<S3ObjectSummary> objIter = objectListing.getObjectSummaries().iterator();
-                        while (objIter.hasNext()) {
-                            // Only delete buckets that contain objects/versions if the force parameter is true
-                            if (!force) {
-                                throw new GradleException("Bucket is not empty and the 'force' parameter is set to 'false': " + bucketName);
-                            }
-
-                            amazonS3.deleteObject(bucketName, objIter.next().getKey());
-                        }
-
-                        if (objectListing.isTruncated()) {
-                            objectListing = amazonS3.listNextBatchOfObjects(objectListing);
-                        } else {
-                            break;
-                        }
+                    // Versioned S3 buckets are emptied by deleting their versions, deleting objects only adds delete markers
+                    final boolean versioned = s3TaskUtil.isBucketVersioned(bucketName);
+                    final S3BucketPurger purger = new S3BucketPurger(amazonS3);
+
+                    // Only delete buckets that contain objects/versions if the force parameter is true
+                    if (!force && !purger.isEmpty(bucketName, versioned)) {
+                        throw new GradleException("Bucket is not empty and the 'force' parameter is set to 'false': " + bucketName);
                     }
 
-                    // Versioned S3 buckets must have their versions removed separately from the objects
-                    if (s3TaskUtil.isBucketVersioned(bucketName)) {
-                        VersionListing versionList = amazonS3.listVersions(new ListVersionsRequest().withBucketName(bucketName));
-                        while (true) {
-                            Iterator<S3VersionSummary> versionIter = versionList.getVersionSummaries().iterator();
-                            while (versionIter.hasNext()) {
-                                // Only delete buckets that contain objects/versions if the force parameter is true
-                                if (!force) {
-                                    throw new GradleException("Bucket is not empty and the 'force' parameter is set to 'false': " + bucketName);
-                                }
-
-                                S3VersionSummary vs = versionIter.next();
-                                amazonS3.deleteVersion(bucketName, vs.getKey(), vs.getVersionId());
-                            }
-
-                            if (versionList.isTruncated()) {
-                                versionList = amazonS3.listNextBatchOfVersions(versionList);
-                            } else {
-                                break;
-                            }
-                        }
+                    if (force) {
+                        final long purgeCnt = purger.purge(bucketName, versioned);
+                        ConsoleLogger.log("Deleted %d %s from bucket: %s", purgeCnt, versioned ? "versions" : "objects", bucketName);
                     }
 
                     // Once the bucket has been purged it can be deleted
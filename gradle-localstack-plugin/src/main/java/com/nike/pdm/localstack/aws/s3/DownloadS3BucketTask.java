@@ -0,0 +1,307 @@
+/**
+ * Copyright 2020-present, Nike, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the Apache-2.0 license found in
+ * the LICENSE file in the root directory of this source tree.
+ */
+package com.nike.pdm.localstack.aws.s3;
+
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.util.StringUtils;
+import com.nike.pdm.localstack.aws.AwsClientFactory;
+import com.nike.pdm.localstack.compose.LocalStackModule;
+import com.nike.pdm.localstack.core.ConsoleLogger;
+import com.nike.pdm.localstack.core.Retry;
+import org.apache.commons.io.FileUtils;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.Optional;
+import org.gradle.api.tasks.OutputDirectory;
+import org.gradle.api.tasks.TaskAction;
+import org.gradle.api.tasks.options.Option;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Task that downloads the objects of an S3 bucket into a directory, such as a snapshot of what an application wrote
+ * during an integration test.
+ */
+public class DownloadS3BucketTask extends DefaultTask {
+
+    @Input
+    private String bucketName;
+
+    @Optional
+    @Input
+    private String prefix;
+
+    @Optional
+    @Input
+    private String modifiedSince;
+
+    @Optional
+    @OutputDirectory
+    private File outputDir;
+
+    @Optional
+    @Input
+    private Integer parallelism = 8;
+
+    @Optional
+    @Input
+    private Long partSize = S3BucketDownloader.DEFAULT_PART_SIZE;
+
+    public DownloadS3BucketTask() {
+        setMustRunAfter(Arrays.asList(LocalStackModule.START_LOCALSTACK_TASK_NAME));
+
+        // The contents of the bucket are not known to gradle, so the task is never up to date
+        getOutputs().upToDateWhen(task -> false);
+    }
+
+    @TaskAction
+    public void run() {
+        final Set<Class<? extends Throwable>> expectedErrors = new HashSet<>(Arrays.asList(GradleException.class));
+        final Date since = parseModifiedSince();
+        final File dir = getOutputDir();
+        checkOutputDir(dir);
+
+        ConsoleLogger.log("Downloading S3 bucket %s to: %s", bucketName, dir.getAbsolutePath());
+
+        final long start = System.currentTimeMillis();
+
+        // The download is a snapshot of the bucket, so files left over from a previous download are removed first
+        final S3BucketDownloader downloader = Retry.execute(() -> {
+            final AmazonS3 amazonS3 = AwsClientFactory.getInstance().s3(getProject());
+            if (!amazonS3.doesBucketExistV2(bucketName)) {
+                throw new GradleException("Bucket does not exist: " + bucketName);
+            }
+
+            try {
+                FileUtils.deleteDirectory(dir);
+            } catch (IOException e) {
+                throw new GradleException("Unable to clean output directory: " + dir.getAbsolutePath(), e);
+            }
+
+            final S3BucketDownloader attempt = new S3BucketDownloader(amazonS3, bucketName, prefix, since, getParallelism(), getPartSize());
+            attempt.download(dir);
+            return attempt;
+        }, expectedErrors);
+
+        if (downloader.getFiltered() > 0) {
+            ConsoleLogger.log("Skipped %d object(s) last modified before %s", downloader.getFiltered(), modifiedSince);
+        }
+
+        ConsoleLogger.log("Downloaded S3 bucket: %s (%d objects, %d bytes). Elapsed: %d ms", bucketName,
+                downloader.getDownloaded(), downloader.getDownloadedBytes(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Makes sure the output directory, which is emptied before every download, does not hold the project or its build.
+     */
+    private void checkOutputDir(File dir) {
+        final Path path = dir.toPath().toAbsolutePath().normalize();
+        final Path projectDir = getProject().getProjectDir().toPath().toAbsolutePath().normalize();
+        final Path rootDir = getProject().getRootDir().toPath().toAbsolutePath().normalize();
+        final Path buildDir = getProject().getBuildDir().toPath().toAbsolutePath().normalize();
+
+        if (projectDir.startsWith(path) || rootDir.startsWith(path) || buildDir.equals(path)) {
+            throw new GradleException("Output directory is emptied before every download and must not be the project, "
+                    + "root project, or build directory, or hold any of them: " + path);
+        }
+    }
+
+    private Date parseModifiedSince() {
+        if (StringUtils.isNullOrEmpty(modifiedSince)) {
+            return null;
+        }
+
+        try {
+            return Date.from(Instant.parse(modifiedSince.trim()));
+        } catch (DateTimeParseException e) {
+            throw new GradleException("Invalid 'modifiedSince', expected an ISO-8601 instant such as 2020-01-01T00:00:00Z: " + modifiedSince, e);
+        }
+    }
+
+    @Internal
+    @Override
+    public String getGroup() {
+        return S3Module.GROUP_NAME;
+    }
+
+    @Internal
+    @Override
+    public String getDescription() {
+        return "Downloads the objects of an S3 bucket into a directory.";
+    }
+
+    /**
+     * Gets the name of the bucket to download.
+     *
+     * @return bucket name
+     */
+    public String getBucketName() {
+        return bucketName;
+    }
+
+    /**
+     * Sets the name of the bucket to download.
+     *
+     * @param bucketName bucket name
+     */
+    @Option(option = "bucketName", description = "Name of the bucket to download")
+    public void setBucketName(String bucketName) {
+        this.bucketName = bucketName;
+    }
+
+    /**
+     * Gets the prefix of the keys to download.
+     *
+     * @return key prefix
+     */
+    public String getPrefix() {
+        return prefix;
+    }
+
+    /**
+     * Sets the prefix of the keys to download. Only objects whose key starts with the prefix are downloaded.
+     *
+     * @param prefix key prefix
+     */
+    @Option(option = "prefix", description = "Only download objects whose key starts with the prefix")
+    public void setPrefix(String prefix) {
+        this.prefix = prefix;
+    }
+
+    /**
+     * Gets the time, as an ISO-8601 instant, before which objects were last modified are not downloaded.
+     *
+     * @return modified since
+     */
+    public String getModifiedSince() {
+        return modifiedSince;
+    }
+
+    /**
+     * Sets the time, as an ISO-8601 instant such as <code>2020-01-01T00:00:00Z</code>, before which objects were last
+     * modified are not downloaded.
+     *
+     * @param modifiedSince modified since
+     */
+    @Option(option = "modifiedSince", description = "Only download objects last modified at or after this ISO-8601 instant")
+    public void setModifiedSince(String modifiedSince) {
+        this.modifiedSince = modifiedSince;
+    }
+
+    /**
+     * Gets the directory to which the objects are downloaded, each under its key. Defaults to
+     * <code>build/localstack/s3/&lt;bucketName&gt;</code>. The directory is emptied before every download, so it may not
+     * be the project, root project, or build directory, or a directory holding any of them.
+     *
+     * @return output directory
+     */
+    public File getOutputDir() {
+        if (outputDir != null) {
+            return outputDir;
+        }
+
+        final File s3Dir = Paths.get(getProject().getBuildDir().getAbsolutePath(), "localstack", "s3").toFile();
+        return bucketName != null ? new File(s3Dir, bucketName) : s3Dir;
+    }
+
+    /**
+     * Sets the directory to which the objects are downloaded.
+     *
+     * @param outputDir output directory
+     */
+    public void setOutputDir(File outputDir) {
+        this.outputDir = outputDir;
+    }
+
+    /**
+     * Sets the directory to which the objects are downloaded. This method allows the directory to be specified as a
+     * path relative to the project directory.
+     *
+     * @param path output directory path
+     */
+    @Option(option = "outputDir", description = "Directory to which to download the objects")
+    public void setOutputDir(String path) {
+        if (!StringUtils.isNullOrEmpty(path)) {
+            setOutputDir(getProject().file(path.trim()));
+        }
+    }
+
+    /**
+     * Gets the maximum number of prefixes listed, and of objects or parts of objects downloaded, at the same time.
+     * Defaults to 8.
+     *
+     * @return parallelism
+     */
+    public Integer getParallelism() {
+        return parallelism != null ? parallelism : 8;
+    }
+
+    /**
+     * Sets the maximum number of prefixes listed, and of objects or parts of objects downloaded, at the same time.
+     *
+     * @param parallelism parallelism
+     */
+    public void setParallelism(Integer parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Sets the maximum number of prefixes listed, and of objects or parts of objects downloaded, at the same time. This
+     * method allows the parallelism to be specified on the command line.
+     *
+     * @param parallelism parallelism
+     */
+    @Option(option = "parallelism", description = "Maximum number of objects or parts downloaded at the same time")
+    public void setParallelism(String parallelism) {
+        if (!StringUtils.isNullOrEmpty(parallelism)) {
+            setParallelism(Integer.parseInt(parallelism.trim()));
+        }
+    }
+
+    /**
+     * Gets the size in bytes of the ranges that larger objects are split into. Defaults to 8 MB.
+     *
+     * @return part size in bytes
+     */
+    public Long getPartSize() {
+        return partSize != null ? partSize : S3BucketDownloader.DEFAULT_PART_SIZE;
+    }
+
+    /**
+     * Sets the size in bytes of the ranges that larger objects are split into.
+     *
+     * @param partSize part size in bytes
+     */
+    public void setPartSize(Long partSize) {
+        this.partSize = partSize;
+    }
+
+    /**
+     * Sets the size in bytes of the ranges that larger objects are split into. This method allows the part size to be
+     * specified on the command line.
+     *
+     * @param partSize part size in bytes
+     */
+    @Option(option = "partSize", description = "Size in bytes of the ranges that larger objects are split into")
+    public void setPartSize(String partSize) {
+        if (!StringUtils.isNullOrEmpty(partSize)) {
+            setPartSize(Long.parseLong(partSize.trim()));
+        }
+    }
+}
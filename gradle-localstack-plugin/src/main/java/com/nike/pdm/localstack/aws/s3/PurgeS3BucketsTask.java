@@ -8,11 +8,6 @@
 package com.nike.pdm.localstack.aws.s3;
 
 import com.amazonaws.services.s3.AmazonS3;
-import com.amazonaws.services.s3.model.ListVersionsRequest;
-import com.amazonaws.services.s3.model.ObjectListing;
-import com.amazonaws.services.s3.model.S3ObjectSummary;
-import com.amazonaws.services.s3.model.S3VersionSummary;
-import com.amazonaws.services.s3.model.VersionListing;
 import com.amazonaws.util.StringUtils;
 import com.nike.pdm.localstack.aws.AwsClientFactory;
 import com.nike.pdm.localstack.compose.LocalStackModule;
@@ -21,11 +16,11 @@ import com.nike.pdm.localstack.core.Retry;
 import org.gradle.api.DefaultTask;
 import org.gradle.api.tasks.Input;
 import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.Optional;
 import org.gradle.api.tasks.TaskAction;
 import org.gradle.api.tasks.options.Option;
 
 import java.util.Arrays;
-import java.util.Iterator;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -37,6 +32,14 @@ public class PurgeS3BucketsTask extends DefaultTask {
     @Input
     private List<String> buckets;
 
+    @Optional
+    @Input
+    private Boolean sharded = false;
+
+    @Optional
+    @Input
+    private Integer parallelism = 8;
+
     public PurgeS3BucketsTask() {
         setMustRunAfter(Arrays.asList(LocalStackModule.START_LOCALSTACK_TASK_NAME));
     }
@@ -51,43 +54,18 @@ public class PurgeS3BucketsTask extends DefaultTask {
                 buckets.forEach(bucketName -> {
                     ConsoleLogger.log("Purging S3 bucket: %s", bucketName);
 
-                    ObjectListing objectListing = amazonS3.listObjects(bucketName);
-                    long purgeCnt = 0;
-                    while (true) {
-                        Iterator<S3ObjectSummary> objIter = objectListing.getObjectSummaries().iterator();
-                        while (objIter.hasNext()) {
-                            amazonS3.deleteObject(bucketName, objIter.next().getKey());
-                            purgeCnt++;
-                        }
-
-                        if (objectListing.isTruncated()) {
-                            objectListing = amazonS3.listNextBatchOfObjects(objectListing);
-                        } else {
-                            break;
-                        }
-                    }
-
-                    // Versioned S3 buckets must have their versions removed separately from the objects
-                    if (s3TaskUtil.isBucketVersioned(bucketName)) {
+                    // Versioned S3 buckets are emptied by deleting their versions, deleting objects only adds delete markers
+                    final boolean versioned = s3TaskUtil.isBucketVersioned(bucketName);
+                    if (versioned) {
                         ConsoleLogger.log("Bucket versioning detected. Purging versions.");
-
-                        VersionListing versionList = amazonS3.listVersions(new ListVersionsRequest().withBucketName(bucketName));
-                        while (true) {
-                            Iterator<S3VersionSummary> versionIter = versionList.getVersionSummaries().iterator();
-                            while (versionIter.hasNext()) {
-                                S3VersionSummary vs = versionIter.next();
-                                amazonS3.deleteVersion(bucketName, vs.getKey(), vs.getVersionId());
-                            }
-
-                            if (versionList.isTruncated()) {
-                                versionList = amazonS3.listNextBatchOfVersions(versionList);
-                            } else {
-                                break;
-                            }
-                        }
                     }
 
-                    ConsoleLogger.log("Purged S3 bucket: %s", bucketName);
+                    final S3BucketPurger purger = new S3BucketPurger(amazonS3);
+                    final long purgeCnt = getSharded()
+                            ? purger.purgeSharded(bucketName, versioned, getParallelism())
+                            : purger.purge(bucketName, versioned);
+
+                    ConsoleLogger.log("Purged S3 bucket: %s (%d %s deleted)", bucketName, purgeCnt, versioned ? "versions" : "objects");
                 });
             }
 
@@ -139,4 +117,55 @@ public class PurgeS3BucketsTask extends DefaultTask {
                     .collect(Collectors.toList()));
         }
     }
+
+    /**
+     * Gets whether or not the top-level prefixes of each bucket are listed and purged in parallel. Defaults to
+     * <code>false</code>.
+     *
+     * @return <code>true</code> if buckets are purged one prefix per thread; otherwise <code>false</code>
+     */
+    public Boolean getSharded() {
+        return sharded != null ? sharded : false;
+    }
+
+    /**
+     * Sets whether or not the top-level prefixes of each bucket are listed and purged in parallel.
+     *
+     * @param sharded <code>true</code> if buckets are purged one prefix per thread; otherwise <code>false</code>
+     */
+    @Option(option = "sharded", description = "List and purge the top-level prefixes of each bucket in parallel")
+    public void setSharded(Boolean sharded) {
+        this.sharded = sharded;
+    }
+
+    /**
+     * Gets the maximum number of prefixes listed at the same time by a sharded purge. Defaults to 8.
+     *
+     * @return parallelism
+     */
+    public Integer getParallelism() {
+        return parallelism != null ? parallelism : 8;
+    }
+
+    /**
+     * Sets the maximum number of prefixes listed at the same time by a sharded purge.
+     *
+     * @param parallelism parallelism
+     */
+    public void setParallelism(Integer parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Sets the maximum number of prefixes listed at the same time by a sharded purge. This method allows the
+     * parallelism to be specified on the command line.
+     *
+     * @param parallelism parallelism
+     */
+    @Option(option = "parallelism", description = "Maximum number of prefixes listed at the same time by a sharded purge")
+    public void setParallelism(String parallelism) {
+        if (!StringUtils.isNullOrEmpty(parallelism)) {
+            setParallelism(Integer.parseInt(parallelism.trim()));
+        }
+    }
 }
@@ -0,0 +1,241 @@
+/**
+ * Copyright 2020-present, Nike, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the Apache-2.0 license found in
+ * the LICENSE file in the root directory of this source tree.
+ */
+package com.nike.pdm.localstack.aws.s3;
+
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.DeleteObjectsRequest;
+import com.amazonaws.services.s3.model.DeleteObjectsRequest.KeyVersion;
+import com.amazonaws.services.s3.model.MultiObjectDeleteException;
+import com.amazonaws.services.s3.model.MultiObjectDeleteException.DeleteError;
+import com.nike.pdm.localstack.core.Retry;
+import org.gradle.api.GradleException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Deletes the objects, or object versions, of an S3 bucket with DeleteObjects requests of up to 1,000 keys each.
+ *
+ * <p>Requests are sent in the background by several threads, so the caller can list the next page of keys while the
+ * previous pages are being deleted. The number of requests in flight is bounded, and {@link #delete(List)} blocks when
+ * it is reached, so memory use does not grow with the size of the bucket. Keys may be queued from several threads.
+ *
+ * <p>A request that fails as a whole is retried with {@link Retry}. Keys that a request reports it could not delete are
+ * sent again on their own, up to the maximum number of attempts, after which they are counted as failed.
+ */
+final class S3BatchDeleter {
+
+    /**
+     * Maximum number of keys in a single DeleteObjects request.
+     */
+    static final int MAX_KEYS_PER_REQUEST = 1000;
+
+    /**
+     * Maximum number of DeleteObjects requests in flight at the same time.
+     */
+    static final int MAX_CONCURRENT_REQUESTS = 8;
+
+    /**
+     * Number of times a key that could not be deleted is sent.
+     */
+    static final int DEFAULT_MAX_ATTEMPTS = 5;
+
+    private static final long DEFAULT_BACKOFF_MILLIS = 200;
+
+    /**
+     * Maximum number of failed keys whose errors are kept for reporting.
+     */
+    private static final int MAX_REPORTED_ERRORS = 10;
+
+    private static final AtomicInteger POOL_COUNT = new AtomicInteger();
+
+    private final AmazonS3 s3;
+    private final String bucketName;
+    private final int maxAttempts;
+    private final long backoffMillis;
+    private final ExecutorService executor;
+    private final Semaphore inFlight;
+    private final Queue<Future<Void>> requests = new ConcurrentLinkedQueue<>();
+    private final AtomicLong deleted = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final List<DeleteError> errors = Collections.synchronizedList(new ArrayList<>());
+
+    /**
+     * Creates a deleter.
+     *
+     * @param s3 s3 client
+     * @param bucketName name of the bucket to delete from
+     */
+    S3BatchDeleter(AmazonS3 s3, String bucketName) {
+        this(s3, bucketName, MAX_CONCURRENT_REQUESTS);
+    }
+
+    /**
+     * Creates a deleter.
+     *
+     * @param s3 s3 client
+     * @param bucketName name of the bucket to delete from
+     * @param concurrency maximum number of requests in flight
+     */
+    S3BatchDeleter(AmazonS3 s3, String bucketName, int concurrency) {
+        this(s3, bucketName, concurrency, DEFAULT_MAX_ATTEMPTS, DEFAULT_BACKOFF_MILLIS);
+    }
+
+    S3BatchDeleter(AmazonS3 s3, String bucketName, int concurrency, int maxAttempts, long backoffMillis) {
+        if (concurrency < 1) {
+            throw new IllegalArgumentException("Concurrency must be greater than zero: " + concurrency);
+        }
+
+        this.s3 = s3;
+        this.bucketName = bucketName;
+        this.maxAttempts = maxAttempts;
+        this.backoffMillis = backoffMillis;
+        this.inFlight = new Semaphore(concurrency);
+
+        final int poolId = POOL_COUNT.incrementAndGet();
+        final AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(concurrency, r -> {
+            final Thread thread = new Thread(r, String.format("s3-deleter-%d-%d", poolId, threadCount.incrementAndGet()));
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Queues keys for deletion, splitting them into requests of up to 1,000 keys. Blocks while the maximum number of
+     * requests is in flight.
+     *
+     * @param keys keys, with their version ids for versioned objects
+     */
+    void delete(List<KeyVersion> keys) {
+        for (int from = 0; from < keys.size(); from += MAX_KEYS_PER_REQUEST) {
+            final List<KeyVersion> batch = new ArrayList<>(keys.subList(from, Math.min(keys.size(), from + MAX_KEYS_PER_REQUEST)));
+
+            try {
+                inFlight.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new GradleException("Interrupted while deleting objects from bucket: " + bucketName, e);
+            }
+
+            requests.add(executor.submit(() -> {
+                try {
+                    deleteBatch(batch);
+                } finally {
+                    inFlight.release();
+                }
+
+                return null;
+            }));
+        }
+    }
+
+    /**
+     * Waits for every queued key to have been deleted or to have failed.
+     *
+     * @return number of keys deleted
+     * @throws GradleException if a request failed after all retries or any key could not be deleted
+     */
+    long await() {
+        try {
+            for (Future<Void> request : requests) {
+                try {
+                    request.get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new GradleException("Interrupted while deleting objects from bucket: " + bucketName, e);
+                } catch (ExecutionException e) {
+                    throw new GradleException(String.format("Error occurred while deleting objects from bucket %s: %s", bucketName, e.getCause().getMessage()), e.getCause());
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        if (failed.get() > 0) {
+            throw new GradleException(String.format("Failed to delete %d object(s) from bucket %s, deleted %d: %s", failed.get(), bucketName, deleted.get(),
+                    errors.stream()
+                            .map(error -> String.format("%s (%s: %s)", error.getKey(), error.getCode(), error.getMessage()))
+                            .collect(Collectors.joining(", "))));
+        }
+
+        return deleted.get();
+    }
+
+    /**
+     * Stops sending requests, abandoning the keys that have not been deleted yet.
+     */
+    void cancel() {
+        executor.shutdownNow();
+    }
+
+    long getDeleted() {
+        return deleted.get();
+    }
+
+    private void deleteBatch(List<KeyVersion> keys) throws InterruptedException {
+        List<KeyVersion> pending = keys;
+
+        for (int attempt = 1; ; attempt++) {
+            final List<KeyVersion> batch = pending;
+            final List<DeleteError> batchErrors = Retry.execute(() -> send(batch), maxAttempts);
+
+            deleted.addAndGet(batch.size() - batchErrors.size());
+
+            if (batchErrors.isEmpty()) {
+                return;
+            }
+
+            if (attempt >= maxAttempts) {
+                failed.addAndGet(batchErrors.size());
+                for (DeleteError error : batchErrors) {
+                    if (errors.size() >= MAX_REPORTED_ERRORS) {
+                        break;
+                    }
+
+                    errors.add(error);
+                }
+
+                return;
+            }
+
+            pending = batchErrors.stream()
+                    .map(error -> new KeyVersion(error.getKey(), error.getVersionId()))
+                    .collect(Collectors.toList());
+
+            Thread.sleep(backoffMillis * attempt);
+        }
+    }
+
+    /**
+     * Sends a DeleteObjects request.
+     *
+     * @param keys at most 1,000 keys
+     * @return keys that could not be deleted
+     */
+    private List<DeleteError> send(List<KeyVersion> keys) {
+        try {
+            // Quiet mode only reports the keys that could not be deleted, keeping responses small
+            s3.deleteObjects(new DeleteObjectsRequest(bucketName).withKeys(keys).withQuiet(true));
+            return Collections.emptyList();
+        } catch (MultiObjectDeleteException e) {
+            return e.getErrors();
+        }
+    }
+}
@@ -0,0 +1,414 @@
+/**
+ * Copyright 2020-present, Nike, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the Apache-2.0 license found in
+ * the LICENSE file in the root directory of this source tree.
+ */
+package com.nike.pdm.localstack.aws.s3;
+
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.ListObjectsV2Request;
+import com.amazonaws.services.s3.model.ListObjectsV2Result;
+import com.amazonaws.services.s3.model.S3Object;
+import com.amazonaws.services.s3.model.S3ObjectSummary;
+import org.gradle.api.GradleException;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Downloads the objects of an S3 bucket into a directory, each under its key.
+ *
+ * <p>The top-level prefixes of the bucket are listed in parallel, the same way as a sharded purge, and every object
+ * found is queued for download as soon as its listing page arrives. Listing blocks while too many objects are waiting
+ * to be downloaded, so memory use does not grow with the size of the bucket.
+ *
+ * <p>Objects larger than the part size are split into ranged GETs that are downloaded in parallel and written straight
+ * to their position in the file through a shared {@link FileChannel}. Each object is written to a temporary file that
+ * is only moved into place once every part has been written, so a failed download never leaves a truncated file
+ * behind. A downloader is meant to be used for a single download.
+ */
+final class S3BucketDownloader {
+
+    /**
+     * Size of the ranges large objects are split into.
+     */
+    static final long DEFAULT_PART_SIZE = 8L * 1024 * 1024;
+
+    /**
+     * Number of times a part is requested before the object is counted as failed.
+     */
+    static final int MAX_ATTEMPTS = 3;
+
+    /**
+     * Number of objects queued for download per download thread.
+     */
+    private static final int QUEUED_OBJECTS_PER_THREAD = 4;
+
+    /**
+     * Maximum number of failed objects reported.
+     */
+    private static final int MAX_REPORTED_ERRORS = 10;
+
+    private static final String TEMP_SUFFIX = ".download";
+
+    private static final AtomicInteger POOL_COUNT = new AtomicInteger();
+
+    private final AmazonS3 s3;
+    private final String bucketName;
+    private final String prefix;
+    private final Date modifiedSince;
+    private final int parallelism;
+    private final long partSize;
+    private final long backoffMillis;
+    private final Semaphore queuedObjects;
+
+    private final AtomicLong downloaded = new AtomicLong();
+    private final AtomicLong downloadedBytes = new AtomicLong();
+    private final AtomicLong filtered = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final List<String> errors = Collections.synchronizedList(new ArrayList<>());
+
+    /**
+     * Creates a downloader.
+     *
+     * @param s3 s3 client
+     * @param bucketName name of the bucket to download
+     * @param prefix only download objects whose key starts with the prefix, or <code>null</code> for all objects
+     * @param modifiedSince only download objects last modified at or after this time, or <code>null</code> for all
+     * @param parallelism maximum number of prefixes listed, and of parts downloaded, at the same time
+     * @param partSize size in bytes of the ranges large objects are split into
+     */
+    S3BucketDownloader(AmazonS3 s3, String bucketName, String prefix, Date modifiedSince, int parallelism, long partSize) {
+        this(s3, bucketName, prefix, modifiedSince, parallelism, partSize, 200);
+    }
+
+    S3BucketDownloader(AmazonS3 s3, String bucketName, String prefix, Date modifiedSince, int parallelism, long partSize, long backoffMillis) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be greater than zero: " + parallelism);
+        }
+
+        if (partSize < 1) {
+            throw new IllegalArgumentException("Part size must be greater than zero: " + partSize);
+        }
+
+        this.s3 = s3;
+        this.bucketName = bucketName;
+        this.prefix = prefix;
+        this.modifiedSince = modifiedSince;
+        this.parallelism = parallelism;
+        this.partSize = partSize;
+        this.backoffMillis = backoffMillis;
+        this.queuedObjects = new Semaphore(parallelism * QUEUED_OBJECTS_PER_THREAD);
+    }
+
+    /**
+     * Downloads every matching object into a directory.
+     *
+     * @param dir destination directory
+     * @throws GradleException if listing the bucket fails or any object could not be downloaded
+     */
+    void download(File dir) {
+        final Path root = dir.toPath().toAbsolutePath().normalize();
+
+        final int poolId = POOL_COUNT.incrementAndGet();
+        final AtomicInteger threadCount = new AtomicInteger();
+        final ExecutorService listers = Executors.newFixedThreadPool(parallelism, r -> {
+            final Thread thread = new Thread(r, String.format("s3-lister-%d-%d", poolId, threadCount.incrementAndGet()));
+            thread.setDaemon(true);
+            return thread;
+        });
+        final ExecutorService downloaders = Executors.newFixedThreadPool(parallelism, r -> {
+            final Thread thread = new Thread(r, String.format("s3-downloader-%d-%d", poolId, threadCount.incrementAndGet()));
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        try {
+            final List<Future<Void>> shards = new ArrayList<>();
+            for (String shardPrefix : listTopLevel(root, downloaders)) {
+                shards.add(listers.submit(() -> {
+                    listPrefix(shardPrefix, null, root, downloaders);
+                    return null;
+                }));
+            }
+
+            for (Future<Void> shard : shards) {
+                shard.get();
+            }
+
+            // Every queued object holds a permit until all of its parts are written
+            queuedObjects.acquire(parallelism * QUEUED_OBJECTS_PER_THREAD);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GradleException("Interrupted while downloading bucket: " + bucketName, e);
+        } catch (ExecutionException e) {
+            throw new GradleException(String.format("Error occurred while listing bucket %s: %s", bucketName, e.getCause().getMessage()), e.getCause());
+        } finally {
+            listers.shutdownNow();
+            downloaders.shutdownNow();
+        }
+
+        if (failed.get() > 0) {
+            throw new GradleException(String.format("Failed to download %d object(s) from bucket %s, downloaded %d: %s",
+                    failed.get(), bucketName, downloaded.get(), String.join(", ", errors)));
+        }
+    }
+
+    long getDownloaded() {
+        return downloaded.get();
+    }
+
+    long getDownloadedBytes() {
+        return downloadedBytes.get();
+    }
+
+    long getFiltered() {
+        return filtered.get();
+    }
+
+    /**
+     * Lists the first level below the prefix, queueing the objects found there for download.
+     *
+     * @return prefixes one level below the prefix
+     */
+    private List<String> listTopLevel(Path root, ExecutorService downloaders) {
+        final List<String> prefixes = new ArrayList<>();
+        listPrefix(prefix, S3BucketPurger.DELIMITER, root, downloaders, prefixes);
+        return prefixes;
+    }
+
+    private void listPrefix(String listPrefix, String delimiter, Path root, ExecutorService downloaders) {
+        listPrefix(listPrefix, delimiter, root, downloaders, new ArrayList<>());
+    }
+
+    /**
+     * Lists the objects under a prefix, queueing every matching object for download as each page arrives.
+     */
+    private void listPrefix(String listPrefix, String delimiter, Path root, ExecutorService downloaders, List<String> commonPrefixes) {
+        final ListObjectsV2Request request = new ListObjectsV2Request()
+                .withBucketName(bucketName)
+                .withPrefix(listPrefix)
+                .withDelimiter(delimiter);
+        while (true) {
+            final ListObjectsV2Result result = s3.listObjectsV2(request);
+            for (S3ObjectSummary object : result.getObjectSummaries()) {
+                if (object.getKey().endsWith("/")) {
+                    // Folder placeholders have no content of their own
+                    continue;
+                }
+
+                if (modifiedSince != null && object.getLastModified() != null && object.getLastModified().before(modifiedSince)) {
+                    filtered.incrementAndGet();
+                    continue;
+                }
+
+                queue(object, root, downloaders);
+            }
+
+            commonPrefixes.addAll(result.getCommonPrefixes());
+
+            if (!result.isTruncated()) {
+                return;
+            }
+
+            request.setContinuationToken(result.getNextContinuationToken());
+        }
+    }
+
+    /**
+     * Queues the parts of an object for download.
+     */
+    private void queue(S3ObjectSummary object, Path root, ExecutorService downloaders) {
+        final Path file = root.resolve(object.getKey()).normalize();
+        if (!file.startsWith(root)) {
+            fail(object.getKey(), "key resolves outside of the destination directory");
+            return;
+        }
+
+        final long size = object.getSize();
+        final int partCount = size <= partSize ? 1 : (int) ((size + partSize - 1) / partSize);
+        final ObjectDownload download = new ObjectDownload(object.getKey(), file, size, partCount);
+
+        try {
+            queuedObjects.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GradleException("Interrupted while downloading bucket: " + bucketName, e);
+        }
+
+        for (int part = 0; part < partCount; part++) {
+            final long start = part * partSize;
+            final long end = Math.min(size, start + partSize) - 1;
+
+            downloaders.submit(() -> {
+                try {
+                    // Ranges are only requested for objects that were split, small objects are fetched whole
+                    download.writePart(partCount > 1 ? new long[] { start, end } : null);
+                } finally {
+                    if (download.partDone()) {
+                        queuedObjects.release();
+                    }
+                }
+            });
+        }
+    }
+
+    private void fail(String key, String message) {
+        failed.incrementAndGet();
+        if (errors.size() < MAX_REPORTED_ERRORS) {
+            errors.add(String.format("%s (%s)", key, message));
+        }
+    }
+
+    /**
+     * Download of a single object, possibly split into parts.
+     */
+    private final class ObjectDownload {
+        private final String key;
+        private final Path file;
+        private final Path tempFile;
+        private final long size;
+        private final AtomicInteger remainingParts;
+        private volatile boolean aborted;
+        private FileChannel channel;
+
+        ObjectDownload(String key, Path file, long size, int partCount) {
+            this.key = key;
+            this.file = file;
+            this.tempFile = file.resolveSibling(file.getFileName() + TEMP_SUFFIX);
+            this.size = size;
+            this.remainingParts = new AtomicInteger(partCount);
+        }
+
+        /**
+         * Downloads a range of the object, retrying it a few times. The whole object is aborted if the range cannot be
+         * downloaded.
+         *
+         * @param range first and last byte of the range, or <code>null</code> for the whole object
+         */
+        void writePart(long[] range) {
+            for (int attempt = 1; !aborted; attempt++) {
+                try {
+                    write(range);
+                    return;
+                } catch (IOException | RuntimeException e) {
+                    if (attempt >= MAX_ATTEMPTS) {
+                        aborted = true;
+                        fail(key, e.getMessage());
+                        return;
+                    }
+                }
+
+                try {
+                    Thread.sleep(backoffMillis * attempt);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    aborted = true;
+                    fail(key, "interrupted");
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Downloads a range of the object and writes it at the same position in the file.
+         *
+         * @param range first and last byte of the range, or <code>null</code> for the whole object
+         * @return number of bytes written
+         */
+        private long write(long[] range) throws IOException {
+            final FileChannel channel = open();
+
+            final GetObjectRequest request = new GetObjectRequest(bucketName, key);
+            long position = 0;
+            if (range != null) {
+                request.setRange(range[0], range[1]);
+                position = range[0];
+            }
+
+            long written = 0;
+            try (S3Object object = s3.getObject(request); InputStream in = object.getObjectContent()) {
+                final byte[] buffer = new byte[64 * 1024];
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    final ByteBuffer byteBuffer = ByteBuffer.wrap(buffer, 0, read);
+                    while (byteBuffer.hasRemaining()) {
+                        written += channel.write(byteBuffer, position + written);
+                    }
+                }
+            }
+
+            final long expected = range != null ? range[1] - range[0] + 1 : size;
+            if (written != expected) {
+                throw new IOException(String.format("Expected %d bytes but received %d", expected, written));
+            }
+
+            return written;
+        }
+
+        /**
+         * Opens the temporary file the first time a part is written.
+         */
+        private synchronized FileChannel open() throws IOException {
+            if (channel == null) {
+                Files.createDirectories(file.getParent());
+                channel = FileChannel.open(tempFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            }
+
+            return channel;
+        }
+
+        /**
+         * Marks a part as done. Once the last part is done the temporary file is closed and moved into place, or
+         * deleted if any part failed.
+         *
+         * @return <code>true</code> if this was the last part; otherwise <code>false</code>
+         */
+        boolean partDone() {
+            if (remainingParts.decrementAndGet() > 0) {
+                return false;
+            }
+
+            try {
+                synchronized (this) {
+                    if (channel != null) {
+                        channel.close();
+                    }
+                }
+
+                if (aborted) {
+                    Files.deleteIfExists(tempFile);
+                } else {
+                    Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING);
+                    downloaded.incrementAndGet();
+                    downloadedBytes.addAndGet(size);
+                }
+            } catch (IOException e) {
+                fail(key, e.getMessage());
+            }
+
+            return true;
+        }
+    }
+}
@@ -0,0 +1,236 @@
+/**
+ * Copyright 2020-present, Nike, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the Apache-2.0 license found in
+ * the LICENSE file in the root directory of this source tree.
+ */
+package com.nike.pdm.localstack.aws.s3;
+
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.DeleteObjectsRequest.KeyVersion;
+import com.amazonaws.services.s3.model.ListObjectsV2Request;
+import com.amazonaws.services.s3.model.ListObjectsV2Result;
+import com.amazonaws.services.s3.model.ListVersionsRequest;
+import com.amazonaws.services.s3.model.VersionListing;
+import org.gradle.api.GradleException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Removes every object from an S3 bucket.
+ *
+ * <p>Each page of the listing is handed to an {@link S3BatchDeleter}, which deletes it in the background while the
+ * next page is listed. In a versioned bucket deleting an object only adds a delete marker, so instead every version,
+ * including the delete markers, is deleted, which removes the objects for good.
+ *
+ * <p>A sharded purge first lists the top-level prefixes of the bucket, using <code>/</code> as the delimiter, and then
+ * lists and deletes each prefix on its own thread, so buckets laid out as <code>tenant/date/...</code> are not limited
+ * by a single listing cursor.
+ */
+final class S3BucketPurger {
+
+    /**
+     * Delimiter separating the levels of a key.
+     */
+    static final String DELIMITER = "/";
+
+    private static final AtomicInteger POOL_COUNT = new AtomicInteger();
+
+    private final AmazonS3 s3;
+
+    /**
+     * Creates a purger.
+     *
+     * @param s3 s3 client
+     */
+    S3BucketPurger(AmazonS3 s3) {
+        this.s3 = s3;
+    }
+
+    /**
+     * Deletes every object, or every object version, in a bucket.
+     *
+     * @param bucketName bucket name
+     * @param versioned whether the bucket is versioned
+     * @return number of objects, or object versions, deleted
+     */
+    long purge(String bucketName, boolean versioned) {
+        final S3BatchDeleter deleter = new S3BatchDeleter(s3, bucketName);
+
+        try {
+            deletePrefix(deleter, bucketName, versioned, null);
+        } catch (RuntimeException e) {
+            deleter.cancel();
+            throw e;
+        }
+
+        return deleter.await();
+    }
+
+    /**
+     * Deletes every object, or every object version, in a bucket, listing and deleting its top-level prefixes in
+     * parallel.
+     *
+     * @param bucketName bucket name
+     * @param versioned whether the bucket is versioned
+     * @param parallelism maximum number of prefixes listed at the same time
+     * @return number of objects, or object versions, deleted
+     */
+    long purgeSharded(String bucketName, boolean versioned, int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be greater than zero: " + parallelism);
+        }
+
+        final S3BatchDeleter deleter = new S3BatchDeleter(s3, bucketName, Math.max(parallelism, S3BatchDeleter.MAX_CONCURRENT_REQUESTS));
+
+        final int poolId = POOL_COUNT.incrementAndGet();
+        final AtomicInteger threadCount = new AtomicInteger();
+        final ExecutorService executor = Executors.newFixedThreadPool(parallelism, r -> {
+            final Thread thread = new Thread(r, String.format("s3-purger-%d-%d", poolId, threadCount.incrementAndGet()));
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        try {
+            // Objects at the root of the bucket are deleted straight away, every prefix becomes a shard
+            final List<Future<Void>> shards = new ArrayList<>();
+            for (String prefix : listTopLevel(deleter, bucketName, versioned)) {
+                shards.add(executor.submit(() -> {
+                    deletePrefix(deleter, bucketName, versioned, prefix);
+                    return null;
+                }));
+            }
+
+            for (Future<Void> shard : shards) {
+                try {
+                    shard.get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new GradleException("Interrupted while purging bucket: " + bucketName, e);
+                } catch (ExecutionException e) {
+                    throw new GradleException(String.format("Error occurred while listing bucket %s: %s", bucketName, e.getCause().getMessage()), e.getCause());
+                }
+            }
+        } catch (RuntimeException e) {
+            deleter.cancel();
+            throw e;
+        } finally {
+            executor.shutdownNow();
+        }
+
+        return deleter.await();
+    }
+
+    /**
+     * Checks whether a bucket holds no objects, or no object versions.
+     *
+     * @param bucketName bucket name
+     * @param versioned whether the bucket is versioned
+     * @return <code>true</code> if the bucket is empty; otherwise <code>false</code>
+     */
+    boolean isEmpty(String bucketName, boolean versioned) {
+        if (versioned) {
+            return s3.listVersions(new ListVersionsRequest().withBucketName(bucketName).withMaxResults(1)).getVersionSummaries().isEmpty();
+        }
+
+        return s3.listObjectsV2(new ListObjectsV2Request().withBucketName(bucketName).withMaxKeys(1)).getObjectSummaries().isEmpty();
+    }
+
+    /**
+     * Lists the root level of a bucket, queueing the objects found there for deletion.
+     *
+     * @return top-level prefixes
+     */
+    private List<String> listTopLevel(S3BatchDeleter deleter, String bucketName, boolean versioned) {
+        final List<String> prefixes = new ArrayList<>();
+
+        if (versioned) {
+            VersionListing versionListing = s3.listVersions(new ListVersionsRequest()
+                    .withBucketName(bucketName)
+                    .withDelimiter(DELIMITER));
+            while (true) {
+                deleter.delete(versionKeys(versionListing));
+                prefixes.addAll(versionListing.getCommonPrefixes());
+
+                if (!versionListing.isTruncated()) {
+                    break;
+                }
+
+                versionListing = s3.listNextBatchOfVersions(versionListing);
+            }
+        } else {
+            final ListObjectsV2Request request = new ListObjectsV2Request()
+                    .withBucketName(bucketName)
+                    .withDelimiter(DELIMITER);
+            while (true) {
+                final ListObjectsV2Result result = s3.listObjectsV2(request);
+                deleter.delete(objectKeys(result));
+                prefixes.addAll(result.getCommonPrefixes());
+
+                if (!result.isTruncated()) {
+                    break;
+                }
+
+                request.setContinuationToken(result.getNextContinuationToken());
+            }
+        }
+
+        return prefixes;
+    }
+
+    /**
+     * Lists every object, or object version, under a prefix and queues them for deletion.
+     *
+     * @param prefix key prefix, or <code>null</code> for the whole bucket
+     */
+    private void deletePrefix(S3BatchDeleter deleter, String bucketName, boolean versioned, String prefix) {
+        if (versioned) {
+            VersionListing versionListing = s3.listVersions(new ListVersionsRequest()
+                    .withBucketName(bucketName)
+                    .withPrefix(prefix));
+            while (true) {
+                deleter.delete(versionKeys(versionListing));
+
+                if (!versionListing.isTruncated()) {
+                    break;
+                }
+
+                versionListing = s3.listNextBatchOfVersions(versionListing);
+            }
+        } else {
+            final ListObjectsV2Request request = new ListObjectsV2Request()
+                    .withBucketName(bucketName)
+                    .withPrefix(prefix);
+            while (true) {
+                final ListObjectsV2Result result = s3.listObjectsV2(request);
+                deleter.delete(objectKeys(result));
+
+                if (!result.isTruncated()) {
+                    break;
+                }
+
+                request.setContinuationToken(result.getNextContinuationToken());
+            }
+        }
+    }
+
+    private static List<KeyVersion> versionKeys(VersionListing versionListing) {
+        return versionListing.getVersionSummaries().stream()
+                .map(version -> new KeyVersion(version.getKey(), version.getVersionId()))
+                .collect(Collectors.toList());
+    }
+
+    private static List<KeyVersion> objectKeys(ListObjectsV2Result result) {
+        return result.getObjectSummaries().stream()
+                .map(object -> new KeyVersion(object.getKey()))
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,537 @@
+/**
+ * Copyright 2020-present, Nike, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the Apache-2.0 license found in
+ * the LICENSE file in the root directory of this source tree.
+ */
+package com.nike.pdm.localstack.aws.s3;
+
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.ListObjectsV2Request;
+import com.amazonaws.services.s3.model.ListObjectsV2Result;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.transfer.TransferManager;
+import com.amazonaws.services.s3.transfer.TransferManagerBuilder;
+import com.amazonaws.util.BinaryUtils;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorInputStream;
+import org.apache.commons.compress.compressors.zstandard.ZstdCompressorInputStream;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.CloseShieldInputStream;
+import org.gradle.api.GradleException;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Uploads the files of a directory to an S3 bucket, keyed by their path relative to the directory.
+ *
+ * <p>Files are hashed and uploaded by a bounded pool of workers. Uploads go through a {@link TransferManager}, which
+ * splits files above the multipart threshold into parts that are uploaded in parallel. A file is skipped when its
+ * SHA-256 matches the one recorded in the {@link S3UploadManifest} and the bucket still holds an object of the same
+ * size under its key, so a bucket that was emptied, or a LocalStack that was restarted, is loaded again.
+ *
+ * <p>Files can also be uploaded straight from tar archives, keyed by their name within the archive. Entries above the
+ * multipart threshold are only hashed while they are uploaded, so they are skipped when their size and modification
+ * time in the archive match those recorded in the manifest instead.
+ */
+final class S3FixtureUploader {
+
+    /**
+     * Size above which files are uploaded in parts.
+     */
+    static final long DEFAULT_MULTIPART_THRESHOLD = 16L * 1024 * 1024;
+
+    /**
+     * Extensions of the tar archives that fixtures can be uploaded from.
+     */
+    static final List<String> ARCHIVE_EXTENSIONS = Arrays.asList(".tar", ".tar.gz", ".tgz", ".tar.zst", ".tzst");
+
+    /**
+     * Maximum number of bytes of archive entries read into memory but not yet uploaded.
+     */
+    static final long MAX_BUFFERED_ARCHIVE_BYTES = 64L * 1024 * 1024;
+
+    /**
+     * Number of archive entries per worker that can be read ahead of the uploads.
+     */
+    private static final int QUEUED_ENTRIES_PER_THREAD = 4;
+
+    /**
+     * Maximum number of failed files reported.
+     */
+    private static final int MAX_REPORTED_ERRORS = 10;
+
+    private static final AtomicInteger POOL_COUNT = new AtomicInteger();
+
+    private final AmazonS3 s3;
+    private final String bucketName;
+    private final String prefix;
+    private final int parallelism;
+    private final long multipartThreshold;
+
+    /**
+     * Creates an uploader.
+     *
+     * @param s3 s3 client
+     * @param bucketName name of the bucket to upload to
+     * @param prefix prefix prepended to every key, or <code>null</code>
+     * @param parallelism maximum number of files, or parts, uploaded at the same time
+     * @param multipartThreshold size in bytes above which files are uploaded in parts
+     */
+    S3FixtureUploader(AmazonS3 s3, String bucketName, String prefix, int parallelism, long multipartThreshold) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be greater than zero: " + parallelism);
+        }
+
+        this.s3 = s3;
+        this.bucketName = bucketName;
+        this.prefix = normalizePrefix(prefix);
+        this.parallelism = parallelism;
+        this.multipartThreshold = multipartThreshold;
+    }
+
+    /**
+     * Uploads every file in a directory and its sub-directories that changed since the manifest was last saved. The
+     * manifest is saved afterwards, even if some of the files failed to upload.
+     *
+     * @param dir directory of fixture files
+     * @param manifest manifest of the content already uploaded
+     * @return summary of the upload
+     * @throws IOException if the directory cannot be read or the manifest cannot be saved
+     * @throws GradleException if any file failed to upload
+     */
+    Summary upload(File dir, S3UploadManifest manifest) throws IOException {
+        return upload(dir, Collections.emptyList(), manifest);
+    }
+
+    /**
+     * Uploads every file in a directory and its sub-directories, and every file in a set of tar archives, that changed
+     * since the manifest was last saved. The manifest is saved afterwards, even if some of the files failed to upload.
+     *
+     * <p>Archives are never extracted to disk. Entries up to the multipart threshold are read into memory, within a
+     * bounded budget, and handed to the workers while the archive is still being decompressed. Larger entries are
+     * streamed from the archive straight into a multipart upload, hashing them on the way. The archive is not
+     * decompressed any further, and no other entries are queued, until such an entry has been uploaded.
+     *
+     * @param dir directory of fixture files, or <code>null</code>
+     * @param archives tar archives of fixture files, which may be compressed with gzip or Zstandard
+     * @param manifest manifest of the content already uploaded
+     * @return summary of the upload
+     * @throws IOException if the directory or an archive cannot be read or the manifest cannot be saved
+     * @throws GradleException if any file failed to upload
+     */
+    Summary upload(File dir, List<File> archives, S3UploadManifest manifest) throws IOException {
+        final Path root = dir != null ? dir.toPath() : null;
+
+        final List<Path> files;
+        if (root != null) {
+            try (Stream<Path> walk = Files.walk(root)) {
+                files = walk.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+            }
+        } else {
+            files = Collections.emptyList();
+        }
+
+        final Map<String, Long> existing = listObjectSizes();
+        final Summary summary = new Summary();
+        final List<String> errors = new ArrayList<>();
+        final Set<String> keys = new HashSet<>();
+
+        final int poolId = POOL_COUNT.incrementAndGet();
+        final AtomicInteger threadCount = new AtomicInteger();
+        final ExecutorService workers = Executors.newFixedThreadPool(parallelism, r -> {
+            final Thread thread = new Thread(r, String.format("s3-uploader-%d-%d", poolId, threadCount.incrementAndGet()));
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        // The transfer manager gets its own pool for the parts of multipart uploads, the workers only wait on them
+        final TransferManager transferManager = TransferManagerBuilder.standard()
+                .withS3Client(s3)
+                .withExecutorFactory(() -> Executors.newFixedThreadPool(parallelism, r -> {
+                    final Thread thread = new Thread(r, String.format("s3-transfer-%d-%d", poolId, threadCount.incrementAndGet()));
+                    thread.setDaemon(true);
+                    return thread;
+                }))
+                .withMultipartUploadThreshold(multipartThreshold)
+                .build();
+
+        try {
+            final Map<String, Future<?>> uploads = new LinkedHashMap<>();
+            for (Path file : files) {
+                final String key = toKey(root.relativize(file));
+                keys.add(key);
+
+                uploads.put(root.relativize(file).toString(), workers.submit(() -> {
+                    final String hash = sha256(file);
+                    final long size = Files.size(file);
+
+                    if (hash.equals(manifest.get(key)) && existing.getOrDefault(key, -1L) == size) {
+                        summary.skipped.incrementAndGet();
+                        return null;
+                    }
+
+                    transferManager.upload(bucketName, key, file.toFile()).waitForCompletion();
+                    manifest.put(key, hash);
+
+                    summary.uploaded.incrementAndGet();
+                    summary.uploadedBytes.addAndGet(size);
+                    return null;
+                }));
+            }
+
+            for (File archive : archives) {
+                uploadArchive(archive, manifest, existing, summary, keys, uploads, workers, transferManager);
+            }
+
+            for (Map.Entry<String, Future<?>> upload : uploads.entrySet()) {
+                try {
+                    upload.getValue().get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new GradleException("Interrupted while uploading fixtures to bucket: " + bucketName, e);
+                } catch (ExecutionException e) {
+                    summary.failed.incrementAndGet();
+                    if (errors.size() < MAX_REPORTED_ERRORS) {
+                        errors.add(String.format("%s (%s)", upload.getKey(), e.getCause().getMessage()));
+                    }
+                }
+            }
+        } finally {
+            workers.shutdownNow();
+
+            // The s3 client is shared with the other tasks, so only the transfer threads are shut down
+            transferManager.shutdownNow(false);
+        }
+
+        manifest.retain(keys);
+        manifest.save();
+
+        if (summary.getFailed() > 0) {
+            throw new GradleException(String.format("Failed to upload %d file(s) to bucket %s, uploaded %d: %s",
+                    summary.getFailed(), bucketName, summary.getUploaded(), String.join(", ", errors)));
+        }
+
+        return summary;
+    }
+
+    /**
+     * Reads a tar archive from start to end, queuing an upload for every file in it. Small entries are buffered and
+     * uploaded by the workers, so the archive keeps being decompressed while they are sent. Large entries are uploaded
+     * from the archive stream on the calling thread, as the entries of a tar archive can only be read in order, which
+     * blocks decompression until they are uploaded. They are skipped without being read when their size and
+     * modification time match the stamp recorded in the manifest.
+     */
+    private void uploadArchive(File archive,
+                               S3UploadManifest manifest,
+                               Map<String, Long> existing,
+                               Summary summary,
+                               Set<String> keys,
+                               Map<String, Future<?>> uploads,
+                               ExecutorService workers,
+                               TransferManager transferManager) throws IOException {
+        final long maxBufferedEntrySize = Math.min(multipartThreshold, MAX_BUFFERED_ARCHIVE_BYTES);
+        final Semaphore bufferedBytes = new Semaphore((int) MAX_BUFFERED_ARCHIVE_BYTES);
+        final Semaphore queuedEntries = new Semaphore(parallelism * QUEUED_ENTRIES_PER_THREAD);
+
+        try (TarArchiveInputStream tarInput = new TarArchiveInputStream(openArchive(archive))) {
+            TarArchiveEntry te;
+            while ((te = tarInput.getNextTarEntry()) != null) {
+                final String name = toEntryName(te.getName());
+                if (!te.isFile() || name.isEmpty()) {
+                    continue;
+                }
+
+                final String source = archive.getName() + "!/" + name;
+                final String key = prefix + name;
+                final long size = te.getSize();
+
+                if (!keys.add(key)) {
+                    uploads.put(source, failed(new IllegalStateException("Key is uploaded from more than one fixture: " + key)));
+                    continue;
+                }
+
+                if (size <= maxBufferedEntrySize) {
+                    // Bound the memory held by entries that were read but not yet uploaded
+                    acquire(queuedEntries, 1);
+                    acquire(bufferedBytes, (int) size);
+
+                    final byte[] content;
+                    try {
+                        content = IOUtils.toByteArray(tarInput, size);
+                    } catch (IOException | RuntimeException e) {
+                        bufferedBytes.release((int) size);
+                        queuedEntries.release();
+                        throw e;
+                    }
+
+                    uploads.put(source, workers.submit(() -> {
+                        try {
+                            final String hash = sha256(content);
+                            if (hash.equals(manifest.get(key)) && existing.getOrDefault(key, -1L) == size) {
+                                summary.skipped.incrementAndGet();
+                                return null;
+                            }
+
+                            final ObjectMetadata metadata = new ObjectMetadata();
+                            metadata.setContentLength(size);
+                            transferManager.upload(bucketName, key, new ByteArrayInputStream(content), metadata).waitForCompletion();
+                            manifest.put(key, hash);
+
+                            summary.uploaded.incrementAndGet();
+                            summary.uploadedBytes.addAndGet(size);
+                            return null;
+                        } finally {
+                            bufferedBytes.release((int) size);
+                            queuedEntries.release();
+                        }
+                    }));
+                } else {
+                    // Hashing a large entry means reading it, which is as costly as uploading it, so it is recognized
+                    // by its size and modification time instead. Moving on to the next entry skips it unread.
+                    final String stamp = size + ":" + te.getModTime().getTime();
+                    if (stamp.equals(manifest.getStamp(key)) && existing.getOrDefault(key, -1L) == size) {
+                        summary.skipped.incrementAndGet();
+                        continue;
+                    }
+
+                    // Closing the stream of a single entry would close the whole archive
+                    final DigestInputStream in = new DigestInputStream(new CloseShieldInputStream(tarInput), newSha256());
+
+                    final FutureTask<Void> upload = new FutureTask<>(() -> {
+                        final ObjectMetadata metadata = new ObjectMetadata();
+                        metadata.setContentLength(size);
+                        transferManager.upload(bucketName, key, in, metadata).waitForCompletion();
+                        manifest.put(key, BinaryUtils.toHex(in.getMessageDigest().digest()), stamp);
+
+                        summary.uploaded.incrementAndGet();
+                        summary.uploadedBytes.addAndGet(size);
+                        return null;
+                    });
+                    upload.run();
+                    uploads.put(source, upload);
+                }
+            }
+        }
+    }
+
+    private void acquire(Semaphore semaphore, int permits) {
+        try {
+            semaphore.acquire(permits);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GradleException("Interrupted while uploading fixtures to bucket: " + bucketName, e);
+        }
+    }
+
+    private static Future<?> failed(Exception e) {
+        final FutureTask<Void> future = new FutureTask<>(() -> {
+            throw e;
+        });
+        future.run();
+        return future;
+    }
+
+    /**
+     * Checks whether the bucket still holds an object for every key in the manifest.
+     *
+     * @param manifest manifest of the content already uploaded
+     * @return <code>true</code> if no uploaded object is missing; otherwise <code>false</code>
+     */
+    boolean holdsAll(S3UploadManifest manifest) {
+        return listObjectSizes().keySet().containsAll(manifest.getKeys());
+    }
+
+    /**
+     * Lists the size of every object under the prefix.
+     *
+     * @return object sizes by key
+     */
+    private Map<String, Long> listObjectSizes() {
+        final Map<String, Long> sizes = new HashMap<>();
+
+        final ListObjectsV2Request request = new ListObjectsV2Request()
+                .withBucketName(bucketName)
+                .withPrefix(prefix.isEmpty() ? null : prefix);
+        while (true) {
+            final ListObjectsV2Result result = s3.listObjectsV2(request);
+            result.getObjectSummaries().forEach(object -> sizes.put(object.getKey(), object.getSize()));
+
+            if (!result.isTruncated()) {
+                return sizes;
+            }
+
+            request.setContinuationToken(result.getNextContinuationToken());
+        }
+    }
+
+    /**
+     * Converts a path relative to the fixture directory into an object key.
+     */
+    private String toKey(Path relativePath) {
+        final List<String> names = new ArrayList<>();
+        relativePath.forEach(name -> names.add(name.toString()));
+        return prefix + String.join("/", names);
+    }
+
+    /**
+     * Converts the name of a tar entry into a key relative to the prefix, dropping any leading <code>./</code> or
+     * <code>/</code>.
+     */
+    static String toEntryName(String name) {
+        String normalized = name;
+        while (normalized.startsWith("./") || normalized.startsWith("/")) {
+            normalized = normalized.substring(normalized.startsWith("/") ? 1 : 2);
+        }
+
+        return normalized;
+    }
+
+    /**
+     * Opens a tar archive, decompressing it as it is read if its extension is that of a compressed archive.
+     *
+     * @param archive archive to open
+     * @return input stream of the decompressed archive
+     * @throws IOException if an error occurs opening the archive
+     */
+    private static InputStream openArchive(File archive) throws IOException {
+        final String name = archive.getName();
+        if (ARCHIVE_EXTENSIONS.stream().noneMatch(name::endsWith)) {
+            throw new GradleException(String.format("Unsupported fixture archive, expected one of %s: %s",
+                    String.join(", ", ARCHIVE_EXTENSIONS), archive.getAbsolutePath()));
+        }
+
+        final InputStream in = new BufferedInputStream(new FileInputStream(archive));
+
+        try {
+            if (name.endsWith(".tar.gz") || name.endsWith(".tgz")) {
+                return new GzipCompressorInputStream(in, true);
+            } else if (name.endsWith(".tar.zst") || name.endsWith(".tzst")) {
+                return new ZstdCompressorInputStream(in);
+            }
+
+            return in;
+        } catch (IOException | RuntimeException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Computes the SHA-256 of a file's content.
+     *
+     * @param file file
+     * @return hex-encoded hash
+     */
+    static String sha256(Path file) {
+        final MessageDigest digest = newSha256();
+
+        final byte[] buffer = new byte[64 * 1024];
+        try (InputStream in = Files.newInputStream(file)) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        return BinaryUtils.toHex(digest.digest());
+    }
+
+    /**
+     * Computes the SHA-256 of some content.
+     *
+     * @param content content
+     * @return hex-encoded hash
+     */
+    static String sha256(byte[] content) {
+        return BinaryUtils.toHex(newSha256().digest(content));
+    }
+
+    private static MessageDigest newSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Strips leading slashes from a prefix and makes sure it ends with one.
+     */
+    static String normalizePrefix(String prefix) {
+        if (prefix == null) {
+            return "";
+        }
+
+        String normalized = prefix.trim();
+        while (normalized.startsWith("/")) {
+            normalized = normalized.substring(1);
+        }
+
+        if (!normalized.isEmpty() && !normalized.endsWith("/")) {
+            normalized += "/";
+        }
+
+        return normalized;
+    }
+
+    /**
+     * Number of files uploaded and skipped.
+     */
+    static final class Summary {
+        private final AtomicLong uploaded = new AtomicLong();
+        private final AtomicLong skipped = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+        private final AtomicLong uploadedBytes = new AtomicLong();
+
+        long getUploaded() {
+            return uploaded.get();
+        }
+
+        long getSkipped() {
+            return skipped.get();
+        }
+
+        long getFailed() {
+            return failed.get();
+        }
+
+        long getUploadedBytes() {
+            return uploadedBytes.get();
+        }
+    }
+}
@@ -20,8 +20,10 @@ public class S3Module {
 
     public static final String CREATE_S3_BUCKET_TASK_NAME = "createS3Buckets";
     public static final String DELETE_S3_BUCKET_TASK_NAME = "deleteS3Buckets";
+    public static final String DOWNLOAD_S3_BUCKET_TASK_NAME = "downloadS3Bucket";
     public static final String LIST_S3_BUCKETS_TASK_NAME = "listS3Buckets";
     public static final String PURGE_S3_BUCKETS_TASK_NAME = "purgeS3Buckets";
+    public static final String UPLOAD_S3_FIXTURES_TASK_NAME = "uploadS3Fixtures";
 
     /**
      * Loads and configures all tasks in the S3 group.
@@ -32,7 +34,9 @@ public class S3Module {
         final Map<String, Class> tasks = new HashMap<>();
         tasks.put(PURGE_S3_BUCKETS_TASK_NAME, PurgeS3BucketsTask.class);
         tasks.put(DELETE_S3_BUCKET_TASK_NAME, DeleteS3BucketsTask.class);
+        tasks.put(DOWNLOAD_S3_BUCKET_TASK_NAME, DownloadS3BucketTask.class);
         tasks.put(LIST_S3_BUCKETS_TASK_NAME, ListS3BucketsTask.class);
+        tasks.put(UPLOAD_S3_FIXTURES_TASK_NAME, UploadS3FixturesTask.class);
 
         tasks.forEach((name, clazz) -> {
             // Register the default tasks with the project
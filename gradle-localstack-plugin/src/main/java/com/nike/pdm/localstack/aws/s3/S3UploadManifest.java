@@ -0,0 +1,183 @@
+/**
+ * Copyright 2020-present, Nike, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the Apache-2.0 license found in
+ * the LICENSE file in the root directory of this source tree.
+ */
+package com.nike.pdm.localstack.aws.s3;
+
+import com.nike.pdm.localstack.core.ConsoleLogger;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Records the content hash of every object uploaded to a bucket so that unchanged files are not uploaded again.
+ *
+ * <p>The hashes are saved to a properties file, keyed by object key, along with the name of the bucket they apply to.
+ * A manifest written for a different bucket is ignored. A hash may be followed by a stamp of the source it was computed
+ * from, such as the size and modification time of an archive entry, so that a source which is too costly to hash
+ * before uploading can be recognized as unchanged.
+ */
+final class S3UploadManifest {
+
+    /**
+     * Property holding the bucket name. Object keys are never empty, so it cannot clash with one of them.
+     */
+    private static final String BUCKET_KEY = "";
+
+    /**
+     * Separates a hash from the stamp of its source. Hashes are hex strings, so they never hold it.
+     */
+    private static final char STAMP_SEPARATOR = ' ';
+
+    private final File file;
+    private final String bucketName;
+    private final Map<String, String> hashes = new ConcurrentHashMap<>();
+    private final Map<String, String> stamps = new ConcurrentHashMap<>();
+
+    private S3UploadManifest(File file, String bucketName) {
+        this.file = file;
+        this.bucketName = bucketName;
+    }
+
+    /**
+     * Opens the manifest stored in the file.
+     *
+     * @param file manifest file
+     * @param bucketName name of the bucket being uploaded to
+     * @return manifest, empty if the file does not exist or was written for another bucket
+     * @throws IOException if the manifest file cannot be read
+     */
+    static S3UploadManifest open(File file, String bucketName) throws IOException {
+        final S3UploadManifest manifest = new S3UploadManifest(file, bucketName);
+
+        if (file.exists()) {
+            final Properties props = new Properties();
+            try (InputStream in = Files.newInputStream(file.toPath())) {
+                props.load(in);
+            }
+
+            if (bucketName.equals(props.getProperty(BUCKET_KEY))) {
+                props.stringPropertyNames().stream()
+                        .filter(key -> !BUCKET_KEY.equals(key))
+                        .forEach(key -> {
+                            final String value = props.getProperty(key);
+                            final int separator = value.indexOf(STAMP_SEPARATOR);
+                            if (separator < 0) {
+                                manifest.hashes.put(key, value);
+                            } else {
+                                manifest.hashes.put(key, value.substring(0, separator));
+                                manifest.stamps.put(key, value.substring(separator + 1));
+                            }
+                        });
+            } else {
+                ConsoleLogger.log("Ignoring manifest for different bucket: %s", props.getProperty(BUCKET_KEY));
+            }
+        }
+
+        return manifest;
+    }
+
+    /**
+     * Gets the content hash of the object last uploaded to a key.
+     *
+     * @param key object key
+     * @return content hash, or <code>null</code> if nothing was uploaded to the key
+     */
+    String get(String key) {
+        return hashes.get(key);
+    }
+
+    /**
+     * Gets the stamp of the source of the object last uploaded to a key.
+     *
+     * @param key object key
+     * @return source stamp, or <code>null</code> if nothing was uploaded to the key or it was recorded without one
+     */
+    String getStamp(String key) {
+        return stamps.get(key);
+    }
+
+    /**
+     * Records the content hash of an object that was uploaded.
+     *
+     * @param key object key
+     * @param hash content hash
+     */
+    void put(String key, String hash) {
+        hashes.put(key, hash);
+        stamps.remove(key);
+    }
+
+    /**
+     * Records the content hash of an object that was uploaded, along with the stamp of its source.
+     *
+     * @param key object key
+     * @param hash content hash
+     * @param stamp source stamp
+     */
+    void put(String key, String hash, String stamp) {
+        hashes.put(key, hash);
+        stamps.put(key, stamp);
+    }
+
+    /**
+     * Gets the keys of every object recorded in the manifest.
+     *
+     * @return object keys
+     */
+    Set<String> getKeys() {
+        return hashes.keySet();
+    }
+
+    /**
+     * Forgets every key that is not in the collection, such as those of files that no longer exist.
+     *
+     * @param keys keys to keep
+     */
+    void retain(Collection<String> keys) {
+        final Set<String> retained = new HashSet<>(keys);
+        hashes.keySet().removeIf(key -> !retained.contains(key));
+        stamps.keySet().removeIf(key -> !retained.contains(key));
+    }
+
+    /**
+     * Writes the manifest to its file.
+     *
+     * @throws IOException if the file cannot be written
+     */
+    synchronized void save() throws IOException {
+        final Properties props = new Properties();
+        props.setProperty(BUCKET_KEY, bucketName);
+        hashes.forEach((key, hash) -> {
+            final String stamp = stamps.get(key);
+            props.setProperty(key, stamp != null ? hash + STAMP_SEPARATOR + stamp : hash);
+        });
+
+        Files.createDirectories(file.getParentFile().toPath());
+
+        // Write to a temporary file first so that an interrupted save never leaves a truncated manifest behind
+        final File tmp = new File(file.getParentFile(), file.getName() + ".tmp");
+        try (OutputStream out = Files.newOutputStream(tmp.toPath())) {
+            props.store(out, "SHA-256 of the content uploaded to each key");
+        }
+
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    File getFile() {
+        return file;
+    }
+}
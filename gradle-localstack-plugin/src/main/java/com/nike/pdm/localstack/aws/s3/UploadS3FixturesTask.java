@@ -0,0 +1,292 @@
+/**
+ * Copyright 2020-present, Nike, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the Apache-2.0 license found in
+ * the LICENSE file in the root directory of this source tree.
+ */
+package com.nike.pdm.localstack.aws.s3;
+
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.util.StringUtils;
+import com.nike.pdm.localstack.aws.AwsClientFactory;
+import com.nike.pdm.localstack.compose.LocalStackModule;
+import com.nike.pdm.localstack.core.ConsoleLogger;
+import com.nike.pdm.localstack.core.LocalStackDir;
+import com.nike.pdm.localstack.core.Retry;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputDirectory;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.Optional;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.TaskAction;
+import org.gradle.api.tasks.options.Option;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Task that uploads a directory of fixture files, or the files within tar archives, to an S3 bucket.
+ *
+ * <p>A manifest of the content uploaded is kept in the LocalStack working directory. Files that have not changed since
+ * the last upload are skipped as long as the bucket still holds them, and the task is up-to-date when neither the
+ * files nor its configuration changed and no uploaded object is missing from the bucket.
+ */
+public class UploadS3FixturesTask extends DefaultTask {
+
+    @Input
+    private String bucketName;
+
+    @Optional
+    @Input
+    private String prefix;
+
+    @Optional
+    @InputDirectory
+    private File fixturesDir;
+
+    @Optional
+    @InputFiles
+    private List<File> archives;
+
+    @Optional
+    @Input
+    private Integer parallelism = 8;
+
+    @Optional
+    @Input
+    private Long multipartThreshold = S3FixtureUploader.DEFAULT_MULTIPART_THRESHOLD;
+
+    public UploadS3FixturesTask() {
+        setMustRunAfter(Arrays.asList(LocalStackModule.START_LOCALSTACK_TASK_NAME));
+        mustRunAfter(getProject().getTasks().withType(CreateS3BucketsTask.class));
+
+        // The manifest alone cannot tell whether LocalStack was restarted with an empty bucket since the last upload
+        getOutputs().upToDateWhen(task -> {
+            try {
+                final S3UploadManifest manifest = S3UploadManifest.open(getManifestFile(), bucketName);
+                return createUploader(AwsClientFactory.getInstance().s3(getProject())).holdsAll(manifest);
+            } catch (Exception e) {
+                getProject().getLogger().debug("Unable to check the objects in bucket: " + bucketName, e);
+                return false;
+            }
+        });
+    }
+
+    @TaskAction
+    public void run() {
+        if (fixturesDir == null && getArchives().isEmpty()) {
+            throw new GradleException("Either 'fixturesDir' or 'archives' must be specified");
+        }
+
+        if (fixturesDir != null) {
+            ConsoleLogger.log("Uploading S3 fixtures from %s to bucket: %s", fixturesDir.getAbsolutePath(), bucketName);
+        }
+
+        for (File archive : getArchives()) {
+            ConsoleLogger.log("Uploading S3 fixtures from archive %s to bucket: %s", archive.getAbsolutePath(), bucketName);
+        }
+
+        final long start = System.currentTimeMillis();
+
+        // Every attempt reads the manifest saved by the previous one, so files that were uploaded are not sent again
+        final S3FixtureUploader.Summary summary = Retry.execute(() -> {
+            final S3FixtureUploader uploader = createUploader(AwsClientFactory.getInstance().s3(getProject()));
+            return uploader.upload(fixturesDir, getArchives(), S3UploadManifest.open(getManifestFile(), bucketName));
+        });
+
+        ConsoleLogger.log("Uploaded S3 fixtures to bucket: %s (%d uploaded, %d bytes, %d unchanged). Elapsed: %d ms", bucketName,
+                summary.getUploaded(), summary.getUploadedBytes(), summary.getSkipped(), System.currentTimeMillis() - start);
+    }
+
+    private S3FixtureUploader createUploader(AmazonS3 amazonS3) {
+        return new S3FixtureUploader(amazonS3, bucketName, prefix, getParallelism(), getMultipartThreshold());
+    }
+
+    @Internal
+    @Override
+    public String getGroup() {
+        return S3Module.GROUP_NAME;
+    }
+
+    @Internal
+    @Override
+    public String getDescription() {
+        return "Uploads a directory or tar archives of fixture files to an S3 bucket.";
+    }
+
+    /**
+     * Gets the file in which the hashes of the uploaded files are recorded. The file is stored in the LocalStack
+     * working directory and is named after the task path.
+     *
+     * @return manifest file
+     */
+    @OutputFile
+    public File getManifestFile() {
+        final String name = getPath().substring(1).replace(':', '.');
+        return new File(LocalStackDir.getManifestDirectory(getProject()), name + ".properties");
+    }
+
+    /**
+     * Gets the name of the bucket to which to upload the fixtures.
+     *
+     * @return bucket name
+     */
+    public String getBucketName() {
+        return bucketName;
+    }
+
+    /**
+     * Sets the name of the bucket to which to upload the fixtures.
+     *
+     * @param bucketName bucket name
+     */
+    @Option(option = "bucketName", description = "Name of the bucket to which to upload the fixtures")
+    public void setBucketName(String bucketName) {
+        this.bucketName = bucketName;
+    }
+
+    /**
+     * Gets the prefix prepended to the key of every fixture.
+     *
+     * @return key prefix
+     */
+    public String getPrefix() {
+        return prefix;
+    }
+
+    /**
+     * Sets the prefix prepended to the key of every fixture.
+     *
+     * @param prefix key prefix
+     */
+    @Option(option = "prefix", description = "Prefix prepended to the key of every fixture")
+    public void setPrefix(String prefix) {
+        this.prefix = prefix;
+    }
+
+    /**
+     * Gets the directory of fixture files. Each file is uploaded under its path relative to the directory.
+     *
+     * @return fixtures directory
+     */
+    public File getFixturesDir() {
+        return fixturesDir;
+    }
+
+    /**
+     * Sets the directory of fixture files.
+     *
+     * @param fixturesDir fixtures directory
+     */
+    public void setFixturesDir(File fixturesDir) {
+        this.fixturesDir = fixturesDir;
+    }
+
+    /**
+     * Sets the directory of fixture files. This method allows the directory to be specified as a path relative to the
+     * project directory.
+     *
+     * @param fixturesDir fixtures directory
+     */
+    @Option(option = "fixturesDir", description = "Directory of fixture files to upload")
+    public void setFixturesDir(String fixturesDir) {
+        if (!StringUtils.isNullOrEmpty(fixturesDir)) {
+            setFixturesDir(getProject().file(fixturesDir.trim()));
+        }
+    }
+
+    /**
+     * Gets the tar archives of fixture files. Each file is uploaded under its name within the archive, without the
+     * archive being extracted to disk. Archives may be compressed with gzip (<code>.tar.gz</code>, <code>.tgz</code>)
+     * or Zstandard (<code>.tar.zst</code>, <code>.tzst</code>). Entries above the multipart threshold are uploaded as
+     * they are read, which holds up the rest of the archive, and are skipped when their size and modification time are
+     * unchanged since the last upload.
+     *
+     * @return fixture archives
+     */
+    public List<File> getArchives() {
+        return archives != null ? archives : new ArrayList<>();
+    }
+
+    /**
+     * Sets the tar archives of fixture files.
+     *
+     * @param archives fixture archives
+     */
+    public void setArchives(List<File> archives) {
+        this.archives = archives;
+    }
+
+    /**
+     * Sets the tar archives of fixture files. This method allows the archives to be specified as a comma-delimited
+     * list of paths relative to the project directory.
+     *
+     * @param archives comma-delimited list of fixture archives
+     */
+    @Option(option = "archives", description = "Comma-delimited list of tar archives of fixture files to upload")
+    public void setArchives(String archives) {
+        if (!StringUtils.isNullOrEmpty(archives)) {
+            final List<File> files = new ArrayList<>();
+            for (String archive : archives.split(",")) {
+                files.add(getProject().file(archive.trim()));
+            }
+
+            setArchives(files);
+        }
+    }
+
+    /**
+     * Gets the maximum number of files, or parts of large files, uploaded at the same time. Defaults to 8.
+     *
+     * @return parallelism
+     */
+    public Integer getParallelism() {
+        return parallelism != null ? parallelism : 8;
+    }
+
+    /**
+     * Sets the maximum number of files, or parts of large files, uploaded at the same time.
+     *
+     * @param parallelism parallelism
+     */
+    public void setParallelism(Integer parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Sets the maximum number of files, or parts of large files, uploaded at the same time. This method allows the
+     * parallelism to be specified on the command line.
+     *
+     * @param parallelism parallelism
+     */
+    @Option(option = "parallelism", description = "Maximum number of files uploaded at the same time")
+    public void setParallelism(String parallelism) {
+        if (!StringUtils.isNullOrEmpty(parallelism)) {
+            setParallelism(Integer.parseInt(parallelism.trim()));
+        }
+    }
+
+    /**
+     * Gets the size in bytes above which files are uploaded in parts. Defaults to 16 MB.
+     *
+     * @return multipart threshold in bytes
+     */
+    public Long getMultipartThreshold() {
+        return multipartThreshold != null ? multipartThreshold : S3FixtureUploader.DEFAULT_MULTIPART_THRESHOLD;
+    }
+
+    /**
+     * Sets the size in bytes above which files are uploaded in parts.
+     *
+     * @param multipartThreshold multipart threshold in bytes
+     */
+    public void setMultipartThreshold(Long multipartThreshold) {
+        this.multipartThreshold = multipartThreshold;
+    }
+}
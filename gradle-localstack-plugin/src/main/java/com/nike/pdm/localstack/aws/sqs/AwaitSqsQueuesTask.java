@@ -0,0 +1,241 @@
+/**
+ * Copyright 2020-present, Nike, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the Apache-2.0 license found in
+ * the LICENSE file in the root directory of this source tree.
+ */
+package com.nike.pdm.localstack.aws.sqs;
+
+import com.amazonaws.util.StringUtils;
+import com.nike.pdm.localstack.compose.LocalStackModule;
+import com.nike.pdm.localstack.core.ConsoleLogger;
+import com.nike.pdm.localstack.core.Retry;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.Optional;
+import org.gradle.api.tasks.TaskAction;
+import org.gradle.api.tasks.options.Option;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Task that waits for SQS queues to drain to a target depth.
+ */
+public class AwaitSqsQueuesTask extends DefaultTask {
+
+    @Input
+    private List<String> queueNames;
+
+    @Optional
+    @Input
+    private Long targetDepth = 0L;
+
+    @Optional
+    @Input
+    private Integer timeoutSeconds = 300;
+
+    @Optional
+    @Input
+    private Long minPollIntervalMillis = 100L;
+
+    @Optional
+    @Input
+    private Long maxPollIntervalMillis = 5000L;
+
+    public AwaitSqsQueuesTask() {
+        setMustRunAfter(Arrays.asList(LocalStackModule.START_LOCALSTACK_TASK_NAME));
+    }
+
+    @TaskAction
+    public void run() {
+        if (queueNames == null || queueNames.isEmpty()) {
+            ConsoleLogger.log("No queues configured!");
+            return;
+        }
+
+        final Set<Class<? extends Throwable>> expectedErrors = new HashSet<>(Arrays.asList(GradleException.class));
+
+        // Only resolving the queues is retried, retrying the wait would extend the timeout
+        final SqsTaskUtil sqsTaskUtil = new SqsTaskUtil(getProject());
+        final List<String> queueUrls = Retry.execute(() -> sqsTaskUtil.getQueueUrls(queueNames), expectedErrors);
+
+        ConsoleLogger.log("Waiting up to %d seconds for %d queue(s) to drain to a depth of %d", getTimeoutSeconds(), queueUrls.size(), getTargetDepth());
+
+        sqsTaskUtil.awaitQueueDepth(queueUrls, getTargetDepth(), TimeUnit.SECONDS.toMillis(getTimeoutSeconds()),
+                getMinPollIntervalMillis(), getMaxPollIntervalMillis());
+    }
+
+    @Internal
+    @Override
+    public String getGroup() {
+        return SqsModule.GROUP_NAME;
+    }
+
+    @Internal
+    @Override
+    public String getDescription() {
+        return "Waits for SQS queues to drain to a target depth.";
+    }
+
+    /**
+     * Gets the names of the queues to wait for.
+     *
+     * @return queue names
+     */
+    public List<String> getQueueNames() {
+        return queueNames;
+    }
+
+    /**
+     * Sets the names of the queues to wait for.
+     *
+     * @param queueNames queue names
+     */
+    public void setQueueNames(List<String> queueNames) {
+        this.queueNames = queueNames;
+    }
+
+    /**
+     * Sets the names of the queues to wait for. This method supports providing the queue names as a comma-delimited
+     * list of names.
+     *
+     * @param queues queue names
+     */
+    @Option(option = "queueNames", description = "Comma-delimited list of the names of the queues to wait for")
+    public void setQueueNames(String queues) {
+        if (!StringUtils.isNullOrEmpty(queues)) {
+            setQueueNames(Arrays.stream(queues.split(","))
+                    .map(String::trim)
+                    .collect(Collectors.toList()));
+        }
+    }
+
+    /**
+     * Gets the depth, visible plus in flight messages, that every queue must drain to. Defaults to 0.
+     *
+     * @return target depth
+     */
+    public Long getTargetDepth() {
+        return targetDepth != null ? targetDepth : 0L;
+    }
+
+    /**
+     * Sets the depth, visible plus in flight messages, that every queue must drain to.
+     *
+     * @param targetDepth target depth
+     */
+    public void setTargetDepth(Long targetDepth) {
+        this.targetDepth = targetDepth;
+    }
+
+    /**
+     * Sets the depth, visible plus in flight messages, that every queue must drain to.
+     *
+     * @param targetDepth target depth
+     */
+    @Option(option = "targetDepth", description = "Number of visible and in flight messages every queue must drain to")
+    public void setTargetDepth(String targetDepth) {
+        if (!StringUtils.isNullOrEmpty(targetDepth)) {
+            setTargetDepth(Long.parseLong(targetDepth.trim()));
+        }
+    }
+
+    /**
+     * Gets the number of seconds to wait before failing. Defaults to 300.
+     *
+     * @return timeout in seconds
+     */
+    public Integer getTimeoutSeconds() {
+        return timeoutSeconds != null ? timeoutSeconds : 300;
+    }
+
+    /**
+     * Sets the number of seconds to wait before failing.
+     *
+     * @param timeoutSeconds timeout in seconds
+     */
+    public void setTimeoutSeconds(Integer timeoutSeconds) {
+        this.timeoutSeconds = timeoutSeconds;
+    }
+
+    /**
+     * Sets the number of seconds to wait before failing.
+     *
+     * @param timeoutSeconds timeout in seconds
+     */
+    @Option(option = "timeoutSeconds", description = "Number of seconds to wait for the queues to drain before failing")
+    public void setTimeoutSeconds(String timeoutSeconds) {
+        if (!StringUtils.isNullOrEmpty(timeoutSeconds)) {
+            setTimeoutSeconds(Integer.parseInt(timeoutSeconds.trim()));
+        }
+    }
+
+    /**
+     * Gets the number of milliseconds between polls while queue depths are changing. Defaults to 100.
+     *
+     * @return minimum poll interval in milliseconds
+     */
+    public Long getMinPollIntervalMillis() {
+        return minPollIntervalMillis != null ? minPollIntervalMillis : 100L;
+    }
+
+    /**
+     * Sets the number of milliseconds between polls while queue depths are changing.
+     *
+     * @param minPollIntervalMillis minimum poll interval in milliseconds
+     */
+    public void setMinPollIntervalMillis(Long minPollIntervalMillis) {
+        this.minPollIntervalMillis = minPollIntervalMillis;
+    }
+
+    /**
+     * Sets the number of milliseconds between polls while queue depths are changing.
+     *
+     * @param minPollIntervalMillis minimum poll interval in milliseconds
+     */
+    @Option(option = "minPollIntervalMillis", description = "Milliseconds between polls while queue depths are changing")
+    public void setMinPollIntervalMillis(String minPollIntervalMillis) {
+        if (!StringUtils.isNullOrEmpty(minPollIntervalMillis)) {
+            setMinPollIntervalMillis(Long.parseLong(minPollIntervalMillis.trim()));
+        }
+    }
+
+    /**
+     * Gets the longest number of milliseconds between polls, reached while queue depths are not changing. Defaults to
+     * 5000.
+     *
+     * @return maximum poll interval in milliseconds
+     */
+    public Long getMaxPollIntervalMillis() {
+        return maxPollIntervalMillis != null ? maxPollIntervalMillis : 5000L;
+    }
+
+    /**
+     * Sets the longest number of milliseconds between polls, reached while queue depths are not changing.
+     *
+     * @param maxPollIntervalMillis maximum poll interval in milliseconds
+     */
+    public void setMaxPollIntervalMillis(Long maxPollIntervalMillis) {
+        this.maxPollIntervalMillis = maxPollIntervalMillis;
+    }
+
+    /**
+     * Sets the longest number of milliseconds between polls, reached while queue depths are not changing.
+     *
+     * @param maxPollIntervalMillis maximum poll interval in milliseconds
+     */
+    @Option(option = "maxPollIntervalMillis", description = "Longest number of milliseconds between polls while queue depths are not changing")
+    public void setMaxPollIntervalMillis(String maxPollIntervalMillis) {
+        if (!StringUtils.isNullOrEmpty(maxPollIntervalMillis)) {
+            setMaxPollIntervalMillis(Long.parseLong(maxPollIntervalMillis.trim()));
+        }
+    }
+}
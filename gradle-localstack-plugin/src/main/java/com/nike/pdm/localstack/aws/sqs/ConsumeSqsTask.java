@@ -0,0 +1,349 @@
+/**
+ * Copyright 2020-present, Nike, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the Apache-2.0 license found in
+ * the LICENSE file in the root directory of this source tree.
+ */
+package com.nike.pdm.localstack.aws.sqs;
+
+import com.amazonaws.services.sqs.AmazonSQS;
+import com.amazonaws.util.StringUtils;
+import com.nike.pdm.localstack.aws.AwsClientFactory;
+import com.nike.pdm.localstack.compose.LocalStackModule;
+import com.nike.pdm.localstack.core.ConsoleLogger;
+import com.nike.pdm.localstack.core.Retry;
+import com.nike.pdm.localstack.core.TokenBucket;
+import de.vandermeer.asciitable.AsciiTable;
+import de.vandermeer.skb.interfaces.transformers.textformat.TextAlignment;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.Optional;
+import org.gradle.api.tasks.TaskAction;
+import org.gradle.api.tasks.options.Option;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Task that simulates the consumers of SQS queues, receiving and deleting messages at a configurable rate.
+ */
+public class ConsumeSqsTask extends DefaultTask {
+
+    @Input
+    private List<String> queueNames;
+
+    @Optional
+    @Input
+    private Integer workers = 4;
+
+    @Optional
+    @Input
+    private Long processingDelayMillis = 0L;
+
+    @Optional
+    @Input
+    private Double failurePercent = 0.0;
+
+    @Optional
+    @Input
+    private Integer messagesPerSecond;
+
+    @Optional
+    @Input
+    private Integer durationSeconds;
+
+    @Optional
+    @Input
+    private Integer idleTimeoutSeconds = 10;
+
+    public ConsumeSqsTask() {
+        setMustRunAfter(Arrays.asList(LocalStackModule.START_LOCALSTACK_TASK_NAME));
+    }
+
+    @TaskAction
+    public void run() {
+        if (queueNames == null || queueNames.isEmpty()) {
+            ConsoleLogger.log("No queues configured!");
+            return;
+        }
+
+        final Set<Class<? extends Throwable>> expectedErrors = new HashSet<>(Arrays.asList(GradleException.class));
+
+        // Only resolving the queues is retried, consuming again would delete more messages
+        final AmazonSQS amazonSQS = AwsClientFactory.getInstance().sqs(getProject());
+        final SqsTaskUtil sqsTaskUtil = new SqsTaskUtil(getProject());
+        final List<String> queueUrls = Retry.execute(() -> sqsTaskUtil.getQueueUrls(queueNames), expectedErrors);
+
+        ConsoleLogger.log("Consuming SQS queues with %d worker(s) each: %s", getWorkers(), String.join(", ", queueNames));
+
+        final TokenBucket rateLimiter = messagesPerSecond != null && messagesPerSecond > 0
+                ? new TokenBucket(messagesPerSecond, SqsQueueDrainer.MAX_MESSAGES_PER_RECEIVE, 0)
+                : null;
+
+        final SqsConsumerSimulator simulator = new SqsConsumerSimulator(amazonSQS, queueUrls, getWorkers(),
+                TimeUnit.SECONDS.toMillis(getIdleTimeoutSeconds()),
+                durationSeconds != null ? TimeUnit.SECONDS.toMillis(durationSeconds) : 0,
+                getProcessingDelayMillis(), getFailurePercent(), rateLimiter);
+        simulator.start();
+        simulator.await();
+
+        final double elapsedSeconds = Math.max(1, simulator.getElapsedMillis()) / 1000.0;
+
+        AsciiTable at = new AsciiTable();
+        at.setTextAlignment(TextAlignment.JUSTIFIED_LEFT);
+        at.getContext().setWidth(150);
+
+        at.addRule();
+        at.addRow("QueueName", "Received", "Consumed", "Failed", "Consumed/s");
+        at.addRule();
+
+        for (int i = 0; i < queueUrls.size(); i++) {
+            at.addRow(queueNames.get(i), simulator.getReceived(i), simulator.getConsumed(i), simulator.getFailed(i),
+                    String.format("%.1f", simulator.getConsumed(i) / elapsedSeconds));
+            at.addRule();
+        }
+
+        ConsoleLogger.log(at.render());
+        ConsoleLogger.log(simulator.renderThroughput());
+        ConsoleLogger.log(simulator.getQueueLatency().render("Queue latency (sent to received)"));
+        ConsoleLogger.log(simulator.getProcessingLatency().render("Processing latency (received to deleted)"));
+
+        if (simulator.getDeleteFailures() > 0) {
+            ConsoleLogger.log("%d processed messages could not be deleted and will be received again", simulator.getDeleteFailures());
+        }
+
+        ConsoleLogger.log("Consumed SQS queues. Elapsed: %d ms", simulator.getElapsedMillis());
+    }
+
+    @Internal
+    @Override
+    public String getGroup() {
+        return SqsModule.GROUP_NAME;
+    }
+
+    @Internal
+    @Override
+    public String getDescription() {
+        return "Simulates consumers receiving and deleting messages from SQS queues.";
+    }
+
+    /**
+     * Gets the names of the queues to consume.
+     *
+     * @return queue names
+     */
+    public List<String> getQueueNames() {
+        return queueNames;
+    }
+
+    /**
+     * Sets the names of the queues to consume.
+     *
+     * @param queueNames queue names
+     */
+    public void setQueueNames(List<String> queueNames) {
+        this.queueNames = queueNames;
+    }
+
+    /**
+     * Sets the names of the queues to consume. This method supports providing the queue names as a comma-delimited
+     * list of names.
+     *
+     * @param queues queue names
+     */
+    @Option(option = "queueNames", description = "Comma-delimited list of the names of the queues to consume")
+    public void setQueueNames(String queues) {
+        if (!StringUtils.isNullOrEmpty(queues)) {
+            setQueueNames(Arrays.stream(queues.split(","))
+                    .map(String::trim)
+                    .collect(Collectors.toList()));
+        }
+    }
+
+    /**
+     * Gets the number of workers consuming each queue. Defaults to 4.
+     *
+     * @return workers
+     */
+    public Integer getWorkers() {
+        return workers != null ? workers : 4;
+    }
+
+    /**
+     * Sets the number of workers consuming each queue.
+     *
+     * @param workers workers
+     */
+    public void setWorkers(Integer workers) {
+        this.workers = workers;
+    }
+
+    /**
+     * Sets the number of workers consuming each queue.
+     *
+     * @param workers workers
+     */
+    @Option(option = "workers", description = "Number of workers consuming each queue")
+    public void setWorkers(String workers) {
+        if (!StringUtils.isNullOrEmpty(workers)) {
+            setWorkers(Integer.parseInt(workers.trim()));
+        }
+    }
+
+    /**
+     * Gets the number of milliseconds spent processing each message. Defaults to 0.
+     *
+     * @return processing delay in milliseconds
+     */
+    public Long getProcessingDelayMillis() {
+        return processingDelayMillis != null ? processingDelayMillis : 0L;
+    }
+
+    /**
+     * Sets the number of milliseconds spent processing each message.
+     *
+     * @param processingDelayMillis processing delay in milliseconds
+     */
+    public void setProcessingDelayMillis(Long processingDelayMillis) {
+        this.processingDelayMillis = processingDelayMillis;
+    }
+
+    /**
+     * Sets the number of milliseconds spent processing each message.
+     *
+     * @param processingDelayMillis processing delay in milliseconds
+     */
+    @Option(option = "processingDelayMillis", description = "Number of milliseconds spent processing each message")
+    public void setProcessingDelayMillis(String processingDelayMillis) {
+        if (!StringUtils.isNullOrEmpty(processingDelayMillis)) {
+            setProcessingDelayMillis(Long.parseLong(processingDelayMillis.trim()));
+        }
+    }
+
+    /**
+     * Gets the percentage of messages that fail processing and are left on the queue. Defaults to 0.
+     *
+     * @return failure percentage
+     */
+    public Double getFailurePercent() {
+        return failurePercent != null ? failurePercent : 0.0;
+    }
+
+    /**
+     * Sets the percentage of messages that fail processing and are left on the queue.
+     *
+     * @param failurePercent failure percentage
+     */
+    public void setFailurePercent(Double failurePercent) {
+        this.failurePercent = failurePercent;
+    }
+
+    /**
+     * Sets the percentage of messages that fail processing and are left on the queue.
+     *
+     * @param failurePercent failure percentage
+     */
+    @Option(option = "failurePercent", description = "Percentage of messages that fail processing and are left to return to the queue or go to its DLQ")
+    public void setFailurePercent(String failurePercent) {
+        if (!StringUtils.isNullOrEmpty(failurePercent)) {
+            setFailurePercent(Double.parseDouble(failurePercent.trim()));
+        }
+    }
+
+    /**
+     * Gets the maximum number of messages per second processed across all workers. Defaults to no limit.
+     *
+     * @return messages per second
+     */
+    public Integer getMessagesPerSecond() {
+        return messagesPerSecond;
+    }
+
+    /**
+     * Sets the maximum number of messages per second processed across all workers.
+     *
+     * @param messagesPerSecond messages per second
+     */
+    public void setMessagesPerSecond(Integer messagesPerSecond) {
+        this.messagesPerSecond = messagesPerSecond;
+    }
+
+    /**
+     * Sets the maximum number of messages per second processed across all workers.
+     *
+     * @param messagesPerSecond messages per second
+     */
+    @Option(option = "messagesPerSecond", description = "Maximum number of messages per second processed across all workers")
+    public void setMessagesPerSecond(String messagesPerSecond) {
+        if (!StringUtils.isNullOrEmpty(messagesPerSecond)) {
+            setMessagesPerSecond(Integer.parseInt(messagesPerSecond.trim()));
+        }
+    }
+
+    /**
+     * Gets the number of seconds to consume for. Defaults to consuming until the queues are idle.
+     *
+     * @return duration in seconds
+     */
+    public Integer getDurationSeconds() {
+        return durationSeconds;
+    }
+
+    /**
+     * Sets the number of seconds to consume for.
+     *
+     * @param durationSeconds duration in seconds
+     */
+    public void setDurationSeconds(Integer durationSeconds) {
+        this.durationSeconds = durationSeconds;
+    }
+
+    /**
+     * Sets the number of seconds to consume for.
+     *
+     * @param durationSeconds duration in seconds
+     */
+    @Option(option = "durationSeconds", description = "Number of seconds to consume for, by default consuming stops once the queues are idle")
+    public void setDurationSeconds(String durationSeconds) {
+        if (!StringUtils.isNullOrEmpty(durationSeconds)) {
+            setDurationSeconds(Integer.parseInt(durationSeconds.trim()));
+        }
+    }
+
+    /**
+     * Gets the number of seconds the queues must stay empty before consuming stops. Defaults to 10.
+     *
+     * @return idle timeout in seconds
+     */
+    public Integer getIdleTimeoutSeconds() {
+        return idleTimeoutSeconds != null ? idleTimeoutSeconds : 10;
+    }
+
+    /**
+     * Sets the number of seconds the queues must stay empty before consuming stops.
+     *
+     * @param idleTimeoutSeconds idle timeout in seconds
+     */
+    public void setIdleTimeoutSeconds(Integer idleTimeoutSeconds) {
+        this.idleTimeoutSeconds = idleTimeoutSeconds;
+    }
+
+    /**
+     * Sets the number of seconds the queues must stay empty before consuming stops.
+     *
+     * @param idleTimeoutSeconds idle timeout in seconds
+     */
+    @Option(option = "idleTimeoutSeconds", description = "Number of seconds the queues must stay empty before consuming stops")
+    public void setIdleTimeoutSeconds(String idleTimeoutSeconds) {
+        if (!StringUtils.isNullOrEmpty(idleTimeoutSeconds)) {
+            setIdleTimeoutSeconds(Integer.parseInt(idleTimeoutSeconds.trim()));
+        }
+    }
+}
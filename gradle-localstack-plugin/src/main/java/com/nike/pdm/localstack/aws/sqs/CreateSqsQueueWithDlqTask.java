@@ -55,9 +55,11 @@ public class CreateSqsQueueWithDlqTask extends DefaultTask {
     public void run() {
         final Set<Class<? extends Throwable>> expectedErrors = new HashSet<>(Arrays.asList(JsonProcessingException.class));
 
+        // Shared by both queues so that the existing queues are only listed once
+        final SqsTaskUtil sqsTaskUtil = new SqsTaskUtil(getProject());
+
         // Create deadletter queue
         Retry.execute(() -> {
-            final SqsTaskUtil sqsTaskUtil = new SqsTaskUtil(getProject());
             final String dlqName = getDeadletterQueueName();
 
             if (sqsTaskUtil.queueExists(dlqName)) {
@@ -76,7 +78,6 @@ public class CreateSqsQueueWithDlqTask extends DefaultTask {
 
         // Create queue
         Retry.execute(() -> {
-            final SqsTaskUtil sqsTaskUtil = new SqsTaskUtil(getProject());
             final String dlqName = getDeadletterQueueName();
             final String dlqArn = sqsTaskUtil.getQueueArnFromName(dlqName);
 
@@ -7,10 +7,6 @@
  */
 package com.nike.pdm.localstack.aws.sqs;
 
-import com.amazonaws.services.sqs.AmazonSQS;
-import com.amazonaws.services.sqs.model.CreateQueueRequest;
-import com.amazonaws.services.sqs.model.CreateQueueResult;
-import com.nike.pdm.localstack.aws.AwsClientFactory;
 import com.nike.pdm.localstack.core.ConsoleLogger;
 import com.nike.pdm.localstack.core.Retry;
 import com.nike.pdm.localstack.core.annotation.LocalStackSetupTask;
@@ -44,7 +40,7 @@ public class CreateSqsQueuesTask extends DefaultTask {
         final Set<Class<? extends Throwable>> expectedErrors = new HashSet<>(Arrays.asList(IllegalArgumentException.class));
 
         Retry.execute(() -> {
-            final AmazonSQS amazonSQS = AwsClientFactory.getInstance().sqs(getProject());
+            // Existence checks are served from a single listing of the queues
             final SqsTaskUtil sqsTaskUtil = new SqsTaskUtil(getProject());
 
             queueNames.forEach(queueName -> {
@@ -53,15 +49,9 @@ public class CreateSqsQueuesTask extends DefaultTask {
                 if (sqsTaskUtil.queueExists(queueName)) {
                     ConsoleLogger.log("Queue already exists: %s", queueName);
                 } else {
-                    final CreateQueueRequest createQueueRequest = new CreateQueueRequest(queueName);
+                    sqsTaskUtil.createQueue(queueName, queueAttributes);
 
-                    if (queueAttributes != null && !queueAttributes.isEmpty()) {
-                        createQueueRequest.setAttributes(queueAttributes);
-                    }
-
-                    CreateQueueResult queue = amazonSQS.createQueue(createQueueRequest);
-
-                    ConsoleLogger.log("Created SQS queue: %s", queueNames);
+                    ConsoleLogger.log("Created SQS queue: %s", queueName);
                 }
             });
 
@@ -0,0 +1,159 @@
+/**
+ * Copyright 2020-present, Nike, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the Apache-2.0 license found in
+ * the LICENSE file in the root directory of this source tree.
+ */
+package com.nike.pdm.localstack.aws.sqs;
+
+import com.amazonaws.services.sqs.AmazonSQS;
+import com.nike.pdm.localstack.aws.AwsClientFactory;
+import com.nike.pdm.localstack.core.ConsoleLogger;
+import com.nike.pdm.localstack.core.annotation.LocalStackSetupTask;
+import de.vandermeer.asciitable.AsciiTable;
+import de.vandermeer.skb.interfaces.transformers.textformat.TextAlignment;
+import org.gradle.api.Action;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.Optional;
+import org.gradle.api.tasks.TaskAction;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Task that creates many SQS queues, each with an attached deadletter queue, in parallel.
+ */
+@LocalStackSetupTask
+public class CreateSqsQueuesWithDlqTask extends DefaultTask {
+
+    @Input
+    private List<SqsQueueSpec> queues = new ArrayList<>();
+
+    @Optional
+    @Input
+    private Integer parallelism = 8;
+
+    @TaskAction
+    public void run() {
+        if (queues == null || queues.isEmpty()) {
+            ConsoleLogger.log("No queues configured!");
+            return;
+        }
+
+        final AmazonSQS amazonSQS = AwsClientFactory.getInstance().sqs(getProject());
+        final SqsTaskUtil sqsTaskUtil = new SqsTaskUtil(getProject());
+
+        ConsoleLogger.log("Creating %d SQS queue(s) with deadletter queues", queues.size());
+
+        final long start = System.currentTimeMillis();
+        final SqsQueuePairCreator creator = new SqsQueuePairCreator(amazonSQS, new SqsQueueInventory(amazonSQS),
+                sqsTaskUtil::getQueueArnFromName, getParallelism());
+        final List<SqsQueuePairCreator.Result> results = creator.create(queues);
+
+        AsciiTable at = new AsciiTable();
+        at.setTextAlignment(TextAlignment.JUSTIFIED_LEFT);
+        at.getContext().setWidth(150);
+
+        at.addRule();
+        at.addRow("QueueName", "Queue", "Queue ms", "DeadletterQueueName", "DLQ", "DLQ ms");
+        at.addRule();
+
+        results.forEach(result -> {
+            at.addRow(result.getQueueName(), result.getQueue().getAction(), result.getQueue().getMillis(),
+                    result.getDeadletterQueueName(), result.getDeadletterQueue().getAction(), result.getDeadletterQueue().getMillis());
+            at.addRule();
+        });
+
+        ConsoleLogger.log(at.render());
+
+        final List<SqsQueuePairCreator.Result> failed = results.stream()
+                .filter(SqsQueuePairCreator.Result::isFailed)
+                .collect(Collectors.toList());
+
+        ConsoleLogger.log("Created SQS queues with deadletter queues. Queues: %d, Failed: %d, Elapsed: %d ms",
+                results.size(), failed.size(), System.currentTimeMillis() - start);
+
+        if (!failed.isEmpty()) {
+            failed.forEach(result -> ConsoleLogger.log("Failed to create SQS queue %s: %s", result.getQueueName(),
+                    result.getDeadletterQueue().isFailed() ? result.getDeadletterQueue().getError() : result.getQueue().getError()));
+
+            throw new GradleException(String.format("Failed to create %d SQS queue(s): %s", failed.size(), failed.stream()
+                    .map(SqsQueuePairCreator.Result::getQueueName)
+                    .collect(Collectors.joining(", "))));
+        }
+    }
+
+    @Internal
+    @Override
+    public String getGroup() {
+        return SqsModule.GROUP_NAME;
+    }
+
+    @Internal
+    @Override
+    public String getDescription() {
+        return "Creates SQS queues with attached DLQs in parallel.";
+    }
+
+    /**
+     * Adds a queue to create with a deadletter queue named `{queueName}-dlq`.
+     *
+     * @param queueName queue name
+     */
+    public void queue(String queueName) {
+        queue(queueName, spec -> { });
+    }
+
+    /**
+     * Adds a queue to create.
+     *
+     * @param queueName queue name
+     * @param action configures the queue and its deadletter queue
+     */
+    public void queue(String queueName, Action<? super SqsQueueSpec> action) {
+        final SqsQueueSpec spec = new SqsQueueSpec(queueName);
+        action.execute(spec);
+        queues.add(spec);
+    }
+
+    /**
+     * Gets the queues to create.
+     *
+     * @return queue specs
+     */
+    public List<SqsQueueSpec> getQueues() {
+        return queues;
+    }
+
+    /**
+     * Sets the queues to create.
+     *
+     * @param queues queue specs
+     */
+    public void setQueues(List<SqsQueueSpec> queues) {
+        this.queues = queues;
+    }
+
+    /**
+     * Gets the maximum number of queues created at the same time. Defaults to 8.
+     *
+     * @return parallelism
+     */
+    public Integer getParallelism() {
+        return parallelism != null ? parallelism : 8;
+    }
+
+    /**
+     * Sets the maximum number of queues created at the same time.
+     *
+     * @param parallelism parallelism
+     */
+    public void setParallelism(Integer parallelism) {
+        this.parallelism = parallelism;
+    }
+}
@@ -0,0 +1,352 @@
+/**
+ * Copyright 2020-present, Nike, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the Apache-2.0 license found in
+ * the LICENSE file in the root directory of this source tree.
+ */
+package com.nike.pdm.localstack.aws.sqs;
+
+import com.amazonaws.services.sqs.AmazonSQS;
+import com.amazonaws.util.StringUtils;
+import com.nike.pdm.localstack.aws.AwsClientFactory;
+import com.nike.pdm.localstack.compose.LocalStackModule;
+import com.nike.pdm.localstack.core.ConsoleLogger;
+import com.nike.pdm.localstack.core.Retry;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.Optional;
+import org.gradle.api.tasks.OutputDirectory;
+import org.gradle.api.tasks.TaskAction;
+import org.gradle.api.tasks.options.Option;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Task that drains the messages of SQS queues into message files.
+ */
+public class DrainSqsQueuesTask extends DefaultTask {
+
+    @Input
+    private List<String> queueNames;
+
+    @Optional
+    @OutputDirectory
+    private File outputDir;
+
+    @Optional
+    @Input
+    private Integer workers = 4;
+
+    @Optional
+    @Input
+    private Integer idleTimeoutSeconds = 10;
+
+    @Optional
+    @Input
+    private Boolean compress = false;
+
+    @Optional
+    @Input
+    private Boolean records = false;
+
+    public DrainSqsQueuesTask() {
+        setMustRunAfter(Arrays.asList(LocalStackModule.START_LOCALSTACK_TASK_NAME));
+
+        // The contents of the queues are not known to gradle, so the task is never up to date
+        getOutputs().upToDateWhen(task -> false);
+    }
+
+    @TaskAction
+    public void run() {
+        if (queueNames == null || queueNames.isEmpty()) {
+            ConsoleLogger.log("No queues configured!");
+            return;
+        }
+
+        final Set<Class<? extends Throwable>> expectedErrors = new HashSet<>(Arrays.asList(GradleException.class));
+
+        // Only resolving the queues is retried, a drain that fails part way has already deleted the messages it wrote
+        final AmazonSQS amazonSQS = AwsClientFactory.getInstance().sqs(getProject());
+        final List<String> queueUrls = Retry.execute(() -> new SqsTaskUtil(getProject()).getQueueUrls(queueNames), expectedErrors);
+
+        final File dir = getOutputDir();
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new GradleException("Unable to create output directory: " + dir.getAbsolutePath());
+        }
+
+        final List<SqsMessageFileWriter> writers = new ArrayList<>(queueNames.size());
+        final List<SqsQueueDrainer> drainers = new ArrayList<>(queueNames.size());
+        final long startNanos = System.nanoTime();
+        boolean drained = false;
+
+        try {
+            // Every queue is drained at once, each by its own workers
+            for (int i = 0; i < queueNames.size(); i++) {
+                final File file = getOutputFile(queueNames.get(i));
+                ConsoleLogger.log("Draining SQS queue %s to: %s", queueNames.get(i), file.getAbsolutePath());
+
+                final SqsMessageFileWriter writer = new SqsMessageFileWriter(file, getRecords());
+                writers.add(writer);
+
+                final SqsQueueDrainer drainer = new SqsQueueDrainer(amazonSQS, queueUrls.get(i), writer, getWorkers(),
+                        TimeUnit.SECONDS.toMillis(getIdleTimeoutSeconds()), getRecords());
+                drainers.add(drainer);
+                drainer.start();
+            }
+
+            drainers.forEach(SqsQueueDrainer::await);
+            drained = true;
+        } catch (IOException e) {
+            throw new GradleException("Unable to write drained messages: " + e.getMessage(), e);
+        } finally {
+            if (!drained) {
+                // Stop every queue before its file is closed, rather than leaving it to long poll into a closed writer
+                drainers.forEach(SqsQueueDrainer::stop);
+            }
+
+            for (SqsMessageFileWriter writer : writers) {
+                try {
+                    writer.close();
+                } catch (IOException e) {
+                    ConsoleLogger.log("Error occurred while closing drained message file: %s", e.getMessage());
+                }
+            }
+        }
+
+        final long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        for (int i = 0; i < queueNames.size(); i++) {
+            ConsoleLogger.log("Drained SQS queue %s. Messages: %d, Elapsed: %d ms", queueNames.get(i), writers.get(i).getWritten(), elapsedMillis);
+
+            if (writers.get(i).getQuoted() > 0) {
+                ConsoleLogger.log("%d message bodies in %s spanned several lines and were written as JSON strings",
+                        writers.get(i).getQuoted(), queueNames.get(i));
+            }
+
+            if (drainers.get(i).getDeleteFailures() > 0) {
+                ConsoleLogger.log("%d messages could not be deleted from %s and may be drained again",
+                        drainers.get(i).getDeleteFailures(), queueNames.get(i));
+            }
+        }
+    }
+
+    /**
+     * Gets the file to which the messages of a queue are written.
+     *
+     * @param queueName queue name
+     * @return message file
+     */
+    private File getOutputFile(String queueName) {
+        return new File(getOutputDir(), queueName + (getCompress() ? ".ndjson.gz" : ".ndjson"));
+    }
+
+    @Internal
+    @Override
+    public String getGroup() {
+        return SqsModule.GROUP_NAME;
+    }
+
+    @Internal
+    @Override
+    public String getDescription() {
+        return "Drains the messages of SQS queues into message files.";
+    }
+
+    /**
+     * Gets the names of the queues to drain.
+     *
+     * @return queue names
+     */
+    public List<String> getQueueNames() {
+        return queueNames;
+    }
+
+    /**
+     * Sets the names of the queues to drain.
+     *
+     * @param queueNames queue names
+     */
+    public void setQueueNames(List<String> queueNames) {
+        this.queueNames = queueNames;
+    }
+
+    /**
+     * Sets the names of the queues to drain. This method supports providing the queue names as a comma-delimited list
+     * of names.
+     *
+     * @param queues queue names
+     */
+    @Option(option = "queueNames", description = "Comma-delimited list of the names of the queues to drain")
+    public void setQueueNames(String queues) {
+        if (!StringUtils.isNullOrEmpty(queues)) {
+            setQueueNames(Arrays.stream(queues.split(","))
+                    .map(String::trim)
+                    .collect(Collectors.toList()));
+        }
+    }
+
+    /**
+     * Gets the directory to which message files are written, one per queue named after the queue. Defaults to
+     * <code>build/localstack/sqs</code>.
+     *
+     * @return output directory
+     */
+    public File getOutputDir() {
+        return outputDir != null ? outputDir : Paths.get(getProject().getBuildDir().getAbsolutePath(), "localstack", "sqs").toFile();
+    }
+
+    /**
+     * Sets the directory to which message files are written.
+     *
+     * @param outputDir output directory
+     */
+    public void setOutputDir(File outputDir) {
+        this.outputDir = outputDir;
+    }
+
+    /**
+     * Sets the directory to which message files are written.
+     *
+     * @param path output directory path
+     */
+    @Option(option = "outputDir", description = "Directory to which to write the message files")
+    public void setOutputDir(String path) {
+        if (!StringUtils.isNullOrEmpty(path)) {
+            setOutputDir(Paths.get(path).toFile());
+        }
+    }
+
+    /**
+     * Gets the number of workers long polling each queue. Defaults to 4.
+     *
+     * @return workers per queue
+     */
+    public Integer getWorkers() {
+        return workers != null ? workers : 4;
+    }
+
+    /**
+     * Sets the number of workers long polling each queue.
+     *
+     * @param workers workers per queue
+     */
+    public void setWorkers(Integer workers) {
+        this.workers = workers;
+    }
+
+    /**
+     * Sets the number of workers long polling each queue.
+     *
+     * @param workers workers per queue
+     */
+    @Option(option = "workers", description = "Number of workers receiving messages from each queue")
+    public void setWorkers(String workers) {
+        if (!StringUtils.isNullOrEmpty(workers)) {
+            setWorkers(Integer.parseInt(workers.trim()));
+        }
+    }
+
+    /**
+     * Gets the number of seconds a queue must stay empty before draining it stops. Defaults to 10.
+     *
+     * @return idle timeout in seconds
+     */
+    public Integer getIdleTimeoutSeconds() {
+        return idleTimeoutSeconds != null ? idleTimeoutSeconds : 10;
+    }
+
+    /**
+     * Sets the number of seconds a queue must stay empty before draining it stops.
+     *
+     * @param idleTimeoutSeconds idle timeout in seconds
+     */
+    public void setIdleTimeoutSeconds(Integer idleTimeoutSeconds) {
+        this.idleTimeoutSeconds = idleTimeoutSeconds;
+    }
+
+    /**
+     * Sets the number of seconds a queue must stay empty before draining it stops.
+     *
+     * @param idleTimeoutSeconds idle timeout in seconds
+     */
+    @Option(option = "idleTimeoutSeconds", description = "Number of seconds a queue must stay empty before draining it stops")
+    public void setIdleTimeoutSeconds(String idleTimeoutSeconds) {
+        if (!StringUtils.isNullOrEmpty(idleTimeoutSeconds)) {
+            setIdleTimeoutSeconds(Integer.parseInt(idleTimeoutSeconds.trim()));
+        }
+    }
+
+    /**
+     * Gets whether message files are gzip compressed. Defaults to <code>false</code>.
+     *
+     * @return <code>true</code> to compress message files; otherwise <code>false</code>
+     */
+    public Boolean getCompress() {
+        return compress != null && compress;
+    }
+
+    /**
+     * Sets whether message files are gzip compressed.
+     *
+     * @param compress <code>true</code> to compress message files; otherwise <code>false</code>
+     */
+    public void setCompress(Boolean compress) {
+        this.compress = compress;
+    }
+
+    /**
+     * Sets whether message files are gzip compressed.
+     *
+     * @param compress <code>true</code> to compress message files; otherwise <code>false</code>
+     */
+    @Option(option = "compress", description = "Whether to gzip compress the message files")
+    public void setCompress(String compress) {
+        if (!StringUtils.isNullOrEmpty(compress)) {
+            setCompress(Boolean.parseBoolean(compress.trim()));
+        }
+    }
+
+    /**
+     * Gets whether each message is written as a json record holding its id, sent timestamp, body, attributes, and
+     * message attributes, rather than as its body alone. Defaults to <code>false</code>, which writes files that can
+     * be published again with <code>publishSqs</code>. Records can be replayed with <code>replaySqs</code> and a body
+     * field of <code>body</code>.
+     *
+     * @return <code>true</code> to write records; otherwise <code>false</code>
+     */
+    public Boolean getRecords() {
+        return records != null && records;
+    }
+
+    /**
+     * Sets whether each message is written as a json record rather than as its body alone.
+     *
+     * @param records <code>true</code> to write records; otherwise <code>false</code>
+     */
+    public void setRecords(Boolean records) {
+        this.records = records;
+    }
+
+    /**
+     * Sets whether each message is written as a json record rather than as its body alone.
+     *
+     * @param records <code>true</code> to write records; otherwise <code>false</code>
+     */
+    @Option(option = "records", description = "Whether to write each message as a JSON record with its attributes rather than its body alone")
+    public void setRecords(String records) {
+        if (!StringUtils.isNullOrEmpty(records)) {
+            setRecords(Boolean.parseBoolean(records.trim()));
+        }
+    }
+}
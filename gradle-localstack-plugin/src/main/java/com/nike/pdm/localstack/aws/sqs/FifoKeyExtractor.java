@@ -0,0 +1,110 @@
+/**
+ * Copyright 2020-present, Nike, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the Apache-2.0 license found in
+ * the LICENSE file in the root directory of this source tree.
+ */
+package com.nike.pdm.localstack.aws.sqs;
+
+import org.gradle.api.Transformer;
+
+/**
+ * Extracts the message group id, and optionally the message deduplication id, required to publish a message to a FIFO
+ * queue.
+ *
+ * <p>Each id is either read from a field of the message, which must then be a json object, or computed by a
+ * {@link Transformer} from the message body. Fields are read by a {@link JsonFieldReader} in a single pass over the
+ * message.
+ */
+final class FifoKeyExtractor {
+
+    private static final int GROUP_ID = 0;
+    private static final int DEDUPLICATION_ID = 1;
+
+    private final JsonFieldReader fieldReader;
+    private final boolean deduplicationIdRequired;
+    private final Transformer<String, String> groupIdExtractor;
+    private final Transformer<String, String> deduplicationIdExtractor;
+
+    /**
+     * Creates an extractor. An extractor takes precedence over a field for the same id.
+     *
+     * @param groupIdField path of the field holding the message group id
+     * @param groupIdExtractor computes the message group id from the message body
+     * @param deduplicationIdField path of the field holding the message deduplication id or <code>null</code>
+     * @param deduplicationIdExtractor computes the message deduplication id from the message body or <code>null</code>
+     * @throws IllegalArgumentException if neither a field nor an extractor of the message group id is given
+     */
+    FifoKeyExtractor(String groupIdField,
+                     Transformer<String, String> groupIdExtractor,
+                     String deduplicationIdField,
+                     Transformer<String, String> deduplicationIdExtractor) {
+        if (groupIdExtractor == null && (groupIdField == null || groupIdField.trim().isEmpty())) {
+            throw new IllegalArgumentException("A message group id field or extractor is required");
+        }
+
+        this.groupIdExtractor = groupIdExtractor;
+        this.deduplicationIdExtractor = deduplicationIdExtractor;
+        this.deduplicationIdRequired = deduplicationIdExtractor == null
+                && deduplicationIdField != null
+                && !deduplicationIdField.trim().isEmpty();
+
+        final String[] fields = new String[2];
+        fields[GROUP_ID] = groupIdExtractor == null ? groupIdField : null;
+        fields[DEDUPLICATION_ID] = deduplicationIdRequired ? deduplicationIdField : null;
+        this.fieldReader = fields[GROUP_ID] != null || fields[DEDUPLICATION_ID] != null ? new JsonFieldReader(fields) : null;
+    }
+
+    /**
+     * Extracts the ids of a message.
+     *
+     * @param message message body
+     * @return ids of the message
+     * @throws IllegalArgumentException if the message group id cannot be extracted, or a configured deduplication id
+     *                                  field is missing
+     */
+    Keys extract(String message) {
+        final String[] values = fieldReader != null ? fieldReader.read(message) : new String[2];
+
+        final String groupId = groupIdExtractor != null ? groupIdExtractor.transform(message) : values[GROUP_ID];
+        if (groupId == null || groupId.isEmpty()) {
+            throw new IllegalArgumentException("Message has no message group id");
+        }
+
+        final String deduplicationId = deduplicationIdExtractor != null
+                ? deduplicationIdExtractor.transform(message)
+                : values[DEDUPLICATION_ID];
+        if (deduplicationIdRequired && deduplicationId == null) {
+            throw new IllegalArgumentException("Message has no message deduplication id");
+        }
+
+        return new Keys(groupId, deduplicationId);
+    }
+
+    /**
+     * Ids of a message published to a FIFO queue.
+     */
+    static final class Keys {
+        private final String groupId;
+        private final String deduplicationId;
+
+        Keys(String groupId, String deduplicationId) {
+            this.groupId = groupId;
+            this.deduplicationId = deduplicationId;
+        }
+
+        String getGroupId() {
+            return groupId;
+        }
+
+        /**
+         * Gets the message deduplication id.
+         *
+         * @return message deduplication id or <code>null</code> to rely on content-based deduplication
+         */
+        String getDeduplicationId() {
+            return deduplicationId;
+        }
+    }
+}
@@ -0,0 +1,405 @@
+/**
+ * Copyright 2020-present, Nike, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the Apache-2.0 license found in
+ * the LICENSE file in the root directory of this source tree.
+ */
+package com.nike.pdm.localstack.aws.sqs;
+
+import com.amazonaws.services.sqs.AmazonSQS;
+import com.amazonaws.util.StringUtils;
+import com.nike.pdm.localstack.aws.AwsClientFactory;
+import com.nike.pdm.localstack.compose.LocalStackModule;
+import com.nike.pdm.localstack.core.ConsoleLogger;
+import com.nike.pdm.localstack.core.Retry;
+import com.nike.pdm.localstack.core.TokenBucket;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputFile;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.Optional;
+import org.gradle.api.tasks.TaskAction;
+import org.gradle.api.tasks.options.Option;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
+
+/**
+ * Task that publishes synthetic messages generated from a template to SQS queues.
+ */
+public class GenerateSqsLoadTask extends DefaultTask {
+
+    @Input
+    private List<String> queueNames;
+
+    @Optional
+    @Input
+    private String template;
+
+    @Optional
+    @InputFile
+    private File templateFile;
+
+    @Optional
+    @Input
+    private Long count = 1000L;
+
+    @Optional
+    @Input
+    private Long seed;
+
+    @Optional
+    @Input
+    private Integer batchSize = SqsMessageBatch.MAX_ENTRIES;
+
+    @Optional
+    @Input
+    private Integer parallelism;
+
+    @Optional
+    @Input
+    private Integer messagesPerSecond;
+
+    public GenerateSqsLoadTask() {
+        setMustRunAfter(Arrays.asList(LocalStackModule.START_LOCALSTACK_TASK_NAME));
+    }
+
+    @TaskAction
+    public void run() {
+        if (queueNames == null || queueNames.isEmpty()) {
+            ConsoleLogger.log("No queues configured!");
+            return;
+        }
+
+        final MessageTemplate messageTemplate;
+        try {
+            messageTemplate = MessageTemplate.compile(getTemplateText());
+        } catch (IllegalArgumentException e) {
+            throw new GradleException("Invalid message template: " + e.getMessage(), e);
+        }
+
+        // Log the seed so that a run with a random seed can be repeated
+        final long runSeed = seed != null ? seed : ThreadLocalRandom.current().nextLong();
+        ConsoleLogger.log("Generating %d message(s) with seed: %d", getCount(), runSeed);
+
+        final Set<Class<? extends Throwable>> expectedErrors = new HashSet<>(Arrays.asList(GradleException.class));
+
+        Retry.execute(() -> {
+            final AmazonSQS amazonSQS = AwsClientFactory.getInstance().sqs(getProject());
+            final SqsTaskUtil sqsTaskUtil = new SqsTaskUtil(getProject());
+
+            final List<String> queueUrls = sqsTaskUtil.getQueueUrls(queueNames);
+            final SqsPublishStats stats = new SqsPublishStats();
+            final TokenBucket rateLimiter = messagesPerSecond != null && messagesPerSecond > 0
+                    ? new TokenBucket(messagesPerSecond, getBatchSize(), 0)
+                    : null;
+
+            // Every attempt starts over from the seed and generates exactly the same messages
+            final SplittableRandom random = new SplittableRandom(runSeed);
+
+            try (SqsPublisher publisher = new SqsPublisher(amazonSQS, queueUrls, stats, new SqsPublisher.Options()
+                    .withBatchSize(getBatchSize())
+                    .withParallelism(getParallelism())
+                    .withRateLimiter(rateLimiter))) {
+                final long messageCount = getCount();
+                for (long sequence = 0; sequence < messageCount; sequence++) {
+                    publisher.publish(messageTemplate.render(sequence, random));
+                }
+            }
+
+            ConsoleLogger.log("Generated messages to %d queue(s). %s", queueUrls.size(), stats.summary());
+            ConsoleLogger.log("Achieved rate: %.1f msg/s", stats.getRate());
+
+            if (stats.getFailed() > 0) {
+                throw new GradleException(String.format("Failed to publish %d message(s)", stats.getFailed()));
+            }
+
+            return null;
+        }, expectedErrors);
+    }
+
+    /**
+     * Gets the template text, read from the template file if one is configured.
+     *
+     * @return template text
+     */
+    private String getTemplateText() {
+        if (templateFile != null) {
+            try {
+                final String text = new String(Files.readAllBytes(templateFile.toPath()), StandardCharsets.UTF_8);
+
+                // Editors commonly add a trailing line break that is not meant to be part of the message
+                return text.endsWith("\n") ? text.replaceAll("\\r?\\n$", "") : text;
+            } catch (IOException e) {
+                throw new GradleException("Unable to read message template: " + templateFile.getAbsolutePath(), e);
+            }
+        }
+
+        if (StringUtils.isNullOrEmpty(template)) {
+            throw new GradleException("No message template configured!");
+        }
+
+        return template;
+    }
+
+    @Internal
+    @Override
+    public String getGroup() {
+        return SqsModule.GROUP_NAME;
+    }
+
+    @Internal
+    @Override
+    public String getDescription() {
+        return "Publishes synthetic messages generated from a template to SQS queues.";
+    }
+
+    /**
+     * Gets the names of the queues to which to publish messages.
+     *
+     * @return queue names
+     */
+    public List<String> getQueueNames() {
+        return queueNames;
+    }
+
+    /**
+     * Sets the names of the queues to which to publish messages.
+     *
+     * @param queueNames queue names
+     */
+    public void setQueueNames(List<String> queueNames) {
+        this.queueNames = queueNames;
+    }
+
+    /**
+     * Sets the names of the queues to which to publish messages. This method supports providing the queue names as
+     * a comma-delimited list of names.
+     *
+     * @param queues queue names
+     */
+    @Option(option = "queueNames", description = "Comma-delimited list of the names of the queues to which to publish")
+    public void setQueueNames(String queues) {
+        if (!StringUtils.isNullOrEmpty(queues)) {
+            setQueueNames(Arrays.stream(queues.split(","))
+                    .map(String::trim)
+                    .collect(Collectors.toList()));
+        }
+    }
+
+    /**
+     * Gets the template from which messages are generated. Placeholders in double braces are replaced in each message:
+     * <code>{{seq}}</code>, <code>{{uuid}}</code>, <code>{{random:min:max}}</code>, and
+     * <code>{{choice:value=weight|...}}</code>.
+     *
+     * @return message template
+     */
+    public String getTemplate() {
+        return template;
+    }
+
+    /**
+     * Sets the template from which messages are generated.
+     *
+     * @param template message template
+     */
+    @Option(option = "template", description = "Template from which to generate messages")
+    public void setTemplate(String template) {
+        this.template = template;
+    }
+
+    /**
+     * Gets the file containing the template from which messages are generated. Takes precedence over the template.
+     *
+     * @return message template file
+     */
+    public File getTemplateFile() {
+        return templateFile;
+    }
+
+    /**
+     * Sets the file containing the template from which messages are generated.
+     *
+     * @param templateFile message template file
+     */
+    public void setTemplateFile(File templateFile) {
+        this.templateFile = templateFile;
+    }
+
+    /**
+     * Sets the file containing the template from which messages are generated.
+     *
+     * @param path message template file path
+     */
+    @Option(option = "templateFile", description = "File path to the template from which to generate messages")
+    public void setTemplateFile(String path) {
+        if (!StringUtils.isNullOrEmpty(path)) {
+            setTemplateFile(Paths.get(path).toFile());
+        }
+    }
+
+    /**
+     * Gets the number of messages to generate. Defaults to 1000.
+     *
+     * @return number of messages
+     */
+    public Long getCount() {
+        return count != null ? count : 1000L;
+    }
+
+    /**
+     * Sets the number of messages to generate.
+     *
+     * @param count number of messages
+     */
+    public void setCount(Long count) {
+        this.count = count;
+    }
+
+    /**
+     * Sets the number of messages to generate.
+     *
+     * @param count number of messages
+     */
+    @Option(option = "count", description = "Number of messages to generate")
+    public void setCount(String count) {
+        if (!StringUtils.isNullOrEmpty(count)) {
+            setCount(Long.parseLong(count.trim()));
+        }
+    }
+
+    /**
+     * Gets the seed of the random values in the generated messages. Runs with the same seed and template generate the
+     * same messages. A random seed is chosen, and logged, when unset.
+     *
+     * @return seed
+     */
+    public Long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Sets the seed of the random values in the generated messages.
+     *
+     * @param seed seed
+     */
+    public void setSeed(Long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Sets the seed of the random values in the generated messages.
+     *
+     * @param seed seed
+     */
+    @Option(option = "seed", description = "Seed of the random values in the generated messages")
+    public void setSeed(String seed) {
+        if (!StringUtils.isNullOrEmpty(seed)) {
+            setSeed(Long.parseLong(seed.trim()));
+        }
+    }
+
+    /**
+     * Gets the maximum number of messages sent to a queue in a single SendMessageBatch request. Defaults to 10, the
+     * maximum allowed by SQS.
+     *
+     * @return batch size
+     */
+    public Integer getBatchSize() {
+        return batchSize != null ? batchSize : SqsMessageBatch.MAX_ENTRIES;
+    }
+
+    /**
+     * Sets the maximum number of messages sent to a queue in a single SendMessageBatch request. Must be between 1 and
+     * 10.
+     *
+     * @param batchSize batch size
+     */
+    public void setBatchSize(Integer batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Sets the maximum number of messages sent to a queue in a single SendMessageBatch request.
+     *
+     * @param batchSize batch size
+     */
+    @Option(option = "batchSize", description = "Maximum number of messages to send in a single batch request (1-10)")
+    public void setBatchSize(String batchSize) {
+        if (!StringUtils.isNullOrEmpty(batchSize)) {
+            setBatchSize(Integer.parseInt(batchSize.trim()));
+        }
+    }
+
+    /**
+     * Gets the number of threads used to send batches to the queues. Defaults to the number of available processors.
+     *
+     * @return number of sender threads
+     */
+    public Integer getParallelism() {
+        return parallelism != null ? parallelism : Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Sets the number of threads used to send batches to the queues.
+     *
+     * @param parallelism number of sender threads
+     */
+    public void setParallelism(Integer parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Sets the number of threads used to send batches to the queues.
+     *
+     * @param parallelism number of sender threads
+     */
+    @Option(option = "parallelism", description = "Number of threads used to send messages to the queues")
+    public void setParallelism(String parallelism) {
+        if (!StringUtils.isNullOrEmpty(parallelism)) {
+            setParallelism(Integer.parseInt(parallelism.trim()));
+        }
+    }
+
+    /**
+     * Gets the maximum combined number of messages per second sent to all queues. The rate is not limited when unset.
+     *
+     * @return messages per second
+     */
+    public Integer getMessagesPerSecond() {
+        return messagesPerSecond;
+    }
+
+    /**
+     * Sets the maximum combined number of messages per second sent to all queues.
+     *
+     * @param messagesPerSecond messages per second
+     */
+    public void setMessagesPerSecond(Integer messagesPerSecond) {
+        this.messagesPerSecond = messagesPerSecond;
+    }
+
+    /**
+     * Sets the maximum combined number of messages per second sent to all queues.
+     *
+     * @param messagesPerSecond messages per second
+     */
+    @Option(option = "messagesPerSecond", description = "Maximum number of messages per second to send to all queues combined")
+    public void setMessagesPerSecond(String messagesPerSecond) {
+        if (!StringUtils.isNullOrEmpty(messagesPerSecond)) {
+            setMessagesPerSecond(Integer.parseInt(messagesPerSecond.trim()));
+        }
+    }
+}
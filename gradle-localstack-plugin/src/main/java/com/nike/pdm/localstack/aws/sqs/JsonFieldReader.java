@@ -0,0 +1,142 @@
+/**
+ * Copyright 2020-present, Nike, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the Apache-2.0 license found in
+ * the LICENSE file in the root directory of this source tree.
+ */
+package com.nike.pdm.localstack.aws.sqs;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+
+/**
+ * Reads the values of fields of json messages.
+ *
+ * <p>Fields are given as a path of field names separated by dots, such as <code>order.customerId</code>, and must hold
+ * a string, number, or boolean. Messages are read with a streaming parser that stops as soon as every field has been
+ * found, so large messages are rarely parsed in full.
+ */
+final class JsonFieldReader {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final String[][] paths;
+
+    /**
+     * Creates a reader.
+     *
+     * @param fields paths of the fields to read; <code>null</code> elements are skipped
+     * @throws IllegalArgumentException if a path is invalid
+     */
+    JsonFieldReader(String... fields) {
+        this.paths = new String[fields.length][];
+        for (int i = 0; i < fields.length; i++) {
+            if (fields[i] != null) {
+                paths[i] = parsePath(fields[i]);
+            }
+        }
+    }
+
+    /**
+     * Reads the values of the fields of a message.
+     *
+     * @param message json message
+     * @return values in the order the fields were given; <code>null</code> for fields that are missing, null, or not
+     *         a scalar value
+     * @throws IllegalArgumentException if the message is not a json object
+     */
+    String[] read(String message) {
+        final String[] values = new String[paths.length];
+
+        try (JsonParser parser = JSON_FACTORY.createParser(message)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IllegalArgumentException("Message is not a JSON object");
+            }
+
+            final boolean[] candidates = new boolean[paths.length];
+            for (int i = 0; i < paths.length; i++) {
+                candidates[i] = paths[i] != null;
+            }
+
+            readObject(parser, 0, candidates, values);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Message is not valid JSON: " + e.getMessage(), e);
+        }
+
+        return values;
+    }
+
+    /**
+     * Reads the fields of the object at the current position of the parser, descending only into the fields on the
+     * paths of fields that have not been found yet. Returns early once all of them have been found.
+     *
+     * @param parser parser positioned at the start of an object
+     * @param depth depth of the object, 0 being the message itself
+     * @param candidates fields whose paths lead through this object
+     * @param values values of the fields found so far
+     * @return <code>true</code> if every field has been found; otherwise <code>false</code>
+     */
+    private boolean readObject(JsonParser parser, int depth, boolean[] candidates, String[] values) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            final String name = parser.getCurrentName();
+            final JsonToken value = parser.nextToken();
+
+            boolean[] nested = null;
+            for (int i = 0; i < paths.length; i++) {
+                if (!candidates[i] || values[i] != null || !paths[i][depth].equals(name)) {
+                    continue;
+                }
+
+                if (paths[i].length == depth + 1) {
+                    if (value.isScalarValue() && value != JsonToken.VALUE_NULL) {
+                        values[i] = parser.getText();
+                    }
+                } else if (value == JsonToken.START_OBJECT) {
+                    if (nested == null) {
+                        nested = new boolean[paths.length];
+                    }
+                    nested[i] = true;
+                }
+            }
+
+            if (nested != null) {
+                if (readObject(parser, depth + 1, nested, values)) {
+                    return true;
+                }
+            } else {
+                parser.skipChildren();
+            }
+
+            if (allFound(values)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private boolean allFound(String[] values) {
+        for (int i = 0; i < paths.length; i++) {
+            if (paths[i] != null && values[i] == null) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static String[] parsePath(String field) {
+        final String[] path = field.trim().split("\\.");
+        for (String name : path) {
+            if (name.isEmpty()) {
+                throw new IllegalArgumentException("Invalid field path: " + field);
+            }
+        }
+
+        return path;
+    }
+}
@@ -0,0 +1,154 @@
+/**
+ * Copyright 2020-present, Nike, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the Apache-2.0 license found in
+ * the LICENSE file in the root directory of this source tree.
+ */
+package com.nike.pdm.localstack.aws.sqs;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram of latencies in milliseconds that may be recorded from several threads at once.
+ *
+ * <p>Latencies are counted in buckets whose bounds double: the first bucket holds latencies under 1 ms and bucket
+ * <code>i</code> holds latencies from <code>2^(i-1)</code> up to <code>2^i</code> ms. The last bucket also holds every
+ * longer latency. Percentiles are reported as the upper bound of the bucket they fall in, so they are accurate to
+ * within a factor of two, which is enough to tell milliseconds from seconds from minutes.
+ */
+final class LatencyHistogram {
+
+    /**
+     * Number of buckets, the last of which starts at roughly 4.6 hours.
+     */
+    static final int BUCKETS = 26;
+
+    private static final int BAR_WIDTH = 50;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Records a latency.
+     *
+     * @param millis latency in milliseconds, negative latencies are recorded as 0
+     */
+    void record(long millis) {
+        final long latency = Math.max(0, millis);
+
+        counts.incrementAndGet(bucket(latency));
+        count.incrementAndGet();
+        total.addAndGet(latency);
+        max.accumulateAndGet(latency, Math::max);
+    }
+
+    long getCount() {
+        return count.get();
+    }
+
+    long getMax() {
+        return max.get();
+    }
+
+    double getMean() {
+        final long recorded = count.get();
+        return recorded == 0 ? 0 : (double) total.get() / recorded;
+    }
+
+    /**
+     * Gets the latency under which a percentage of the recorded latencies fall.
+     *
+     * @param percentile percentage between 0 and 100
+     * @return upper bound in milliseconds of the bucket holding the percentile, no more than the maximum latency
+     */
+    long getPercentile(double percentile) {
+        final long recorded = count.get();
+        if (recorded == 0) {
+            return 0;
+        }
+
+        final long rank = Math.max(1, (long) Math.ceil(recorded * percentile / 100));
+
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(upperBound(i), max.get());
+            }
+        }
+
+        return max.get();
+    }
+
+    /**
+     * Renders the non-empty range of buckets as rows of bars, followed by the usual percentiles.
+     *
+     * @param title title of the histogram
+     * @return rendered histogram
+     */
+    String render(String title) {
+        final StringBuilder out = new StringBuilder(title).append(System.lineSeparator());
+
+        if (count.get() == 0) {
+            return out.append("  No latencies recorded").toString();
+        }
+
+        int first = 0;
+        while (counts.get(first) == 0) {
+            first++;
+        }
+
+        int last = BUCKETS - 1;
+        while (counts.get(last) == 0) {
+            last--;
+        }
+
+        long largest = 0;
+        for (int i = first; i <= last; i++) {
+            largest = Math.max(largest, counts.get(i));
+        }
+
+        for (int i = first; i <= last; i++) {
+            final long bucketCount = counts.get(i);
+            final String range = i == BUCKETS - 1
+                    ? String.format(">= %d ms", lowerBound(i))
+                    : String.format("%d - %d ms", lowerBound(i), upperBound(i));
+
+            out.append(String.format("  %20s | %-" + BAR_WIDTH + "s %d%n", range, bar(bucketCount, largest), bucketCount));
+        }
+
+        return out.append(String.format("  Mean: %.1f ms, p50: %d ms, p90: %d ms, p99: %d ms, Max: %d ms",
+                getMean(), getPercentile(50), getPercentile(90), getPercentile(99), getMax())).toString();
+    }
+
+    static int bucket(long millis) {
+        if (millis < 1) {
+            return 0;
+        }
+
+        return Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(millis));
+    }
+
+    private static long lowerBound(int bucket) {
+        return bucket == 0 ? 0 : 1L << (bucket - 1);
+    }
+
+    private static long upperBound(int bucket) {
+        return 1L << bucket;
+    }
+
+    static String bar(long value, long largest) {
+        final int width = largest == 0 ? 0 : (int) Math.max(value > 0 ? 1 : 0, value * BAR_WIDTH / largest);
+
+        final StringBuilder bar = new StringBuilder(width);
+        for (int i = 0; i < width; i++) {
+            bar.append('#');
+        }
+
+        return bar.toString();
+    }
+}
@@ -0,0 +1,198 @@
+/**
+ * Copyright 2020-present, Nike, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the Apache-2.0 license found in
+ * the LICENSE file in the root directory of this source tree.
+ */
+package com.nike.pdm.localstack.aws.sqs;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Reads lines on a dedicated thread and hands them to the consuming thread in chunks through a bounded queue.
+ *
+ * <p>This decouples CPU-bound work, such as decompressing an archive, from the consumer. The reader thread blocks
+ * once the queue is full, so at most {@link #MAX_CHUNKS} chunks of {@link #MAX_CHUNK_CHARS} characters are held in
+ * memory regardless of how much data is read.
+ */
+final class LinePrefetcher implements AutoCloseable {
+
+    /**
+     * Maximum number of lines in a chunk.
+     */
+    static final int MAX_CHUNK_LINES = 1_000;
+
+    /**
+     * Maximum number of characters in a chunk. A chunk is handed off early once it holds this many characters.
+     */
+    static final int MAX_CHUNK_CHARS = 1_048_576;
+
+    /**
+     * Maximum number of chunks waiting to be consumed.
+     */
+    static final int MAX_CHUNKS = 16;
+
+    private static final List<String> END_OF_LINES = Collections.emptyList();
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+
+    private final BlockingQueue<List<String>> chunks = new ArrayBlockingQueue<>(MAX_CHUNKS);
+    private final Thread readerThread;
+    private volatile Throwable failure;
+    private boolean done;
+
+    /**
+     * Starts reading lines from the source on a new thread.
+     *
+     * @param name name of the source, used to name the reader thread
+     * @param source source of lines
+     */
+    LinePrefetcher(String name, LineSource source) {
+        this.readerThread = new Thread(() -> read(source), String.format("line-prefetcher-%d-%s", THREAD_COUNT.incrementAndGet(), name));
+        this.readerThread.setDaemon(true);
+        this.readerThread.start();
+    }
+
+    /**
+     * Gets the next chunk of lines, blocking until one is available.
+     *
+     * @return next chunk of lines or <code>null</code> if all lines have been read
+     * @throws IOException if the reader thread failed to read the source
+     */
+    List<String> next() throws IOException {
+        if (done) {
+            return null;
+        }
+
+        final List<String> chunk;
+        try {
+            chunk = chunks.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for lines");
+        }
+
+        if (chunk == END_OF_LINES) {
+            done = true;
+
+            final Throwable t = failure;
+            if (t instanceof IOException) {
+                throw (IOException) t;
+            } else if (t != null) {
+                throw new IOException(t.getMessage(), t);
+            }
+
+            return null;
+        }
+
+        return chunk;
+    }
+
+    /**
+     * Stops the reader thread if it is still running.
+     */
+    @Override
+    public void close() {
+        readerThread.interrupt();
+
+        // Unblock the reader thread if it is waiting on a full queue
+        chunks.clear();
+
+        try {
+            readerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void read(LineSource source) {
+        final ChunkingConsumer consumer = new ChunkingConsumer();
+
+        try {
+            source.readLines(consumer);
+        } catch (StopReadingException e) {
+            // Consumer closed the prefetcher before all lines were read
+            return;
+        } catch (Throwable t) {
+            // Lines read before the failure are still consumed before the failure is reported
+            failure = t;
+        }
+
+        try {
+            consumer.handOff();
+            put(END_OF_LINES);
+        } catch (StopReadingException e) {
+            // Consumer closed the prefetcher
+        }
+    }
+
+    private void put(List<String> chunk) {
+        try {
+            chunks.put(chunk);
+        } catch (InterruptedException e) {
+            throw new StopReadingException();
+        }
+    }
+
+    /**
+     * Collects lines into chunks and hands each chunk off once it is full.
+     */
+    private final class ChunkingConsumer implements Consumer<String> {
+        private List<String> chunk = new ArrayList<>();
+        private int chars;
+
+        @Override
+        public void accept(String line) {
+            if (Thread.currentThread().isInterrupted()) {
+                throw new StopReadingException();
+            }
+
+            chunk.add(line);
+            chars += line.length();
+
+            if (chunk.size() >= MAX_CHUNK_LINES || chars >= MAX_CHUNK_CHARS) {
+                handOff();
+            }
+        }
+
+        void handOff() {
+            if (!chunk.isEmpty()) {
+                put(chunk);
+                chunk = new ArrayList<>();
+                chars = 0;
+            }
+        }
+    }
+
+    /**
+     * Source of lines read by the reader thread.
+     */
+    @FunctionalInterface
+    interface LineSource {
+
+        /**
+         * Reads all lines from the source, passing each one to the consumer.
+         *
+         * @param consumer consumer of lines
+         * @throws IOException if an error occurs reading the source
+         */
+        void readLines(Consumer<String> consumer) throws IOException;
+    }
+
+    /**
+     * Thrown on the reader thread to unwind the source when the prefetcher is closed.
+     */
+    private static final class StopReadingException extends RuntimeException {
+        StopReadingException() {
+            super(null, null, false, false);
+        }
+    }
+}
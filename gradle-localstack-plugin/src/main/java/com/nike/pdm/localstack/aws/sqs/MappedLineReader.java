@@ -0,0 +1,166 @@
+/**
+ * Copyright 2020-present, Nike, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the Apache-2.0 license found in
+ * the LICENSE file in the root directory of this source tree.
+ */
+package com.nike.pdm.localstack.aws.sqs;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * Reads the lines of a file by memory-mapping it in chunks and finding line boundaries on the raw bytes.
+ *
+ * <p>Unlike a {@link java.io.BufferedReader}, no characters are decoded and nothing is copied onto the heap while the
+ * file is scanned. Each non-empty line is handed on as a {@link Utf8Line} that points into the mapped chunk and is
+ * only turned into a string when it is sent. The operating system pages the file in and out as needed, so the size of
+ * the file has no bearing on the heap.
+ */
+final class MappedLineReader {
+
+    /**
+     * Maximum number of bytes mapped at once. Lines that are longer than this are reported as oversized lines.
+     */
+    static final int MAX_MAPPING_BYTES = 64 * 1024 * 1024;
+
+    private static final int SCAN_BUFFER_BYTES = 8 * 1024;
+
+    private MappedLineReader() {
+        // Utility class
+    }
+
+    /**
+     * Reads the non-empty lines in a region of a file. Line feeds, and carriage returns that precede them, end a line.
+     *
+     * @param channel file channel to read
+     * @param start position of the first byte of the region; must be the start of a line
+     * @param end position after the last byte of the region; must be the end of a line or of the file
+     * @param consumer consumer of the lines
+     * @throws IOException if an error occurs mapping the file
+     */
+    static void read(FileChannel channel, long start, long end, Consumer<? super Utf8Line> consumer) throws IOException {
+        read(channel, start, end, MAX_MAPPING_BYTES, consumer);
+    }
+
+    static void read(FileChannel channel, long start, long end, int mappingBytes, Consumer<? super Utf8Line> consumer) throws IOException {
+        long pos = start;
+        while (pos < end) {
+            final int size = (int) Math.min(mappingBytes, end - pos);
+            final boolean last = pos + size >= end;
+            final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, pos, size);
+
+            final int lineStart = scan(buffer, size, consumer);
+
+            if (last) {
+                emit(buffer, lineStart, size, consumer);
+                pos = end;
+            } else if (lineStart == 0) {
+                // The line does not fit in a single mapping, skip to its end and report it so it is counted as failed
+                final long lineEnd = findLineEnd(channel, pos + size, end);
+                consumer.accept(Utf8Line.oversized(lineEnd - pos));
+                pos = lineEnd + 1;
+            } else {
+                // Map the next chunk from the start of the incomplete line at the end of this one
+                pos += lineStart;
+            }
+        }
+    }
+
+    /**
+     * Reads the non-empty lines of a buffer holding the contents of a file, such as a small file read into memory.
+     *
+     * @param buffer buffer to read, from index 0 to its limit
+     * @param consumer consumer of the lines
+     */
+    static void read(ByteBuffer buffer, Consumer<? super Utf8Line> consumer) {
+        final int size = buffer.limit();
+        emit(buffer, scan(buffer, size, consumer), size, consumer);
+    }
+
+    /**
+     * Splits a file into regions of roughly equal size that start and end on line boundaries.
+     *
+     * @param channel file channel to split
+     * @param parts maximum number of regions
+     * @return positions at which the regions start, followed by the size of the file
+     * @throws IOException if an error occurs reading the file
+     */
+    static long[] split(FileChannel channel, int parts) throws IOException {
+        final long size = channel.size();
+        final long[] bounds = new long[parts + 1];
+
+        int count = 1;
+        for (int i = 1; i < parts; i++) {
+            final long nominal = Math.max(bounds[count - 1], size * i / parts);
+            final long boundary = Math.min(size, findLineEnd(channel, nominal, size) + 1);
+
+            if (boundary > bounds[count - 1] && boundary < size) {
+                bounds[count++] = boundary;
+            }
+        }
+
+        bounds[count++] = size;
+        return Arrays.copyOf(bounds, count);
+    }
+
+    /**
+     * Hands on every line in the buffer that ends with a line feed.
+     *
+     * @return index of the first byte after the last line feed
+     */
+    private static int scan(ByteBuffer buffer, int size, Consumer<? super Utf8Line> consumer) {
+        int lineStart = 0;
+        for (int i = 0; i < size; i++) {
+            if (buffer.get(i) == '\n') {
+                emit(buffer, lineStart, i, consumer);
+                lineStart = i + 1;
+            }
+        }
+
+        return lineStart;
+    }
+
+    private static void emit(ByteBuffer buffer, int from, int to, Consumer<? super Utf8Line> consumer) {
+        if (to > from && buffer.get(to - 1) == '\r') {
+            to--;
+        }
+
+        if (to > from) {
+            consumer.accept(new Utf8Line(buffer, from, to - from));
+        }
+    }
+
+    /**
+     * Finds the position of the next line feed.
+     *
+     * @return position of the line feed or <code>end</code> if there is none
+     */
+    private static long findLineEnd(FileChannel channel, long from, long end) throws IOException {
+        final ByteBuffer scan = ByteBuffer.allocate(SCAN_BUFFER_BYTES);
+
+        long pos = from;
+        while (pos < end) {
+            scan.clear();
+            final int read = channel.read(scan, pos);
+            if (read <= 0) {
+                break;
+            }
+
+            for (int i = 0; i < read && pos + i < end; i++) {
+                if (scan.get(i) == '\n') {
+                    return pos + i;
+                }
+            }
+
+            pos += read;
+        }
+
+        return end;
+    }
+}
@@ -0,0 +1,103 @@
+/**
+ * Copyright 2020-present, Nike, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the Apache-2.0 license found in
+ * the LICENSE file in the root directory of this source tree.
+ */
+package com.nike.pdm.localstack.aws.sqs;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Finds the message files within a directory tree.
+ */
+final class MessageDirectory {
+
+    private MessageDirectory() {
+        // Utility class
+    }
+
+    /**
+     * Lists the message files in a directory and all of its subdirectories, sorted by their path relative to the
+     * directory. Hidden files, and files in hidden directories, are skipped.
+     *
+     * <p>Patterns are globs. A pattern that contains a <code>/</code> is matched against the path of the file relative
+     * to the directory, such as <code>orders/**.json</code>; any other pattern is matched against the file name only,
+     * such as <code>*.json</code>.
+     *
+     * @param directory directory to search
+     * @param includes patterns of the files to include or <code>null</code> or empty to include all files
+     * @param excludes patterns of the files to exclude or <code>null</code> to exclude no files
+     * @return message files
+     * @throws IOException if an error occurs walking the directory
+     */
+    static List<File> list(File directory, List<String> includes, List<String> excludes) throws IOException {
+        final Path root = directory.toPath();
+        final List<Matcher> includeMatchers = matchers(includes);
+        final List<Matcher> excludeMatchers = matchers(excludes);
+
+        try (Stream<Path> paths = Files.walk(root)) {
+            return paths.filter(Files::isRegularFile)
+                    .map(root::relativize)
+                    .filter(path -> !isHidden(path))
+                    .filter(path -> includeMatchers.isEmpty() || matchesAny(includeMatchers, path))
+                    .filter(path -> !matchesAny(excludeMatchers, path))
+                    .sorted()
+                    .map(path -> root.resolve(path).toFile())
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private static boolean isHidden(Path relativePath) {
+        for (Path name : relativePath) {
+            if (name.toString().startsWith(".")) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static boolean matchesAny(List<Matcher> matchers, Path relativePath) {
+        return matchers.stream().anyMatch(matcher -> matcher.matches(relativePath));
+    }
+
+    private static List<Matcher> matchers(List<String> patterns) {
+        if (patterns == null) {
+            return Collections.emptyList();
+        }
+
+        return patterns.stream()
+                .map(String::trim)
+                .filter(pattern -> !pattern.isEmpty())
+                .map(Matcher::new)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Glob matched against either the relative path or the name of a file.
+     */
+    private static final class Matcher {
+        private final PathMatcher pathMatcher;
+        private final boolean matchName;
+
+        Matcher(String pattern) {
+            this.pathMatcher = FileSystems.getDefault().getPathMatcher("glob:" + pattern);
+            this.matchName = !pattern.contains("/");
+        }
+
+        boolean matches(Path relativePath) {
+            return pathMatcher.matches(matchName ? relativePath.getFileName() : relativePath);
+        }
+    }
+}
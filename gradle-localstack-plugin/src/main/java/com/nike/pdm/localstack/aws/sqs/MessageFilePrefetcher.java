@@ -0,0 +1,187 @@
+/**
+ * Copyright 2020-present, Nike, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the Apache-2.0 license found in
+ * the LICENSE file in the root directory of this source tree.
+ */
+package com.nike.pdm.localstack.aws.sqs;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Reads small message files into memory on a pool of reader threads ahead of the thread that publishes them.
+ *
+ * <p>Opening, reading, and closing thousands of small files one after another leaves the publisher waiting on the
+ * file system most of the time. The prefetcher keeps a window of files being read in parallel and hands them to the
+ * publishing thread either in the order they were listed or in the order they finish reading. Files larger than
+ * {@link #MAX_PRELOAD_BYTES}, and archives, are not read into memory but handed on to be streamed by the caller, which
+ * bounds the memory held by the window.
+ */
+final class MessageFilePrefetcher implements AutoCloseable {
+
+    /**
+     * Largest file that is read into memory.
+     */
+    static final long MAX_PRELOAD_BYTES = 1_048_576;
+
+    /**
+     * Number of files per reader thread that may be read ahead of the publishing thread.
+     */
+    static final int FILES_PER_THREAD = 4;
+
+    private static final AtomicInteger POOL_COUNT = new AtomicInteger();
+
+    private final Iterator<File> remaining;
+    private final boolean ordered;
+    private final int window;
+    private final ExecutorService executor;
+    private final CompletionService<Entry> completionService;
+    private final Deque<Future<Entry>> inFlight = new ArrayDeque<>();
+
+    /**
+     * Starts reading the files.
+     *
+     * @param files files to read
+     * @param parallelism number of reader threads
+     * @param ordered <code>true</code> to hand on files in the order they are listed; <code>false</code> to hand them on
+     *                as soon as they have been read
+     */
+    MessageFilePrefetcher(List<File> files, int parallelism, boolean ordered) {
+        final int poolId = POOL_COUNT.incrementAndGet();
+        final AtomicInteger threadCount = new AtomicInteger();
+
+        this.remaining = files.iterator();
+        this.ordered = ordered;
+        this.window = Math.max(1, parallelism) * FILES_PER_THREAD;
+        this.executor = Executors.newFixedThreadPool(Math.max(1, parallelism), r -> {
+            final Thread thread = new Thread(r, String.format("message-file-prefetcher-%d-%d", poolId, threadCount.incrementAndGet()));
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.completionService = new ExecutorCompletionService<>(executor);
+
+        fill();
+    }
+
+    /**
+     * Gets the next file, blocking until it has been read.
+     *
+     * @return next file or <code>null</code> if all files have been handed on
+     * @throws IOException if interrupted while waiting for the file
+     */
+    Entry next() throws IOException {
+        if (inFlight.isEmpty()) {
+            return null;
+        }
+
+        final Future<Entry> future;
+        try {
+            future = ordered ? inFlight.poll() : completionService.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for message files");
+        }
+
+        if (!ordered) {
+            inFlight.remove(future);
+        }
+
+        final Entry entry;
+        try {
+            entry = future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for message files");
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause().getMessage(), e.getCause());
+        }
+
+        fill();
+        return entry;
+    }
+
+    /**
+     * Stops reading files.
+     */
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private void fill() {
+        while (inFlight.size() < window && remaining.hasNext()) {
+            final File file = remaining.next();
+            inFlight.add(completionService.submit(() -> load(file)));
+        }
+    }
+
+    private static Entry load(File file) {
+        if (MessageFiles.isSupportedArchive(file) || file.length() > MAX_PRELOAD_BYTES) {
+            return new Entry(file, null, null);
+        }
+
+        try {
+            return new Entry(file, ByteBuffer.wrap(Files.readAllBytes(file.toPath())), null);
+        } catch (IOException e) {
+            return new Entry(file, null, e);
+        }
+    }
+
+    /**
+     * Message file handed on by the prefetcher.
+     */
+    static final class Entry {
+        private final File file;
+        private final ByteBuffer contents;
+        private final IOException error;
+
+        Entry(File file, ByteBuffer contents, IOException error) {
+            this.file = file;
+            this.contents = contents;
+            this.error = error;
+        }
+
+        File getFile() {
+            return file;
+        }
+
+        /**
+         * Checks whether the file was read into memory. Files that were not must be streamed by the caller.
+         *
+         * @return <code>true</code> if the contents of the file are available
+         */
+        boolean isPreloaded() {
+            return contents != null || error != null;
+        }
+
+        /**
+         * Gets the contents of the file.
+         *
+         * @return contents of the file
+         * @throws IOException if the file could not be read
+         */
+        ByteBuffer getContents() throws IOException {
+            if (error != null) {
+                throw error;
+            }
+
+            return contents;
+        }
+    }
+}
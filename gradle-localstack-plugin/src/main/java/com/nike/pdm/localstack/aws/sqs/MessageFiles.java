@@ -0,0 +1,323 @@
+/**
+ * Copyright 2020-present, Nike, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the Apache-2.0 license found in
+ * the LICENSE file in the root directory of this source tree.
+ */
+package com.nike.pdm.localstack.aws.sqs;
+
+import com.nike.pdm.localstack.core.ConsoleLogger;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorInputStream;
+import org.apache.commons.compress.compressors.zstandard.ZstdCompressorInputStream;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.CloseShieldInputStream;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Reads the newline-delimited message files and message archives handed to the SQS tasks.
+ *
+ * <p>Supported archives are <code>.zip</code>, <code>.tar</code>, <code>.tar.gz</code>/<code>.tgz</code>, and
+ * <code>.tar.zst</code>/<code>.tzst</code>. Single message files may also be compressed with gzip (<code>.gz</code>)
+ * or Zstandard (<code>.zst</code>). Everything is decoded as it is read, nothing is extracted to disk.
+ */
+final class MessageFiles {
+
+    /**
+     * Largest zip entry that is decoded into memory ahead of being read. Larger entries are decoded as they are read.
+     */
+    static final long MAX_BUFFERED_ZIP_ENTRY_BYTES = 16 * 1024 * 1024;
+
+    /**
+     * Maximum number of bytes of zip entries decoded into memory but not yet read.
+     */
+    static final int MAX_BUFFERED_ZIP_BYTES = 64 * 1024 * 1024;
+
+    private static final List<String> TAR_EXTENSIONS = Arrays.asList(".tar", ".tar.gz", ".tgz", ".tar.zst", ".tzst");
+    private static final List<String> GZIP_EXTENSIONS = Arrays.asList(".gz", ".tgz");
+    private static final List<String> ZSTD_EXTENSIONS = Arrays.asList(".zst", ".tzst");
+    private static final String ZIP_EXTENSION = ".zip";
+
+    private static final AtomicInteger POOL_COUNT = new AtomicInteger();
+
+    private MessageFiles() {
+        // Utility class
+    }
+
+    /**
+     * Reads a message file or every file within a message archive. Zip entries are decoded using one thread per
+     * available processor.
+     *
+     * @param messageFile message file or archive
+     * @param reader reader called once for each file
+     * @throws IOException if an error occurs reading the message file
+     */
+    static void read(File messageFile, SourceReader reader) throws IOException {
+        read(messageFile, Runtime.getRuntime().availableProcessors(), reader);
+    }
+
+    /**
+     * Reads a message file or every file within a message archive.
+     *
+     * @param messageFile message file or archive
+     * @param parallelism number of threads used to decode the entries of a zip archive
+     * @param reader reader called once for each file, in the order the files appear in the archive
+     * @throws IOException if an error occurs reading the message file
+     */
+    static void read(File messageFile, int parallelism, SourceReader reader) throws IOException {
+        if (!isSupportedArchive(messageFile)) {
+            ConsoleLogger.log("Processing message file: %s", messageFile.getAbsolutePath());
+            readFile(messageFile, reader);
+            return;
+        }
+
+        ConsoleLogger.log("Processing message archive: %s", messageFile.getAbsolutePath());
+
+        final String name = messageFile.getName();
+        if (name.endsWith(ZIP_EXTENSION)) {
+            readZip(messageFile, parallelism, reader);
+        } else if (endsWithAny(name, TAR_EXTENSIONS)) {
+            readTar(messageFile, reader);
+        } else {
+            readCompressedFile(messageFile, reader);
+        }
+    }
+
+    /**
+     * Reads every file in a tar archive, which may be compressed.
+     *
+     * @param messageArchive archive file to read
+     * @param reader reader called once for each file in the archive
+     * @throws IOException if an error occurs reading the archive
+     */
+    private static void readTar(File messageArchive, SourceReader reader) throws IOException {
+        try (TarArchiveInputStream tarInput = new TarArchiveInputStream(open(messageArchive))) {
+            TarArchiveEntry te;
+            while ((te = tarInput.getNextTarEntry()) != null) {
+                // Only process files that are not hidden in the archive
+                if (!te.getName().startsWith(".")) {
+                    // Closing any one stream within the archive closes all streams so we prevent that from happening
+                    // by wrapping the input stream with this stream
+                    final CloseShieldInputStream closeShieldInputStream = new CloseShieldInputStream(tarInput);
+
+                    try (BufferedReader bufferedReader = newReader(closeShieldInputStream)) {
+                        reader.read(messageArchive.getAbsolutePath() + "!/" + te.getName(), bufferedReader);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads every file in a zip archive. Because zip entries can be read independently, entries are decoded into
+     * memory in parallel ahead of the reader while the reader is called with each entry in turn. No more than
+     * {@link #MAX_BUFFERED_ZIP_BYTES} of entries are decoded ahead of the reader.
+     *
+     * @param messageArchive archive file to read
+     * @param parallelism number of threads used to decode entries
+     * @param reader reader called once for each file in the archive
+     * @throws IOException if an error occurs reading the archive
+     */
+    private static void readZip(File messageArchive, int parallelism, SourceReader reader) throws IOException {
+        final int threads = Math.max(1, parallelism);
+        final int poolId = POOL_COUNT.incrementAndGet();
+        final AtomicInteger threadCount = new AtomicInteger();
+
+        try (ZipFile zipFile = new ZipFile(messageArchive)) {
+            final List<? extends ZipEntry> entries = zipFile.stream()
+                    .filter(entry -> !entry.isDirectory() && !entry.getName().startsWith("."))
+                    .collect(Collectors.toList());
+
+            final ExecutorService executor = Executors.newFixedThreadPool(threads, r -> {
+                final Thread thread = new Thread(r, String.format("zip-decoder-%d-%d", poolId, threadCount.incrementAndGet()));
+                thread.setDaemon(true);
+                return thread;
+            });
+
+            try {
+                final Semaphore bufferedBytes = new Semaphore(MAX_BUFFERED_ZIP_BYTES);
+                final Deque<DecodedEntry> inFlight = new ArrayDeque<>();
+                int submitted = 0;
+                while (submitted < entries.size() || !inFlight.isEmpty()) {
+                    // Keep every decoder busy while the reader works through the entry at the head of the queue, as long
+                    // as the entries decoded ahead fit the budget. With nothing in flight the whole budget is free, which
+                    // is more than any buffered entry needs, so the reader never waits on itself.
+                    while (inFlight.size() < threads * 2 && submitted < entries.size()) {
+                        final ZipEntry entry = entries.get(submitted);
+                        final boolean buffered = entry.getSize() >= 0 && entry.getSize() <= MAX_BUFFERED_ZIP_ENTRY_BYTES;
+                        final int size = buffered ? (int) entry.getSize() : 0;
+
+                        if (!bufferedBytes.tryAcquire(size)) {
+                            break;
+                        }
+
+                        inFlight.add(new DecodedEntry(entry, size, buffered ? executor.submit(() -> {
+                            try (InputStream in = zipFile.getInputStream(entry)) {
+                                return IOUtils.toByteArray(in);
+                            }
+                        }) : null));
+                        submitted++;
+                    }
+
+                    final DecodedEntry next = inFlight.poll();
+                    final String sourceId = messageArchive.getAbsolutePath() + "!/" + next.entry.getName();
+
+                    try (BufferedReader bufferedReader = newReader(next.contents != null
+                            ? new ByteArrayInputStream(next.get())
+                            : zipFile.getInputStream(next.entry))) {
+                        reader.read(sourceId, bufferedReader);
+                    } finally {
+                        bufferedBytes.release(next.size);
+                    }
+                }
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+    }
+
+    /**
+     * Reads a single compressed message file.
+     *
+     * @param messageFile file to read
+     * @param reader reader called with the file
+     * @throws IOException if an error occurs reading the file
+     */
+    private static void readCompressedFile(File messageFile, SourceReader reader) throws IOException {
+        try (BufferedReader bufferedReader = newReader(open(messageFile))) {
+            reader.read(messageFile.getAbsolutePath(), bufferedReader);
+        }
+    }
+
+    /**
+     * Reads a single file.
+     *
+     * @param messageFile file to read
+     * @param reader reader called with the file
+     * @throws IOException if an error occurs reading the file
+     */
+    private static void readFile(File messageFile, SourceReader reader) throws IOException {
+        try (BufferedReader bufferedReader = Files.newBufferedReader(messageFile.toPath(), StandardCharsets.UTF_8)) {
+            reader.read(messageFile.getAbsolutePath(), bufferedReader);
+        }
+    }
+
+    /**
+     * Opens a file, decompressing it as it is read if its extension is that of a compressed file.
+     *
+     * @param file file to open
+     * @return input stream of the decompressed contents of the file
+     * @throws IOException if an error occurs opening the file
+     */
+    private static InputStream open(File file) throws IOException {
+        final InputStream in = new BufferedInputStream(new FileInputStream(file));
+
+        try {
+            if (endsWithAny(file.getName(), GZIP_EXTENSIONS)) {
+                return new GzipCompressorInputStream(in, true);
+            } else if (endsWithAny(file.getName(), ZSTD_EXTENSIONS)) {
+                return new ZstdCompressorInputStream(in);
+            }
+
+            return in;
+        } catch (IOException | RuntimeException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    private static BufferedReader newReader(InputStream in) {
+        return new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+    }
+
+    private static boolean endsWithAny(String name, List<String> extensions) {
+        return extensions.stream().anyMatch(name::endsWith);
+    }
+
+    /**
+     * Checks whether or not the file is an archive or compressed file supported by this plugin.
+     *
+     * @param file file to check
+     * @return <code>true</code> if the file type is supported; otherwise <code>false</code>
+     */
+    static boolean isSupportedArchive(File file) {
+        final String name = file.getName();
+        return name.endsWith(ZIP_EXTENSION)
+                || endsWithAny(name, TAR_EXTENSIONS)
+                || endsWithAny(name, GZIP_EXTENSIONS)
+                || endsWithAny(name, ZSTD_EXTENSIONS);
+    }
+
+    /**
+     * Zip entry along with its contents if they are being decoded ahead of being read.
+     */
+    private static final class DecodedEntry {
+        private final ZipEntry entry;
+        private final int size;
+        private final Future<byte[]> contents;
+
+        DecodedEntry(ZipEntry entry, int size, Future<byte[]> contents) {
+            this.entry = entry;
+            this.size = size;
+            this.contents = contents;
+        }
+
+        byte[] get() throws IOException {
+            try {
+                return contents.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while decoding zip entry: " + entry.getName());
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof IOException) {
+                    throw (IOException) e.getCause();
+                }
+
+                throw new IOException(e.getCause().getMessage(), e.getCause());
+            }
+        }
+    }
+
+    /**
+     * Reads the messages of a single file, either on disk or within an archive.
+     */
+    @FunctionalInterface
+    interface SourceReader {
+
+        /**
+         * Reads the messages of the file.
+         *
+         * @param sourceId id of the file; the absolute path of the file, or of the archive followed by <code>!/</code>
+         *                 and the name of the file within the archive
+         * @param reader reader of the newline-delimited messages in the file
+         * @throws IOException if an error occurs reading the messages
+         */
+        void read(String sourceId, BufferedReader reader) throws IOException;
+    }
+}
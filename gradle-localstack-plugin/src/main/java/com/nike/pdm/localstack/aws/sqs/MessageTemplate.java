@@ -0,0 +1,209 @@
+/**
+ * Copyright 2020-present, Nike, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the Apache-2.0 license found in
+ * the LICENSE file in the root directory of this source tree.
+ */
+package com.nike.pdm.localstack.aws.sqs;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Template from which synthetic messages are generated.
+ *
+ * <p>A template is text with placeholders enclosed in double braces:
+ * <ul>
+ *     <li><code>{{seq}}</code> - sequence number of the message, starting at 0</li>
+ *     <li><code>{{uuid}}</code> - random version 4 UUID</li>
+ *     <li><code>{{random:min:max}}</code> - random integer between min and max, inclusive</li>
+ *     <li><code>{{choice:a=3|b=1|c}}</code> - one of the values, chosen with the given weights; the weight defaults to 1</li>
+ * </ul>
+ *
+ * <p>Random values are drawn from the random number generator passed to {@link #render(long, SplittableRandom)}, so
+ * the same seed always generates the same messages. The template is compiled once and renders every message into a
+ * reused buffer, so the message string is the only object allocated per message. A template is therefore not
+ * thread-safe.
+ */
+final class MessageTemplate {
+
+    private static final String OPEN = "{{";
+    private static final String CLOSE = "}}";
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private final List<Segment> segments;
+    private final StringBuilder buffer = new StringBuilder();
+
+    private MessageTemplate(List<Segment> segments) {
+        this.segments = segments;
+    }
+
+    /**
+     * Compiles a template.
+     *
+     * @param template template text
+     * @return compiled template
+     * @throws IllegalArgumentException if the template contains an invalid placeholder
+     */
+    static MessageTemplate compile(String template) {
+        final List<Segment> segments = new ArrayList<>();
+
+        int pos = 0;
+        while (pos < template.length()) {
+            final int open = template.indexOf(OPEN, pos);
+            if (open < 0) {
+                segments.add(literal(template.substring(pos)));
+                break;
+            }
+
+            final int close = template.indexOf(CLOSE, open + OPEN.length());
+            if (close < 0) {
+                throw new IllegalArgumentException("Unclosed placeholder at position " + open);
+            }
+
+            if (open > pos) {
+                segments.add(literal(template.substring(pos, open)));
+            }
+
+            segments.add(placeholder(template.substring(open + OPEN.length(), close).trim()));
+            pos = close + CLOSE.length();
+        }
+
+        return new MessageTemplate(segments);
+    }
+
+    /**
+     * Renders a message.
+     *
+     * @param sequence sequence number of the message
+     * @param random source of random values
+     * @return message
+     */
+    String render(long sequence, SplittableRandom random) {
+        buffer.setLength(0);
+        for (Segment segment : segments) {
+            segment.append(buffer, sequence, random);
+        }
+
+        return buffer.toString();
+    }
+
+    private static Segment literal(String text) {
+        return (sb, sequence, random) -> sb.append(text);
+    }
+
+    private static Segment placeholder(String placeholder) {
+        final int colon = placeholder.indexOf(':');
+        final String name = colon < 0 ? placeholder : placeholder.substring(0, colon);
+        final String args = colon < 0 ? null : placeholder.substring(colon + 1);
+
+        switch (name) {
+            case "seq":
+                return (sb, sequence, random) -> sb.append(sequence);
+            case "uuid":
+                return (sb, sequence, random) -> appendUuid(sb, random);
+            case "random":
+                return randomPlaceholder(placeholder, args);
+            case "choice":
+                return choicePlaceholder(placeholder, args);
+            default:
+                throw new IllegalArgumentException("Unknown placeholder: {{" + placeholder + "}}");
+        }
+    }
+
+    private static Segment randomPlaceholder(String placeholder, String args) {
+        final String[] bounds = args != null ? args.split(":") : new String[0];
+        if (bounds.length != 2) {
+            throw new IllegalArgumentException("Expected {{random:min:max}} but found: {{" + placeholder + "}}");
+        }
+
+        final long min;
+        final long max;
+        try {
+            min = Long.parseLong(bounds[0].trim());
+            max = Long.parseLong(bounds[1].trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid bounds in placeholder: {{" + placeholder + "}}", e);
+        }
+
+        if (min > max || max == Long.MAX_VALUE) {
+            throw new IllegalArgumentException("Invalid bounds in placeholder: {{" + placeholder + "}}");
+        }
+
+        return (sb, sequence, random) -> sb.append(random.nextLong(min, max + 1));
+    }
+
+    private static Segment choicePlaceholder(String placeholder, String args) {
+        if (args == null || args.isEmpty()) {
+            throw new IllegalArgumentException("Expected {{choice:value=weight|...}} but found: {{" + placeholder + "}}");
+        }
+
+        final String[] options = args.split("\\|");
+        final String[] values = new String[options.length];
+        final int[] cumulativeWeights = new int[options.length];
+
+        int total = 0;
+        for (int i = 0; i < options.length; i++) {
+            final int equals = options[i].lastIndexOf('=');
+            int weight = 1;
+            values[i] = options[i];
+
+            if (equals >= 0) {
+                try {
+                    weight = Integer.parseInt(options[i].substring(equals + 1).trim());
+                    values[i] = options[i].substring(0, equals);
+                } catch (NumberFormatException e) {
+                    // Not a weight, the equals sign is part of the value
+                }
+            }
+
+            if (weight < 1) {
+                throw new IllegalArgumentException("Weights must be greater than zero in placeholder: {{" + placeholder + "}}");
+            }
+
+            total = Math.addExact(total, weight);
+            cumulativeWeights[i] = total;
+        }
+
+        final int totalWeight = total;
+        return (sb, sequence, random) -> {
+            final int index = Arrays.binarySearch(cumulativeWeights, random.nextInt(totalWeight) + 1);
+            sb.append(values[index >= 0 ? index : -index - 1]);
+        };
+    }
+
+    /**
+     * Appends a random version 4 UUID in its canonical form without allocating a {@link java.util.UUID}.
+     */
+    private static void appendUuid(StringBuilder sb, SplittableRandom random) {
+        final long msb = (random.nextLong() & 0xffffffffffff0fffL) | 0x0000000000004000L;
+        final long lsb = (random.nextLong() & 0x3fffffffffffffffL) | 0x8000000000000000L;
+
+        appendHex(sb, msb >>> 32, 8);
+        sb.append('-');
+        appendHex(sb, msb >>> 16, 4);
+        sb.append('-');
+        appendHex(sb, msb, 4);
+        sb.append('-');
+        appendHex(sb, lsb >>> 48, 4);
+        sb.append('-');
+        appendHex(sb, lsb, 12);
+    }
+
+    private static void appendHex(StringBuilder sb, long value, int digits) {
+        for (int shift = (digits - 1) * 4; shift >= 0; shift -= 4) {
+            sb.append(HEX_DIGITS[(int) (value >>> shift) & 0xf]);
+        }
+    }
+
+    /**
+     * Part of a template.
+     */
+    @FunctionalInterface
+    private interface Segment {
+        void append(StringBuilder sb, long sequence, SplittableRandom random);
+    }
+}
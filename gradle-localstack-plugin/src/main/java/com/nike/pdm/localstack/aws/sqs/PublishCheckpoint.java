@@ -0,0 +1,179 @@
+/**
+ * Copyright 2020-present, Nike, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the Apache-2.0 license found in
+ * the LICENSE file in the root directory of this source tree.
+ */
+package com.nike.pdm.localstack.aws.sqs;
+
+import com.nike.pdm.localstack.core.ConsoleLogger;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tracks how many messages of each message source have been acknowledged by every queue so that an interrupted
+ * publish can continue where it left off instead of starting over.
+ *
+ * <p>A source is a message file or a file within a message archive. Messages are numbered in the order they are read,
+ * across all sources, and the publisher reports how many of them have been acknowledged. Because sources are read one
+ * after another, that count can be translated back into an offset within each source. The offsets are saved to a
+ * properties file along with the names of the queues they apply to.
+ */
+final class PublishCheckpoint {
+
+    private static final String QUEUES_KEY = "queues";
+
+    private final File file;
+    private final String queues;
+    private final Map<String, Long> committed = new LinkedHashMap<>();
+    private final List<Source> sources = new ArrayList<>();
+    private final AtomicLong read = new AtomicLong();
+
+    private PublishCheckpoint(File file, List<String> queueNames) {
+        this.file = file;
+        this.queues = String.join(",", queueNames);
+    }
+
+    /**
+     * Opens the checkpoint stored in the file.
+     *
+     * @param file checkpoint file
+     * @param queueNames names of the queues being published to
+     * @param resume <code>true</code> to continue from the offsets stored in the file; <code>false</code> to discard them
+     * @return checkpoint
+     * @throws IOException if the checkpoint file cannot be read
+     */
+    static PublishCheckpoint open(File file, List<String> queueNames, boolean resume) throws IOException {
+        final PublishCheckpoint checkpoint = new PublishCheckpoint(file, queueNames);
+
+        if (resume && file.exists()) {
+            final Properties props = new Properties();
+            try (InputStream in = Files.newInputStream(file.toPath())) {
+                props.load(in);
+            }
+
+            if (checkpoint.queues.equals(props.getProperty(QUEUES_KEY))) {
+                props.stringPropertyNames().stream()
+                        .filter(key -> !QUEUES_KEY.equals(key))
+                        .forEach(key -> checkpoint.committed.put(key, Long.parseLong(props.getProperty(key))));
+
+                ConsoleLogger.log("Resuming from checkpoint: %s", file.getAbsolutePath());
+            } else {
+                ConsoleLogger.log("Ignoring checkpoint for different queues: %s", props.getProperty(QUEUES_KEY));
+            }
+        }
+
+        return checkpoint;
+    }
+
+    /**
+     * Starts a new attempt at publishing. Messages acknowledged by previous attempts are skipped and message numbering
+     * starts over to match a new publisher.
+     */
+    synchronized void restart() {
+        sources.clear();
+        read.set(0);
+    }
+
+    /**
+     * Marks the start of a message source.
+     *
+     * @param sourceId id of the source
+     * @return number of messages at the start of the source that were already acknowledged and must be skipped
+     */
+    synchronized long startSource(String sourceId) {
+        final long skip = committed.getOrDefault(sourceId, 0L);
+        sources.add(new Source(sourceId, skip, read.get()));
+        return skip;
+    }
+
+    /**
+     * Counts a message that was read from the current source and handed to the publisher.
+     */
+    void messageRead() {
+        read.incrementAndGet();
+    }
+
+    /**
+     * Marks the end of the current message source.
+     */
+    synchronized void endSource() {
+        if (!sources.isEmpty()) {
+            sources.get(sources.size() - 1).end = read.get();
+        }
+    }
+
+    /**
+     * Records the number of messages, counted from the start of the current attempt, that have been acknowledged.
+     *
+     * @param acknowledged number of acknowledged messages
+     */
+    synchronized void acknowledge(long acknowledged) {
+        for (Source source : sources) {
+            final long acknowledgedInSource = Math.max(0, Math.min(acknowledged, source.end) - source.start);
+            committed.put(source.id, source.skip + acknowledgedInSource);
+        }
+    }
+
+    /**
+     * Writes the checkpoint to its file.
+     *
+     * @throws IOException if the file cannot be written
+     */
+    synchronized void save() throws IOException {
+        final Properties props = new Properties();
+        props.setProperty(QUEUES_KEY, queues);
+        committed.forEach((id, offset) -> props.setProperty(id, Long.toString(offset)));
+
+        Files.createDirectories(file.getParentFile().toPath());
+
+        // Write to a temporary file first so that an interrupted save never leaves a truncated checkpoint behind
+        final File tmp = new File(file.getParentFile(), file.getName() + ".tmp");
+        try (OutputStream out = Files.newOutputStream(tmp.toPath())) {
+            props.store(out, "Number of messages acknowledged per message source");
+        }
+
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Deletes the checkpoint file.
+     *
+     * @throws IOException if the file cannot be deleted
+     */
+    void delete() throws IOException {
+        Files.deleteIfExists(file.toPath());
+    }
+
+    File getFile() {
+        return file;
+    }
+
+    /**
+     * Range of message numbers read from a single source.
+     */
+    private static final class Source {
+        private final String id;
+        private final long skip;
+        private final long start;
+        private long end = Long.MAX_VALUE;
+
+        Source(String id, long skip, long start) {
+            this.id = id;
+            this.skip = skip;
+            this.start = start;
+        }
+    }
+}
@@ -7,33 +7,46 @@
  */
 package com.nike.pdm.localstack.aws.sqs;
 
+import com.amazonaws.services.s3.AmazonS3;
 import com.amazonaws.services.sqs.AmazonSQS;
 import com.amazonaws.util.StringUtils;
 import com.nike.pdm.localstack.aws.AwsClientFactory;
 import com.nike.pdm.localstack.compose.LocalStackModule;
 import com.nike.pdm.localstack.core.ConsoleLogger;
+import com.nike.pdm.localstack.core.LocalStackDir;
 import com.nike.pdm.localstack.core.Retry;
-import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
-import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
-import org.apache.commons.compress.compressors.gzip.GzipCompressorInputStream;
-import org.apache.commons.io.input.CloseShieldInputStream;
+import com.nike.pdm.localstack.core.TokenBucket;
 import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.Transformer;
 import org.gradle.api.tasks.Input;
 import org.gradle.api.tasks.InputFiles;
 import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.Optional;
 import org.gradle.api.tasks.TaskAction;
 import org.gradle.api.tasks.options.Option;
 
-import java.io.BufferedInputStream;
 import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.InputStreamReader;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 /**
@@ -41,113 +54,596 @@ import java.util.stream.Collectors;
  */
 public class PublishSqsTask extends DefaultTask {
 
+    private static final long CHECKPOINT_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+    private static final AtomicInteger POOL_COUNT = new AtomicInteger();
+
     @Input
     private List<String> queueNames;
 
     @InputFiles
     private List<File> messages;
 
+    @Optional
+    @Input
+    private Integer batchSize = SqsMessageBatch.MAX_ENTRIES;
+
+    @Optional
+    @Input
+    private Integer parallelism;
+
+    @Optional
+    @Input
+    private Boolean resume = false;
+
+    @Optional
+    @Input
+    private Integer messagesPerSecond;
+
+    @Optional
+    @Input
+    private Integer rampUpSeconds;
+
+    @Optional
+    @Input
+    private Integer burst;
+
+    @Optional
+    @Input
+    private Boolean ordered = true;
+
+    @Optional
+    @Input
+    private List<String> includes;
+
+    @Optional
+    @Input
+    private List<String> excludes;
+
+    @Optional
+    @Input
+    private String messageGroupIdField;
+
+    @Optional
+    @Input
+    private String deduplicationIdField;
+
+    private Transformer<String, String> messageGroupIdExtractor;
+
+    private Transformer<String, String> deduplicationIdExtractor;
+
+    @Optional
+    @Input
+    private String distribution = "broadcast";
+
+    @Optional
+    @Input
+    private String distributionKeyField;
+
+    private Transformer<String, String> distributionKeyExtractor;
+
+    @Optional
+    @Input
+    private String largePayloadBucket;
+
+    @Optional
+    @Input
+    private Integer largePayloadThreshold = SqsMessageBatch.MAX_PAYLOAD_BYTES;
+
+    private long lastCheckpointNanos;
+
     public PublishSqsTask() {
         setMustRunAfter(Arrays.asList(LocalStackModule.START_LOCALSTACK_TASK_NAME));
     }
 
     @TaskAction
     public void run() {
+        if (queueNames == null || queueNames.isEmpty()) {
+            ConsoleLogger.log("No queues configured!");
+            return;
+        }
+
+        final FifoKeyExtractor fifoKeys = createFifoKeyExtractor();
+        final boolean ordered = getOrdered() || fifoKeys != null;
+        final SqsDistribution.Mode distributionMode = getDistributionMode(fifoKeys);
+        if (!getOrdered() && fifoKeys != null) {
+            ConsoleLogger.log("Publishing in order, messages of a message group must be published in order to FIFO queues");
+        }
+
+        final Set<Class<? extends Throwable>> expectedErrors = new HashSet<>(Arrays.asList(GradleException.class));
+
+        final PublishCheckpoint checkpoint;
+        try {
+            checkpoint = PublishCheckpoint.open(getCheckpointFile(), queueNames, getResume());
+        } catch (IOException e) {
+            throw new GradleException("Unable to read publish checkpoint", e);
+        }
+
         Retry.execute(() -> {
             final AmazonSQS amazonSQS = AwsClientFactory.getInstance().sqs(getProject());
             final SqsTaskUtil sqsTaskUtil = new SqsTaskUtil(getProject());
 
-            if (queueNames != null && !queueNames.isEmpty()) {
-                final List<String> queueUrls = sqsTaskUtil.getQueueUrls(queueNames);
+            final List<String> queueUrls = sqsTaskUtil.getQueueUrls(queueNames);
+            final SqsPublishStats stats = new SqsPublishStats();
+
+            // Messages acknowledged by a previous attempt are skipped rather than published again
+            checkpoint.restart();
+
+            int failedFiles = 0;
+            lastCheckpointNanos = System.nanoTime();
+            final TokenBucket rateLimiter = createRateLimiter();
+            final S3PayloadOffloader offloader = createOffloader();
+
+            // Plain files published without ordering bring their own publishers, so none is started unless it is used
+            final boolean needsPublisher = ordered || messages.stream()
+                    .anyMatch(messageFile -> messageFile.isDirectory() || MessageFiles.isSupportedArchive(messageFile));
+            final SqsPublisher publisher = needsPublisher ? new SqsPublisher(amazonSQS, queueUrls, stats, new SqsPublisher.Options()
+                    .withBatchSize(getBatchSize())
+                    .withParallelism(getParallelism())
+                    .withRateLimiter(rateLimiter)
+                    .withFifoKeys(fifoKeys)
+                    .withOffloader(offloader)
+                    .withDistribution(new SqsDistribution(distributionMode, queueUrls.size(), distributionKeyField, distributionKeyExtractor))) : null;
+            try {
+                final MessageFilePublisher publishFile = messageFile -> {
+                    if (MessageFiles.isSupportedArchive(messageFile)) {
+                        publishLines(publisher, checkpoint, messageFile, consumer ->
+                                MessageFiles.read(messageFile, getParallelism(), (sourceId, reader) -> readLines(sourceId, reader, checkpoint, consumer)));
+                    } else if (ordered) {
+                        publishMappedFile(publisher, checkpoint, messageFile);
+                    } else {
+                        publishUnordered(amazonSQS, queueUrls, stats, rateLimiter, offloader, distributionMode, messageFile);
+                    }
+                };
+
+                for (File messageFile : messages) {
+                    if (messageFile.isDirectory()) {
+                        failedFiles += publishDirectory(publisher, checkpoint, messageFile, ordered, publishFile);
+                        continue;
+                    }
 
-                messages.forEach(messageFile -> {
                     try {
-                        if (isSupportedArchive(messageFile)) {
-                            processArchive(amazonSQS, queueUrls, messageFile);
-                        } else {
-                            processFile(amazonSQS, queueUrls, messageFile);
-                        }
-                    } catch (Exception e) {
-                        ConsoleLogger.log("Error occurred while publishing messages: %s", e.getMessage());
+                        publishFile.publish(messageFile);
+                    } catch (IOException e) {
+                        ConsoleLogger.log("Error occurred while reading messages from %s: %s", messageFile.getAbsolutePath(), e.getMessage());
+                        failedFiles++;
+                    }
+                }
+            } finally {
+                try {
+                    if (publisher != null) {
+                        publisher.close();
+                    }
+                } finally {
+                    if (offloader != null) {
+                        offloader.close();
                     }
-                });
-            } else {
-                ConsoleLogger.log("No queues configured!");
+
+                    if (publisher != null) {
+                        checkpoint.acknowledge(publisher.getAcknowledged());
+                    }
+
+                    checkpoint.save();
+                }
+            }
+
+            ConsoleLogger.log("Published messages to %d queue(s). %s", queueUrls.size(), stats.summary());
+
+            if (offloader != null) {
+                ConsoleLogger.log("Offloaded %d message payload(s) to S3 bucket: %s", offloader.getOffloaded(), largePayloadBucket);
             }
 
+            if (rateLimiter != null) {
+                ConsoleLogger.log("Achieved rate: %.1f msg/s (requested: %d msg/s)", stats.getRate(), messagesPerSecond);
+            }
+
+            if (stats.getFailed() > 0 || failedFiles > 0) {
+                ConsoleLogger.log("Rerun with --resume to continue from checkpoint: %s", checkpoint.getFile().getAbsolutePath());
+                throw new GradleException(String.format("Failed to publish %d message(s) and read %d message file(s)", stats.getFailed(), failedFiles));
+            }
+
+            checkpoint.delete();
+
+            return null;
+        }, expectedErrors);
+    }
+
+    /**
+     * Creates the token bucket that limits the combined rate at which messages are sent to all queues.
+     *
+     * @return token bucket or <code>null</code> if the rate is not limited
+     */
+    private TokenBucket createRateLimiter() {
+        if (messagesPerSecond == null || messagesPerSecond <= 0) {
+            return null;
+        }
+
+        final long rampUpMillis = rampUpSeconds != null ? TimeUnit.SECONDS.toMillis(rampUpSeconds) : 0;
+        ConsoleLogger.log("Limiting publish rate to %d msg/s (burst: %d, ramp-up: %d s)", messagesPerSecond, getBurst(), TimeUnit.MILLISECONDS.toSeconds(rampUpMillis));
+
+        return new TokenBucket(messagesPerSecond, getBurst(), rampUpMillis);
+    }
+
+    /**
+     * Gets the mode in which messages are distributed across the queues, checking that a key is configured when
+     * messages are distributed by the hash of a key.
+     *
+     * @param fifoKeys extractor of the ids of messages published to FIFO queues or <code>null</code>
+     * @return distribution mode
+     */
+    private SqsDistribution.Mode getDistributionMode(FifoKeyExtractor fifoKeys) {
+        final SqsDistribution.Mode mode;
+        try {
+            mode = SqsDistribution.Mode.fromName(getDistribution());
+        } catch (IllegalArgumentException e) {
+            throw new GradleException(e.getMessage(), e);
+        }
+
+        if (mode == SqsDistribution.Mode.KEY_HASH
+                && fifoKeys == null
+                && distributionKeyExtractor == null
+                && StringUtils.isNullOrEmpty(distributionKeyField)) {
+            throw new GradleException("The keyHash distribution requires a distributionKeyField or distributionKeyExtractor");
+        }
+
+        if (mode != SqsDistribution.Mode.BROADCAST) {
+            ConsoleLogger.log("Distributing messages across %d queue(s): %s", queueNames.size(), getDistribution());
+        }
+
+        return mode;
+    }
+
+    /**
+     * Creates the offloader that stores payloads above the large payload threshold in the large payload bucket,
+     * creating the bucket if it does not exist.
+     *
+     * @return offloader or <code>null</code> if large payloads are not offloaded
+     */
+    private S3PayloadOffloader createOffloader() {
+        if (StringUtils.isNullOrEmpty(largePayloadBucket)) {
             return null;
-        });
+        }
+
+        if (getLargePayloadThreshold() > SqsMessageBatch.MAX_PAYLOAD_BYTES) {
+            throw new GradleException(String.format("Large payload threshold cannot exceed the maximum SQS message size of %d bytes",
+                    SqsMessageBatch.MAX_PAYLOAD_BYTES));
+        }
+
+        final AmazonS3 amazonS3 = AwsClientFactory.getInstance().s3(getProject());
+        if (!amazonS3.doesBucketExistV2(largePayloadBucket)) {
+            ConsoleLogger.log("Creating large payload bucket: %s", largePayloadBucket);
+            amazonS3.createBucket(largePayloadBucket);
+        }
+
+        ConsoleLogger.log("Offloading message payloads over %d bytes to S3 bucket: %s", getLargePayloadThreshold(), largePayloadBucket);
+
+        return new S3PayloadOffloader(amazonS3, largePayloadBucket, getLargePayloadThreshold(), getParallelism());
     }
 
     /**
-     * Processes messages found in a tar.gz archive.
+     * Creates the extractor of the message group and deduplication ids of messages published to FIFO queues. FIFO
+     * publishing is enabled by configuring a message group id field or extractor, in which case every queue must be a
+     * FIFO queue.
      *
-     * @param sqs sqs client
-     * @param queueUrls urls of the queues to which to publish messages
-     * @param messageArchive archive file to process
-     * @throws Exception
+     * @return extractor or <code>null</code> if publishing to standard queues
      */
-    private void processArchive(AmazonSQS sqs, List<String> queueUrls, File messageArchive) throws Exception {
-        ConsoleLogger.log("Processing message archive: %s", messageArchive.getAbsolutePath());
+    private FifoKeyExtractor createFifoKeyExtractor() {
+        final boolean fifo = messageGroupIdExtractor != null || !StringUtils.isNullOrEmpty(messageGroupIdField);
 
-        TarArchiveInputStream tarInput = new TarArchiveInputStream(
-                new GzipCompressorInputStream(
-                        new BufferedInputStream(
-                                new FileInputStream(messageArchive))));
+        for (String queueName : queueNames) {
+            if (queueName.endsWith(SqsTaskUtil.FIFO_SUFFIX) != fifo) {
+                throw new GradleException(fifo
+                        ? String.format("Queue '%s' is not a FIFO queue, messages with a message group id can only be published to FIFO queues", queueName)
+                        : String.format("Queue '%s' is a FIFO queue, configure messageGroupIdField or messageGroupIdExtractor to publish to it", queueName));
+            }
+        }
+
+        if (!fifo) {
+            return null;
+        }
 
-        TarArchiveEntry te;
-        while ((te = tarInput.getNextTarEntry ()) != null) {
-            // Only process files that are not hidden in the archive
-            if (!te.getName().startsWith(".")) {
-                // Closing any one stream within the archive closes all streams so we prevent that from happening
-                // by wrapping the input stream with this stream
-                final CloseShieldInputStream closeShieldInputStream = new CloseShieldInputStream(tarInput);
+        try {
+            return new FifoKeyExtractor(messageGroupIdField, messageGroupIdExtractor, deduplicationIdField, deduplicationIdExtractor);
+        } catch (IllegalArgumentException e) {
+            throw new GradleException("Invalid FIFO configuration: " + e.getMessage(), e);
+        }
+    }
 
-                try (BufferedReader bufferedReader = new BufferedReader(new InputStreamReader(closeShieldInputStream))) {
-                    String line;
-                    while ((line = bufferedReader.readLine()) != null) {
-                        if (!line.isEmpty()) {
-                            for (String queueUrl : queueUrls) {
-                                sqs.sendMessage(queueUrl, line);
-                            }
+    /**
+     * Publishes the lines of a message file or archive. The lines are read on a separate thread so that reading, and
+     * decompressing in the case of an archive, overlaps with batching and sending the messages.
+     *
+     * @param publisher publisher of the messages
+     * @param checkpoint checkpoint updated periodically with the messages acknowledged so far
+     * @param messageFile message file or archive
+     * @param source source of the lines in the message file
+     * @throws IOException if an error occurs reading the message file
+     */
+    private void publishLines(SqsPublisher publisher,
+                              PublishCheckpoint checkpoint,
+                              File messageFile,
+                              LinePrefetcher.LineSource source) throws IOException {
+        try (LinePrefetcher prefetcher = new LinePrefetcher(messageFile.getName(), source)) {
+            List<String> lines;
+            while ((lines = prefetcher.next()) != null) {
+                lines.forEach(publisher::publish);
+                saveCheckpointIfDue(publisher, checkpoint);
+            }
+        }
+    }
+
+    /**
+     * Publishes the lines of a plain message file in order. The file is memory-mapped rather than read through a
+     * reader, so lines are only decoded into strings when they are sent.
+     *
+     * @param publisher publisher of the messages
+     * @param checkpoint checkpoint of the messages already acknowledged, updated periodically
+     * @param messageFile message file
+     * @throws IOException if an error occurs reading the message file
+     */
+    private void publishMappedFile(SqsPublisher publisher, PublishCheckpoint checkpoint, File messageFile) throws IOException {
+        ConsoleLogger.log("Processing message file: %s", messageFile.getAbsolutePath());
+
+        try (FileChannel channel = FileChannel.open(messageFile.toPath(), StandardOpenOption.READ)) {
+            publishUtf8Lines(publisher, checkpoint, messageFile.getAbsolutePath(),
+                    consumer -> MappedLineReader.read(channel, 0, channel.size(), consumer));
+        }
+    }
+
+    /**
+     * Publishes the message files in a directory tree. Small files are read in parallel ahead of publishing them,
+     * larger files and archives are published as if they had been listed individually.
+     *
+     * @param publisher publisher of the messages
+     * @param checkpoint checkpoint of the messages already acknowledged, updated periodically
+     * @param directory message directory
+     * @param ordered whether files are published in the order they are listed
+     * @param publishFile publishes a message file that is not read ahead
+     * @return number of files that could not be read
+     */
+    private int publishDirectory(SqsPublisher publisher,
+                                 PublishCheckpoint checkpoint,
+                                 File directory,
+                                 boolean ordered,
+                                 MessageFilePublisher publishFile) {
+        final List<File> files;
+        try {
+            files = MessageDirectory.list(directory, includes, excludes);
+        } catch (IOException e) {
+            ConsoleLogger.log("Error occurred while listing message directory %s: %s", directory.getAbsolutePath(), e.getMessage());
+            return 1;
+        }
+
+        ConsoleLogger.log("Processing message directory: %s (%d files)", directory.getAbsolutePath(), files.size());
+
+        int failedFiles = 0;
+        try (MessageFilePrefetcher prefetcher = new MessageFilePrefetcher(files, getParallelism(), ordered)) {
+            MessageFilePrefetcher.Entry entry;
+            while ((entry = prefetcher.next()) != null) {
+                final File messageFile = entry.getFile();
+                try {
+                    if (entry.isPreloaded()) {
+                        final ByteBuffer contents = entry.getContents();
+                        publishUtf8Lines(publisher, checkpoint, messageFile.getAbsolutePath(),
+                                consumer -> MappedLineReader.read(contents, consumer));
+                    } else {
+                        publishFile.publish(messageFile);
+                    }
+                } catch (IOException e) {
+                    ConsoleLogger.log("Error occurred while reading messages from %s: %s", messageFile.getAbsolutePath(), e.getMessage());
+                    failedFiles++;
+                }
+            }
+        } catch (IOException e) {
+            ConsoleLogger.log("Error occurred while reading message directory %s: %s", directory.getAbsolutePath(), e.getMessage());
+            failedFiles++;
+        }
+
+        return failedFiles;
+    }
+
+    /**
+     * Publishes the lines of a message source, skipping those already acknowledged according to the checkpoint.
+     *
+     * @param publisher publisher of the messages
+     * @param checkpoint checkpoint of the messages already acknowledged, updated periodically
+     * @param sourceId id of the message source in the checkpoint
+     * @param source source of the lines
+     * @throws IOException if an error occurs reading the message source
+     */
+    private void publishUtf8Lines(SqsPublisher publisher,
+                                  PublishCheckpoint checkpoint,
+                                  String sourceId,
+                                  Utf8LineSource source) throws IOException {
+        final long skip = checkpoint.startSource(sourceId);
+        if (skip > 0) {
+            ConsoleLogger.log("Skipping %d previously published message(s) in: %s", skip, sourceId);
+        }
+
+        try {
+            source.readLines(new Consumer<Utf8Line>() {
+                private long remainingSkip = skip;
+                private int sinceCheck;
+
+                @Override
+                public void accept(Utf8Line line) {
+                    if (remainingSkip > 0) {
+                        remainingSkip--;
+                        return;
+                    }
+
+                    checkpoint.messageRead();
+                    publisher.publish(line);
+
+                    // Only look at the clock every so often, lines are published far faster than checkpoints are due
+                    if (++sinceCheck >= LinePrefetcher.MAX_CHUNK_LINES) {
+                        sinceCheck = 0;
+                        try {
+                            saveCheckpointIfDue(publisher, checkpoint);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    }
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            checkpoint.endSource();
+        }
+    }
+
+    /**
+     * Publishes the lines of a plain message file without regard for their order. The file is split into regions
+     * that are memory-mapped and published in parallel, each through its own publisher so that every queue receives
+     * batches from all regions at once. The sender threads are split between the regions, so no more batches are sent
+     * at once than the parallelism allows. Messages published this way are not checkpointed.
+     *
+     * @param amazonSQS sqs client
+     * @param queueUrls urls of the queues to which to publish
+     * @param stats statistics of the publish
+     * @param rateLimiter limits the rate at which messages are sent or <code>null</code> for no limit
+     * @param offloader offloads large payloads to S3 or <code>null</code> to reject messages too large for SQS
+     * @param distributionMode how messages are distributed across the queues
+     * @param messageFile message file
+     * @throws IOException if an error occurs reading the message file
+     */
+    private void publishUnordered(AmazonSQS amazonSQS,
+                                  List<String> queueUrls,
+                                  SqsPublishStats stats,
+                                  TokenBucket rateLimiter,
+                                  S3PayloadOffloader offloader,
+                                  SqsDistribution.Mode distributionMode,
+                                  File messageFile) throws IOException {
+        ConsoleLogger.log("Processing message file without ordering or checkpoints: %s", messageFile.getAbsolutePath());
+
+        try (FileChannel channel = FileChannel.open(messageFile.toPath(), StandardOpenOption.READ)) {
+            final long[] bounds = MappedLineReader.split(channel, getParallelism());
+            final int senders = Math.max(1, getParallelism() / (bounds.length - 1));
+            final int poolId = POOL_COUNT.incrementAndGet();
+            final AtomicInteger threadCount = new AtomicInteger();
+            final ExecutorService executor = Executors.newFixedThreadPool(bounds.length - 1, r -> {
+                final Thread thread = new Thread(r, String.format("sqs-region-reader-%d-%d", poolId, threadCount.incrementAndGet()));
+                thread.setDaemon(true);
+                return thread;
+            });
+
+            try {
+                final List<Future<Void>> regions = new ArrayList<>();
+                for (int i = 0; i < bounds.length - 1; i++) {
+                    final long start = bounds[i];
+                    final long end = bounds[i + 1];
+
+                    regions.add(executor.submit(() -> {
+                        try (SqsPublisher publisher = new SqsPublisher(amazonSQS, queueUrls, stats, new SqsPublisher.Options()
+                                .withBatchSize(getBatchSize())
+                                .withParallelism(senders)
+                                .withLanesPerQueue(senders)
+                                .withRateLimiter(rateLimiter)
+                                .withOffloader(offloader)
+                                .withDistribution(new SqsDistribution(distributionMode, queueUrls.size(), distributionKeyField, distributionKeyExtractor)))) {
+                            MappedLineReader.read(channel, start, end, publisher::publish);
+                        }
+
+                        return null;
+                    }));
+                }
+
+                for (Future<Void> region : regions) {
+                    try {
+                        region.get();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new InterruptedIOException("Interrupted while publishing: " + messageFile.getAbsolutePath());
+                    } catch (ExecutionException e) {
+                        if (e.getCause() instanceof IOException) {
+                            throw (IOException) e.getCause();
+                        } else if (e.getCause() instanceof RuntimeException) {
+                            throw (RuntimeException) e.getCause();
                         }
+
+                        throw new GradleException("Error occurred while publishing messages: " + e.getCause().getMessage(), e.getCause());
                     }
                 }
+            } finally {
+                executor.shutdownNow();
             }
         }
     }
 
     /**
-     * Processes messages found in a single file.
+     * Saves the checkpoint if it has not been saved for {@link #CHECKPOINT_INTERVAL_NANOS}.
      *
-     * @param sqs sqs client
-     * @param queueUrls urls of the queues to which to publish messages
-     * @param messageFile file to process
-     * @throws Exception
+     * @param publisher publisher of the messages
+     * @param checkpoint checkpoint to save
+     * @throws IOException if the checkpoint cannot be written
      */
-    private void processFile(AmazonSQS sqs, List<String> queueUrls, File messageFile) throws Exception {
-        ConsoleLogger.log("Processing message file: %s", messageFile.getAbsolutePath());
+    private void saveCheckpointIfDue(SqsPublisher publisher, PublishCheckpoint checkpoint) throws IOException {
+        if (System.nanoTime() - lastCheckpointNanos > CHECKPOINT_INTERVAL_NANOS) {
+            checkpoint.acknowledge(publisher.getAcknowledged());
+            checkpoint.save();
+            lastCheckpointNanos = System.nanoTime();
+        }
+    }
 
-        try (BufferedReader bufferedReader = Files.newBufferedReader(messageFile.toPath(), StandardCharsets.UTF_8)) {
+    /**
+     * Reads the non-empty lines of a message source, skipping those already acknowledged according to the checkpoint.
+     *
+     * @param sourceId id of the message source in the checkpoint
+     * @param reader reader of newline-delimited messages
+     * @param checkpoint checkpoint of the messages already acknowledged
+     * @param consumer consumer of the lines
+     * @throws IOException if an error occurs reading the messages
+     */
+    private void readLines(String sourceId, BufferedReader reader, PublishCheckpoint checkpoint, Consumer<String> consumer) throws IOException {
+        long skip = checkpoint.startSource(sourceId);
+        if (skip > 0) {
+            ConsoleLogger.log("Skipping %d previously published message(s) in: %s", skip, sourceId);
+        }
+
+        try {
             String line;
-            while ((line = bufferedReader.readLine()) != null) {
+            while ((line = reader.readLine()) != null) {
                 if (!line.isEmpty()) {
-                    for (String queueUrl : queueUrls) {
-                        sqs.sendMessage(queueUrl, line);
+                    if (skip > 0) {
+                        skip--;
+                        continue;
                     }
+
+                    checkpoint.messageRead();
+                    consumer.accept(line);
                 }
             }
+        } finally {
+            checkpoint.endSource();
         }
     }
 
     /**
-     * Checks whether or not the archive file is supported by this plugin.
+     * Publishes a single message file or archive.
+     */
+    @FunctionalInterface
+    private interface MessageFilePublisher {
+        void publish(File messageFile) throws IOException;
+    }
+
+    /**
+     * Source of lines that are still encoded as UTF-8.
+     */
+    @FunctionalInterface
+    private interface Utf8LineSource {
+        void readLines(Consumer<Utf8Line> consumer) throws IOException;
+    }
+
+    /**
+     * Gets the file in which the progress of this task is checkpointed. The file is stored in the LocalStack working
+     * directory and is named after the task path.
      *
-     * @param file file to check
-     * @return <code>true</code> if the file type is supported; otherwise <code>false</code>
+     * @return checkpoint file
      */
-    private boolean isSupportedArchive(File file) {
-        return file.getName().endsWith("tar.gz") || file.getName().endsWith("tgz");
+    private File getCheckpointFile() {
+        final String name = getPath().substring(1).replace(':', '.');
+        return new File(LocalStackDir.getCheckpointDirectory(getProject()), name + ".properties");
     }
 
     @Internal
@@ -197,7 +693,8 @@ public class PublishSqsTask extends DefaultTask {
 
     /**
      * Gets the message files to publish. Message files may be a single file, a directory containing multiple files, or
-     * a tar.gz archive of multiple files.
+     * an archive of multiple files. Supported archives are .zip, .tar, .tar.gz/.tgz, and .tar.zst/.tzst. Single files
+     * may be compressed with gzip (.gz) or Zstandard (.zst).
      *
      * @return messages files
      */
@@ -207,7 +704,8 @@ public class PublishSqsTask extends DefaultTask {
 
     /**
      * Sets the message files to publish. Message files may be a single file, a directory containing multiple files, or
-     * a tar.gz archive of multiple files.
+     * an archive of multiple files. Supported archives are .zip, .tar, .tar.gz/.tgz, and .tar.zst/.tzst. Single files
+     * may be compressed with gzip (.gz) or Zstandard (.zst).
      *
      * @param messages files
      */
@@ -217,7 +715,8 @@ public class PublishSqsTask extends DefaultTask {
 
     /**
      * Sets the message files to publish. Message files may be a single file, a directory containing multiple files, or
-     * a tar.gz archive of multiple files.
+     * an archive of multiple files. Supported archives are .zip, .tar, .tar.gz/.tgz, and .tar.zst/.tzst. Single files
+     * may be compressed with gzip (.gz) or Zstandard (.zst).
      *
      * @param path message file path
      */
@@ -225,4 +724,483 @@ public class PublishSqsTask extends DefaultTask {
     public void setMessage(String path) {
         setMessages(Arrays.asList(Paths.get(path).toFile()));
     }
+
+    /**
+     * Gets the maximum number of messages sent to a queue in a single SendMessageBatch request. Defaults to 10, the
+     * maximum allowed by SQS.
+     *
+     * @return batch size
+     */
+    public Integer getBatchSize() {
+        return batchSize != null ? batchSize : SqsMessageBatch.MAX_ENTRIES;
+    }
+
+    /**
+     * Sets the maximum number of messages sent to a queue in a single SendMessageBatch request. Must be between 1 and
+     * 10. Setting the batch size to 1 publishes each message individually.
+     *
+     * @param batchSize batch size
+     */
+    public void setBatchSize(Integer batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Sets the maximum number of messages sent to a queue in a single SendMessageBatch request.
+     *
+     * @param batchSize batch size
+     */
+    @Option(option = "batchSize", description = "Maximum number of messages to send in a single batch request (1-10)")
+    public void setBatchSize(String batchSize) {
+        if (!StringUtils.isNullOrEmpty(batchSize)) {
+            setBatchSize(Integer.parseInt(batchSize.trim()));
+        }
+    }
+
+    /**
+     * Gets the number of threads used to send batches to the queues. Each queue is published to in order, so at most
+     * one thread works on a queue at a time. Plain files published without ordering are instead read in this many
+     * regions at once, which share the threads between them. Defaults to the number of available processors.
+     *
+     * @return number of sender threads
+     */
+    public Integer getParallelism() {
+        return parallelism != null ? parallelism : Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Sets the number of threads used to send batches to the queues.
+     *
+     * @param parallelism number of sender threads
+     */
+    public void setParallelism(Integer parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Sets the number of threads used to send batches to the queues.
+     *
+     * @param parallelism number of sender threads
+     */
+    @Option(option = "parallelism", description = "Number of threads used to send messages to the queues")
+    public void setParallelism(String parallelism) {
+        if (!StringUtils.isNullOrEmpty(parallelism)) {
+            setParallelism(Integer.parseInt(parallelism.trim()));
+        }
+    }
+
+    /**
+     * Gets whether to continue from the checkpoint left behind by a previous publish that did not complete. Messages
+     * that were acknowledged by every queue in the previous publish are skipped.
+     *
+     * @return <code>true</code> if the publish resumes from the checkpoint; otherwise <code>false</code>
+     */
+    public Boolean getResume() {
+        return resume != null && resume;
+    }
+
+    /**
+     * Sets whether to continue from the checkpoint left behind by a previous publish that did not complete.
+     *
+     * @param resume <code>true</code> to resume from the checkpoint; <code>false</code> to publish all messages
+     */
+    @Option(option = "resume", description = "Continue from the checkpoint of a previous publish that did not complete")
+    public void setResume(Boolean resume) {
+        this.resume = resume;
+    }
+
+    /**
+     * Gets the maximum combined number of messages per second sent to all queues. The rate is not limited when unset.
+     *
+     * @return messages per second
+     */
+    public Integer getMessagesPerSecond() {
+        return messagesPerSecond;
+    }
+
+    /**
+     * Sets the maximum combined number of messages per second sent to all queues.
+     *
+     * @param messagesPerSecond messages per second
+     */
+    public void setMessagesPerSecond(Integer messagesPerSecond) {
+        this.messagesPerSecond = messagesPerSecond;
+    }
+
+    /**
+     * Sets the maximum combined number of messages per second sent to all queues.
+     *
+     * @param messagesPerSecond messages per second
+     */
+    @Option(option = "messagesPerSecond", description = "Maximum number of messages per second to send to all queues combined")
+    public void setMessagesPerSecond(String messagesPerSecond) {
+        if (!StringUtils.isNullOrEmpty(messagesPerSecond)) {
+            setMessagesPerSecond(Integer.parseInt(messagesPerSecond.trim()));
+        }
+    }
+
+    /**
+     * Gets the number of seconds over which the publish rate grows linearly from zero to the messages per second.
+     * Only applies when the messages per second is set.
+     *
+     * @return ramp-up seconds
+     */
+    public Integer getRampUpSeconds() {
+        return rampUpSeconds;
+    }
+
+    /**
+     * Sets the number of seconds over which the publish rate grows linearly from zero to the messages per second.
+     *
+     * @param rampUpSeconds ramp-up seconds
+     */
+    public void setRampUpSeconds(Integer rampUpSeconds) {
+        this.rampUpSeconds = rampUpSeconds;
+    }
+
+    /**
+     * Sets the number of seconds over which the publish rate grows linearly from zero to the messages per second.
+     *
+     * @param rampUpSeconds ramp-up seconds
+     */
+    @Option(option = "rampUpSeconds", description = "Number of seconds over which to ramp up to the messages per second")
+    public void setRampUpSeconds(String rampUpSeconds) {
+        if (!StringUtils.isNullOrEmpty(rampUpSeconds)) {
+            setRampUpSeconds(Integer.parseInt(rampUpSeconds.trim()));
+        }
+    }
+
+    /**
+     * Gets the maximum number of messages that may be sent in a burst above the messages per second after the
+     * publisher has been idle. Defaults to the batch size. Only applies when the messages per second is set.
+     *
+     * @return burst size
+     */
+    public Integer getBurst() {
+        return burst != null ? burst : getBatchSize();
+    }
+
+    /**
+     * Sets the maximum number of messages that may be sent in a burst above the messages per second.
+     *
+     * @param burst burst size
+     */
+    public void setBurst(Integer burst) {
+        this.burst = burst;
+    }
+
+    /**
+     * Sets the maximum number of messages that may be sent in a burst above the messages per second.
+     *
+     * @param burst burst size
+     */
+    @Option(option = "burst", description = "Maximum number of messages to send in a burst above the messages per second")
+    public void setBurst(String burst) {
+        if (!StringUtils.isNullOrEmpty(burst)) {
+            setBurst(Integer.parseInt(burst.trim()));
+        }
+    }
+
+    /**
+     * Gets whether messages are published in a deterministic order. Defaults to <code>true</code>: the messages of
+     * each file are published in the order they appear in the file, and the files of a message directory in the order
+     * of their paths. Archives are always published in order.
+     *
+     * @return <code>true</code> if messages are published in order; otherwise <code>false</code>
+     */
+    public Boolean getOrdered() {
+        return ordered == null || ordered;
+    }
+
+    /**
+     * Sets whether messages are published in a deterministic order. When <code>false</code>, regions of each plain
+     * message file are published in parallel, one per sender thread, and are not checkpointed, and the files of a
+     * message directory are published in the order they finish reading.
+     *
+     * @param ordered <code>true</code> to publish messages in order; <code>false</code> to publish regions in parallel
+     */
+    public void setOrdered(Boolean ordered) {
+        this.ordered = ordered;
+    }
+
+    /**
+     * Sets whether messages are published in a deterministic order.
+     *
+     * @param ordered <code>true</code> to publish messages in order; <code>false</code> to publish regions in parallel
+     */
+    @Option(option = "ordered", description = "Whether to publish the messages of a file in order (true) or in parallel (false)")
+    public void setOrdered(String ordered) {
+        if (!StringUtils.isNullOrEmpty(ordered)) {
+            setOrdered(Boolean.parseBoolean(ordered.trim()));
+        }
+    }
+
+    /**
+     * Gets the glob patterns of the files to publish from message directories. All files are published when unset.
+     * Patterns containing a <code>/</code> are matched against the path of a file relative to the message directory,
+     * other patterns against the file name.
+     *
+     * @return include patterns
+     */
+    public List<String> getIncludes() {
+        return includes;
+    }
+
+    /**
+     * Sets the glob patterns of the files to publish from message directories.
+     *
+     * @param includes include patterns
+     */
+    public void setIncludes(List<String> includes) {
+        this.includes = includes;
+    }
+
+    /**
+     * Sets the glob patterns of the files to publish from message directories. This method supports providing the
+     * patterns as a comma-delimited list.
+     *
+     * @param includes include patterns
+     */
+    @Option(option = "includes", description = "Comma-delimited list of glob patterns of the files to publish from message directories")
+    public void setIncludes(String includes) {
+        if (!StringUtils.isNullOrEmpty(includes)) {
+            setIncludes(Arrays.stream(includes.split(","))
+                    .map(String::trim)
+                    .collect(Collectors.toList()));
+        }
+    }
+
+    /**
+     * Gets the glob patterns of the files not to publish from message directories. Hidden files are never published.
+     *
+     * @return exclude patterns
+     */
+    public List<String> getExcludes() {
+        return excludes;
+    }
+
+    /**
+     * Sets the glob patterns of the files not to publish from message directories.
+     *
+     * @param excludes exclude patterns
+     */
+    public void setExcludes(List<String> excludes) {
+        this.excludes = excludes;
+    }
+
+    /**
+     * Sets the glob patterns of the files not to publish from message directories. This method supports providing the
+     * patterns as a comma-delimited list.
+     *
+     * @param excludes exclude patterns
+     */
+    @Option(option = "excludes", description = "Comma-delimited list of glob patterns of the files to skip in message directories")
+    public void setExcludes(String excludes) {
+        if (!StringUtils.isNullOrEmpty(excludes)) {
+            setExcludes(Arrays.stream(excludes.split(","))
+                    .map(String::trim)
+                    .collect(Collectors.toList()));
+        }
+    }
+
+    /**
+     * Gets the path of the field holding the message group id of each message, such as <code>order.customerId</code>.
+     * Configuring a message group id field or extractor publishes to FIFO queues: messages are routed to sender lanes
+     * by the hash of their message group id so that each group is published in order while unrelated groups are
+     * published in parallel.
+     *
+     * @return message group id field path
+     */
+    public String getMessageGroupIdField() {
+        return messageGroupIdField;
+    }
+
+    /**
+     * Sets the path of the field holding the message group id of each message.
+     *
+     * @param messageGroupIdField message group id field path
+     */
+    @Option(option = "messageGroupIdField", description = "Path of the message field holding the message group id for FIFO queues")
+    public void setMessageGroupIdField(String messageGroupIdField) {
+        this.messageGroupIdField = messageGroupIdField;
+    }
+
+    /**
+     * Gets the function that computes the message group id of each message from its body. Takes precedence over the
+     * message group id field.
+     *
+     * @return message group id extractor
+     */
+    @Internal
+    public Transformer<String, String> getMessageGroupIdExtractor() {
+        return messageGroupIdExtractor;
+    }
+
+    /**
+     * Sets the function that computes the message group id of each message from its body.
+     *
+     * @param messageGroupIdExtractor message group id extractor
+     */
+    public void setMessageGroupIdExtractor(Transformer<String, String> messageGroupIdExtractor) {
+        this.messageGroupIdExtractor = messageGroupIdExtractor;
+    }
+
+    /**
+     * Gets the path of the field holding the message deduplication id of each message. When neither a deduplication
+     * id field nor extractor is configured the FIFO queues must have content-based deduplication enabled.
+     *
+     * @return message deduplication id field path
+     */
+    public String getDeduplicationIdField() {
+        return deduplicationIdField;
+    }
+
+    /**
+     * Sets the path of the field holding the message deduplication id of each message.
+     *
+     * @param deduplicationIdField message deduplication id field path
+     */
+    @Option(option = "deduplicationIdField", description = "Path of the message field holding the message deduplication id for FIFO queues")
+    public void setDeduplicationIdField(String deduplicationIdField) {
+        this.deduplicationIdField = deduplicationIdField;
+    }
+
+    /**
+     * Gets the function that computes the message deduplication id of each message from its body. Takes precedence
+     * over the message deduplication id field.
+     *
+     * @return message deduplication id extractor
+     */
+    @Internal
+    public Transformer<String, String> getDeduplicationIdExtractor() {
+        return deduplicationIdExtractor;
+    }
+
+    /**
+     * Sets the function that computes the message deduplication id of each message from its body.
+     *
+     * @param deduplicationIdExtractor message deduplication id extractor
+     */
+    public void setDeduplicationIdExtractor(Transformer<String, String> deduplicationIdExtractor) {
+        this.deduplicationIdExtractor = deduplicationIdExtractor;
+    }
+
+    /**
+     * Gets the name of the S3 bucket to which message payloads above the large payload threshold are offloaded. The
+     * queues are sent a pointer to the payload in the format of the Amazon SQS Extended Client Library instead. Large
+     * payloads are not offloaded when unset and messages too large for SQS fail to publish.
+     *
+     * @return large payload bucket name
+     */
+    public String getLargePayloadBucket() {
+        return largePayloadBucket;
+    }
+
+    /**
+     * Sets the name of the S3 bucket to which message payloads above the large payload threshold are offloaded. The
+     * bucket is created if it does not exist.
+     *
+     * @param largePayloadBucket large payload bucket name
+     */
+    @Option(option = "largePayloadBucket", description = "Name of the S3 bucket to which to offload message payloads too large for SQS")
+    public void setLargePayloadBucket(String largePayloadBucket) {
+        this.largePayloadBucket = largePayloadBucket;
+    }
+
+    /**
+     * Gets the size in bytes above which message payloads are offloaded to the large payload bucket. Defaults to the
+     * maximum SQS message size of 262,144 bytes.
+     *
+     * @return large payload threshold
+     */
+    public Integer getLargePayloadThreshold() {
+        return largePayloadThreshold != null ? largePayloadThreshold : SqsMessageBatch.MAX_PAYLOAD_BYTES;
+    }
+
+    /**
+     * Sets the size in bytes above which message payloads are offloaded to the large payload bucket.
+     *
+     * @param largePayloadThreshold large payload threshold
+     */
+    public void setLargePayloadThreshold(Integer largePayloadThreshold) {
+        this.largePayloadThreshold = largePayloadThreshold;
+    }
+
+    /**
+     * Sets the size in bytes above which message payloads are offloaded to the large payload bucket.
+     *
+     * @param largePayloadThreshold large payload threshold
+     */
+    @Option(option = "largePayloadThreshold", description = "Size in bytes above which message payloads are offloaded to S3")
+    public void setLargePayloadThreshold(String largePayloadThreshold) {
+        if (!StringUtils.isNullOrEmpty(largePayloadThreshold)) {
+            setLargePayloadThreshold(Integer.parseInt(largePayloadThreshold.trim()));
+        }
+    }
+
+    /**
+     * Gets how messages are distributed across the queues. Defaults to <code>broadcast</code>.
+     * <ul>
+     *     <li><code>broadcast</code> - every message is published to every queue</li>
+     *     <li><code>roundRobin</code> - each message is published to the next queue in turn</li>
+     *     <li><code>keyHash</code> - each message is published to the queue chosen by the hash of its distribution key,
+     *     so messages with the same key always go to the same queue</li>
+     * </ul>
+     *
+     * @return distribution
+     */
+    public String getDistribution() {
+        return distribution != null ? distribution : "broadcast";
+    }
+
+    /**
+     * Sets how messages are distributed across the queues.
+     *
+     * @param distribution <code>broadcast</code>, <code>roundRobin</code>, or <code>keyHash</code>
+     */
+    @Option(option = "distribution", description = "How messages are distributed across the queues (broadcast, roundRobin, keyHash)")
+    public void setDistribution(String distribution) {
+        this.distribution = distribution;
+    }
+
+    /**
+     * Gets the path of the field holding the key hashed by the <code>keyHash</code> distribution, such as
+     * <code>order.customerId</code>. Messages published to FIFO queues are distributed by their message group id when
+     * neither a distribution key field nor extractor is configured.
+     *
+     * @return distribution key field path
+     */
+    public String getDistributionKeyField() {
+        return distributionKeyField;
+    }
+
+    /**
+     * Sets the path of the field holding the key hashed by the <code>keyHash</code> distribution.
+     *
+     * @param distributionKeyField distribution key field path
+     */
+    @Option(option = "distributionKeyField", description = "Path of the message field holding the key hashed by the keyHash distribution")
+    public void setDistributionKeyField(String distributionKeyField) {
+        this.distributionKeyField = distributionKeyField;
+    }
+
+    /**
+     * Gets the function that computes the key hashed by the <code>keyHash</code> distribution from the message body.
+     * Takes precedence over the distribution key field.
+     *
+     * @return distribution key extractor
+     */
+    @Internal
+    public Transformer<String, String> getDistributionKeyExtractor() {
+        return distributionKeyExtractor;
+    }
+
+    /**
+     * Sets the function that computes the key hashed by the <code>keyHash</code> distribution from the message body.
+     *
+     * @param distributionKeyExtractor distribution key extractor
+     */
+    public void setDistributionKeyExtractor(Transformer<String, String> distributionKeyExtractor) {
+        this.distributionKeyExtractor = distributionKeyExtractor;
+    }
 }
@@ -8,9 +8,6 @@
 package com.nike.pdm.localstack.aws.sqs;
 
 import com.amazonaws.services.sqs.AmazonSQS;
-import com.amazonaws.services.sqs.model.GetQueueUrlResult;
-import com.amazonaws.services.sqs.model.PurgeQueueRequest;
-import com.amazonaws.services.sqs.model.PurgeQueueResult;
 import com.amazonaws.util.StringUtils;
 import com.nike.pdm.localstack.aws.AwsClientFactory;
 import com.nike.pdm.localstack.compose.LocalStackModule;
@@ -19,13 +16,16 @@ import com.nike.pdm.localstack.core.Retry;
 import org.gradle.api.DefaultTask;
 import org.gradle.api.tasks.Input;
 import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.Optional;
 import org.gradle.api.tasks.TaskAction;
 import org.gradle.api.tasks.options.Option;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 /**
@@ -33,42 +33,69 @@ import java.util.stream.Collectors;
  */
 public class PurgeSqsQueuesTask extends DefaultTask {
 
+    private static final long MIN_POLL_INTERVAL_MILLIS = 100;
+    private static final long MAX_POLL_INTERVAL_MILLIS = 2000;
+
     @Input
     private List<String> queueNames;
 
+    @Optional
+    @Input
+    private Boolean awaitEmpty = false;
+
+    @Optional
+    @Input
+    private Integer timeoutSeconds = 60;
+
     public PurgeSqsQueuesTask() {
         setMustRunAfter(Arrays.asList(LocalStackModule.START_LOCALSTACK_TASK_NAME));
     }
 
     @TaskAction
     public void run() {
+        if (queueNames == null || queueNames.isEmpty()) {
+            ConsoleLogger.log("No queues defined in 'queueNames' parameter");
+            return;
+        }
+
         final Set<Class<? extends Throwable>> expectedErrors = new HashSet<>(Arrays.asList(IllegalArgumentException.class));
 
-        Retry.execute(() -> {
-            final AmazonSQS amazonSQS = AwsClientFactory.getInstance().sqs(getProject());
-            final SqsTaskUtil sqsTaskUtil = new SqsTaskUtil(getProject());
+        // Only resolving the queues is retried, purging again within 60 seconds of a purge is rejected
+        final AmazonSQS amazonSQS = AwsClientFactory.getInstance().sqs(getProject());
+        final SqsTaskUtil sqsTaskUtil = new SqsTaskUtil(getProject());
+        final List<String> queueUrls = Retry.execute(() -> {
+            final List<String> urls = new ArrayList<>(queueNames.size());
+            queueNames.forEach(queueName -> {
+                if (!sqsTaskUtil.queueExists(queueName)) {
+                    throw new IllegalArgumentException("Queue does not exist: " + queueName);
+                }
 
-            if (queueNames != null && !queueNames.isEmpty()) {
-                queueNames.forEach(queueName -> {
+                urls.add(sqsTaskUtil.getQueueUrl(queueName));
+            });
 
-                    ConsoleLogger.log("Purging SQS queue: %s", queueName);
+            return urls;
+        }, expectedErrors);
 
-                    if (!sqsTaskUtil.queueExists(queueName)) {
-                        throw new IllegalArgumentException("Queue does not exist: " + queueName);
-                    }
+        ConsoleLogger.log("Purging SQS queues: %s", String.join(", ", queueNames));
 
-                    GetQueueUrlResult getQueueUrlResult = amazonSQS.getQueueUrl(queueName);
+        final List<SqsQueuePurger.Result> results = new SqsQueuePurger(amazonSQS).purge(queueUrls);
 
-                    PurgeQueueResult purgeQueueResult = amazonSQS.purgeQueue(new PurgeQueueRequest(getQueueUrlResult.getQueueUrl()));
+        results.forEach(result -> {
+            final String queueName = sqsTaskUtil.getQueueNameFromUrl(result.getQueueUrl());
 
-                    ConsoleLogger.log("Purged SQS queue: %s", queueName);
-                });
+            if (result.isPurged()) {
+                ConsoleLogger.log("Purged SQS queue: %s", queueName);
             } else {
-                ConsoleLogger.log("No queues defined in 'queueNames' parameter");
+                ConsoleLogger.log("SQS queue %s was purged in the last 60 seconds, deleted %d message(s) instead", queueName, result.getDeleted());
             }
+        });
 
-            return null;
-        }, expectedErrors);
+        if (getAwaitEmpty()) {
+            ConsoleLogger.log("Waiting up to %d seconds for %d queue(s) to be empty", getTimeoutSeconds(), queueUrls.size());
+
+            sqsTaskUtil.awaitQueueDepth(queueUrls, 0, TimeUnit.SECONDS.toMillis(getTimeoutSeconds()),
+                    MIN_POLL_INTERVAL_MILLIS, MAX_POLL_INTERVAL_MILLIS);
+        }
     }
 
     @Internal
@@ -115,4 +142,65 @@ public class PurgeSqsQueuesTask extends DefaultTask {
                     .collect(Collectors.toList()));
         }
     }
+
+    /**
+     * Gets whether to wait for every queue to report no visible and no in flight messages after purging. Defaults to
+     * <code>false</code>.
+     *
+     * @return <code>true</code> to wait for the queues to be empty; otherwise <code>false</code>
+     */
+    public Boolean getAwaitEmpty() {
+        return awaitEmpty != null ? awaitEmpty : false;
+    }
+
+    /**
+     * Sets whether to wait for every queue to report no visible and no in flight messages after purging.
+     *
+     * @param awaitEmpty <code>true</code> to wait for the queues to be empty; otherwise <code>false</code>
+     */
+    public void setAwaitEmpty(Boolean awaitEmpty) {
+        this.awaitEmpty = awaitEmpty;
+    }
+
+    /**
+     * Sets whether to wait for every queue to report no visible and no in flight messages after purging.
+     *
+     * @param awaitEmpty <code>true</code> to wait for the queues to be empty; otherwise <code>false</code>
+     */
+    @Option(option = "awaitEmpty", description = "Wait for the purged queues to report no visible and no in flight messages")
+    public void setAwaitEmpty(String awaitEmpty) {
+        if (!StringUtils.isNullOrEmpty(awaitEmpty)) {
+            setAwaitEmpty(Boolean.parseBoolean(awaitEmpty.trim()));
+        }
+    }
+
+    /**
+     * Gets the number of seconds to wait for the queues to be empty before failing. Defaults to 60.
+     *
+     * @return timeout in seconds
+     */
+    public Integer getTimeoutSeconds() {
+        return timeoutSeconds != null ? timeoutSeconds : 60;
+    }
+
+    /**
+     * Sets the number of seconds to wait for the queues to be empty before failing.
+     *
+     * @param timeoutSeconds timeout in seconds
+     */
+    public void setTimeoutSeconds(Integer timeoutSeconds) {
+        this.timeoutSeconds = timeoutSeconds;
+    }
+
+    /**
+     * Sets the number of seconds to wait for the queues to be empty before failing.
+     *
+     * @param timeoutSeconds timeout in seconds
+     */
+    @Option(option = "timeoutSeconds", description = "Number of seconds to wait for the purged queues to be empty before failing")
+    public void setTimeoutSeconds(String timeoutSeconds) {
+        if (!StringUtils.isNullOrEmpty(timeoutSeconds)) {
+            setTimeoutSeconds(Integer.parseInt(timeoutSeconds.trim()));
+        }
+    }
 }
@@ -0,0 +1,261 @@
+/**
+ * Copyright 2020-present, Nike, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the Apache-2.0 license found in
+ * the LICENSE file in the root directory of this source tree.
+ */
+package com.nike.pdm.localstack.aws.sqs;
+
+import com.amazonaws.services.sqs.AmazonSQS;
+import com.amazonaws.util.StringUtils;
+import com.nike.pdm.localstack.aws.AwsClientFactory;
+import com.nike.pdm.localstack.compose.LocalStackModule;
+import com.nike.pdm.localstack.core.ConsoleLogger;
+import com.nike.pdm.localstack.core.Retry;
+import com.nike.pdm.localstack.core.TokenBucket;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.Optional;
+import org.gradle.api.tasks.TaskAction;
+import org.gradle.api.tasks.options.Option;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Task that moves the messages of an SQS deadletter queue back to its source queue.
+ */
+public class RedriveSqsDlqTask extends DefaultTask {
+
+    @Input
+    private String dlqName;
+
+    @Optional
+    @Input
+    private String sourceQueueName;
+
+    @Optional
+    @Input
+    private Integer workers = 4;
+
+    @Optional
+    @Input
+    private Integer idleTimeoutSeconds = 10;
+
+    @Optional
+    @Input
+    private Integer messagesPerSecond;
+
+    public RedriveSqsDlqTask() {
+        setMustRunAfter(Arrays.asList(LocalStackModule.START_LOCALSTACK_TASK_NAME));
+    }
+
+    @TaskAction
+    public void run() {
+        if (StringUtils.isNullOrEmpty(dlqName)) {
+            ConsoleLogger.log("No deadletter queue configured!");
+            return;
+        }
+
+        final Set<Class<? extends Throwable>> expectedErrors = new HashSet<>(Arrays.asList(GradleException.class));
+
+        // Only resolving the queues is retried, a redrive that fails part way has already moved messages
+        final AmazonSQS amazonSQS = AwsClientFactory.getInstance().sqs(getProject());
+        final SqsTaskUtil sqsTaskUtil = new SqsTaskUtil(getProject());
+        final String dlqUrl = Retry.execute(() -> sqsTaskUtil.getQueueUrl(dlqName), expectedErrors);
+        final String sourceUrl = Retry.execute(() -> getSourceQueueUrl(sqsTaskUtil, dlqUrl), expectedErrors);
+
+        ConsoleLogger.log("Redriving SQS queue %s to: %s", dlqName, sqsTaskUtil.getQueueNameFromUrl(sourceUrl));
+
+        final SqsPublishStats stats = new SqsPublishStats();
+        final TokenBucket rateLimiter = messagesPerSecond != null && messagesPerSecond > 0
+                ? new TokenBucket(messagesPerSecond, SqsMessageBatch.MAX_ENTRIES, 0)
+                : null;
+
+        final SqsDlqRedriver redriver = new SqsDlqRedriver(amazonSQS, dlqUrl, sourceUrl, getWorkers(),
+                TimeUnit.SECONDS.toMillis(getIdleTimeoutSeconds()), stats, rateLimiter);
+        redriver.start();
+        redriver.await();
+
+        ConsoleLogger.log("Redrove SQS queue %s. Moved: %d, Failed: %d, Elapsed: %d ms",
+                dlqName, stats.getSent(), stats.getFailed(), stats.getElapsedMillis());
+
+        if (redriver.getDeleteFailures() > 0) {
+            ConsoleLogger.log("%d moved messages could not be deleted from %s and may be moved again",
+                    redriver.getDeleteFailures(), dlqName);
+        }
+
+        if (stats.getFailed() > 0) {
+            throw new GradleException(String.format("Failed to move %d message(s), they remain on: %s", stats.getFailed(), dlqName));
+        }
+    }
+
+    /**
+     * Gets the url of the queue to which to move the messages, either the configured source queue or the only queue
+     * using the deadletter queue.
+     *
+     * @param sqsTaskUtil sqs task utilities
+     * @param dlqUrl deadletter queue url
+     * @return source queue url
+     */
+    private String getSourceQueueUrl(SqsTaskUtil sqsTaskUtil, String dlqUrl) {
+        if (!StringUtils.isNullOrEmpty(sourceQueueName)) {
+            return sqsTaskUtil.getQueueUrl(sourceQueueName);
+        }
+
+        final List<String> sourceUrls = sqsTaskUtil.getDeadLetterSourceQueueUrls(dlqUrl);
+        if (sourceUrls.size() != 1) {
+            throw new GradleException(String.format("Queue %s is the deadletter queue of %d queues, configure the source queue to redrive to",
+                    dlqName, sourceUrls.size()));
+        }
+
+        return sourceUrls.get(0);
+    }
+
+    @Internal
+    @Override
+    public String getGroup() {
+        return SqsModule.GROUP_NAME;
+    }
+
+    @Internal
+    @Override
+    public String getDescription() {
+        return "Moves the messages of an SQS deadletter queue back to its source queue.";
+    }
+
+    /**
+     * Gets the name of the deadletter queue to redrive.
+     *
+     * @return deadletter queue name
+     */
+    public String getDlqName() {
+        return dlqName;
+    }
+
+    /**
+     * Sets the name of the deadletter queue to redrive.
+     *
+     * @param dlqName deadletter queue name
+     */
+    @Option(option = "dlqName", description = "Name of the deadletter queue to redrive")
+    public void setDlqName(String dlqName) {
+        this.dlqName = dlqName;
+    }
+
+    /**
+     * Gets the name of the queue to which to move the messages. Defaults to the queue whose redrive policy targets the
+     * deadletter queue, when there is exactly one.
+     *
+     * @return source queue name
+     */
+    public String getSourceQueueName() {
+        return sourceQueueName;
+    }
+
+    /**
+     * Sets the name of the queue to which to move the messages.
+     *
+     * @param sourceQueueName source queue name
+     */
+    @Option(option = "sourceQueueName", description = "Name of the queue to which to move the messages")
+    public void setSourceQueueName(String sourceQueueName) {
+        this.sourceQueueName = sourceQueueName;
+    }
+
+    /**
+     * Gets the number of workers moving messages. Defaults to 4.
+     *
+     * @return workers
+     */
+    public Integer getWorkers() {
+        return workers != null ? workers : 4;
+    }
+
+    /**
+     * Sets the number of workers moving messages.
+     *
+     * @param workers workers
+     */
+    public void setWorkers(Integer workers) {
+        this.workers = workers;
+    }
+
+    /**
+     * Sets the number of workers moving messages.
+     *
+     * @param workers workers
+     */
+    @Option(option = "workers", description = "Number of workers receiving messages from the deadletter queue")
+    public void setWorkers(String workers) {
+        if (!StringUtils.isNullOrEmpty(workers)) {
+            setWorkers(Integer.parseInt(workers.trim()));
+        }
+    }
+
+    /**
+     * Gets the number of seconds the deadletter queue must stay empty before redriving stops. Defaults to 10.
+     *
+     * @return idle timeout in seconds
+     */
+    public Integer getIdleTimeoutSeconds() {
+        return idleTimeoutSeconds != null ? idleTimeoutSeconds : 10;
+    }
+
+    /**
+     * Sets the number of seconds the deadletter queue must stay empty before redriving stops.
+     *
+     * @param idleTimeoutSeconds idle timeout in seconds
+     */
+    public void setIdleTimeoutSeconds(Integer idleTimeoutSeconds) {
+        this.idleTimeoutSeconds = idleTimeoutSeconds;
+    }
+
+    /**
+     * Sets the number of seconds the deadletter queue must stay empty before redriving stops.
+     *
+     * @param idleTimeoutSeconds idle timeout in seconds
+     */
+    @Option(option = "idleTimeoutSeconds", description = "Number of seconds the deadletter queue must stay empty before redriving stops")
+    public void setIdleTimeoutSeconds(String idleTimeoutSeconds) {
+        if (!StringUtils.isNullOrEmpty(idleTimeoutSeconds)) {
+            setIdleTimeoutSeconds(Integer.parseInt(idleTimeoutSeconds.trim()));
+        }
+    }
+
+    /**
+     * Gets the maximum number of messages per second moved to the source queue. Defaults to no limit.
+     *
+     * @return messages per second
+     */
+    public Integer getMessagesPerSecond() {
+        return messagesPerSecond;
+    }
+
+    /**
+     * Sets the maximum number of messages per second moved to the source queue.
+     *
+     * @param messagesPerSecond messages per second
+     */
+    public void setMessagesPerSecond(Integer messagesPerSecond) {
+        this.messagesPerSecond = messagesPerSecond;
+    }
+
+    /**
+     * Sets the maximum number of messages per second moved to the source queue.
+     *
+     * @param messagesPerSecond messages per second
+     */
+    @Option(option = "messagesPerSecond", description = "Maximum number of messages per second to move to the source queue")
+    public void setMessagesPerSecond(String messagesPerSecond) {
+        if (!StringUtils.isNullOrEmpty(messagesPerSecond)) {
+            setMessagesPerSecond(Integer.parseInt(messagesPerSecond.trim()));
+        }
+    }
+}
@@ -0,0 +1,129 @@
+/**
+ * Copyright 2020-present, Nike, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the Apache-2.0 license found in
+ * the LICENSE file in the root directory of this source tree.
+ */
+package com.nike.pdm.localstack.aws.sqs;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Captured message with the time at which it was originally published.
+ */
+final class ReplayRecord {
+
+    private final long eventNanos;
+    private final String body;
+
+    ReplayRecord(long eventNanos, String body) {
+        this.eventNanos = eventNanos;
+        this.body = body;
+    }
+
+    /**
+     * Parses a captured message from a line of newline-delimited JSON.
+     *
+     * @param mapper json object mapper
+     * @param line json record
+     * @param timestampField name of the field holding the event time, either an ISO-8601 timestamp or epoch milliseconds
+     * @param bodyField name of the field holding the message body or <code>null</code> to publish the whole record
+     * @return captured message
+     * @throws IllegalArgumentException if the line is not a json object or is missing the event time or body
+     */
+    static ReplayRecord parse(ObjectMapper mapper, String line, String timestampField, String bodyField) {
+        final JsonNode record;
+        try {
+            record = mapper.readTree(line);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Record is not valid JSON: " + e.getMessage(), e);
+        }
+
+        if (record == null || !record.isObject()) {
+            throw new IllegalArgumentException("Record is not a JSON object");
+        }
+
+        final long eventNanos = parseEventTime(record.get(timestampField));
+
+        if (bodyField == null) {
+            return new ReplayRecord(eventNanos, line);
+        }
+
+        final JsonNode body = record.get(bodyField);
+        if (body == null || body.isNull()) {
+            throw new IllegalArgumentException("Record is missing body field: " + bodyField);
+        }
+
+        // Nested json bodies are published as json rather than as a quoted string
+        return new ReplayRecord(eventNanos, body.isTextual() ? body.asText() : body.toString());
+    }
+
+    /**
+     * Parses an event time into nanoseconds since the epoch. Numbers, and strings of digits, are epoch milliseconds and
+     * may have a fractional part. Other strings are ISO-8601 timestamps; those without an offset are taken to be UTC.
+     *
+     * @param node event time
+     * @return nanoseconds since the epoch
+     * @throws IllegalArgumentException if the event time is missing or cannot be parsed
+     */
+    static long parseEventTime(JsonNode node) {
+        if (node == null || node.isNull()) {
+            throw new IllegalArgumentException("Record is missing timestamp");
+        }
+
+        if (node.isNumber()) {
+            return millisToNanos(node.decimalValue());
+        }
+
+        final String text = node.asText().trim();
+        if (!text.isEmpty() && text.chars().allMatch(c -> Character.isDigit(c) || c == '.')) {
+            return millisToNanos(new BigDecimal(text));
+        }
+
+        Instant instant;
+        try {
+            instant = DateTimeFormatter.ISO_DATE_TIME.parse(text, Instant::from);
+        } catch (DateTimeParseException e) {
+            try {
+                instant = LocalDateTime.parse(text).toInstant(ZoneOffset.UTC);
+            } catch (DateTimeParseException e2) {
+                throw new IllegalArgumentException("Invalid timestamp: " + text, e);
+            }
+        }
+
+        return TimeUnit.SECONDS.toNanos(instant.getEpochSecond()) + instant.getNano();
+    }
+
+    private static long millisToNanos(BigDecimal millis) {
+        return millis.movePointRight(6).longValue();
+    }
+
+    /**
+     * Gets the time at which the message was originally published.
+     *
+     * @return nanoseconds since the epoch
+     */
+    long getEventNanos() {
+        return eventNanos;
+    }
+
+    /**
+     * Gets the message body to publish.
+     *
+     * @return message body
+     */
+    String getBody() {
+        return body;
+    }
+}
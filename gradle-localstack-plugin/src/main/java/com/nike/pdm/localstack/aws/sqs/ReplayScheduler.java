@@ -0,0 +1,132 @@
+/**
+ * Copyright 2020-present, Nike, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the Apache-2.0 license found in
+ * the LICENSE file in the root directory of this source tree.
+ */
+package com.nike.pdm.localstack.aws.sqs;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Paces the replay of captured messages so that each one is published at its original offset from the first message,
+ * divided by a speed-up factor.
+ *
+ * <p>Sleeping for every message is far too coarse at tens of thousands of messages per second, so the scheduler parks
+ * the thread until shortly before a message is due and spins for the remainder. Messages that are already due are
+ * released immediately, which lets the publisher batch bursts together. Before the scheduler waits it flushes the
+ * publisher if the oldest unsent message would otherwise be held back for more than the maximum hold time. A longer
+ * hold fills more of each batch at moderate rates, at the cost of messages being sent up to that much later.
+ */
+final class ReplayScheduler {
+
+    /**
+     * Remaining wait below which the scheduler spins instead of parking the thread. Parking is not precise enough for
+     * shorter waits.
+     */
+    static final long SPIN_THRESHOLD_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    /**
+     * Default maximum time a message may be held back waiting for more messages to fill its batch.
+     */
+    static final long DEFAULT_MAX_HOLD_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+
+    private final double speed;
+    private final long maxHoldNanos;
+    private boolean started;
+    private long originEventNanos;
+    private long originNanos;
+    private boolean holding;
+    private long holdingSinceNanos;
+
+    /**
+     * Creates a scheduler that holds messages back for at most {@link #DEFAULT_MAX_HOLD_NANOS}.
+     *
+     * @param speed speed-up factor; {@link Double#POSITIVE_INFINITY} to publish as fast as possible
+     */
+    ReplayScheduler(double speed) {
+        this(speed, DEFAULT_MAX_HOLD_NANOS);
+    }
+
+    /**
+     * Creates a scheduler.
+     *
+     * @param speed speed-up factor; {@link Double#POSITIVE_INFINITY} to publish as fast as possible
+     * @param maxHoldNanos maximum time a message may be held back waiting for more messages to fill its batch
+     */
+    ReplayScheduler(double speed, long maxHoldNanos) {
+        if (!(speed > 0)) {
+            throw new IllegalArgumentException("Speed must be greater than zero: " + speed);
+        }
+
+        if (maxHoldNanos < 0) {
+            throw new IllegalArgumentException("Maximum hold time must not be negative: " + maxHoldNanos);
+        }
+
+        this.speed = speed;
+        this.maxHoldNanos = maxHoldNanos;
+    }
+
+    /**
+     * Waits until the message is due to be published. The first message is due immediately and sets the origin of the
+     * timeline; messages with an event time before that of the previous message are due as soon as possible.
+     *
+     * @param eventNanos time at which the message was originally published, in nanoseconds since the epoch
+     * @param flush sends the messages held by the publisher
+     * @return time at which the message was due, as reported by {@link System#nanoTime()}, from which its lag is
+     *         measured once it has been sent
+     */
+    long await(long eventNanos, Runnable flush) {
+        long now = System.nanoTime();
+
+        if (!started) {
+            started = true;
+            originEventNanos = eventNanos;
+            originNanos = now;
+        }
+
+        if (Double.isInfinite(speed)) {
+            return now;
+        }
+
+        final long due = originNanos + (long) ((eventNanos - originEventNanos) / speed);
+
+        if (due - now > 0) {
+            if (holding && due - holdingSinceNanos > maxHoldNanos) {
+                flush.run();
+                holding = false;
+            }
+
+            now = waitUntil(due);
+        }
+
+        if (!holding) {
+            holding = true;
+            holdingSinceNanos = now;
+        }
+
+        return due;
+    }
+
+    /**
+     * Blocks until the given time.
+     *
+     * @param due time as reported by {@link System#nanoTime()}
+     * @return time at which the wait ended
+     */
+    private static long waitUntil(long due) {
+        long now;
+        while ((now = System.nanoTime()) - due < 0) {
+            final long remaining = due - now;
+            if (remaining > SPIN_THRESHOLD_NANOS) {
+                LockSupport.parkNanos(remaining - SPIN_THRESHOLD_NANOS);
+            } else {
+                Thread.yield();
+            }
+        }
+
+        return now;
+    }
+}
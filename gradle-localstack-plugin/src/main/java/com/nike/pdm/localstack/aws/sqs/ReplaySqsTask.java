@@ -0,0 +1,434 @@
+/**
+ * Copyright 2020-present, Nike, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the Apache-2.0 license found in
+ * the LICENSE file in the root directory of this source tree.
+ */
+package com.nike.pdm.localstack.aws.sqs;
+
+import com.amazonaws.services.sqs.AmazonSQS;
+import com.amazonaws.util.StringUtils;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nike.pdm.localstack.aws.AwsClientFactory;
+import com.nike.pdm.localstack.compose.LocalStackModule;
+import com.nike.pdm.localstack.core.ConsoleLogger;
+import com.nike.pdm.localstack.core.Retry;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.Optional;
+import org.gradle.api.tasks.TaskAction;
+import org.gradle.api.tasks.options.Option;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Task that replays captured messages to SQS queues with their original timing.
+ */
+public class ReplaySqsTask extends DefaultTask {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    /**
+     * Speed option value that replays messages as fast as possible.
+     */
+    private static final String MAX_SPEED = "max";
+
+    private static final int DEFAULT_MAX_HOLD_MILLIS = (int) TimeUnit.NANOSECONDS.toMillis(ReplayScheduler.DEFAULT_MAX_HOLD_NANOS);
+
+    @Input
+    private List<String> queueNames;
+
+    @InputFiles
+    private List<File> messages;
+
+    @Optional
+    @Input
+    private String timestampField = "timestamp";
+
+    @Optional
+    @Input
+    private String bodyField;
+
+    @Optional
+    @Input
+    private Double speed = 1.0;
+
+    @Optional
+    @Input
+    private Integer batchSize = SqsMessageBatch.MAX_ENTRIES;
+
+    @Optional
+    @Input
+    private Integer parallelism;
+
+    @Optional
+    @Input
+    private Integer maxHoldMillis = DEFAULT_MAX_HOLD_MILLIS;
+
+    public ReplaySqsTask() {
+        setMustRunAfter(Arrays.asList(LocalStackModule.START_LOCALSTACK_TASK_NAME));
+    }
+
+    @TaskAction
+    public void run() {
+        if (queueNames == null || queueNames.isEmpty()) {
+            ConsoleLogger.log("No queues configured!");
+            return;
+        }
+
+        final Set<Class<? extends Throwable>> expectedErrors = new HashSet<>(Arrays.asList(GradleException.class));
+
+        Retry.execute(() -> {
+            final AmazonSQS amazonSQS = AwsClientFactory.getInstance().sqs(getProject());
+            final SqsTaskUtil sqsTaskUtil = new SqsTaskUtil(getProject());
+
+            final List<String> queueUrls = sqsTaskUtil.getQueueUrls(queueNames);
+            final SqsPublishStats stats = new SqsPublishStats();
+            final ReplayScheduler scheduler = new ReplayScheduler(getSpeed(), TimeUnit.MILLISECONDS.toNanos(getMaxHoldMillis()));
+            final LatencyHistogram lag = new LatencyHistogram();
+
+            long invalidRecords = 0;
+            int failedFiles = 0;
+            try (SqsPublisher publisher = new SqsPublisher(amazonSQS, queueUrls, stats, new SqsPublisher.Options()
+                    .withBatchSize(getBatchSize())
+                    .withParallelism(getParallelism())
+                    .withLanesPerQueue(getParallelism())
+                    .withLagListener(nanos -> lag.record(TimeUnit.NANOSECONDS.toMillis(nanos))))) {
+                for (File messageFile : messages) {
+                    try {
+                        invalidRecords += replayLines(publisher, scheduler, messageFile);
+                    } catch (IOException e) {
+                        ConsoleLogger.log("Error occurred while reading messages from %s: %s", messageFile.getAbsolutePath(), e.getMessage());
+                        failedFiles++;
+                    }
+                }
+            }
+
+            ConsoleLogger.log("Replayed messages to %d queue(s). %s", queueUrls.size(), stats.summary());
+            ConsoleLogger.log(lag.render("Lag (due to acknowledged by queue)"));
+
+            if (invalidRecords > 0) {
+                ConsoleLogger.log("Skipped %d invalid record(s)", invalidRecords);
+            }
+
+            if (stats.getFailed() > 0 || failedFiles > 0) {
+                throw new GradleException(String.format("Failed to replay %d message(s) and read %d message file(s)", stats.getFailed(), failedFiles));
+            }
+
+            return null;
+        }, expectedErrors);
+    }
+
+    /**
+     * Replays the records of a message file or archive. The records are read on a separate thread so that reading
+     * never delays a message that is due.
+     *
+     * @param publisher publisher of the messages
+     * @param scheduler scheduler that releases each message when it is due
+     * @param messageFile message file or archive
+     * @return number of records skipped because they could not be parsed
+     * @throws IOException if an error occurs reading the message file
+     */
+    private long replayLines(SqsPublisher publisher, ReplayScheduler scheduler, File messageFile) throws IOException {
+        long invalidRecords = 0;
+
+        try (LinePrefetcher prefetcher = new LinePrefetcher(messageFile.getName(),
+                consumer -> MessageFiles.read(messageFile, (sourceId, reader) -> readLines(reader, consumer)))) {
+            List<String> lines;
+            while ((lines = prefetcher.next()) != null) {
+                for (String line : lines) {
+                    final ReplayRecord record;
+                    try {
+                        record = ReplayRecord.parse(MAPPER, line, getTimestampField(), bodyField);
+                    } catch (IllegalArgumentException e) {
+                        if (invalidRecords++ == 0) {
+                            ConsoleLogger.log("Skipping invalid record in %s: %s", messageFile.getAbsolutePath(), e.getMessage());
+                        }
+                        continue;
+                    }
+
+                    final long due = scheduler.await(record.getEventNanos(), publisher::flush);
+                    publisher.publish(record.getBody(), due);
+                }
+            }
+        }
+
+        return invalidRecords;
+    }
+
+    /**
+     * Reads the non-empty lines of a message source.
+     *
+     * @param reader reader of newline-delimited records
+     * @param consumer consumer of the lines
+     * @throws IOException if an error occurs reading the records
+     */
+    private void readLines(BufferedReader reader, Consumer<String> consumer) throws IOException {
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (!line.isEmpty()) {
+                consumer.accept(line);
+            }
+        }
+    }
+
+    @Internal
+    @Override
+    public String getGroup() {
+        return SqsModule.GROUP_NAME;
+    }
+
+    @Internal
+    @Override
+    public String getDescription() {
+        return "Replays timestamped messages to SQS queues with their original timing.";
+    }
+
+    /**
+     * Gets the names of the queues to which to replay messages.
+     *
+     * @return queue names
+     */
+    public List<String> getQueueNames() {
+        return queueNames;
+    }
+
+    /**
+     * Sets the names of the queues to which to replay messages.
+     *
+     * @param queueNames queue names
+     */
+    public void setQueueNames(List<String> queueNames) {
+        this.queueNames = queueNames;
+    }
+
+    /**
+     * Sets the names of the queues to which to replay messages. This method supports providing the queue names as
+     * a comma-delimited list of names.
+     *
+     * @param queues queue names
+     */
+    @Option(option = "queueNames", description = "Comma-delimited list of the names of the queues to which to replay")
+    public void setQueueNames(String queues) {
+        if (!StringUtils.isNullOrEmpty(queues)) {
+            setQueueNames(Arrays.stream(queues.split(","))
+                    .map(String::trim)
+                    .collect(Collectors.toList()));
+        }
+    }
+
+    /**
+     * Gets the captured message files to replay. Each line of a message file is a JSON record with the time at which
+     * the message was published. Message files may be a single file, which may be compressed, or an archive of
+     * multiple files, and are replayed one after another on a single timeline.
+     *
+     * @return message files
+     */
+    public List<File> getMessages() {
+        return messages;
+    }
+
+    /**
+     * Sets the captured message files to replay.
+     *
+     * @param messages message files
+     */
+    public void setMessages(List<File> messages) {
+        this.messages = messages;
+    }
+
+    /**
+     * Sets the captured message file to replay.
+     *
+     * @param path message file path
+     */
+    @Option(option = "message", description = "File path to the captured message file or message archive")
+    public void setMessage(String path) {
+        setMessages(Arrays.asList(Paths.get(path).toFile()));
+    }
+
+    /**
+     * Gets the name of the field of each record holding the time at which the message was published, either as an
+     * ISO-8601 timestamp or as epoch milliseconds. Defaults to <code>timestamp</code>.
+     *
+     * @return timestamp field name
+     */
+    public String getTimestampField() {
+        return timestampField != null ? timestampField : "timestamp";
+    }
+
+    /**
+     * Sets the name of the field of each record holding the time at which the message was published.
+     *
+     * @param timestampField timestamp field name
+     */
+    @Option(option = "timestampField", description = "Name of the record field holding the time the message was published")
+    public void setTimestampField(String timestampField) {
+        this.timestampField = timestampField;
+    }
+
+    /**
+     * Gets the name of the field of each record holding the message body. The whole record is published when unset.
+     *
+     * @return body field name
+     */
+    public String getBodyField() {
+        return bodyField;
+    }
+
+    /**
+     * Sets the name of the field of each record holding the message body. String values are published as is, any
+     * other value is published as JSON.
+     *
+     * @param bodyField body field name
+     */
+    @Option(option = "bodyField", description = "Name of the record field holding the message body")
+    public void setBodyField(String bodyField) {
+        this.bodyField = bodyField;
+    }
+
+    /**
+     * Gets the factor by which the replay is sped up compared to the original timing. Defaults to 1, the original
+     * timing. {@link Double#POSITIVE_INFINITY} replays messages as fast as possible.
+     *
+     * @return speed-up factor
+     */
+    public Double getSpeed() {
+        return speed != null ? speed : 1.0;
+    }
+
+    /**
+     * Sets the factor by which the replay is sped up compared to the original timing.
+     *
+     * @param speed speed-up factor
+     */
+    public void setSpeed(Double speed) {
+        this.speed = speed;
+    }
+
+    /**
+     * Sets the factor by which the replay is sped up compared to the original timing. This method supports the value
+     * <code>max</code> to replay messages as fast as possible.
+     *
+     * @param speed speed-up factor or <code>max</code>
+     */
+    @Option(option = "speed", description = "Factor by which to speed up the replay (e.g. 1, 10, or max)")
+    public void setSpeed(String speed) {
+        if (!StringUtils.isNullOrEmpty(speed)) {
+            setSpeed(MAX_SPEED.equalsIgnoreCase(speed.trim()) ? Double.POSITIVE_INFINITY : Double.parseDouble(speed.trim()));
+        }
+    }
+
+    /**
+     * Gets the maximum number of messages sent to a queue in a single SendMessageBatch request. Defaults to 10, the
+     * maximum allowed by SQS. Messages that are due are batched together, a batch is held back waiting for messages
+     * that are not yet due for no longer than the maximum hold time.
+     *
+     * @return batch size
+     */
+    public Integer getBatchSize() {
+        return batchSize != null ? batchSize : SqsMessageBatch.MAX_ENTRIES;
+    }
+
+    /**
+     * Sets the maximum number of messages sent to a queue in a single SendMessageBatch request. Must be between 1 and
+     * 10.
+     *
+     * @param batchSize batch size
+     */
+    public void setBatchSize(Integer batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Sets the maximum number of messages sent to a queue in a single SendMessageBatch request.
+     *
+     * @param batchSize batch size
+     */
+    @Option(option = "batchSize", description = "Maximum number of messages to send in a single batch request (1-10)")
+    public void setBatchSize(String batchSize) {
+        if (!StringUtils.isNullOrEmpty(batchSize)) {
+            setBatchSize(Integer.parseInt(batchSize.trim()));
+        }
+    }
+
+    /**
+     * Gets the number of threads used to send batches to the queues, which is also the number of batches sent to each
+     * queue at the same time. Replayed messages may therefore be delivered out of order. Defaults to the number of
+     * available processors.
+     *
+     * @return number of sender threads
+     */
+    public Integer getParallelism() {
+        return parallelism != null ? parallelism : Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Sets the number of threads used to send batches to the queues.
+     *
+     * @param parallelism number of sender threads
+     */
+    public void setParallelism(Integer parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Sets the number of threads used to send batches to the queues.
+     *
+     * @param parallelism number of sender threads
+     */
+    @Option(option = "parallelism", description = "Number of threads used to send messages to the queues")
+    public void setParallelism(String parallelism) {
+        if (!StringUtils.isNullOrEmpty(parallelism)) {
+            setParallelism(Integer.parseInt(parallelism.trim()));
+        }
+    }
+
+    /**
+     * Gets the maximum number of milliseconds a message that is due may be held back waiting for more messages to fill
+     * its batch. Defaults to 5. A longer hold sends fuller batches at moderate rates, a shorter hold sends each message
+     * closer to its original timing.
+     *
+     * @return maximum hold time in milliseconds
+     */
+    public Integer getMaxHoldMillis() {
+        return maxHoldMillis != null ? maxHoldMillis : DEFAULT_MAX_HOLD_MILLIS;
+    }
+
+    /**
+     * Sets the maximum number of milliseconds a message that is due may be held back waiting for more messages to fill
+     * its batch.
+     *
+     * @param maxHoldMillis maximum hold time in milliseconds
+     */
+    public void setMaxHoldMillis(Integer maxHoldMillis) {
+        this.maxHoldMillis = maxHoldMillis;
+    }
+
+    /**
+     * Sets the maximum number of milliseconds a message that is due may be held back waiting for more messages to fill
+     * its batch.
+     *
+     * @param maxHoldMillis maximum hold time in milliseconds
+     */
+    @Option(option = "maxHoldMillis", description = "Maximum milliseconds a due message may wait for more messages to fill its batch")
+    public void setMaxHoldMillis(String maxHoldMillis) {
+        if (!StringUtils.isNullOrEmpty(maxHoldMillis)) {
+            setMaxHoldMillis(Integer.parseInt(maxHoldMillis.trim()));
+        }
+    }
+}
@@ -0,0 +1,272 @@
+/**
+ * Copyright 2020-present, Nike, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the Apache-2.0 license found in
+ * the LICENSE file in the root directory of this source tree.
+ */
+package com.nike.pdm.localstack.aws.sqs;
+
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PutObjectRequest;
+import com.amazonaws.services.sqs.model.MessageAttributeValue;
+import com.nike.pdm.localstack.core.Retry;
+import org.gradle.api.GradleException;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Offloads message payloads that are too large to send through SQS to an S3 bucket, in the same way as the Amazon SQS
+ * Extended Client Library.
+ *
+ * <p>The payload is stored as an object named with a random UUID and the queue is sent a pointer to it instead:
+ * <pre>["software.amazon.payloadoffloading.PayloadS3Pointer",{"s3BucketName":"bucket","s3Key":"key"}]</pre>
+ * along with the <code>ExtendedPayloadSize</code> message attribute holding the size of the payload in bytes, so
+ * that consumers using the extended client receive the original payload.
+ *
+ * <p>Payloads are uploaded by a pool of upload threads while the publisher carries on batching and sending other
+ * messages. The number of uploads waiting for a thread is bounded, so that large payloads read ahead of the uploads
+ * cannot exhaust memory.
+ */
+final class S3PayloadOffloader implements AutoCloseable {
+
+    /**
+     * Name of the message attribute holding the size of an offloaded payload.
+     */
+    static final String PAYLOAD_SIZE_ATTRIBUTE = "ExtendedPayloadSize";
+
+    /**
+     * Maximum number of uploads per upload thread that may be pending before offloading blocks.
+     */
+    static final int MAX_PENDING_UPLOADS_PER_THREAD = 2;
+
+    private static final String POINTER_CLASS = "software.amazon.payloadoffloading.PayloadS3Pointer";
+
+    private static final AtomicInteger POOL_COUNT = new AtomicInteger();
+
+    private final AmazonS3 s3;
+    private final String bucketName;
+    private final int threshold;
+    private final ExecutorService executor;
+    private final Semaphore pending;
+    private final AtomicLong offloaded = new AtomicLong();
+
+    /**
+     * Creates an offloader.
+     *
+     * @param s3 s3 client
+     * @param bucketName name of the bucket in which to store payloads
+     * @param threshold size in bytes above which payloads are offloaded
+     * @param parallelism number of upload threads
+     */
+    S3PayloadOffloader(AmazonS3 s3, String bucketName, int threshold, int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be greater than zero: " + parallelism);
+        }
+
+        this.s3 = s3;
+        this.bucketName = bucketName;
+        this.threshold = threshold;
+        this.pending = new Semaphore(parallelism * MAX_PENDING_UPLOADS_PER_THREAD);
+
+        final int poolId = POOL_COUNT.incrementAndGet();
+        final AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(parallelism, r -> {
+            final Thread thread = new Thread(r, String.format("s3-offloader-%d-%d", poolId, threadCount.incrementAndGet()));
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Checks whether the payload of the message is large enough to be offloaded.
+     *
+     * @param message message body
+     * @return <code>true</code> if the message should be offloaded; otherwise <code>false</code>
+     */
+    boolean shouldOffload(CharSequence message) {
+        return SqsMessageBatch.utf8Length(message) > threshold;
+    }
+
+    /**
+     * Starts uploading the payload of the message. Blocks while the maximum number of uploads are already pending.
+     *
+     * @param message message body
+     * @return pointer to send in place of the message and the upload that must complete before it is sent
+     * @throws IllegalStateException if the message is a line too large to have been read
+     */
+    OffloadedPayload offload(CharSequence message) {
+        final String key = UUID.randomUUID().toString();
+        final int size = SqsMessageBatch.utf8Length(message);
+
+        // Lines still in the buffer they were read into are streamed from it rather than decoded and encoded again
+        final ByteBuffer buffer = message instanceof Utf8Line ? ((Utf8Line) message).getBytes() : null;
+
+        try {
+            pending.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GradleException("Interrupted while waiting to upload message payload", e);
+        }
+
+        final CompletableFuture<Void> upload = CompletableFuture.runAsync(() -> upload(key, message, buffer, size), executor)
+                .whenComplete((ignored, t) -> pending.release());
+
+        offloaded.incrementAndGet();
+
+        final String pointer = String.format("[\"%s\",{\"s3BucketName\":\"%s\",\"s3Key\":\"%s\"}]", POINTER_CLASS, bucketName, key);
+        final Map<String, MessageAttributeValue> attributes = Collections.singletonMap(PAYLOAD_SIZE_ATTRIBUTE,
+                new MessageAttributeValue().withDataType("Number").withStringValue(Integer.toString(size)));
+
+        return new OffloadedPayload(pointer, attributes, upload);
+    }
+
+    /**
+     * Gets the number of payloads offloaded so far.
+     *
+     * @return number of offloaded payloads
+     */
+    long getOffloaded() {
+        return offloaded.get();
+    }
+
+    private void upload(String key, CharSequence message, ByteBuffer buffer, int size) {
+        final ObjectMetadata metadata = new ObjectMetadata();
+        metadata.setContentLength(size);
+
+        final byte[] bytes = buffer == null ? message.toString().getBytes(StandardCharsets.UTF_8) : null;
+
+        Retry.execute(() -> {
+            final InputStream content = bytes != null
+                    ? new ByteArrayInputStream(bytes)
+                    : new ByteBufferInputStream(buffer.duplicate());
+
+            return s3.putObject(new PutObjectRequest(bucketName, key, content, metadata));
+        }, SqsBatchSender.DEFAULT_MAX_ATTEMPTS);
+    }
+
+    /**
+     * Waits for pending uploads to finish and shuts down the upload threads.
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+
+        try {
+            if (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Pointer to a payload stored in S3.
+     */
+    static final class OffloadedPayload {
+        private final String pointer;
+        private final Map<String, MessageAttributeValue> attributes;
+        private final CompletableFuture<Void> upload;
+
+        OffloadedPayload(String pointer, Map<String, MessageAttributeValue> attributes, CompletableFuture<Void> upload) {
+            this.pointer = pointer;
+            this.attributes = attributes;
+            this.upload = upload;
+        }
+
+        /**
+         * Gets the message body sent in place of the payload.
+         *
+         * @return pointer message body
+         */
+        String getPointer() {
+            return pointer;
+        }
+
+        /**
+         * Gets the message attributes sent with the pointer.
+         *
+         * @return message attributes
+         */
+        Map<String, MessageAttributeValue> getAttributes() {
+            return attributes;
+        }
+
+        /**
+         * Gets the upload of the payload, which must complete before the pointer is sent.
+         *
+         * @return upload
+         */
+        CompletableFuture<Void> getUpload() {
+            return upload;
+        }
+    }
+
+    /**
+     * Input stream over the remaining bytes of a buffer.
+     */
+    private static final class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+
+            final int n = Math.min(len, buffer.remaining());
+            buffer.get(b, off, n);
+            return n;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+
+        // The S3 client marks and resets the stream to resend the payload when a request is retried
+        @Override
+        public boolean markSupported() {
+            return true;
+        }
+
+        @Override
+        public synchronized void mark(int readLimit) {
+            buffer.mark();
+        }
+
+        @Override
+        public synchronized void reset() {
+            buffer.reset();
+        }
+    }
+}
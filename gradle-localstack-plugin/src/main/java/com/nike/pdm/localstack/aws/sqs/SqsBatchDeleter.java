@@ -0,0 +1,98 @@
+/**
+ * Copyright 2020-present, Nike, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the Apache-2.0 license found in
+ * the LICENSE file in the root directory of this source tree.
+ */
+package com.nike.pdm.localstack.aws.sqs;
+
+import com.amazonaws.services.sqs.AmazonSQS;
+import com.amazonaws.services.sqs.model.BatchResultErrorEntry;
+import com.amazonaws.services.sqs.model.DeleteMessageBatchRequest;
+import com.amazonaws.services.sqs.model.DeleteMessageBatchRequestEntry;
+import com.amazonaws.services.sqs.model.DeleteMessageBatchResult;
+import com.amazonaws.services.sqs.model.Message;
+import com.amazonaws.services.sqs.model.QueueDoesNotExistException;
+import com.nike.pdm.localstack.core.ConsoleLogger;
+import com.nike.pdm.localstack.core.Retry;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Deletes received messages from an SQS queue with DeleteMessageBatch requests, retrying only the entries that failed.
+ */
+final class SqsBatchDeleter {
+
+    private static final Collection<Class<? extends Throwable>> EXPECTED_ERRORS = new HashSet<>(Arrays.asList(QueueDoesNotExistException.class));
+
+    private final AmazonSQS sqs;
+    private final String queueUrl;
+
+    /**
+     * Creates a deleter.
+     *
+     * @param sqs sqs client
+     * @param queueUrl url of the queue from which the messages were received
+     */
+    SqsBatchDeleter(AmazonSQS sqs, String queueUrl) {
+        this.sqs = sqs;
+        this.queueUrl = queueUrl;
+    }
+
+    /**
+     * Deletes received messages. Entries rejected because of a sender fault, such as an expired receipt handle, are not
+     * resent. Errors caused by the queue not existing are rethrown.
+     *
+     * @param messages at most 10 received messages
+     * @return number of messages that could not be deleted
+     */
+    int delete(List<Message> messages) {
+        if (messages.isEmpty()) {
+            return 0;
+        }
+
+        final Map<String, DeleteMessageBatchRequestEntry> pending = new LinkedHashMap<>();
+        for (int i = 0; i < messages.size(); i++) {
+            pending.put(Integer.toString(i), new DeleteMessageBatchRequestEntry(Integer.toString(i), messages.get(i).getReceiptHandle()));
+        }
+
+        final int[] failures = new int[1];
+        try {
+            Retry.execute(() -> {
+                final DeleteMessageBatchResult result = sqs.deleteMessageBatch(new DeleteMessageBatchRequest(queueUrl, new ArrayList<>(pending.values())));
+                result.getSuccessful().forEach(entry -> pending.remove(entry.getId()));
+
+                for (BatchResultErrorEntry error : result.getFailed()) {
+                    if (Boolean.TRUE.equals(error.getSenderFault())) {
+                        // The receipt handle is no longer valid, resending will not help
+                        ConsoleLogger.log("Failed to delete message from queue %s: [%s] %s", queueUrl, error.getCode(), error.getMessage());
+                        pending.remove(error.getId());
+                        failures[0]++;
+                    }
+                }
+
+                if (!pending.isEmpty()) {
+                    throw new IllegalStateException(String.format("%d of %d messages were not deleted from queue: %s", pending.size(), messages.size(), queueUrl));
+                }
+
+                return null;
+            }, SqsBatchSender.DEFAULT_MAX_ATTEMPTS, EXPECTED_ERRORS);
+        } catch (RuntimeException e) {
+            if (e.getCause() instanceof QueueDoesNotExistException) {
+                throw e;
+            }
+
+            ConsoleLogger.log("Failed to delete %d messages from queue %s: %s", pending.size(), queueUrl, e.getMessage());
+            failures[0] += pending.size();
+        }
+
+        return failures[0];
+    }
+}
@@ -0,0 +1,315 @@
+/**
+ * Copyright 2020-present, Nike, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the Apache-2.0 license found in
+ * the LICENSE file in the root directory of this source tree.
+ */
+package com.nike.pdm.localstack.aws.sqs;
+
+import com.amazonaws.services.sqs.AmazonSQS;
+import com.amazonaws.services.sqs.model.BatchResultErrorEntry;
+import com.amazonaws.services.sqs.model.QueueDoesNotExistException;
+import com.amazonaws.services.sqs.model.SendMessageBatchRequest;
+import com.amazonaws.services.sqs.model.SendMessageBatchRequestEntry;
+import com.amazonaws.services.sqs.model.SendMessageBatchResult;
+import com.nike.pdm.localstack.core.ConsoleLogger;
+import com.nike.pdm.localstack.core.TokenBucket;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.IntConsumer;
+
+/**
+ * Sends batches of messages to an SQS queue, retrying only the entries that failed. Entries for FIFO queues are
+ * never delivered after a later entry of their message group.
+ */
+final class SqsBatchSender {
+
+    /**
+     * Default number of attempts made to deliver a batch before its remaining entries are counted as failed.
+     */
+    static final int DEFAULT_MAX_ATTEMPTS = 5;
+
+    /**
+     * Default number of milliseconds waited before the first resend. The wait doubles with every further attempt.
+     */
+    static final long DEFAULT_BACKOFF_MILLIS = 500;
+
+    /**
+     * Longest wait between two attempts.
+     */
+    private static final long MAX_BACKOFF_MILLIS = 10_000;
+
+    private final AmazonSQS sqs;
+    private final SqsPublishStats stats;
+    private final int maxAttempts;
+    private final long backoffMillis;
+    private final TokenBucket rateLimiter;
+
+    SqsBatchSender(AmazonSQS sqs, SqsPublishStats stats) {
+        this(sqs, stats, DEFAULT_MAX_ATTEMPTS, null);
+    }
+
+    SqsBatchSender(AmazonSQS sqs, SqsPublishStats stats, int maxAttempts) {
+        this(sqs, stats, maxAttempts, null);
+    }
+
+    /**
+     * Creates a sender.
+     *
+     * @param sqs sqs client
+     * @param stats statistics updated as batches are sent
+     * @param maxAttempts number of attempts made to deliver a batch
+     * @param rateLimiter limits the rate at which messages are sent, shared by all senders; <code>null</code> for no limit
+     */
+    SqsBatchSender(AmazonSQS sqs, SqsPublishStats stats, int maxAttempts, TokenBucket rateLimiter) {
+        this(sqs, stats, maxAttempts, DEFAULT_BACKOFF_MILLIS, rateLimiter);
+    }
+
+    /**
+     * Creates a sender.
+     *
+     * @param sqs sqs client
+     * @param stats statistics updated as batches are sent
+     * @param maxAttempts number of attempts made to deliver a batch
+     * @param backoffMillis number of milliseconds waited before the first resend, doubled for every further resend
+     * @param rateLimiter limits the rate at which messages are sent, shared by all senders; <code>null</code> for no limit
+     */
+    SqsBatchSender(AmazonSQS sqs, SqsPublishStats stats, int maxAttempts, long backoffMillis, TokenBucket rateLimiter) {
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("Max attempts must be greater than zero: " + maxAttempts);
+        }
+
+        this.sqs = sqs;
+        this.stats = stats;
+        this.maxAttempts = maxAttempts;
+        this.backoffMillis = backoffMillis;
+        this.rateLimiter = rateLimiter;
+    }
+
+    /**
+     * Sends the batch to the queue. Entries rejected because of a sender fault are counted as failed immediately, all
+     * other failed entries are resent with exponential backoff until they succeed or the attempts are exhausted, in
+     * which case the errors of the last attempt are logged. Errors caused by the queue not existing are rethrown as
+     * they cannot be recovered from by resending.
+     *
+     * <p>Entries with a message group id, which are sent to FIFO queues, are kept in order within their group. While a
+     * failed entry is resent, the later entries of its group are held back. An entry that cannot be delivered in
+     * order, because it was rejected or because a later entry of its group was already accepted, is counted as failed
+     * along with every later entry of its group that has not been sent.
+     *
+     * @param queueUrl url of the queue to which to send the batch
+     * @param batch batch of messages to send
+     * @return <code>true</code> if every message was either sent or rejected for a reason that resending cannot fix;
+     *         <code>false</code> if messages failed because the attempts were exhausted
+     */
+    boolean send(String queueUrl, SqsMessageBatch batch) {
+        return send(queueUrl, batch, null);
+    }
+
+    /**
+     * Sends the batch to the queue, as {@link #send(String, SqsMessageBatch)}, reporting each message accepted by the
+     * queue.
+     *
+     * @param queueUrl url of the queue to which to send the batch
+     * @param batch batch of messages to send
+     * @param accepted called with the index within the batch of each message accepted by the queue; <code>null</code>
+     *                 if not needed
+     * @return <code>true</code> if every message was either sent or rejected for a reason that resending cannot fix;
+     *         <code>false</code> if messages failed because the attempts were exhausted, or if any message of a FIFO
+     *         batch was not sent
+     */
+    boolean send(String queueUrl, SqsMessageBatch batch, IntConsumer accepted) {
+        if (batch.isEmpty()) {
+            return true;
+        }
+
+        final Map<String, SendMessageBatchRequestEntry> pending = new LinkedHashMap<>();
+        batch.toEntries().forEach(entry -> pending.put(entry.getId(), entry));
+
+        // Entries for FIFO queues carry a message group id, and no entry may be delivered after a later one of its group
+        final boolean ordered = pending.values().iterator().next().getMessageGroupId() != null;
+        Set<String> heldGroups = new HashSet<>();
+        boolean dropped = false;
+
+        String lastError = null;
+        for (int attempt = 1; attempt <= maxAttempts; attempt++) {
+            if (attempt > 1) {
+                // Only wait between attempts, never after the last one
+                backoff(attempt);
+            }
+
+            final List<SendMessageBatchRequestEntry> toSend = select(pending, heldGroups);
+
+            if (rateLimiter != null) {
+                // Resent entries count against the rate as well
+                rateLimiter.acquire(toSend.size());
+            }
+
+            final SendMessageBatchResult result;
+            try {
+                result = sqs.sendMessageBatch(new SendMessageBatchRequest(queueUrl).withEntries(toSend));
+            } catch (QueueDoesNotExistException e) {
+                // Nothing else can be published to a queue that no longer exists; wrapped as Retry wraps expected errors
+                throw new RuntimeException(e);
+            } catch (RuntimeException e) {
+                lastError = e.getMessage();
+                ConsoleLogger.log("Error sending %d messages to queue %s (attempt %d of %d): %s", toSend.size(), queueUrl,
+                        attempt, maxAttempts, lastError);
+                continue;
+            }
+
+            final Map<String, Integer> lastAcceptedOfGroup = new HashMap<>();
+            result.getSuccessful().forEach(entry -> {
+                final SendMessageBatchRequestEntry sent = pending.remove(entry.getId());
+                if (ordered && sent != null) {
+                    lastAcceptedOfGroup.merge(sent.getMessageGroupId(), Integer.parseInt(entry.getId()), Math::max);
+                }
+
+                if (accepted != null) {
+                    accepted.accept(Integer.parseInt(entry.getId()));
+                }
+            });
+            stats.sent(result.getSuccessful().size());
+
+            final Set<String> errors = new LinkedHashSet<>();
+            final Set<String> failedGroups = new HashSet<>();
+            for (BatchResultErrorEntry error : result.getFailed()) {
+                final SendMessageBatchRequestEntry entry = pending.get(error.getId());
+                if (entry == null) {
+                    // Already dropped along with an earlier entry of its group
+                    continue;
+                }
+
+                final String groupId = entry.getMessageGroupId();
+                if (Boolean.TRUE.equals(error.getSenderFault())) {
+                    // Sender faults will fail again no matter how many times the entry is resent
+                    logFailure(queueUrl, error);
+                    pending.remove(error.getId());
+                    stats.failed(1);
+
+                    if (ordered) {
+                        dropped = true;
+                        dropGroup(queueUrl, pending, groupId);
+                    }
+                } else if (ordered && lastAcceptedOfGroup.getOrDefault(groupId, -1) > Integer.parseInt(error.getId())) {
+                    // A later entry of the group was accepted, so resending this one would deliver the group out of order
+                    logFailure(queueUrl, error);
+                    pending.remove(error.getId());
+                    stats.failed(1);
+                    dropped = true;
+                    dropGroup(queueUrl, pending, groupId);
+                } else {
+                    errors.add(String.format("[%s] %s", error.getCode(), error.getMessage()));
+                    if (ordered) {
+                        failedGroups.add(groupId);
+                    }
+                }
+            }
+
+            if (pending.isEmpty()) {
+                return !dropped;
+            }
+
+            // The later entries of a group are only sent once the entry that failed before them has been accepted
+            heldGroups = failedGroups;
+
+            lastError = String.join(", ", errors);
+            ConsoleLogger.log("%d of %d messages in batch were not accepted by queue %s (attempt %d of %d): %s", pending.size(),
+                    batch.size(), queueUrl, attempt, maxAttempts, lastError);
+        }
+
+        ConsoleLogger.log("Failed to publish %d messages to queue %s after %d attempts: %s", pending.size(), queueUrl, maxAttempts, lastError);
+        stats.failed(pending.size());
+        return false;
+    }
+
+    /**
+     * Selects the pending entries to send, holding back all but the first pending entry of each held group.
+     */
+    private static List<SendMessageBatchRequestEntry> select(Map<String, SendMessageBatchRequestEntry> pending, Set<String> heldGroups) {
+        if (heldGroups.isEmpty()) {
+            return new ArrayList<>(pending.values());
+        }
+
+        final List<SendMessageBatchRequestEntry> selected = new ArrayList<>(pending.size());
+        final Set<String> seenGroups = new HashSet<>();
+        for (SendMessageBatchRequestEntry entry : pending.values()) {
+            final String groupId = entry.getMessageGroupId();
+            if (!heldGroups.contains(groupId) || seenGroups.add(groupId)) {
+                selected.add(entry);
+            }
+        }
+
+        return selected;
+    }
+
+    /**
+     * Counts every pending entry of a message group as failed without sending it, because an earlier entry of the
+     * group was dropped.
+     */
+    private void dropGroup(String queueUrl, Map<String, SendMessageBatchRequestEntry> pending, String groupId) {
+        final int before = pending.size();
+        pending.values().removeIf(entry -> groupId.equals(entry.getMessageGroupId()));
+
+        final int skipped = before - pending.size();
+        if (skipped > 0) {
+            ConsoleLogger.log("Skipped %d later messages of message group %s for queue %s: an earlier message of the group failed",
+                    skipped, groupId, queueUrl);
+            stats.failed(skipped);
+        }
+    }
+
+    private void backoff(int attempt) {
+        try {
+            Thread.sleep(Math.min(MAX_BACKOFF_MILLIS, backoffMillis << Math.min(attempt - 2, 20)));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while sending messages", e);
+        }
+    }
+
+    /**
+     * Counts a message that cannot be sent to the queue as failed without sending it.
+     *
+     * @param queueUrl url of the queue to which the message was to be sent
+     * @param reason reason the message was rejected
+     */
+    void reject(String queueUrl, String reason) {
+        ConsoleLogger.log("Failed to publish message to queue %s: %s", queueUrl, reason);
+        stats.failed(1);
+    }
+
+    /**
+     * Counts a message that cannot be sent to any queue as failed without sending it.
+     *
+     * @param reason reason the message was rejected
+     */
+    void reject(String reason) {
+        ConsoleLogger.log("Failed to publish message: %s", reason);
+        stats.failed(1);
+    }
+
+    /**
+     * Counts a batch of messages that cannot be sent to the queue as failed without sending it.
+     *
+     * @param queueUrl url of the queue to which the batch was to be sent
+     * @param batch batch of messages
+     * @param reason reason the batch was rejected
+     */
+    void reject(String queueUrl, SqsMessageBatch batch, String reason) {
+        ConsoleLogger.log("Failed to publish %d messages to queue %s: %s", batch.size(), queueUrl, reason);
+        stats.failed(batch.size());
+    }
+
+    private void logFailure(String queueUrl, BatchResultErrorEntry error) {
+        ConsoleLogger.log("Failed to publish message to queue %s: [%s] %s", queueUrl, error.getCode(), error.getMessage());
+    }
+}
@@ -0,0 +1,358 @@
+/**
+ * Copyright 2020-present, Nike, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the Apache-2.0 license found in
+ * the LICENSE file in the root directory of this source tree.
+ */
+package com.nike.pdm.localstack.aws.sqs;
+
+import com.amazonaws.services.sqs.AmazonSQS;
+import com.amazonaws.services.sqs.model.Message;
+import com.amazonaws.services.sqs.model.QueueDoesNotExistException;
+import com.amazonaws.services.sqs.model.ReceiveMessageRequest;
+import com.nike.pdm.localstack.core.Retry;
+import com.nike.pdm.localstack.core.TokenBucket;
+import org.gradle.api.GradleException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Simulates the consumers of SQS queues.
+ *
+ * <p>Several workers long poll each queue, receiving up to 10 messages per call. Each message is processed by waiting
+ * for the processing delay, after which a percentage of the messages fail and the rest are deleted with a single
+ * DeleteMessageBatch request. Failed messages are left on the queue, so they become visible again once their visibility
+ * timeout expires and are moved to the deadletter queue of the queue, if it has one, once they have been received too
+ * often. The rate at which all workers together process messages may be limited.
+ *
+ * <p>Consuming stops once the duration has passed, or once no worker has received a message for the idle timeout.
+ */
+final class SqsConsumerSimulator {
+
+    static final String SENT_TIMESTAMP_ATTRIBUTE = "SentTimestamp";
+
+    /**
+     * Maximum number of rows in the rendered throughput timeline.
+     */
+    static final int MAX_THROUGHPUT_ROWS = 30;
+
+    private static final Collection<Class<? extends Throwable>> EXPECTED_ERRORS = new HashSet<>(Arrays.asList(QueueDoesNotExistException.class));
+
+    private static final AtomicInteger POOL_COUNT = new AtomicInteger();
+
+    private final AmazonSQS sqs;
+    private final List<String> queueUrls;
+    private final int workersPerQueue;
+    private final long idleTimeoutNanos;
+    private final long durationNanos;
+    private final int waitTimeSeconds;
+    private final long processingDelayMillis;
+    private final double failurePercent;
+    private final TokenBucket rateLimiter;
+
+    private final AtomicLongArray received;
+    private final AtomicLongArray consumed;
+    private final AtomicLongArray failed;
+    private final AtomicLong deleteFailures = new AtomicLong();
+    private final Map<Long, AtomicLong> consumedPerSecond = new ConcurrentHashMap<>();
+    private final LatencyHistogram queueLatency = new LatencyHistogram();
+    private final LatencyHistogram processingLatency = new LatencyHistogram();
+    private final AtomicLong lastReceivedNanos = new AtomicLong();
+    private volatile boolean stopped;
+
+    private long startNanos;
+    private volatile long stopNanos;
+    private ExecutorService executor;
+    private List<Future<Void>> running;
+
+    /**
+     * Creates a consumer simulator.
+     *
+     * @param sqs sqs client
+     * @param queueUrls urls of the queues to consume
+     * @param workersPerQueue number of workers consuming each queue
+     * @param idleTimeoutMillis number of milliseconds without receiving a message after which consuming stops
+     * @param durationMillis number of milliseconds after which consuming stops; <code>0</code> to stop only when idle
+     * @param processingDelayMillis number of milliseconds spent processing each message
+     * @param failurePercent percentage of the messages that fail processing and are not deleted
+     * @param rateLimiter limits the rate at which messages are processed; <code>null</code> for no limit
+     */
+    SqsConsumerSimulator(AmazonSQS sqs,
+                         List<String> queueUrls,
+                         int workersPerQueue,
+                         long idleTimeoutMillis,
+                         long durationMillis,
+                         long processingDelayMillis,
+                         double failurePercent,
+                         TokenBucket rateLimiter) {
+        if (workersPerQueue < 1) {
+            throw new IllegalArgumentException("Workers must be greater than zero: " + workersPerQueue);
+        }
+
+        if (failurePercent < 0 || failurePercent > 100) {
+            throw new IllegalArgumentException("Failure percentage must be between 0 and 100: " + failurePercent);
+        }
+
+        this.sqs = sqs;
+        this.queueUrls = queueUrls;
+        this.workersPerQueue = workersPerQueue;
+        this.idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(idleTimeoutMillis);
+        this.durationNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, durationMillis));
+        this.waitTimeSeconds = (int) Math.min(Math.min(SqsQueueDrainer.MAX_WAIT_TIME_SECONDS, TimeUnit.MILLISECONDS.toSeconds(idleTimeoutMillis)),
+                durationMillis > 0 ? TimeUnit.MILLISECONDS.toSeconds(durationMillis) : Long.MAX_VALUE);
+        this.processingDelayMillis = Math.max(0, processingDelayMillis);
+        this.failurePercent = failurePercent;
+        this.rateLimiter = rateLimiter;
+        this.received = new AtomicLongArray(queueUrls.size());
+        this.consumed = new AtomicLongArray(queueUrls.size());
+        this.failed = new AtomicLongArray(queueUrls.size());
+    }
+
+    /**
+     * Starts the workers.
+     */
+    void start() {
+        final int poolId = POOL_COUNT.incrementAndGet();
+        final AtomicInteger threadCount = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(queueUrls.size() * workersPerQueue, r -> {
+            final Thread thread = new Thread(r, String.format("sqs-consumer-%d-%d", poolId, threadCount.incrementAndGet()));
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        startNanos = System.nanoTime();
+        lastReceivedNanos.set(startNanos);
+
+        running = new ArrayList<>(queueUrls.size() * workersPerQueue);
+        for (int queue = 0; queue < queueUrls.size(); queue++) {
+            final int index = queue;
+            final SqsBatchDeleter deleter = new SqsBatchDeleter(sqs, queueUrls.get(queue));
+
+            for (int i = 0; i < workersPerQueue; i++) {
+                running.add(executor.submit(() -> {
+                    try {
+                        consume(index, deleter);
+                    } catch (Exception e) {
+                        stopped = true;
+                        throw e;
+                    }
+
+                    return null;
+                }));
+            }
+        }
+    }
+
+    /**
+     * Waits for consuming to stop.
+     *
+     * @throws GradleException if a worker failed
+     */
+    void await() {
+        try {
+            for (Future<Void> worker : running) {
+                try {
+                    worker.get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    stopped = true;
+                    throw new GradleException("Interrupted while consuming queues", e);
+                } catch (ExecutionException e) {
+                    throw new GradleException("Error occurred while consuming queues: " + e.getCause().getMessage(), e.getCause());
+                }
+            }
+        } finally {
+            stopNanos = System.nanoTime();
+            executor.shutdownNow();
+        }
+    }
+
+    long getReceived(int queue) {
+        return received.get(queue);
+    }
+
+    long getConsumed(int queue) {
+        return consumed.get(queue);
+    }
+
+    long getFailed(int queue) {
+        return failed.get(queue);
+    }
+
+    /**
+     * Gets the number of processed messages that could not be deleted, and so will be received again.
+     *
+     * @return number of messages
+     */
+    long getDeleteFailures() {
+        return deleteFailures.get();
+    }
+
+    long getElapsedMillis() {
+        final long end = stopNanos != 0 ? stopNanos : System.nanoTime();
+        return TimeUnit.NANOSECONDS.toMillis(end - startNanos);
+    }
+
+    /**
+     * Gets the histogram of the time messages spent on their queue before they were received, based on the time SQS
+     * reports they were sent.
+     *
+     * @return queue latency histogram
+     */
+    LatencyHistogram getQueueLatency() {
+        return queueLatency;
+    }
+
+    /**
+     * Gets the histogram of the time from receiving messages to having deleted them, including any wait for the rate
+     * limit.
+     *
+     * @return processing latency histogram
+     */
+    LatencyHistogram getProcessingLatency() {
+        return processingLatency;
+    }
+
+    /**
+     * Renders the number of messages consumed per second over the run, with consecutive seconds grouped together so
+     * that long runs still fit in a few rows.
+     *
+     * @return rendered throughput timeline
+     */
+    String renderThroughput() {
+        final StringBuilder out = new StringBuilder("Throughput (messages consumed per second)").append(System.lineSeparator());
+
+        final long seconds = Math.max(1, (getElapsedMillis() + 999) / 1000);
+        final long secondsPerRow = (seconds + MAX_THROUGHPUT_ROWS - 1) / MAX_THROUGHPUT_ROWS;
+        final int rows = (int) ((seconds + secondsPerRow - 1) / secondsPerRow);
+
+        final double[] rates = new double[rows];
+        double highest = 0;
+        for (int row = 0; row < rows; row++) {
+            final long from = row * secondsPerRow;
+            final long to = Math.min(seconds, from + secondsPerRow);
+
+            long count = 0;
+            for (long second = from; second < to; second++) {
+                final AtomicLong perSecond = consumedPerSecond.get(second);
+                count += perSecond != null ? perSecond.get() : 0;
+            }
+
+            rates[row] = (double) count / (to - from);
+            highest = Math.max(highest, rates[row]);
+        }
+
+        for (int row = 0; row < rows; row++) {
+            final long from = row * secondsPerRow;
+            out.append(String.format("  %6d - %6d s | %-50s %.1f%n", from, Math.min(seconds, from + secondsPerRow),
+                    LatencyHistogram.bar(Math.round(rates[row] * 100), Math.round(highest * 100)), rates[row]));
+        }
+
+        return out.toString().trim();
+    }
+
+    private void consume(int queue, SqsBatchDeleter deleter) {
+        final ReceiveMessageRequest request = new ReceiveMessageRequest(queueUrls.get(queue))
+                .withMaxNumberOfMessages(SqsQueueDrainer.MAX_MESSAGES_PER_RECEIVE)
+                .withWaitTimeSeconds(waitTimeSeconds)
+                .withAttributeNames(SENT_TIMESTAMP_ATTRIBUTE);
+
+        while (!stopped && !isPastDuration()) {
+            final List<Message> messages = Retry.execute(() -> sqs.receiveMessage(request).getMessages(),
+                    SqsBatchSender.DEFAULT_MAX_ATTEMPTS, EXPECTED_ERRORS);
+
+            if (messages.isEmpty()) {
+                if (System.nanoTime() - lastReceivedNanos.get() >= idleTimeoutNanos) {
+                    return;
+                }
+
+                continue;
+            }
+
+            final long receivedNanos = System.nanoTime();
+            lastReceivedNanos.set(receivedNanos);
+            received.addAndGet(queue, messages.size());
+
+            final long receivedMillis = System.currentTimeMillis();
+            for (Message message : messages) {
+                final String sentTimestamp = message.getAttributes().get(SENT_TIMESTAMP_ATTRIBUTE);
+                if (sentTimestamp != null) {
+                    queueLatency.record(receivedMillis - Long.parseLong(sentTimestamp));
+                }
+            }
+
+            final List<Message> processed = process(queue, messages);
+            if (processed.isEmpty()) {
+                continue;
+            }
+
+            final int notDeleted = deleter.delete(processed);
+            deleteFailures.addAndGet(notDeleted);
+
+            final long deletedNanos = System.nanoTime();
+            final int deleted = processed.size() - notDeleted;
+            for (int i = 0; i < deleted; i++) {
+                processingLatency.record(TimeUnit.NANOSECONDS.toMillis(deletedNanos - receivedNanos));
+            }
+
+            consumed.addAndGet(queue, deleted);
+            consumedPerSecond.computeIfAbsent(TimeUnit.NANOSECONDS.toSeconds(deletedNanos - startNanos), second -> new AtomicLong())
+                    .addAndGet(deleted);
+        }
+    }
+
+    /**
+     * Processes received messages.
+     *
+     * @param queue index of the queue the messages were received from
+     * @param messages received messages
+     * @return messages that were processed successfully and should be deleted
+     */
+    private List<Message> process(int queue, List<Message> messages) {
+        final List<Message> processed = new ArrayList<>(messages.size());
+
+        for (Message message : messages) {
+            if (rateLimiter != null) {
+                rateLimiter.acquire(1);
+            }
+
+            if (processingDelayMillis > 0) {
+                try {
+                    Thread.sleep(processingDelayMillis);
+                } catch (InterruptedException e) {
+                    // Messages not yet processed become visible again
+                    Thread.currentThread().interrupt();
+                    return processed;
+                }
+            }
+
+            if (failurePercent > 0 && ThreadLocalRandom.current().nextDouble() * 100 < failurePercent) {
+                failed.incrementAndGet(queue);
+            } else {
+                processed.add(message);
+            }
+        }
+
+        return processed;
+    }
+
+    private boolean isPastDuration() {
+        return durationNanos > 0 && System.nanoTime() - startNanos >= durationNanos;
+    }
+}
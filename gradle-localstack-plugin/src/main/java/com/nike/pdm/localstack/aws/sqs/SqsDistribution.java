@@ -0,0 +1,164 @@
+/**
+ * Copyright 2020-present, Nike, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the Apache-2.0 license found in
+ * the LICENSE file in the root directory of this source tree.
+ */
+package com.nike.pdm.localstack.aws.sqs;
+
+import org.gradle.api.Transformer;
+
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
+/**
+ * Chooses the queues to which each published message is sent.
+ */
+final class SqsDistribution {
+
+    /**
+     * Queue index returned by {@link #select(String, FifoKeyExtractor.Keys)} when a message is sent to every queue.
+     */
+    static final int ALL_QUEUES = -1;
+
+    private final Mode mode;
+    private final int queueCount;
+    private final JsonFieldReader keyReader;
+    private final Transformer<String, String> keyExtractor;
+    private long next;
+
+    /**
+     * Creates a distribution.
+     *
+     * @param mode distribution mode
+     * @param queueCount number of queues across which messages are distributed
+     * @param keyField path of the field holding the key hashed by {@link Mode#KEY_HASH} or <code>null</code>
+     * @param keyExtractor computes the key hashed by {@link Mode#KEY_HASH} from the message body or <code>null</code>;
+     *                     takes precedence over the key field
+     */
+    SqsDistribution(Mode mode, int queueCount, String keyField, Transformer<String, String> keyExtractor) {
+        this.mode = mode;
+        this.queueCount = queueCount;
+        this.keyExtractor = keyExtractor;
+        this.keyReader = mode == Mode.KEY_HASH && keyExtractor == null && keyField != null && !keyField.trim().isEmpty()
+                ? new JsonFieldReader(keyField)
+                : null;
+    }
+
+    /**
+     * Checks whether every message is sent to every queue.
+     *
+     * @return <code>true</code> if messages are broadcast; otherwise <code>false</code>
+     */
+    boolean isBroadcast() {
+        return mode == Mode.BROADCAST;
+    }
+
+    /**
+     * Checks whether the distribution reads the key of each message.
+     *
+     * @return <code>true</code> if the message body is needed to select its queue; otherwise <code>false</code>
+     */
+    boolean needsKey() {
+        return mode == Mode.KEY_HASH && (keyReader != null || keyExtractor != null);
+    }
+
+    /**
+     * Selects the queue to which to send a message. Without a key field or extractor, messages for FIFO queues are
+     * distributed by their message group id so that each group is sent to a single queue.
+     *
+     * @param message message body, only read when {@link #needsKey()}
+     * @param fifoKeys ids of a message for FIFO queues or <code>null</code>
+     * @return index of the queue or {@link #ALL_QUEUES}
+     * @throws IllegalArgumentException if the key of the message cannot be extracted
+     */
+    int select(String message, FifoKeyExtractor.Keys fifoKeys) {
+        switch (mode) {
+            case ROUND_ROBIN:
+                return (int) (next++ % queueCount);
+            case KEY_HASH:
+                return Math.floorMod(hash(key(message, fifoKeys)), queueCount);
+            default:
+                return ALL_QUEUES;
+        }
+    }
+
+    private String key(String message, FifoKeyExtractor.Keys fifoKeys) {
+        final String key;
+        if (keyExtractor != null) {
+            key = keyExtractor.transform(message);
+        } else if (keyReader != null) {
+            key = keyReader.read(message)[0];
+        } else if (fifoKeys != null) {
+            key = fifoKeys.getGroupId();
+        } else {
+            throw new IllegalArgumentException("No distribution key field or extractor configured");
+        }
+
+        if (key == null) {
+            throw new IllegalArgumentException("Message has no distribution key");
+        }
+
+        return key;
+    }
+
+    /**
+     * Hashes a key. The hash depends only on the key so that a key is sent to the same queue on every run. It is mixed
+     * differently from the hash choosing the lane of a message group within a queue, so that both are spread evenly
+     * when the key is the message group id.
+     *
+     * @param key key
+     * @return hash
+     */
+    private static int hash(String key) {
+        int h = key.hashCode();
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    /**
+     * How messages are distributed across queues.
+     */
+    enum Mode {
+        /**
+         * Every message is sent to every queue.
+         */
+        BROADCAST("broadcast"),
+
+        /**
+         * Each message is sent to the next queue in turn.
+         */
+        ROUND_ROBIN("roundRobin"),
+
+        /**
+         * Each message is sent to the queue chosen by the hash of its key.
+         */
+        KEY_HASH("keyHash");
+
+        private final String optionName;
+
+        Mode(String optionName) {
+            this.optionName = optionName;
+        }
+
+        /**
+         * Gets the mode with the given name, ignoring case.
+         *
+         * @param name mode name
+         * @return mode
+         * @throws IllegalArgumentException if there is no mode with the name
+         */
+        static Mode fromName(String name) {
+            return Arrays.stream(values())
+                    .filter(mode -> mode.optionName.equalsIgnoreCase(name.trim()))
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalArgumentException(String.format("Unknown distribution '%s', expected one of: %s", name,
+                            Arrays.stream(values()).map(mode -> mode.optionName).collect(Collectors.joining(", ")))));
+        }
+    }
+}
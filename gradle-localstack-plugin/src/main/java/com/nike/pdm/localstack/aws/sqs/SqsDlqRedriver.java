@@ -0,0 +1,260 @@
+/**
+ * Copyright 2020-present, Nike, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the Apache-2.0 license found in
+ * the LICENSE file in the root directory of this source tree.
+ */
+package com.nike.pdm.localstack.aws.sqs;
+
+import com.amazonaws.services.sqs.AmazonSQS;
+import com.amazonaws.services.sqs.model.Message;
+import com.amazonaws.services.sqs.model.MessageAttributeValue;
+import com.amazonaws.services.sqs.model.QueueDoesNotExistException;
+import com.amazonaws.services.sqs.model.ReceiveMessageRequest;
+import com.nike.pdm.localstack.core.Retry;
+import com.nike.pdm.localstack.core.TokenBucket;
+import org.gradle.api.GradleException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Moves the messages of a deadletter queue back to a source queue.
+ *
+ * <p>Several workers long poll the deadletter queue at once, each receiving up to 10 messages per call, sending them
+ * to the source queue with SendMessageBatch, and deleting only the messages the source queue accepted with a single
+ * DeleteMessageBatch request. Each worker holds no more than the messages of a single receive, so memory use does not
+ * grow with the size of the deadletter queue.
+ *
+ * <p>Messages keep their body and message attributes. Messages moved to a FIFO queue keep their message group id and
+ * are deduplicated by their message id, which stays the same if they have to be moved again, rather than by their
+ * original deduplication id, which SQS may still remember from when they were first sent.
+ *
+ * <p>Messages that cannot be sent are left on the deadletter queue and are not tried again by the same redrive.
+ * Redriving stops once no worker has received a message to move for the idle timeout.
+ */
+final class SqsDlqRedriver {
+
+    private static final String MESSAGE_GROUP_ID_ATTRIBUTE = "MessageGroupId";
+
+    private static final Collection<Class<? extends Throwable>> EXPECTED_ERRORS = new HashSet<>(Arrays.asList(QueueDoesNotExistException.class));
+
+    private static final AtomicInteger POOL_COUNT = new AtomicInteger();
+
+    private final AmazonSQS sqs;
+    private final String dlqUrl;
+    private final String sourceUrl;
+    private final boolean fifo;
+    private final int workers;
+    private final long idleTimeoutNanos;
+    private final int waitTimeSeconds;
+    private final SqsBatchSender sender;
+    private final SqsBatchDeleter deleter;
+    private final Set<String> failedMessageIds = ConcurrentHashMap.newKeySet();
+    private final AtomicLong lastReceivedNanos = new AtomicLong();
+    private final AtomicLong deleteFailures = new AtomicLong();
+    private volatile boolean stopped;
+
+    private ExecutorService executor;
+    private List<Future<Void>> running;
+
+    /**
+     * Creates a redriver.
+     *
+     * @param sqs sqs client
+     * @param dlqUrl url of the deadletter queue
+     * @param sourceUrl url of the queue to which to move the messages
+     * @param workers number of workers moving messages
+     * @param idleTimeoutMillis number of milliseconds without receiving a message after which redriving stops
+     * @param stats statistics updated as messages are moved
+     * @param rateLimiter limits the rate at which messages are moved; <code>null</code> for no limit
+     */
+    SqsDlqRedriver(AmazonSQS sqs,
+                   String dlqUrl,
+                   String sourceUrl,
+                   int workers,
+                   long idleTimeoutMillis,
+                   SqsPublishStats stats,
+                   TokenBucket rateLimiter) {
+        if (workers < 1) {
+            throw new IllegalArgumentException("Workers must be greater than zero: " + workers);
+        }
+
+        this.sqs = sqs;
+        this.dlqUrl = dlqUrl;
+        this.sourceUrl = sourceUrl;
+        this.fifo = sourceUrl.endsWith(SqsTaskUtil.FIFO_SUFFIX);
+        this.workers = workers;
+        this.idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(idleTimeoutMillis);
+        this.waitTimeSeconds = (int) Math.min(SqsQueueDrainer.MAX_WAIT_TIME_SECONDS, TimeUnit.MILLISECONDS.toSeconds(idleTimeoutMillis));
+        this.sender = new SqsBatchSender(sqs, stats, SqsBatchSender.DEFAULT_MAX_ATTEMPTS, rateLimiter);
+        this.deleter = new SqsBatchDeleter(sqs, dlqUrl);
+    }
+
+    /**
+     * Starts the workers.
+     */
+    void start() {
+        final int poolId = POOL_COUNT.incrementAndGet();
+        final AtomicInteger threadCount = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(workers, r -> {
+            final Thread thread = new Thread(r, String.format("sqs-redriver-%d-%d", poolId, threadCount.incrementAndGet()));
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        lastReceivedNanos.set(System.nanoTime());
+
+        running = new ArrayList<>(workers);
+        for (int i = 0; i < workers; i++) {
+            running.add(executor.submit(() -> {
+                try {
+                    redrive();
+                } catch (Exception e) {
+                    stopped = true;
+                    throw e;
+                }
+
+                return null;
+            }));
+        }
+    }
+
+    /**
+     * Waits for the deadletter queue to be redriven.
+     *
+     * @throws GradleException if a worker failed
+     */
+    void await() {
+        try {
+            for (Future<Void> worker : running) {
+                try {
+                    worker.get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    stopped = true;
+                    throw new GradleException("Interrupted while redriving queue: " + dlqUrl, e);
+                } catch (ExecutionException e) {
+                    throw new GradleException(String.format("Error occurred while redriving queue %s: %s", dlqUrl, e.getCause().getMessage()), e.getCause());
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Gets the number of messages that were sent to the source queue but could not be deleted from the deadletter
+     * queue, and so may be moved again.
+     *
+     * @return number of messages
+     */
+    long getDeleteFailures() {
+        return deleteFailures.get();
+    }
+
+    private void redrive() {
+        final ReceiveMessageRequest request = new ReceiveMessageRequest(dlqUrl)
+                .withMaxNumberOfMessages(SqsQueueDrainer.MAX_MESSAGES_PER_RECEIVE)
+                .withWaitTimeSeconds(waitTimeSeconds)
+                .withMessageAttributeNames("All");
+
+        if (fifo) {
+            request.withAttributeNames(MESSAGE_GROUP_ID_ATTRIBUTE);
+        }
+
+        while (!stopped) {
+            // Messages that already failed become visible again, they are left for the next redrive
+            final List<Message> messages = Retry.execute(() -> sqs.receiveMessage(request).getMessages(),
+                    SqsBatchSender.DEFAULT_MAX_ATTEMPTS, EXPECTED_ERRORS)
+                    .stream()
+                    .filter(message -> !failedMessageIds.contains(message.getMessageId()))
+                    .collect(Collectors.toList());
+
+            if (messages.isEmpty()) {
+                if (System.nanoTime() - lastReceivedNanos.get() >= idleTimeoutNanos) {
+                    return;
+                }
+
+                continue;
+            }
+
+            lastReceivedNanos.set(System.nanoTime());
+
+            move(messages);
+        }
+    }
+
+    /**
+     * Sends received messages to the source queue and deletes those that were accepted from the deadletter queue.
+     *
+     * @param messages messages received from the deadletter queue
+     */
+    private void move(List<Message> messages) {
+        final List<Message> accepted = new ArrayList<>(messages.size());
+        final List<Message> batched = new ArrayList<>(SqsMessageBatch.MAX_ENTRIES);
+        SqsMessageBatch batch = new SqsMessageBatch(SqsMessageBatch.MAX_ENTRIES);
+
+        for (Message message : messages) {
+            FifoKeyExtractor.Keys keys = null;
+            if (fifo) {
+                final String groupId = message.getAttributes().get(MESSAGE_GROUP_ID_ATTRIBUTE);
+                if (groupId == null) {
+                    sender.reject(sourceUrl, "Message has no message group id: " + message.getMessageId());
+                    failedMessageIds.add(message.getMessageId());
+                    continue;
+                }
+
+                keys = new FifoKeyExtractor.Keys(groupId, message.getMessageId());
+            }
+
+            final Map<String, MessageAttributeValue> attributes = message.getMessageAttributes().isEmpty() ? null : message.getMessageAttributes();
+
+            // Ten messages received together may still exceed the payload limit of a single batch
+            if (!batch.isEmpty() && !batch.canAdd(message.getBody(), attributes)) {
+                send(batch, batched, accepted);
+                batch = new SqsMessageBatch(SqsMessageBatch.MAX_ENTRIES);
+                batched.clear();
+            }
+
+            batch.add(message.getBody(), keys, attributes);
+            batched.add(message);
+        }
+
+        send(batch, batched, accepted);
+
+        deleteFailures.addAndGet(deleter.delete(accepted));
+    }
+
+    private void send(SqsMessageBatch batch, List<Message> batched, List<Message> accepted) {
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        final boolean[] sent = new boolean[batched.size()];
+        sender.send(sourceUrl, batch, i -> sent[i] = true);
+
+        for (int i = 0; i < sent.length; i++) {
+            if (sent[i]) {
+                accepted.add(batched.get(i));
+            } else {
+                failedMessageIds.add(batched.get(i).getMessageId());
+            }
+        }
+    }
+}
@@ -0,0 +1,217 @@
+/**
+ * Copyright 2020-present, Nike, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the Apache-2.0 license found in
+ * the LICENSE file in the root directory of this source tree.
+ */
+package com.nike.pdm.localstack.aws.sqs;
+
+import com.amazonaws.services.sqs.model.MessageAttributeValue;
+import com.amazonaws.services.sqs.model.SendMessageBatchRequestEntry;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Accumulates messages into a single SQS SendMessageBatch request while respecting the SQS limits on the number of
+ * entries and the total payload size of a batch.
+ */
+final class SqsMessageBatch {
+
+    /**
+     * Maximum number of entries allowed in a single SendMessageBatch request.
+     */
+    static final int MAX_ENTRIES = 10;
+
+    /**
+     * Maximum total payload size, in bytes, of a single message or SendMessageBatch request.
+     */
+    static final int MAX_PAYLOAD_BYTES = 262_144;
+
+    private final int maxEntries;
+    private final List<CharSequence> messages;
+    private List<FifoKeyExtractor.Keys> keys;
+    private List<Map<String, MessageAttributeValue>> attributes;
+    private int payloadBytes;
+
+    SqsMessageBatch(int maxEntries) {
+        if (maxEntries < 1 || maxEntries > MAX_ENTRIES) {
+            throw new IllegalArgumentException(String.format("Batch size must be between 1 and %d: %d", MAX_ENTRIES, maxEntries));
+        }
+
+        this.maxEntries = maxEntries;
+        this.messages = new ArrayList<>(maxEntries);
+    }
+
+    /**
+     * Checks whether the message can be added to this batch without exceeding the entry or payload limits.
+     *
+     * @param message message body
+     * @return <code>true</code> if the message fits in the batch; otherwise <code>false</code>
+     */
+    boolean canAdd(CharSequence message) {
+        return messages.size() < maxEntries && payloadBytes + utf8Length(message) <= MAX_PAYLOAD_BYTES;
+    }
+
+    /**
+     * Checks whether the message and its message attributes can be added to this batch without exceeding the entry or
+     * payload limits.
+     *
+     * @param message message body
+     * @param messageAttributes message attributes or <code>null</code> for none
+     * @return <code>true</code> if the message fits in the batch; otherwise <code>false</code>
+     */
+    boolean canAdd(CharSequence message, Map<String, MessageAttributeValue> messageAttributes) {
+        return messages.size() < maxEntries
+                && payloadBytes + utf8Length(message) + attributesLength(messageAttributes) <= MAX_PAYLOAD_BYTES;
+    }
+
+    /**
+     * Adds the message to this batch.
+     *
+     * @param message message body
+     */
+    void add(CharSequence message) {
+        messages.add(message);
+        payloadBytes += utf8Length(message);
+    }
+
+    /**
+     * Adds a message destined for a FIFO queue, or with message attributes, to this batch. The attributes count
+     * towards the payload size of the batch. Messages with and without message group ids must not be mixed in a batch.
+     *
+     * @param message message body
+     * @param messageKeys message group and deduplication ids of the message or <code>null</code> for standard queues
+     * @param messageAttributes message attributes or <code>null</code> for none
+     */
+    void add(CharSequence message, FifoKeyExtractor.Keys messageKeys, Map<String, MessageAttributeValue> messageAttributes) {
+        if (messageKeys != null && keys == null) {
+            keys = new ArrayList<>(maxEntries);
+        }
+
+        if (messageAttributes != null && attributes == null) {
+            attributes = new ArrayList<>(maxEntries);
+            messages.forEach(m -> attributes.add(null));
+        }
+
+        add(message);
+
+        if (keys != null) {
+            keys.add(messageKeys);
+        }
+
+        if (attributes != null) {
+            attributes.add(messageAttributes);
+            payloadBytes += attributesLength(messageAttributes);
+        }
+    }
+
+    /**
+     * Checks whether the batch has reached the maximum number of entries.
+     *
+     * @return <code>true</code> if the batch is full; otherwise <code>false</code>
+     */
+    boolean isFull() {
+        return messages.size() >= maxEntries;
+    }
+
+    boolean isEmpty() {
+        return messages.isEmpty();
+    }
+
+    int size() {
+        return messages.size();
+    }
+
+    int getPayloadBytes() {
+        return payloadBytes;
+    }
+
+    /**
+     * Converts the batch into request entries. Entry ids are the index of the message within the batch. Message bodies
+     * that are not already strings, such as {@link Utf8Line}s, are converted to strings here, when they are sent.
+     *
+     * @return batch request entries
+     */
+    List<SendMessageBatchRequestEntry> toEntries() {
+        final List<SendMessageBatchRequestEntry> entries = new ArrayList<>(messages.size());
+        for (int i = 0; i < messages.size(); i++) {
+            final SendMessageBatchRequestEntry entry = new SendMessageBatchRequestEntry(Integer.toString(i), messages.get(i).toString());
+            if (keys != null) {
+                entry.setMessageGroupId(keys.get(i).getGroupId());
+                entry.setMessageDeduplicationId(keys.get(i).getDeduplicationId());
+            }
+
+            if (attributes != null && attributes.get(i) != null) {
+                entry.setMessageAttributes(attributes.get(i));
+            }
+
+            entries.add(entry);
+        }
+
+        return entries;
+    }
+
+    /**
+     * Checks whether the message is too large to be sent to SQS on its own.
+     *
+     * @param message message body
+     * @return <code>true</code> if the message exceeds the maximum payload size; otherwise <code>false</code>
+     */
+    static boolean isOversized(CharSequence message) {
+        return utf8Length(message) > MAX_PAYLOAD_BYTES;
+    }
+
+    /**
+     * Calculates the size of message attributes as counted by SQS: the name, data type, and value of each attribute.
+     *
+     * @param messageAttributes message attributes or <code>null</code>
+     * @return size in bytes
+     */
+    static int attributesLength(Map<String, MessageAttributeValue> messageAttributes) {
+        if (messageAttributes == null) {
+            return 0;
+        }
+
+        int len = 0;
+        for (Map.Entry<String, MessageAttributeValue> attribute : messageAttributes.entrySet()) {
+            len += utf8Length(attribute.getKey()) + utf8Length(attribute.getValue().getDataType());
+            if (attribute.getValue().getStringValue() != null) {
+                len += utf8Length(attribute.getValue().getStringValue());
+            }
+        }
+
+        return len;
+    }
+
+    /**
+     * Calculates the UTF-8 encoded length of the message without encoding it.
+     *
+     * @param message message body
+     * @return length in bytes
+     */
+    static int utf8Length(CharSequence message) {
+        if (message instanceof Utf8Line) {
+            return ((Utf8Line) message).getByteLength();
+        }
+
+        int len = 0;
+        for (int i = 0; i < message.length(); i++) {
+            final char c = message.charAt(i);
+            if (c < 0x80) {
+                len++;
+            } else if (c < 0x800) {
+                len += 2;
+            } else if (Character.isHighSurrogate(c)) {
+                len += 4;
+                i++;
+            } else {
+                len += 3;
+            }
+        }
+
+        return len;
+    }
+}
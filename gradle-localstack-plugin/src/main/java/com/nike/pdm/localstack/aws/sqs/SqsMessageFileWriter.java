@@ -0,0 +1,191 @@
+/**
+ * Copyright 2020-present, Nike, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the Apache-2.0 license found in
+ * the LICENSE file in the root directory of this source tree.
+ */
+package com.nike.pdm.localstack.aws.sqs;
+
+import com.amazonaws.services.sqs.model.Message;
+import com.amazonaws.services.sqs.model.MessageAttributeValue;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes received SQS messages to a newline-delimited message file that can be published again with
+ * {@link PublishSqsTask}, or replayed with {@link ReplaySqsTask} when written as records.
+ *
+ * <p>By default each line is the body of a message. Message bodies that span several lines are written on a single
+ * line: json bodies are compacted, which keeps them equivalent, and other bodies are written as a json string. When
+ * writing records each line is instead a json object holding the message id, the time the message was sent in epoch
+ * milliseconds, the body, and the attributes and message attributes of the message.
+ *
+ * <p>Files whose names end in <code>.gz</code> are gzip compressed. The writer is safe for use by several threads.
+ */
+final class SqsMessageFileWriter implements Closeable {
+
+    /**
+     * Name of the record field holding the time the message was sent.
+     */
+    static final String TIMESTAMP_FIELD = "timestamp";
+
+    /**
+     * Name of the record field holding the message body.
+     */
+    static final String BODY_FIELD = "body";
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final Writer writer;
+    private final boolean records;
+    private long written;
+    private long quoted;
+
+    /**
+     * Creates a writer.
+     *
+     * @param file file to write, replaced if it exists
+     * @param records <code>true</code> to write json records; <code>false</code> to write message bodies
+     * @throws IOException if the file cannot be created
+     */
+    SqsMessageFileWriter(File file, boolean records) throws IOException {
+        this(new FileOutputStream(file), file.getName().endsWith(".gz"), records);
+    }
+
+    /**
+     * Creates a writer.
+     *
+     * @param out stream to write, closed when the writer is closed
+     * @param gzip <code>true</code> to gzip compress the stream
+     * @param records <code>true</code> to write json records; <code>false</code> to write message bodies
+     * @throws IOException if the stream cannot be written
+     */
+    SqsMessageFileWriter(OutputStream out, boolean gzip, boolean records) throws IOException {
+        try {
+            if (gzip) {
+                // Sync flush so that every flushed message can be decompressed from the file, even if it is never closed
+                out = new GZIPOutputStream(out, 64 * 1024, true);
+            }
+        } catch (IOException e) {
+            out.close();
+            throw e;
+        }
+
+        this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+        this.records = records;
+    }
+
+    /**
+     * Writes messages, one per line. The messages have been handed to the file system once this method returns, so
+     * they may be deleted from the queue.
+     *
+     * @param messages messages to write
+     * @throws IOException if an error occurs writing the messages
+     */
+    synchronized void write(List<Message> messages) throws IOException {
+        for (Message message : messages) {
+            writer.write(records ? toRecord(message) : toLine(message.getBody()));
+            writer.write('\n');
+        }
+
+        writer.flush();
+        written += messages.size();
+    }
+
+    /**
+     * Gets the number of messages written so far.
+     *
+     * @return number of messages
+     */
+    synchronized long getWritten() {
+        return written;
+    }
+
+    /**
+     * Gets the number of message bodies that spanned several lines and were not json, which were written as json
+     * strings rather than as they were received.
+     *
+     * @return number of messages
+     */
+    synchronized long getQuoted() {
+        return quoted;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        writer.close();
+    }
+
+    private String toLine(String body) throws IOException {
+        if (body.indexOf('\n') < 0 && body.indexOf('\r') < 0) {
+            return body;
+        }
+
+        try {
+            final JsonNode json = MAPPER.readTree(body);
+            if (json != null && json.isContainerNode()) {
+                return MAPPER.writeValueAsString(json);
+            }
+        } catch (IOException e) {
+            // Not json, written as a string below
+        }
+
+        quoted++;
+        return MAPPER.writeValueAsString(body);
+    }
+
+    private String toRecord(Message message) throws IOException {
+        final ObjectNode record = MAPPER.createObjectNode();
+        record.put("messageId", message.getMessageId());
+
+        final String sentTimestamp = message.getAttributes().get("SentTimestamp");
+        if (sentTimestamp != null) {
+            try {
+                record.put(TIMESTAMP_FIELD, Long.parseLong(sentTimestamp));
+            } catch (NumberFormatException e) {
+                record.put(TIMESTAMP_FIELD, sentTimestamp);
+            }
+        }
+
+        record.put(BODY_FIELD, message.getBody());
+
+        final ObjectNode attributes = record.putObject("attributes");
+        message.getAttributes().forEach(attributes::put);
+
+        final ObjectNode messageAttributes = record.putObject("messageAttributes");
+        for (Map.Entry<String, MessageAttributeValue> attribute : message.getMessageAttributes().entrySet()) {
+            final ObjectNode value = messageAttributes.putObject(attribute.getKey());
+            value.put("dataType", attribute.getValue().getDataType());
+
+            if (attribute.getValue().getStringValue() != null) {
+                value.put("stringValue", attribute.getValue().getStringValue());
+            }
+
+            if (attribute.getValue().getBinaryValue() != null) {
+                final ByteBuffer binary = attribute.getValue().getBinaryValue().duplicate();
+                final byte[] bytes = new byte[binary.remaining()];
+                binary.get(bytes);
+                value.put("binaryValue", Base64.getEncoder().encodeToString(bytes));
+            }
+        }
+
+        return MAPPER.writeValueAsString(record);
+    }
+}
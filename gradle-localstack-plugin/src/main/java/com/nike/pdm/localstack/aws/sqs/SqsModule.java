@@ -18,11 +18,17 @@ import java.util.Map;
 public class SqsModule {
     static final String GROUP_NAME = "LocalStack - SQS";
 
+    public static final String AWAIT_SQS_QUEUES_TASK_NAME = "awaitSqsQueues";
+    public static final String CONSUME_SQS_TASK_NAME = "consumeSqs";
     public static final String CREATE_SQS_QUEUES_TASK_NAME = "createSqsQueues";
     public static final String CREATE_SQS_QUEUE_WITH_DLQ_TASK_NAME = "createSqsQueueWithDlq";
+    public static final String DRAIN_SQS_QUEUES_TASK_NAME = "drainSqsQueues";
+    public static final String GENERATE_SQS_LOAD_TASK_NAME = "generateSqsLoad";
     public static final String LIST_SQS_QUEUES_TASK_NAME = "listSqsQueues";
     public static final String PUBLISH_SQS_TASK_NAME = "publishSqs";
     public static final String PURGE_SQS_QUEUES_TASK_NAME = "purgeSqsQueues";
+    public static final String REDRIVE_SQS_DLQ_TASK_NAME = "redriveSqsDlq";
+    public static final String REPLAY_SQS_TASK_NAME = "replaySqs";
 
     /**
      * Loads and configures all tasks in the SQS group.
@@ -34,6 +40,12 @@ public class SqsModule {
         tasks.put(PURGE_SQS_QUEUES_TASK_NAME, PurgeSqsQueuesTask.class);
         tasks.put(LIST_SQS_QUEUES_TASK_NAME, ListSqsQueuesTask.class);
         tasks.put(PUBLISH_SQS_TASK_NAME, PublishSqsTask.class);
+        tasks.put(REPLAY_SQS_TASK_NAME, ReplaySqsTask.class);
+        tasks.put(GENERATE_SQS_LOAD_TASK_NAME, GenerateSqsLoadTask.class);
+        tasks.put(DRAIN_SQS_QUEUES_TASK_NAME, DrainSqsQueuesTask.class);
+        tasks.put(REDRIVE_SQS_DLQ_TASK_NAME, RedriveSqsDlqTask.class);
+        tasks.put(AWAIT_SQS_QUEUES_TASK_NAME, AwaitSqsQueuesTask.class);
+        tasks.put(CONSUME_SQS_TASK_NAME, ConsumeSqsTask.class);
 
         tasks.forEach((name, clazz) -> {
             // Register default tasks with the project
@@ -0,0 +1,60 @@
+/**
+ * Copyright 2020-present, Nike, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the Apache-2.0 license found in
+ * the LICENSE file in the root directory of this source tree.
+ */
+package com.nike.pdm.localstack.aws.sqs;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts the messages sent and failed while publishing to SQS.
+ */
+final class SqsPublishStats {
+
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final long startNanos = System.nanoTime();
+
+    void sent(long count) {
+        sent.addAndGet(count);
+    }
+
+    void failed(long count) {
+        failed.addAndGet(count);
+    }
+
+    long getSent() {
+        return sent.get();
+    }
+
+    long getFailed() {
+        return failed.get();
+    }
+
+    long getElapsedMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Gets the average number of messages sent or failed per second since the publish started.
+     *
+     * @return messages per second
+     */
+    double getRate() {
+        final long elapsedNanos = Math.max(1, System.nanoTime() - startNanos);
+        return (getSent() + getFailed()) * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+    }
+
+    /**
+     * Gets a one line summary of the publish.
+     *
+     * @return summary
+     */
+    String summary() {
+        return String.format("Sent: %d, Failed: %d, Elapsed: %d ms", getSent(), getFailed(), getElapsedMillis());
+    }
+}
@@ -0,0 +1,632 @@
+/**
+ * Copyright 2020-present, Nike, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the Apache-2.0 license found in
+ * the LICENSE file in the root directory of this source tree.
+ */
+package com.nike.pdm.localstack.aws.sqs;
+
+import com.amazonaws.services.sqs.AmazonSQS;
+import com.amazonaws.services.sqs.model.MessageAttributeValue;
+import com.nike.pdm.localstack.core.TokenBucket;
+import org.gradle.api.GradleException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.IntConsumer;
+import java.util.function.LongConsumer;
+
+/**
+ * Publishes messages to one or more SQS queues concurrently.
+ *
+ * <p>Every message is sent to every queue unless an {@link SqsDistribution} chooses a single queue for each message.
+ * Each queue is given its own ordered lane. Messages are batched on the calling thread and the batches of a lane
+ * are sent one after another, in order, by a bounded pool of sender threads shared by all lanes. This lets a message
+ * source be read once while every queue is published to in parallel. A standard queue may be given several lanes that
+ * are filled in turn, so that several batches are sent to it at the same time when order does not matter.
+ *
+ * <p>Messages are numbered in the order they are published. Because the batches of a lane complete in order, the
+ * publisher can report how many messages, counted from the first, have been acknowledged by every queue. A lane stops
+ * advancing its acknowledged count at the first batch whose messages could not be delivered after all attempts.
+ *
+ * <p>Transient errors are retried per batch by the {@link SqsBatchSender}. Any other error stops the publisher: the
+ * next call to {@link #publish(CharSequence)} and the call to {@link #close()} rethrow it as a
+ * {@link GradleException} so that it is not retried again by a task-level {@link com.nike.pdm.localstack.core.Retry}.
+ *
+ * <p>An optional {@link TokenBucket} shared by all sender threads limits the combined rate at which messages are sent
+ * to all queues.
+ *
+ * <p>When given a {@link FifoKeyExtractor} the publisher publishes to FIFO queues. Each queue is then given one lane
+ * per sender thread and every message is routed to a lane by the hash of its message group id. Messages of the same
+ * group are therefore sent in order through the same lane, while unrelated groups are batched and sent in parallel. Once
+ * any message of a batch of a FIFO lane is dropped, whether rejected by the queue or out of attempts, the remaining
+ * batches of the lane are counted as failed without being sent, so that no message is delivered after an earlier message
+ * of its group was dropped.
+ *
+ * <p>When given an {@link S3PayloadOffloader} the payloads of messages above its threshold are uploaded to S3 and a
+ * pointer is published in their place. Payloads are uploaded once for all queues, in parallel with sending other
+ * batches, and a batch holding a pointer is only sent once the upload of its payload has completed. A batch whose
+ * payloads could not be uploaded is counted as failed.
+ */
+final class SqsPublisher implements AutoCloseable {
+
+    /**
+     * Maximum number of batches per lane that may be waiting to be sent before the calling thread blocks.
+     */
+    static final int MAX_PENDING_BATCHES = 32;
+
+    private static final AtomicInteger POOL_COUNT = new AtomicInteger();
+
+    private final SqsBatchSender sender;
+    private final int batchSize;
+    private final ExecutorService executor;
+    private final List<Lane> lanes;
+    private final FifoKeyExtractor fifoKeys;
+    private final S3PayloadOffloader offloader;
+    private final SqsDistribution distribution;
+    private final int lanesPerQueue;
+    private final int[] fillingLanes;
+    private final LongConsumer lagListener;
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+    private long published;
+    private boolean closed;
+
+    /**
+     * Creates a publisher.
+     *
+     * @param sqs sqs client
+     * @param queueUrls urls of the queues to which to publish
+     * @param stats statistics updated as batches are sent
+     * @param options options of the publisher
+     */
+    SqsPublisher(AmazonSQS sqs, List<String> queueUrls, SqsPublishStats stats, Options options) {
+        if (options.parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be greater than zero: " + options.parallelism);
+        }
+
+        if (options.lanesPerQueue < 1) {
+            throw new IllegalArgumentException("Lanes per queue must be greater than zero: " + options.lanesPerQueue);
+        }
+
+        this.sender = new SqsBatchSender(sqs, stats, options.maxAttempts, options.backoffMillis, options.rateLimiter);
+        this.batchSize = options.batchSize;
+        this.executor = Executors.newFixedThreadPool(options.parallelism, new SenderThreadFactory());
+        this.fifoKeys = options.fifoKeys;
+        this.offloader = options.offloader;
+        this.distribution = options.distribution != null
+                ? options.distribution
+                : new SqsDistribution(SqsDistribution.Mode.BROADCAST, queueUrls.size(), null, null);
+        this.lanesPerQueue = fifoKeys != null ? options.parallelism : options.lanesPerQueue;
+        this.fillingLanes = new int[queueUrls.size()];
+        this.lagListener = options.lagListener;
+        this.lanes = new ArrayList<>(queueUrls.size() * lanesPerQueue);
+        queueUrls.forEach(queueUrl -> {
+            for (int i = 0; i < lanesPerQueue; i++) {
+                lanes.add(new Lane(queueUrl));
+            }
+        });
+    }
+
+    /**
+     * Publishes the message to every queue. Blocks while the lanes already have the maximum number of batches
+     * waiting to be sent.
+     *
+     * @param message message body
+     */
+    void publish(CharSequence message) {
+        publish(message, System.nanoTime());
+    }
+
+    /**
+     * Publishes the message to every queue. Blocks while the lanes already have the maximum number of batches
+     * waiting to be sent.
+     *
+     * @param message message body
+     * @param dueNanos time, as reported by {@link System#nanoTime()}, from which the lag reported to the lag listener
+     *                 of the publisher is measured
+     */
+    void publish(CharSequence message, long dueNanos) {
+        checkFailure();
+
+        CharSequence body = message;
+        FifoKeyExtractor.Keys keys = null;
+        if (fifoKeys != null || distribution.needsKey()) {
+            if (offloader == null && SqsMessageBatch.isOversized(message)) {
+                reject(SqsDistribution.ALL_QUEUES, "Message exceeds the maximum SQS message size");
+                return;
+            }
+
+            try {
+                body = message.toString();
+                keys = fifoKeys != null ? fifoKeys.extract((String) body) : null;
+            } catch (RuntimeException e) {
+                reject(SqsDistribution.ALL_QUEUES, e.getMessage());
+                return;
+            }
+        }
+
+        final int queue;
+        try {
+            queue = distribution.select(body instanceof String ? (String) body : null, keys);
+        } catch (RuntimeException e) {
+            reject(SqsDistribution.ALL_QUEUES, e.getMessage());
+            return;
+        }
+
+        S3PayloadOffloader.OffloadedPayload payload = null;
+        if (offloader != null && offloader.shouldOffload(body)) {
+            try {
+                payload = offloader.offload(body);
+            } catch (IllegalStateException e) {
+                reject(queue, e.getMessage());
+                return;
+            }
+
+            body = payload.getPointer();
+        } else if (SqsMessageBatch.isOversized(body)) {
+            reject(queue, "Message exceeds the maximum SQS message size");
+            return;
+        }
+
+        // Messages for FIFO queues go to the lane of their message group on each of their queues, other messages go to
+        // the lane of each queue that is being filled
+        final int groupOffset = keys != null ? laneOffset(keys.getGroupId()) : -1;
+        final int first = queue == SqsDistribution.ALL_QUEUES ? 0 : queue;
+        final int last = queue == SqsDistribution.ALL_QUEUES ? fillingLanes.length : queue + 1;
+
+        for (int q = first; q < last; q++) {
+            lanes.get(laneIndex(q, groupOffset)).add(body, keys, payload, dueNanos);
+        }
+
+        published++;
+
+        for (int q = first; q < last; q++) {
+            final Lane lane = lanes.get(laneIndex(q, groupOffset));
+            if (lane.batch.isFull()) {
+                lane.submit();
+                nextFillingLane(q, groupOffset);
+            }
+        }
+    }
+
+    /**
+     * Gets the index of the lane of a queue to which a message is added.
+     *
+     * @param queue index of the queue
+     * @param groupOffset lane offset of the message group of the message or -1 for messages of standard queues
+     * @return lane index
+     */
+    private int laneIndex(int queue, int groupOffset) {
+        return queue * lanesPerQueue + (groupOffset >= 0 ? groupOffset : fillingLanes[queue]);
+    }
+
+    /**
+     * Moves on to filling the next lane of a standard queue once a batch has been submitted, so that consecutive
+     * batches of the queue are sent in parallel.
+     */
+    private void nextFillingLane(int queue, int groupOffset) {
+        if (groupOffset < 0) {
+            fillingLanes[queue] = (fillingLanes[queue] + 1) % lanesPerQueue;
+        }
+    }
+
+    /**
+     * Gets the offset of the lane, within the lanes of each queue, through which a message group is published.
+     *
+     * @param groupId message group id
+     * @return lane offset
+     */
+    private int laneOffset(String groupId) {
+        // Spread the hash bits so that group ids differing only in their last characters land in different lanes
+        final int hash = groupId.hashCode();
+        return Math.floorMod(hash ^ (hash >>> 16), lanesPerQueue);
+    }
+
+    /**
+     * Counts the message as failed on each queue to which it was to be sent, without sending it.
+     *
+     * @param queue index of the queue to which the message was to be sent or {@link SqsDistribution#ALL_QUEUES} if
+     *              no queue has been selected
+     * @param reason reason the message was rejected
+     */
+    private void reject(int queue, String reason) {
+        if (queue != SqsDistribution.ALL_QUEUES) {
+            sender.reject(lanes.get(queue * lanesPerQueue).queueUrl, reason);
+        } else if (distribution.isBroadcast()) {
+            for (int i = 0; i < lanes.size(); i += lanesPerQueue) {
+                sender.reject(lanes.get(i).queueUrl, reason);
+            }
+        } else {
+            // The message would have been sent to a single queue
+            sender.reject(reason);
+        }
+
+        published++;
+    }
+
+    /**
+     * Sends the partially filled batches of every lane without waiting for them to fill up. Used by publishers that
+     * cannot hold messages back until a batch is full, such as when messages must be sent at a given time.
+     */
+    void flush() {
+        checkFailure();
+
+        lanes.forEach(Lane::submit);
+
+        if (fifoKeys == null) {
+            for (int q = 0; q < fillingLanes.length; q++) {
+                nextFillingLane(q, -1);
+            }
+        }
+    }
+
+    /**
+     * Gets the number of messages published so far.
+     *
+     * @return number of published messages
+     */
+    long getPublished() {
+        return published;
+    }
+
+    /**
+     * Gets the number of messages, counted from the first published message, that have been acknowledged by every
+     * queue. Messages rejected for reasons that resending cannot fix count as acknowledged.
+     *
+     * @return number of acknowledged messages
+     */
+    long getAcknowledged() {
+        long acknowledged = published;
+        for (Lane lane : lanes) {
+            acknowledged = Math.min(acknowledged, lane.firstUnacknowledged());
+        }
+
+        return acknowledged;
+    }
+
+    /**
+     * Sends any partially filled batches, waits for all lanes to finish sending, and shuts down the sender threads.
+     *
+     * @throws GradleException if an error stopped the publisher
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+
+        closed = true;
+
+        try {
+            if (failure.get() == null) {
+                lanes.forEach(Lane::submit);
+            }
+
+            for (Lane lane : lanes) {
+                try {
+                    lane.tail.join();
+                } catch (CompletionException e) {
+                    failure.compareAndSet(null, e.getCause());
+                }
+            }
+        } finally {
+            shutdown();
+        }
+
+        checkFailure();
+    }
+
+    private void shutdown() {
+        executor.shutdown();
+
+        try {
+            if (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void checkFailure() {
+        final Throwable t = failure.get();
+        if (t != null) {
+            throw new GradleException("Error occurred while publishing messages: " + t.getMessage(), t);
+        }
+    }
+
+    /**
+     * Ordered stream of batches destined for a single queue.
+     *
+     * <p>The lane keeps the number of the first message of each batch that has been submitted but not acknowledged.
+     * Batches complete in order, so the oldest unacknowledged message of the lane is the first message of the head
+     * batch, or of the batch being filled when no batches are in flight.
+     */
+    private final class Lane {
+        private final String queueUrl;
+        private final Semaphore pending = new Semaphore(MAX_PENDING_BATCHES);
+        private final ConcurrentLinkedQueue<Long> unacknowledged = new ConcurrentLinkedQueue<>();
+        private SqsMessageBatch batch;
+        private long[] dues;
+        private List<CompletableFuture<Void>> uploads = new ArrayList<>();
+        private long batchStart = -1;
+        private CompletableFuture<Void> tail = CompletableFuture.completedFuture(null);
+        private volatile boolean stalled;
+
+        Lane(String queueUrl) {
+            this.queueUrl = queueUrl;
+            this.batch = new SqsMessageBatch(batchSize);
+            this.dues = lagListener != null ? new long[batchSize] : null;
+        }
+
+        void add(CharSequence message, FifoKeyExtractor.Keys keys, S3PayloadOffloader.OffloadedPayload payload, long dueNanos) {
+            final Map<String, MessageAttributeValue> attributes = payload != null ? payload.getAttributes() : null;
+            if (!batch.canAdd(message, attributes)) {
+                submit();
+            }
+
+            if (batch.isEmpty()) {
+                batchStart = published;
+            }
+
+            if (dues != null) {
+                dues[batch.size()] = dueNanos;
+            }
+
+            batch.add(message, keys, attributes);
+
+            if (payload != null) {
+                uploads.add(payload.getUpload());
+            }
+        }
+
+        /**
+         * Gets the number of the oldest message of this lane that has not been acknowledged.
+         *
+         * @return message number or {@link Long#MAX_VALUE} if every message of the lane has been acknowledged
+         */
+        long firstUnacknowledged() {
+            final Long head = unacknowledged.peek();
+            if (head != null) {
+                return head;
+            }
+
+            return batchStart >= 0 ? batchStart : Long.MAX_VALUE;
+        }
+
+        void submit() {
+            if (batch.isEmpty()) {
+                return;
+            }
+
+            final SqsMessageBatch toSend = batch;
+            final IntConsumer accepted = acknowledgement(dues);
+            final List<CompletableFuture<Void>> toAwait = uploads;
+            unacknowledged.add(batchStart);
+            batch = new SqsMessageBatch(batchSize);
+            dues = dues != null ? new long[batchSize] : null;
+            uploads = toAwait.isEmpty() ? toAwait : new ArrayList<>();
+            batchStart = -1;
+
+            try {
+                pending.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failure.compareAndSet(null, e);
+                checkFailure();
+            }
+
+            tail = tail.thenRunAsync(() -> {
+                        // Later messages of the groups of a FIFO lane must not overtake a message that failed
+                        if (stalled && fifoKeys != null) {
+                            sender.reject(queueUrl, toSend, "An earlier message of the same message groups failed to publish");
+                            return;
+                        }
+
+                        // A lane that failed to deliver a batch never advances past its first message
+                        if (awaitUploads(queueUrl, toSend, toAwait) && sender.send(queueUrl, toSend, accepted) && !stalled) {
+                            unacknowledged.poll();
+                        } else {
+                            stalled = true;
+                        }
+                    }, executor)
+                    .whenComplete((ignored, t) -> {
+                        pending.release();
+
+                        if (t != null) {
+                            failure.compareAndSet(null, t instanceof CompletionException ? t.getCause() : t);
+                        }
+                    });
+        }
+    }
+
+    /**
+     * Creates the consumer of the messages of a batch acknowledged by a queue, which reports their lag to the lag
+     * listener.
+     *
+     * @param dues due times of the messages of the batch or <code>null</code> if there is no lag listener
+     * @return consumer of the index of each acknowledged message or <code>null</code>
+     */
+    private IntConsumer acknowledgement(long[] dues) {
+        if (dues == null) {
+            return null;
+        }
+
+        return index -> lagListener.accept(System.nanoTime() - dues[index]);
+    }
+
+    /**
+     * Waits for the payloads of a batch to be uploaded to S3.
+     *
+     * @param queueUrl url of the queue to which the batch is to be sent
+     * @param batch batch holding pointers to the payloads
+     * @param uploads uploads of the payloads
+     * @return <code>true</code> if every payload was uploaded; otherwise <code>false</code> and the batch has been
+     *         counted as failed
+     */
+    private boolean awaitUploads(String queueUrl, SqsMessageBatch batch, List<CompletableFuture<Void>> uploads) {
+        if (uploads.isEmpty()) {
+            return true;
+        }
+
+        try {
+            CompletableFuture.allOf(uploads.toArray(new CompletableFuture[0])).join();
+            return true;
+        } catch (CompletionException e) {
+            sender.reject(queueUrl, batch, "Unable to upload message payload to S3: " + e.getCause().getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Options of a publisher. Every option has a default, so only those that differ need to be set.
+     */
+    static final class Options {
+        private int batchSize = SqsMessageBatch.MAX_ENTRIES;
+        private int parallelism = 1;
+        private TokenBucket rateLimiter;
+        private FifoKeyExtractor fifoKeys;
+        private S3PayloadOffloader offloader;
+        private SqsDistribution distribution;
+        private int lanesPerQueue = 1;
+        private LongConsumer lagListener;
+        private int maxAttempts = SqsBatchSender.DEFAULT_MAX_ATTEMPTS;
+        private long backoffMillis = SqsBatchSender.DEFAULT_BACKOFF_MILLIS;
+
+        /**
+         * Sets the maximum number of messages in a batch. Defaults to 10.
+         *
+         * @param batchSize batch size
+         * @return these options
+         */
+        Options withBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+            return this;
+        }
+
+        /**
+         * Sets the number of sender threads. Defaults to 1.
+         *
+         * @param parallelism number of sender threads
+         * @return these options
+         */
+        Options withParallelism(int parallelism) {
+            this.parallelism = parallelism;
+            return this;
+        }
+
+        /**
+         * Sets the limit of the rate at which messages are sent. Defaults to no limit.
+         *
+         * @param rateLimiter rate limiter or <code>null</code> for no limit
+         * @return these options
+         */
+        Options withRateLimiter(TokenBucket rateLimiter) {
+            this.rateLimiter = rateLimiter;
+            return this;
+        }
+
+        /**
+         * Sets the extractor of the message group and deduplication ids of messages published to FIFO queues. Defaults
+         * to publishing to standard queues.
+         *
+         * @param fifoKeys fifo key extractor or <code>null</code> for standard queues
+         * @return these options
+         */
+        Options withFifoKeys(FifoKeyExtractor fifoKeys) {
+            this.fifoKeys = fifoKeys;
+            return this;
+        }
+
+        /**
+         * Sets the offloader of large payloads to S3. Defaults to rejecting messages too large for SQS.
+         *
+         * @param offloader payload offloader or <code>null</code> to reject messages too large for SQS
+         * @return these options
+         */
+        Options withOffloader(S3PayloadOffloader offloader) {
+            this.offloader = offloader;
+            return this;
+        }
+
+        /**
+         * Sets how the queues to which each message is sent are chosen. Defaults to sending every message to every
+         * queue.
+         *
+         * @param distribution message distribution or <code>null</code> to send every message to every queue
+         * @return these options
+         */
+        Options withDistribution(SqsDistribution distribution) {
+            this.distribution = distribution;
+            return this;
+        }
+
+        /**
+         * Sets the number of lanes of each standard queue. Consecutive batches of a queue are submitted to its lanes in
+         * turn, so that up to this many batches are sent to the queue at the same time, at the cost of messages being
+         * delivered out of order. Defaults to 1. FIFO queues always have one lane per sender thread.
+         *
+         * @param lanesPerQueue number of lanes of each standard queue
+         * @return these options
+         */
+        Options withLanesPerQueue(int lanesPerQueue) {
+            this.lanesPerQueue = lanesPerQueue;
+            return this;
+        }
+
+        /**
+         * Sets the listener of the lag of each message acknowledged by a queue, which is the number of nanoseconds from
+         * the time the message was due, or was published, until a queue accepted it. Called once per queue on the
+         * sender threads. Defaults to no listener.
+         *
+         * @param lagListener lag listener or <code>null</code> for none
+         * @return these options
+         */
+        Options withLagListener(LongConsumer lagListener) {
+            this.lagListener = lagListener;
+            return this;
+        }
+
+        /**
+         * Sets the number of times a batch is sent before its messages are counted as failed, and the number of
+         * milliseconds waited before the first resend. Defaults to 5 attempts and 500 ms.
+         *
+         * @param maxAttempts maximum number of attempts
+         * @param backoffMillis number of milliseconds waited before the first resend, doubled for every further resend
+         * @return these options
+         */
+        Options withRetries(int maxAttempts, long backoffMillis) {
+            this.maxAttempts = maxAttempts;
+            this.backoffMillis = backoffMillis;
+            return this;
+        }
+    }
+
+    /**
+     * Creates named daemon threads so that a stuck publisher never prevents the Gradle daemon from exiting.
+     */
+    private static final class SenderThreadFactory implements ThreadFactory {
+        private final int poolId = POOL_COUNT.incrementAndGet();
+        private final AtomicInteger threadCount = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            final Thread thread = new Thread(r, String.format("sqs-publisher-%d-%d", poolId, threadCount.incrementAndGet()));
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,260 @@
+/**
+ * Copyright 2020-present, Nike, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the Apache-2.0 license found in
+ * the LICENSE file in the root directory of this source tree.
+ */
+package com.nike.pdm.localstack.aws.sqs;
+
+import com.amazonaws.services.sqs.AmazonSQS;
+import com.amazonaws.services.sqs.model.GetQueueAttributesRequest;
+import com.amazonaws.services.sqs.model.QueueDoesNotExistException;
+import com.nike.pdm.localstack.core.Retry;
+import org.gradle.api.GradleException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+/**
+ * Polls the depth of several SQS queues at once until every queue has drained to a target depth.
+ *
+ * <p>The depth of a queue is the approximate number of messages that are visible plus those that have been received
+ * but not yet deleted, so a queue has only drained once its consumers have finished with its messages. Polling is
+ * adaptive: the interval starts at the minimum and is reset to it whenever a depth changes, and doubles, up to the
+ * maximum, for every poll in which no depth changed.
+ */
+final class SqsQueueDepthPoller implements AutoCloseable {
+
+    static final String VISIBLE_ATTRIBUTE = "ApproximateNumberOfMessages";
+    static final String NOT_VISIBLE_ATTRIBUTE = "ApproximateNumberOfMessagesNotVisible";
+
+    /**
+     * Maximum number of queues whose attributes are requested at the same time.
+     */
+    static final int MAX_CONCURRENT_REQUESTS = 8;
+
+    private static final Collection<Class<? extends Throwable>> EXPECTED_ERRORS = new HashSet<>(Arrays.asList(QueueDoesNotExistException.class));
+
+    private static final AtomicInteger POOL_COUNT = new AtomicInteger();
+
+    private final AmazonSQS sqs;
+    private final List<String> queueUrls;
+    private final long minIntervalMillis;
+    private final long maxIntervalMillis;
+    private final LongSupplier nanoClock;
+    private final Sleeper sleeper;
+    private final ExecutorService executor;
+
+    private final long[] depths;
+    private final long[] firstDepths;
+    private long firstPollNanos;
+    private long lastPollNanos;
+    private int polls;
+
+    /**
+     * Creates a poller.
+     *
+     * @param sqs sqs client
+     * @param queueUrls urls of the queues to poll
+     * @param minIntervalMillis interval between polls while depths are changing
+     * @param maxIntervalMillis longest interval between polls while depths are not changing
+     */
+    SqsQueueDepthPoller(AmazonSQS sqs, List<String> queueUrls, long minIntervalMillis, long maxIntervalMillis) {
+        this(sqs, queueUrls, minIntervalMillis, maxIntervalMillis, System::nanoTime, Thread::sleep);
+    }
+
+    SqsQueueDepthPoller(AmazonSQS sqs,
+                        List<String> queueUrls,
+                        long minIntervalMillis,
+                        long maxIntervalMillis,
+                        LongSupplier nanoClock,
+                        Sleeper sleeper) {
+        if (minIntervalMillis < 1 || maxIntervalMillis < minIntervalMillis) {
+            throw new IllegalArgumentException(String.format("Poll intervals must be positive and the maximum at least the minimum: %d, %d",
+                    minIntervalMillis, maxIntervalMillis));
+        }
+
+        this.sqs = sqs;
+        this.queueUrls = queueUrls;
+        this.minIntervalMillis = minIntervalMillis;
+        this.maxIntervalMillis = maxIntervalMillis;
+        this.nanoClock = nanoClock;
+        this.sleeper = sleeper;
+        this.depths = new long[queueUrls.size()];
+        this.firstDepths = new long[queueUrls.size()];
+
+        final int poolId = POOL_COUNT.incrementAndGet();
+        final AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(Math.max(1, Math.min(queueUrls.size(), MAX_CONCURRENT_REQUESTS)), r -> {
+            final Thread thread = new Thread(r, String.format("sqs-depth-poller-%d-%d", poolId, threadCount.incrementAndGet()));
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Polls until the depth of every queue is at or below the target depth.
+     *
+     * @param targetDepth depth each queue must reach
+     * @param timeoutMillis number of milliseconds after which to give up
+     * @throws GradleException if a queue has not reached the target depth when the timeout expires
+     */
+    void await(long targetDepth, long timeoutMillis) {
+        final long deadlineNanos = nanoClock.getAsLong() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        long intervalMillis = minIntervalMillis;
+
+        while (true) {
+            final boolean changed = poll();
+
+            if (isAtDepth(targetDepth)) {
+                return;
+            }
+
+            final long remainingMillis = TimeUnit.NANOSECONDS.toMillis(deadlineNanos - nanoClock.getAsLong());
+            if (remainingMillis <= 0) {
+                throw new GradleException(String.format("Timed out after %d ms waiting for queues to drain to a depth of %d: %s",
+                        timeoutMillis, targetDepth, describeUndrained(targetDepth)));
+            }
+
+            intervalMillis = changed ? minIntervalMillis : Math.min(maxIntervalMillis, intervalMillis * 2);
+
+            try {
+                sleeper.sleep(Math.min(intervalMillis, remainingMillis));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new GradleException("Interrupted while waiting for queues to drain", e);
+            }
+        }
+    }
+
+    /**
+     * Gets the depth of a queue at the last poll.
+     *
+     * @param queue index of the queue
+     * @return approximate number of visible and in flight messages
+     */
+    long getDepth(int queue) {
+        return depths[queue];
+    }
+
+    /**
+     * Gets the rate at which a queue drained between the first and last polls.
+     *
+     * @param queue index of the queue
+     * @return messages per second, negative if the queue grew
+     */
+    double getDrainRate(int queue) {
+        final long elapsedNanos = lastPollNanos - firstPollNanos;
+        if (elapsedNanos <= 0) {
+            return 0;
+        }
+
+        return (firstDepths[queue] - depths[queue]) * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+    }
+
+    /**
+     * Gets the number of polls made so far.
+     *
+     * @return number of polls
+     */
+    int getPolls() {
+        return polls;
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Fetches the depth of every queue at once.
+     *
+     * @return <code>true</code> if the depth of any queue changed since the previous poll; otherwise <code>false</code>
+     */
+    private boolean poll() {
+        final List<Future<Long>> requests = new ArrayList<>(queueUrls.size());
+        for (String queueUrl : queueUrls) {
+            requests.add(executor.submit(() -> getDepth(queueUrl)));
+        }
+
+        boolean changed = polls == 0;
+        for (int i = 0; i < requests.size(); i++) {
+            final long depth;
+            try {
+                depth = requests.get(i).get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new GradleException("Interrupted while polling queue depths", e);
+            } catch (ExecutionException e) {
+                throw new GradleException(String.format("Error occurred while polling depth of queue %s: %s", queueUrls.get(i), e.getCause().getMessage()), e.getCause());
+            }
+
+            changed |= depth != depths[i];
+            depths[i] = depth;
+        }
+
+        lastPollNanos = nanoClock.getAsLong();
+        if (polls == 0) {
+            firstPollNanos = lastPollNanos;
+            System.arraycopy(depths, 0, firstDepths, 0, depths.length);
+        }
+
+        polls++;
+        return changed;
+    }
+
+    private long getDepth(String queueUrl) {
+        final Map<String, String> attributes = Retry.execute(() -> sqs.getQueueAttributes(new GetQueueAttributesRequest(queueUrl)
+                .withAttributeNames(VISIBLE_ATTRIBUTE, NOT_VISIBLE_ATTRIBUTE)).getAttributes(), SqsBatchSender.DEFAULT_MAX_ATTEMPTS, EXPECTED_ERRORS);
+
+        return parse(attributes.get(VISIBLE_ATTRIBUTE)) + parse(attributes.get(NOT_VISIBLE_ATTRIBUTE));
+    }
+
+    private boolean isAtDepth(long targetDepth) {
+        for (long depth : depths) {
+            if (depth > targetDepth) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private String describeUndrained(long targetDepth) {
+        final StringBuilder description = new StringBuilder();
+        for (int i = 0; i < depths.length; i++) {
+            if (depths[i] > targetDepth) {
+                if (description.length() > 0) {
+                    description.append(", ");
+                }
+
+                description.append(String.format("%s (depth: %d, drain rate: %.1f msg/s)", queueUrls.get(i), depths[i], getDrainRate(i)));
+            }
+        }
+
+        return description.toString();
+    }
+
+    private static long parse(String value) {
+        return value == null || value.isEmpty() ? 0 : Long.parseLong(value);
+    }
+
+    /**
+     * Waits between polls.
+     */
+    interface Sleeper {
+        void sleep(long millis) throws InterruptedException;
+    }
+}
@@ -0,0 +1,209 @@
+/**
+ * Copyright 2020-present, Nike, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the Apache-2.0 license found in
+ * the LICENSE file in the root directory of this source tree.
+ */
+package com.nike.pdm.localstack.aws.sqs;
+
+import com.amazonaws.services.sqs.AmazonSQS;
+import com.amazonaws.services.sqs.model.Message;
+import com.amazonaws.services.sqs.model.QueueDoesNotExistException;
+import com.amazonaws.services.sqs.model.ReceiveMessageRequest;
+import com.nike.pdm.localstack.core.ConsoleLogger;
+import com.nike.pdm.localstack.core.Retry;
+import org.gradle.api.GradleException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Drains the messages of an SQS queue into a {@link SqsMessageFileWriter}.
+ *
+ * <p>Several workers long poll the queue at once, each receiving up to 10 messages per call. Messages are written
+ * before they are deleted with a single DeleteMessageBatch request, so a message is never deleted without having been
+ * written. A message whose deletion fails becomes visible again and is written a second time.
+ *
+ * <p>Draining stops once no worker has received a message for the idle timeout.
+ */
+final class SqsQueueDrainer {
+
+    /**
+     * Maximum number of messages received in a single ReceiveMessage request.
+     */
+    static final int MAX_MESSAGES_PER_RECEIVE = 10;
+
+    /**
+     * Maximum number of seconds a ReceiveMessage request may wait for messages.
+     */
+    static final int MAX_WAIT_TIME_SECONDS = 20;
+
+    private static final Collection<Class<? extends Throwable>> EXPECTED_ERRORS = new HashSet<>(Arrays.asList(QueueDoesNotExistException.class));
+
+    private static final AtomicInteger POOL_COUNT = new AtomicInteger();
+
+    private final AmazonSQS sqs;
+    private final String queueUrl;
+    private final SqsMessageFileWriter writer;
+    private final SqsBatchDeleter deleter;
+    private final int workers;
+    private final long idleTimeoutNanos;
+    private final int waitTimeSeconds;
+    private final boolean receiveAttributes;
+    private final AtomicLong lastReceivedNanos = new AtomicLong();
+    private final AtomicLong deleteFailures = new AtomicLong();
+    private volatile boolean stopped;
+
+    private ExecutorService executor;
+    private List<Future<Void>> running;
+
+    /**
+     * Creates a drainer.
+     *
+     * @param sqs sqs client
+     * @param queueUrl url of the queue to drain
+     * @param writer writer of the received messages
+     * @param workers number of workers polling the queue
+     * @param idleTimeoutMillis number of milliseconds without receiving a message after which draining stops
+     * @param receiveAttributes whether to receive the attributes and message attributes of the messages
+     */
+    SqsQueueDrainer(AmazonSQS sqs, String queueUrl, SqsMessageFileWriter writer, int workers, long idleTimeoutMillis, boolean receiveAttributes) {
+        if (workers < 1) {
+            throw new IllegalArgumentException("Workers must be greater than zero: " + workers);
+        }
+
+        this.sqs = sqs;
+        this.queueUrl = queueUrl;
+        this.writer = writer;
+        this.deleter = new SqsBatchDeleter(sqs, queueUrl);
+        this.workers = workers;
+        this.idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(idleTimeoutMillis);
+        this.waitTimeSeconds = (int) Math.min(MAX_WAIT_TIME_SECONDS, TimeUnit.MILLISECONDS.toSeconds(idleTimeoutMillis));
+        this.receiveAttributes = receiveAttributes;
+    }
+
+    /**
+     * Starts the workers.
+     */
+    void start() {
+        final int poolId = POOL_COUNT.incrementAndGet();
+        final AtomicInteger threadCount = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(workers, r -> {
+            final Thread thread = new Thread(r, String.format("sqs-drainer-%d-%d", poolId, threadCount.incrementAndGet()));
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        lastReceivedNanos.set(System.nanoTime());
+
+        running = new ArrayList<>(workers);
+        for (int i = 0; i < workers; i++) {
+            running.add(executor.submit(() -> {
+                try {
+                    drain();
+                } catch (Exception e) {
+                    // Stop the other workers rather than leaving them to drain into a file that will be discarded
+                    stopped = true;
+                    throw e;
+                }
+
+                return null;
+            }));
+        }
+    }
+
+    /**
+     * Waits for the queue to be drained.
+     *
+     * @throws GradleException if a worker failed
+     */
+    void await() {
+        try {
+            for (Future<Void> worker : running) {
+                try {
+                    worker.get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    stopped = true;
+                    throw new GradleException("Interrupted while draining queue: " + queueUrl, e);
+                } catch (ExecutionException e) {
+                    throw new GradleException(String.format("Error occurred while draining queue %s: %s", queueUrl, e.getCause().getMessage()), e.getCause());
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Stops the workers without waiting for the queue to be drained, such as when another queue failed, and waits for
+     * them to finish so that nothing is written once the writer is closed. Messages that were received but not yet
+     * written are left on the queue.
+     */
+    void stop() {
+        stopped = true;
+
+        if (executor == null) {
+            return;
+        }
+
+        // Interrupt workers that are waiting on a long poll
+        executor.shutdownNow();
+
+        try {
+            if (!executor.awaitTermination(MAX_WAIT_TIME_SECONDS + 1, TimeUnit.SECONDS)) {
+                ConsoleLogger.log("Workers draining queue %s did not stop in time", queueUrl);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Gets the number of messages that were written but could not be deleted, and so may be received again.
+     *
+     * @return number of messages
+     */
+    long getDeleteFailures() {
+        return deleteFailures.get();
+    }
+
+    private void drain() throws Exception {
+        final ReceiveMessageRequest request = new ReceiveMessageRequest(queueUrl)
+                .withMaxNumberOfMessages(MAX_MESSAGES_PER_RECEIVE)
+                .withWaitTimeSeconds(waitTimeSeconds);
+
+        if (receiveAttributes) {
+            request.withAttributeNames("All").withMessageAttributeNames("All");
+        }
+
+        while (!stopped) {
+            final List<Message> messages = Retry.execute(() -> sqs.receiveMessage(request).getMessages(),
+                    SqsBatchSender.DEFAULT_MAX_ATTEMPTS, EXPECTED_ERRORS);
+
+            if (messages.isEmpty()) {
+                if (System.nanoTime() - lastReceivedNanos.get() >= idleTimeoutNanos) {
+                    return;
+                }
+
+                continue;
+            }
+
+            lastReceivedNanos.set(System.nanoTime());
+
+            writer.write(messages);
+            deleteFailures.addAndGet(deleter.delete(messages));
+        }
+    }
+}
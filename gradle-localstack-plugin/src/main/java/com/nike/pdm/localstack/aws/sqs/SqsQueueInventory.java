@@ -0,0 +1,131 @@
+/**
+ * Copyright 2020-present, Nike, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the Apache-2.0 license found in
+ * the LICENSE file in the root directory of this source tree.
+ */
+package com.nike.pdm.localstack.aws.sqs;
+
+import com.amazonaws.services.sqs.AmazonSQS;
+import com.amazonaws.services.sqs.model.ListQueuesRequest;
+import com.amazonaws.services.sqs.model.QueueDoesNotExistException;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Map of the names of the existing SQS queues to their urls, built from a single ListQueues request the first time a
+ * queue is looked up, so that checking for and resolving many queues does not cost a GetQueueUrl request per queue.
+ *
+ * <p>ListQueues returns at most 1,000 queues and this version of the SDK cannot page through more. When the listing is
+ * full it may be incomplete, so queues missing from it are looked up individually instead of being reported as missing.
+ * Queues looked up individually and queues created through {@link #put(String, String)} are added to the map.
+ */
+final class SqsQueueInventory {
+
+    /**
+     * Maximum number of queue urls returned by a single ListQueues request.
+     */
+    static final int MAX_LIST_RESULTS = 1000;
+
+    private final AmazonSQS sqs;
+    private final Map<String, String> queueUrls = new ConcurrentHashMap<>();
+    private volatile boolean loaded;
+    private volatile boolean complete;
+
+    SqsQueueInventory(AmazonSQS sqs) {
+        this.sqs = sqs;
+    }
+
+    /**
+     * Checks whether a queue exists.
+     *
+     * @param queueName queue name
+     * @return <code>true</code> if the queue exists; otherwise <code>false</code>
+     */
+    boolean exists(String queueName) {
+        load();
+
+        if (queueUrls.containsKey(queueName)) {
+            return true;
+        }
+
+        if (complete) {
+            return false;
+        }
+
+        try {
+            lookup(queueName);
+            return true;
+        } catch (QueueDoesNotExistException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Gets the url of a queue.
+     *
+     * @param queueName queue name
+     * @return queue url
+     * @throws QueueDoesNotExistException if the queue does not exist
+     */
+    String getQueueUrl(String queueName) {
+        load();
+
+        final String queueUrl = queueUrls.get(queueName);
+        if (queueUrl != null) {
+            return queueUrl;
+        }
+
+        // Also covers queues created since the listing, and fails with the same error as GetQueueUrl when missing
+        return lookup(queueName);
+    }
+
+    /**
+     * Records a queue that has been created.
+     *
+     * @param queueName queue name
+     * @param queueUrl queue url
+     */
+    void put(String queueName, String queueUrl) {
+        queueUrls.put(queueName, queueUrl);
+    }
+
+    /**
+     * Checks whether the listing held every queue.
+     *
+     * @return <code>true</code> if the listing was complete; otherwise <code>false</code>
+     */
+    boolean isComplete() {
+        load();
+        return complete;
+    }
+
+    private void load() {
+        if (loaded) {
+            return;
+        }
+
+        synchronized (this) {
+            if (loaded) {
+                return;
+            }
+
+            final List<String> listed = sqs.listQueues(new ListQueuesRequest()).getQueueUrls();
+            for (String queueUrl : listed) {
+                queueUrls.putIfAbsent(queueUrl.substring(queueUrl.lastIndexOf('/') + 1), queueUrl);
+            }
+
+            complete = listed.size() < MAX_LIST_RESULTS;
+            loaded = true;
+        }
+    }
+
+    private String lookup(String queueName) {
+        final String queueUrl = sqs.getQueueUrl(queueName).getQueueUrl();
+        queueUrls.put(queueName, queueUrl);
+        return queueUrl;
+    }
+}
@@ -0,0 +1,297 @@
+/**
+ * Copyright 2020-present, Nike, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the Apache-2.0 license found in
+ * the LICENSE file in the root directory of this source tree.
+ */
+package com.nike.pdm.localstack.aws.sqs;
+
+import com.amazonaws.services.sqs.AmazonSQS;
+import com.amazonaws.services.sqs.model.CreateQueueRequest;
+import com.amazonaws.services.sqs.model.QueueNameExistsException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nike.pdm.localstack.core.Retry;
+import org.gradle.api.GradleException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Creates many SQS queues, each with a deadletter queue, at once.
+ *
+ * <p>Creation runs in two phases. First every deadletter queue is created in parallel, then every source queue is
+ * created in parallel with its attributes and its redrive policy passed to CreateQueue, so a new queue costs a single
+ * request. The redrive policy refers to the deadletter queue by an ARN derived from its name rather than one looked
+ * up from SQS. Existing queues are found in a single listing of the queues; existing deadletter queues are left as they
+ * are and existing source queues have their attributes and redrive policy updated.
+ *
+ * <p>Each request is retried on its own, and a queue that cannot be created does not stop the others. A source queue
+ * whose deadletter queue could not be created is skipped.
+ */
+final class SqsQueuePairCreator {
+
+    static final String REDRIVE_POLICY_ATTRIBUTE = "RedrivePolicy";
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    // Creating a queue that exists with different attributes fails the same way however often it is tried
+    private static final Collection<Class<? extends Throwable>> EXPECTED_ERRORS = new HashSet<>(Arrays.asList(QueueNameExistsException.class));
+
+    private static final AtomicInteger POOL_COUNT = new AtomicInteger();
+
+    private final AmazonSQS sqs;
+    private final SqsQueueInventory inventory;
+    private final Function<String, String> queueArns;
+    private final int parallelism;
+
+    /**
+     * Creates a queue pair creator.
+     *
+     * @param sqs sqs client
+     * @param inventory existing queues
+     * @param queueArns resolves the ARN of a queue from its name
+     * @param parallelism maximum number of queues created at the same time
+     */
+    SqsQueuePairCreator(AmazonSQS sqs, SqsQueueInventory inventory, Function<String, String> queueArns, int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be greater than zero: " + parallelism);
+        }
+
+        this.sqs = sqs;
+        this.inventory = inventory;
+        this.queueArns = queueArns;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Creates the queues and their deadletter queues.
+     *
+     * @param specs queues to create
+     * @return outcome of each queue, in the order of the specs
+     */
+    List<Result> create(List<SqsQueueSpec> specs) {
+        // List the existing queues up front rather than in whichever worker needs them first
+        Retry.execute(inventory::isComplete, SqsBatchSender.DEFAULT_MAX_ATTEMPTS);
+
+        final int poolId = POOL_COUNT.incrementAndGet();
+        final AtomicInteger threadCount = new AtomicInteger();
+        final ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(specs.size(), parallelism)), r -> {
+            final Thread thread = new Thread(r, String.format("sqs-queue-creator-%d-%d", poolId, threadCount.incrementAndGet()));
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        try {
+            // Queues may share a deadletter queue, which is only created once
+            final Map<String, Future<Outcome>> dlqRequests = new LinkedHashMap<>();
+            for (SqsQueueSpec spec : specs) {
+                dlqRequests.computeIfAbsent(spec.getDeadletterQueueName(),
+                        dlqName -> executor.submit(() -> createDeadletterQueue(dlqName, spec.getDeadletterQueueAttributes())));
+            }
+
+            final Map<String, Outcome> dlqOutcomes = new HashMap<>();
+            for (Map.Entry<String, Future<Outcome>> request : dlqRequests.entrySet()) {
+                dlqOutcomes.put(request.getKey(), await(request.getValue()));
+            }
+
+            final List<Future<Outcome>> queueRequests = new ArrayList<>(specs.size());
+            for (SqsQueueSpec spec : specs) {
+                queueRequests.add(dlqOutcomes.get(spec.getDeadletterQueueName()).isFailed()
+                        ? null
+                        : executor.submit(() -> createQueue(spec)));
+            }
+
+            final List<Result> results = new ArrayList<>(specs.size());
+            for (int i = 0; i < specs.size(); i++) {
+                final SqsQueueSpec spec = specs.get(i);
+                final Outcome queueOutcome = queueRequests.get(i) != null
+                        ? await(queueRequests.get(i))
+                        : new Outcome(Action.SKIPPED, 0, "Deadletter queue was not created");
+
+                results.add(new Result(spec.getQueueName(), spec.getDeadletterQueueName(),
+                        dlqOutcomes.get(spec.getDeadletterQueueName()), queueOutcome));
+            }
+
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private Outcome createDeadletterQueue(String dlqName, Map<String, String> attributes) {
+        final long start = System.nanoTime();
+
+        try {
+            if (inventory.exists(dlqName)) {
+                return new Outcome(Action.EXISTED, elapsedMillis(start), null);
+            }
+
+            create(dlqName, attributes);
+
+            return new Outcome(Action.CREATED, elapsedMillis(start), null);
+        } catch (Exception e) {
+            return new Outcome(Action.FAILED, elapsedMillis(start), getMessage(e));
+        }
+    }
+
+    private Outcome createQueue(SqsQueueSpec spec) {
+        final long start = System.nanoTime();
+
+        try {
+            final Map<String, String> attributes = new HashMap<>();
+            if (spec.getQueueAttributes() != null) {
+                attributes.putAll(spec.getQueueAttributes());
+            }
+
+            attributes.put(REDRIVE_POLICY_ATTRIBUTE, getRedrivePolicy(spec));
+
+            if (inventory.exists(spec.getQueueName())) {
+                final String queueUrl = inventory.getQueueUrl(spec.getQueueName());
+                Retry.execute(() -> sqs.setQueueAttributes(queueUrl, attributes), SqsBatchSender.DEFAULT_MAX_ATTEMPTS);
+
+                return new Outcome(Action.UPDATED, elapsedMillis(start), null);
+            }
+
+            create(spec.getQueueName(), attributes);
+
+            return new Outcome(Action.CREATED, elapsedMillis(start), null);
+        } catch (Exception e) {
+            return new Outcome(Action.FAILED, elapsedMillis(start), getMessage(e));
+        }
+    }
+
+    private void create(String queueName, Map<String, String> attributes) {
+        final CreateQueueRequest request = new CreateQueueRequest(queueName);
+        if (attributes != null && !attributes.isEmpty()) {
+            request.setAttributes(attributes);
+        }
+
+        final String queueUrl = Retry.execute(() -> sqs.createQueue(request).getQueueUrl(),
+                SqsBatchSender.DEFAULT_MAX_ATTEMPTS, EXPECTED_ERRORS);
+        inventory.put(queueName, queueUrl);
+    }
+
+    private String getRedrivePolicy(SqsQueueSpec spec) throws JsonProcessingException {
+        final CreateSqsQueueWithDlqTask.RedrivePolicy redrivePolicy = new CreateSqsQueueWithDlqTask.RedrivePolicy();
+        redrivePolicy.setDeadLetterTargetArn(queueArns.apply(spec.getDeadletterQueueName()));
+        redrivePolicy.setMaxReceiveCount(String.valueOf(spec.getMaxReceiveCount()));
+
+        return MAPPER.writeValueAsString(redrivePolicy);
+    }
+
+    private static Outcome await(Future<Outcome> request) {
+        try {
+            return request.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GradleException("Interrupted while creating queues", e);
+        } catch (ExecutionException e) {
+            throw new GradleException("Error occurred while creating queues: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    private static long elapsedMillis(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+
+    private static String getMessage(Exception e) {
+        // Retry wraps the errors it does not retry
+        return e.getCause() != null ? e.getCause().getMessage() : e.getMessage();
+    }
+
+    /**
+     * What was done to a queue.
+     */
+    enum Action {
+        CREATED,
+        EXISTED,
+        UPDATED,
+        SKIPPED,
+        FAILED
+    }
+
+    /**
+     * What was done to a queue and how long it took.
+     */
+    static final class Outcome {
+
+        private final Action action;
+        private final long millis;
+        private final String error;
+
+        Outcome(Action action, long millis, String error) {
+            this.action = action;
+            this.millis = millis;
+            this.error = error;
+        }
+
+        Action getAction() {
+            return action;
+        }
+
+        long getMillis() {
+            return millis;
+        }
+
+        String getError() {
+            return error;
+        }
+
+        boolean isFailed() {
+            return action == Action.FAILED || action == Action.SKIPPED;
+        }
+    }
+
+    /**
+     * Outcome of creating a queue and its deadletter queue.
+     */
+    static final class Result {
+
+        private final String queueName;
+        private final String deadletterQueueName;
+        private final Outcome deadletterQueue;
+        private final Outcome queue;
+
+        Result(String queueName, String deadletterQueueName, Outcome deadletterQueue, Outcome queue) {
+            this.queueName = queueName;
+            this.deadletterQueueName = deadletterQueueName;
+            this.deadletterQueue = deadletterQueue;
+            this.queue = queue;
+        }
+
+        String getQueueName() {
+            return queueName;
+        }
+
+        String getDeadletterQueueName() {
+            return deadletterQueueName;
+        }
+
+        Outcome getDeadletterQueue() {
+            return deadletterQueue;
+        }
+
+        Outcome getQueue() {
+            return queue;
+        }
+
+        boolean isFailed() {
+            return deadletterQueue.isFailed() || queue.isFailed();
+        }
+    }
+}
@@ -0,0 +1,182 @@
+/**
+ * Copyright 2020-present, Nike, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the Apache-2.0 license found in
+ * the LICENSE file in the root directory of this source tree.
+ */
+package com.nike.pdm.localstack.aws.sqs;
+
+import com.amazonaws.services.sqs.AmazonSQS;
+import com.amazonaws.services.sqs.model.Message;
+import com.amazonaws.services.sqs.model.PurgeQueueInProgressException;
+import com.amazonaws.services.sqs.model.PurgeQueueRequest;
+import com.amazonaws.services.sqs.model.QueueDoesNotExistException;
+import com.amazonaws.services.sqs.model.ReceiveMessageRequest;
+import com.nike.pdm.localstack.core.Retry;
+import org.gradle.api.GradleException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Purges several SQS queues at once.
+ *
+ * <p>SQS allows a single PurgeQueue request per queue every 60 seconds. A queue that was purged too recently is emptied
+ * instead by receiving and deleting its messages in batches until a receive returns no messages. Messages that are in
+ * flight when a queue is emptied this way are left on the queue.
+ */
+final class SqsQueuePurger {
+
+    /**
+     * Maximum number of queues purged at the same time.
+     */
+    static final int MAX_CONCURRENT_PURGES = 8;
+
+    /**
+     * Number of seconds each receive waits for messages while emptying a queue that could not be purged.
+     */
+    static final int RECEIVE_WAIT_TIME_SECONDS = 1;
+
+    private static final Collection<Class<? extends Throwable>> EXPECTED_ERRORS = new HashSet<>(Arrays.asList(
+            QueueDoesNotExistException.class,
+            PurgeQueueInProgressException.class));
+
+    private static final AtomicInteger POOL_COUNT = new AtomicInteger();
+
+    private final AmazonSQS sqs;
+
+    /**
+     * Creates a purger.
+     *
+     * @param sqs sqs client
+     */
+    SqsQueuePurger(AmazonSQS sqs) {
+        this.sqs = sqs;
+    }
+
+    /**
+     * Purges the queues.
+     *
+     * @param queueUrls urls of the queues to purge
+     * @return outcome of each queue, in the order of the urls
+     * @throws GradleException if a queue could not be purged
+     */
+    List<Result> purge(List<String> queueUrls) {
+        final int poolId = POOL_COUNT.incrementAndGet();
+        final AtomicInteger threadCount = new AtomicInteger();
+        final ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(queueUrls.size(), MAX_CONCURRENT_PURGES)), r -> {
+            final Thread thread = new Thread(r, String.format("sqs-purger-%d-%d", poolId, threadCount.incrementAndGet()));
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        try {
+            final List<Future<Result>> requests = new ArrayList<>(queueUrls.size());
+            for (String queueUrl : queueUrls) {
+                requests.add(executor.submit(() -> purge(queueUrl)));
+            }
+
+            final List<Result> results = new ArrayList<>(queueUrls.size());
+            for (int i = 0; i < requests.size(); i++) {
+                try {
+                    results.add(requests.get(i).get());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new GradleException("Interrupted while purging queues", e);
+                } catch (ExecutionException e) {
+                    throw new GradleException(String.format("Error occurred while purging queue %s: %s", queueUrls.get(i), e.getCause().getMessage()), e.getCause());
+                }
+            }
+
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private Result purge(String queueUrl) {
+        try {
+            Retry.execute(() -> sqs.purgeQueue(new PurgeQueueRequest(queueUrl)), SqsBatchSender.DEFAULT_MAX_ATTEMPTS, EXPECTED_ERRORS);
+            return new Result(queueUrl, true, 0);
+        } catch (RuntimeException e) {
+            if (!(e.getCause() instanceof PurgeQueueInProgressException)) {
+                throw e;
+            }
+        }
+
+        return new Result(queueUrl, false, drain(queueUrl));
+    }
+
+    /**
+     * Receives and deletes the messages on a queue until a receive returns no messages.
+     *
+     * @param queueUrl queue url
+     * @return number of messages deleted
+     */
+    private long drain(String queueUrl) {
+        final ReceiveMessageRequest request = new ReceiveMessageRequest(queueUrl)
+                .withMaxNumberOfMessages(SqsQueueDrainer.MAX_MESSAGES_PER_RECEIVE)
+                .withWaitTimeSeconds(RECEIVE_WAIT_TIME_SECONDS);
+
+        final SqsBatchDeleter deleter = new SqsBatchDeleter(sqs, queueUrl);
+
+        long deleted = 0;
+        while (true) {
+            final List<Message> messages = Retry.execute(() -> sqs.receiveMessage(request).getMessages(),
+                    SqsBatchSender.DEFAULT_MAX_ATTEMPTS, EXPECTED_ERRORS);
+
+            if (messages.isEmpty()) {
+                return deleted;
+            }
+
+            deleted += messages.size() - deleter.delete(messages);
+        }
+    }
+
+    /**
+     * Outcome of purging a queue.
+     */
+    static final class Result {
+
+        private final String queueUrl;
+        private final boolean purged;
+        private final long deleted;
+
+        Result(String queueUrl, boolean purged, long deleted) {
+            this.queueUrl = queueUrl;
+            this.purged = purged;
+            this.deleted = deleted;
+        }
+
+        String getQueueUrl() {
+            return queueUrl;
+        }
+
+        /**
+         * Checks whether the queue was purged with PurgeQueue.
+         *
+         * @return <code>true</code> if the queue was purged; <code>false</code> if its messages were deleted instead
+         */
+        boolean isPurged() {
+            return purged;
+        }
+
+        /**
+         * Gets the number of messages deleted from a queue that could not be purged.
+         *
+         * @return number of messages
+         */
+        long getDeleted() {
+            return deleted;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+/**
+ * Copyright 2020-present, Nike, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the Apache-2.0 license found in
+ * the LICENSE file in the root directory of this source tree.
+ */
+package com.nike.pdm.localstack.aws.sqs;
+
+import com.amazonaws.util.StringUtils;
+
+import java.io.Serializable;
+import java.util.Map;
+
+/**
+ * Specification of an SQS queue to create along with its deadletter queue.
+ */
+public class SqsQueueSpec implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final String DEFAULT_DLQ_SUFFIX = "-dlq";
+
+    private String queueName;
+    private Map<String, String> queueAttributes;
+    private String deadletterQueueName;
+    private Map<String, String> deadletterQueueAttributes;
+    private Integer maxReceiveCount = 1;
+
+    public SqsQueueSpec() {
+    }
+
+    public SqsQueueSpec(String queueName) {
+        this.queueName = queueName;
+    }
+
+    /**
+     * Gets the name of the queue to create.
+     *
+     * @return queue name
+     */
+    public String getQueueName() {
+        return queueName;
+    }
+
+    /**
+     * Sets the name of the queue to create.
+     *
+     * @param queueName queue name
+     */
+    public void setQueueName(String queueName) {
+        this.queueName = queueName;
+    }
+
+    /**
+     * Gets the queue attributes to apply to the created queue.
+     *
+     * @return queue attributes
+     */
+    public Map<String, String> getQueueAttributes() {
+        return queueAttributes;
+    }
+
+    /**
+     * Sets the queue attributes to apply to the created queue.
+     *
+     * @param queueAttributes queue attributes
+     */
+    public void setQueueAttributes(Map<String, String> queueAttributes) {
+        this.queueAttributes = queueAttributes;
+    }
+
+    /**
+     * Gets the name of the deadletter queue to create. If not specified, the name will default to `{queueName}-dlq`.
+     *
+     * @return deadletter queue name
+     */
+    public String getDeadletterQueueName() {
+        return !StringUtils.isNullOrEmpty(deadletterQueueName) ? deadletterQueueName : queueName + DEFAULT_DLQ_SUFFIX;
+    }
+
+    /**
+     * Sets the name of the deadletter queue to create. If not specified, the name will default to `{queueName}-dlq`.
+     *
+     * @param deadletterQueueName deadletter queue name
+     */
+    public void setDeadletterQueueName(String deadletterQueueName) {
+        this.deadletterQueueName = deadletterQueueName;
+    }
+
+    /**
+     * Gets the queue attributes to apply to the created deadletter queue.
+     *
+     * @return queue attributes
+     */
+    public Map<String, String> getDeadletterQueueAttributes() {
+        return deadletterQueueAttributes;
+    }
+
+    /**
+     * Sets the queue attributes to apply to the created deadletter queue.
+     *
+     * @param deadletterQueueAttributes queue attributes
+     */
+    public void setDeadletterQueueAttributes(Map<String, String> deadletterQueueAttributes) {
+        this.deadletterQueueAttributes = deadletterQueueAttributes;
+    }
+
+    /**
+     * Gets the number of times a message is received before it is moved to the deadletter queue. Defaults to 1.
+     *
+     * @return maximum receive count
+     */
+    public Integer getMaxReceiveCount() {
+        return maxReceiveCount != null ? maxReceiveCount : 1;
+    }
+
+    /**
+     * Sets the number of times a message is received before it is moved to the deadletter queue.
+     *
+     * @param maxReceiveCount maximum receive count
+     */
+    public void setMaxReceiveCount(Integer maxReceiveCount) {
+        this.maxReceiveCount = maxReceiveCount;
+    }
+}
@@ -11,11 +11,12 @@ import com.amazonaws.services.sqs.AmazonSQS;
 import com.amazonaws.services.sqs.model.CreateQueueRequest;
 import com.amazonaws.services.sqs.model.CreateQueueResult;
 import com.amazonaws.services.sqs.model.GetQueueAttributesResult;
-import com.amazonaws.services.sqs.model.GetQueueUrlResult;
-import com.amazonaws.services.sqs.model.QueueDoesNotExistException;
+import com.amazonaws.services.sqs.model.ListDeadLetterSourceQueuesRequest;
 import com.amazonaws.util.StringUtils;
 import com.nike.pdm.localstack.aws.AwsClientFactory;
 import com.nike.pdm.localstack.compose.LocalStackExtension;
+import com.nike.pdm.localstack.core.ConsoleLogger;
+import org.gradle.api.GradleException;
 import org.gradle.api.Project;
 
 import java.util.ArrayList;
@@ -28,12 +29,32 @@ import java.util.Map;
  */
 public class SqsTaskUtil {
 
+    /**
+     * Suffix of the names of FIFO queues.
+     */
+    public static final String FIFO_SUFFIX = ".fifo";
+
     private final Project project;
+    private SqsQueueInventory inventory;
 
     public SqsTaskUtil(Project project) {
         this.project = project;
     }
 
+    /**
+     * Gets the inventory of existing queues, listing the queues the first time it is needed. Queue lookups are served
+     * from the inventory, so reuse an instance of this class across the lookups of a task.
+     *
+     * @return queue inventory
+     */
+    private synchronized SqsQueueInventory getInventory() {
+        if (inventory == null) {
+            inventory = new SqsQueueInventory(AwsClientFactory.getInstance().sqs(project));
+        }
+
+        return inventory;
+    }
+
     /**
      * Checks if the SQS queue exists.
      *
@@ -41,14 +62,7 @@ public class SqsTaskUtil {
      * @return <code>true</code> if the queue exists; otherwise <code>false</code>
      */
     public boolean queueExists(String queueName) {
-        final AmazonSQS amazonSQS = AwsClientFactory.getInstance().sqs(project);
-
-        try {
-            GetQueueUrlResult queueUrl = amazonSQS.getQueueUrl(queueName);
-            return true;
-        } catch (QueueDoesNotExistException ignored) {
-            return false;
-        }
+        return getInventory().exists(queueName);
     }
 
     /**
@@ -58,13 +72,10 @@ public class SqsTaskUtil {
      * @return list of resolved queue urls
      */
     public List<String> getQueueUrls(List<String> queueNames) {
-        final AmazonSQS amazonSQS = AwsClientFactory.getInstance().sqs(project);
+        final SqsQueueInventory inventory = getInventory();
 
-        List<String> queueUrls = new ArrayList<>();
-        queueNames.forEach(queueName -> {
-            GetQueueUrlResult queueUrlResult = amazonSQS.getQueueUrl(queueName);
-            queueUrls.add(queueUrlResult.getQueueUrl());
-        });
+        List<String> queueUrls = new ArrayList<>(queueNames.size());
+        queueNames.forEach(queueName -> queueUrls.add(inventory.getQueueUrl(queueName)));
 
         return queueUrls;
     }
@@ -76,10 +87,19 @@ public class SqsTaskUtil {
      * @return resolved queue url
      */
     public String getQueueUrl(String queueName) {
+        return getInventory().getQueueUrl(queueName);
+    }
+
+    /**
+     * Returns the urls of the queues that use the queue as their deadletter queue.
+     *
+     * @param deadLetterQueueUrl deadletter queue url
+     * @return source queue urls
+     */
+    public List<String> getDeadLetterSourceQueueUrls(String deadLetterQueueUrl) {
         final AmazonSQS amazonSQS = AwsClientFactory.getInstance().sqs(project);
 
-        GetQueueUrlResult queueUrlResult = amazonSQS.getQueueUrl(queueName);
-        return queueUrlResult.getQueueUrl();
+        return amazonSQS.listDeadLetterSourceQueues(new ListDeadLetterSourceQueuesRequest().withQueueUrl(deadLetterQueueUrl)).getQueueUrls();
     }
 
     /**
@@ -98,7 +118,10 @@ public class SqsTaskUtil {
             createQueueRequest.setAttributes(queueAttributes);
         }
 
-        return amazonSQS.createQueue(createQueueRequest);
+        final CreateQueueResult result = amazonSQS.createQueue(createQueueRequest);
+        getInventory().put(queueName, result.getQueueUrl());
+
+        return result;
     }
 
     /**
@@ -142,6 +165,49 @@ public class SqsTaskUtil {
         }
     }
 
+    /**
+     * Gets the approximate number of messages on the queue that have been received but not yet deleted.
+     *
+     * @param queueUrl queue url
+     * @return approximate number of in flight messages
+     */
+    public Long getApproximateNumberOfMessagesNotVisible(String queueUrl) {
+        String val = getQueueAttribute(queueUrl, SqsQueueDepthPoller.NOT_VISIBLE_ATTRIBUTE);
+        if (!StringUtils.isNullOrEmpty(val)) {
+            return Long.parseLong(val);
+        } else {
+            return 0L;
+        }
+    }
+
+    /**
+     * Waits until the depth of every queue, its visible plus in flight messages, is at or below the target depth. The
+     * queues are polled at once, quickly while their depths are changing and less often while they are not.
+     *
+     * @param queueUrls queue urls
+     * @param targetDepth depth each queue must reach
+     * @param timeoutMillis number of milliseconds after which to give up
+     * @param minPollIntervalMillis interval between polls while depths are changing
+     * @param maxPollIntervalMillis longest interval between polls while depths are not changing
+     * @throws GradleException if a queue has not reached the target depth when the timeout expires
+     */
+    public void awaitQueueDepth(List<String> queueUrls,
+                                long targetDepth,
+                                long timeoutMillis,
+                                long minPollIntervalMillis,
+                                long maxPollIntervalMillis) {
+        final AmazonSQS amazonSQS = AwsClientFactory.getInstance().sqs(project);
+
+        try (SqsQueueDepthPoller poller = new SqsQueueDepthPoller(amazonSQS, queueUrls, minPollIntervalMillis, maxPollIntervalMillis)) {
+            poller.await(targetDepth, timeoutMillis);
+
+            for (int i = 0; i < queueUrls.size(); i++) {
+                ConsoleLogger.log("Queue %s at depth %d. Drain rate: %.1f msg/s",
+                        getQueueNameFromUrl(queueUrls.get(i)), poller.getDepth(i), poller.getDrainRate(i));
+            }
+        }
+    }
+
     /**
      * Gets the specified queue attribute if it exists.
      *
@@ -153,7 +219,7 @@ public class SqsTaskUtil {
         final AmazonSQS amazonSQS = AwsClientFactory.getInstance().sqs(project);
 
         GetQueueAttributesResult queueAttributes = amazonSQS.getQueueAttributes(queueUrl, Arrays.asList(attributeName));
-        return queueAttributes.getAttributes().get("attributeName");
+        return queueAttributes.getAttributes().get(attributeName);
     }
 
     /**
@@ -0,0 +1,103 @@
+/**
+ * Copyright 2020-present, Nike, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the Apache-2.0 license found in
+ * the LICENSE file in the root directory of this source tree.
+ */
+package com.nike.pdm.localstack.aws.sqs;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Line of UTF-8 encoded text that stays in the buffer it was read into until it is needed as a string.
+ *
+ * <p>The byte length of the line, which is all that is needed to batch it, is known without decoding it. The line is
+ * decoded each time {@link #toString()} is called, so it should be called once, when the message is sent. The other
+ * {@link CharSequence} methods decode the line as well.
+ */
+final class Utf8Line implements CharSequence {
+
+    private final ByteBuffer buffer;
+    private final int offset;
+    private final int length;
+
+    /**
+     * Creates a line.
+     *
+     * @param buffer buffer holding the line, shared with other lines and never modified
+     * @param offset index of the first byte of the line in the buffer
+     * @param length number of bytes in the line
+     */
+    Utf8Line(ByteBuffer buffer, int offset, int length) {
+        this.buffer = buffer;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    /**
+     * Creates a placeholder for a line that is too large to hold in a buffer. Its length is known, so it is rejected
+     * as oversized, but it cannot be decoded.
+     *
+     * @param length number of bytes in the line
+     * @return line
+     */
+    static Utf8Line oversized(long length) {
+        return new Utf8Line(null, 0, (int) Math.min(Integer.MAX_VALUE, length));
+    }
+
+    /**
+     * Gets the number of bytes in the UTF-8 encoded line.
+     *
+     * @return length in bytes
+     */
+    int getByteLength() {
+        return length;
+    }
+
+    /**
+     * Gets the UTF-8 encoded bytes of the line without decoding or copying them.
+     *
+     * @return read-only buffer positioned at the first byte of the line and limited to its last byte
+     */
+    ByteBuffer getBytes() {
+        if (buffer == null) {
+            throw new IllegalStateException(String.format("Line of %d bytes is too large to read", length));
+        }
+
+        final ByteBuffer bytes = buffer.asReadOnlyBuffer();
+        bytes.position(offset);
+        bytes.limit(offset + length);
+
+        return bytes;
+    }
+
+    @Override
+    public int length() {
+        return toString().length();
+    }
+
+    @Override
+    public char charAt(int index) {
+        return toString().charAt(index);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return toString().subSequence(start, end);
+    }
+
+    @Override
+    public String toString() {
+        if (buffer == null) {
+            throw new IllegalStateException(String.format("Line of %d bytes is too large to decode", length));
+        }
+
+        final ByteBuffer bytes = buffer.duplicate();
+        bytes.position(offset);
+        bytes.limit(offset + length);
+
+        return StandardCharsets.UTF_8.decode(bytes).toString();
+    }
+}
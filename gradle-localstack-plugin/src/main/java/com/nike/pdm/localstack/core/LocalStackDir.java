@@ -33,6 +33,16 @@ public class LocalStackDir {
      */
     public static final String DATA_SUBDIRECTORY_NAME = ".localstack";
 
+    /**
+     * Name of the sub-directory of the localstack directory where tasks store checkpoints of their progress.
+     */
+    public static final String CHECKPOINT_SUBDIRECTORY_NAME = ".checkpoints";
+
+    /**
+     * Name of the sub-directory of the localstack directory where tasks store manifests of the data they have loaded.
+     */
+    public static final String MANIFEST_SUBDIRECTORY_NAME = ".manifests";
+
     /**
      * Gets the localstack working directory.
      *
@@ -73,6 +83,28 @@ public class LocalStackDir {
         return Paths.get(project.getRootDir().getAbsolutePath(), DEFAULT_LOCALSTACK_DIR_NAME).toFile();
     }
 
+    /**
+     * Gets the ".checkpoints" sub-directory of the localstack working directory. The directory is not created by this
+     * method.
+     *
+     * @param project gradle project
+     * @return the checkpoint directory
+     */
+    public static File getCheckpointDirectory(Project project) {
+        return new File(getDirectory(project), CHECKPOINT_SUBDIRECTORY_NAME);
+    }
+
+    /**
+     * Gets the ".manifests" sub-directory of the localstack working directory. The directory is not created by this
+     * method.
+     *
+     * @param project gradle project
+     * @return the manifest directory
+     */
+    public static File getManifestDirectory(Project project) {
+        return new File(getDirectory(project), MANIFEST_SUBDIRECTORY_NAME);
+    }
+
     /**
      * Checks to see if the "localstack" working directory exists in the project.
      *
@@ -0,0 +1,136 @@
+/**
+ * Copyright 2020-present, Nike, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the Apache-2.0 license found in
+ * the LICENSE file in the root directory of this source tree.
+ */
+package com.nike.pdm.localstack.core;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Thread-safe token bucket that limits the rate at which work is performed.
+ *
+ * <p>Tokens are added to the bucket at a steady rate, up to the burst capacity, and each unit of work takes one
+ * token. When a ramp-up period is configured the rate grows linearly from zero to the target rate over that period,
+ * and the bucket starts empty so that no burst is allowed before the ramp begins.
+ */
+public final class TokenBucket {
+
+    /**
+     * Longest time a waiting thread sleeps before checking the bucket again. Keeps waiting threads responsive to the
+     * increasing rate while ramping up.
+     */
+    private static final long MAX_SLEEP_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+    /**
+     * Smallest fraction of the target rate used while ramping up so that the bucket always refills.
+     */
+    private static final double MIN_RAMP_FRACTION = 0.01;
+
+    private final double ratePerSecond;
+    private final double capacity;
+    private final long rampUpNanos;
+    private final LongSupplier nanoClock;
+    private final long startNanos;
+
+    private double tokens;
+    private long lastRefillNanos;
+
+    /**
+     * Creates a token bucket.
+     *
+     * @param ratePerSecond target number of tokens added per second
+     * @param burst maximum number of tokens the bucket holds
+     * @param rampUpMillis period, in milliseconds, over which the rate grows to the target rate; <code>0</code> for none
+     */
+    public TokenBucket(double ratePerSecond, int burst, long rampUpMillis) {
+        this(ratePerSecond, burst, rampUpMillis, System::nanoTime);
+    }
+
+    TokenBucket(double ratePerSecond, int burst, long rampUpMillis, LongSupplier nanoClock) {
+        if (ratePerSecond <= 0) {
+            throw new IllegalArgumentException("Rate must be greater than zero: " + ratePerSecond);
+        }
+
+        if (burst < 1) {
+            throw new IllegalArgumentException("Burst must be greater than zero: " + burst);
+        }
+
+        this.ratePerSecond = ratePerSecond;
+        this.capacity = burst;
+        this.rampUpNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, rampUpMillis));
+        this.nanoClock = nanoClock;
+        this.startNanos = nanoClock.getAsLong();
+        this.lastRefillNanos = startNanos;
+        this.tokens = rampUpNanos > 0 ? 0 : capacity;
+    }
+
+    /**
+     * Takes the tokens from the bucket, blocking until enough tokens are available. Requests for more tokens than the
+     * burst capacity are allowed once the bucket is full.
+     *
+     * @param permits number of tokens to take
+     */
+    public void acquire(int permits) {
+        long waitNanos;
+        while ((waitNanos = tryAcquire(permits)) > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(Math.min(waitNanos, MAX_SLEEP_NANOS));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+    /**
+     * Takes the tokens from the bucket if enough tokens are available.
+     *
+     * @param permits number of tokens to take
+     * @return <code>0</code> if the tokens were taken; otherwise the estimated number of nanoseconds until they will be
+     *         available
+     */
+    synchronized long tryAcquire(int permits) {
+        final long now = nanoClock.getAsLong();
+        final double rate = currentRate(now);
+
+        tokens = Math.min(capacity, tokens + rate * (now - lastRefillNanos) / TimeUnit.SECONDS.toNanos(1));
+        lastRefillNanos = now;
+
+        // Oversized requests only have to wait for a full bucket or they could never be satisfied
+        final double required = Math.min(permits, capacity);
+        if (tokens >= required) {
+            tokens -= permits;
+            return 0;
+        }
+
+        return Math.max(1, (long) ((required - tokens) / rate * TimeUnit.SECONDS.toNanos(1)));
+    }
+
+    /**
+     * Gets the rate at the given time, taking the ramp-up period into account.
+     *
+     * @param nanos time as reported by the clock
+     * @return tokens per second
+     */
+    double currentRate(long nanos) {
+        final long elapsed = nanos - startNanos;
+        if (rampUpNanos > 0 && elapsed < rampUpNanos) {
+            return ratePerSecond * Math.max(MIN_RAMP_FRACTION, (double) elapsed / rampUpNanos);
+        }
+
+        return ratePerSecond;
+    }
+
+    /**
+     * Gets the target rate.
+     *
+     * @return tokens per second
+     */
+    public double getRatePerSecond() {
+        return ratePerSecond;
+    }
+}
@@ -0,0 +1,305 @@
+/**
+ * Copyright 2020-present, Nike, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the Apache-2.0 license found in
+ * the LICENSE file in the root directory of this source tree.
+ */
+package com.nike.pdm.localstack.aws.s3;
+
+import com.amazonaws.services.s3.AbstractAmazonS3;
+import com.amazonaws.services.s3.model.DeleteObjectsRequest;
+import com.amazonaws.services.s3.model.DeleteObjectsRequest.KeyVersion;
+import com.amazonaws.services.s3.model.DeleteObjectsResult;
+import com.amazonaws.services.s3.model.ListObjectsV2Request;
+import com.amazonaws.services.s3.model.ListObjectsV2Result;
+import com.amazonaws.services.s3.model.ListVersionsRequest;
+import com.amazonaws.services.s3.model.MultiObjectDeleteException;
+import com.amazonaws.services.s3.model.MultiObjectDeleteException.DeleteError;
+import com.amazonaws.services.s3.model.S3ObjectSummary;
+import com.amazonaws.services.s3.model.S3VersionSummary;
+import com.amazonaws.services.s3.model.VersionListing;
+import org.gradle.api.GradleException;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class S3BatchDeleterTest {
+
+    @Test
+    public void shouldDeleteInRequestsOfAtMost1000Keys() {
+        BucketS3 s3 = new BucketS3(2500);
+
+        S3BatchDeleter deleter = new S3BatchDeleter(s3, "fixtures", 4, 3, 1);
+        deleter.delete(keys(0, 2500));
+
+        assertEquals(2500, deleter.await());
+        assertTrue(s3.objects.isEmpty());
+        assertEquals(3, s3.deleteRequests.get());
+        assertEquals(1000, s3.maxKeysPerRequest);
+    }
+
+    @Test
+    public void shouldRetryOnlyKeysThatFailed() {
+        BucketS3 s3 = new BucketS3(100);
+        s3.failuresPerKey.put("key-00007", 2);
+        s3.failuresPerKey.put("key-00042", 1);
+
+        S3BatchDeleter deleter = new S3BatchDeleter(s3, "fixtures", 2, 3, 1);
+        deleter.delete(keys(0, 100));
+
+        assertEquals(100, deleter.await());
+        assertTrue(s3.objects.isEmpty());
+        assertEquals(3, s3.deleteRequests.get());
+        assertEquals(2, s3.retriedKeys.get());
+    }
+
+    @Test
+    public void shouldFailWithAccurateCountWhenKeysKeepFailing() {
+        BucketS3 s3 = new BucketS3(10);
+        s3.failuresPerKey.put("key-00003", Integer.MAX_VALUE);
+
+        S3BatchDeleter deleter = new S3BatchDeleter(s3, "fixtures", 2, 3, 1);
+        deleter.delete(keys(0, 10));
+
+        try {
+            deleter.await();
+            fail("Expected the deletion to fail");
+        } catch (GradleException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("Failed to delete 1 object(s) from bucket fixtures, deleted 9"));
+            assertTrue(e.getMessage(), e.getMessage().contains("key-00003 (InternalError"));
+        }
+
+        assertEquals(9, deleter.getDeleted());
+        assertEquals(1, s3.objects.size());
+    }
+
+    @Test
+    public void shouldSendRequestsConcurrently() {
+        BucketS3 s3 = new BucketS3(4000);
+        s3.delayMillis = 100;
+
+        S3BatchDeleter deleter = new S3BatchDeleter(s3, "fixtures", 4, 3, 1);
+        deleter.delete(keys(0, 4000));
+
+        assertEquals(4000, deleter.await());
+        assertEquals(4, s3.maxConcurrentRequests);
+    }
+
+    private static List<KeyVersion> keys(int from, int to) {
+        List<KeyVersion> keys = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            keys.add(new KeyVersion(BucketS3.key(i)));
+        }
+
+        return keys;
+    }
+
+    /**
+     * Fake S3 client holding the objects of a single bucket, listed in pages of 1,000 keys. Every object has a single
+     * version.
+     */
+    static class BucketS3 extends AbstractAmazonS3 {
+        static final int PAGE_SIZE = 1000;
+
+        final NavigableMap<String, String> objects = new ConcurrentSkipListMap<>();
+        final Map<String, Integer> failuresPerKey = new ConcurrentHashMap<>();
+        final AtomicInteger deleteRequests = new AtomicInteger();
+        final AtomicInteger retriedKeys = new AtomicInteger();
+        final AtomicInteger inFlight = new AtomicInteger();
+        final AtomicInteger listRequests = new AtomicInteger();
+        final AtomicInteger listsInFlight = new AtomicInteger();
+        volatile int maxKeysPerRequest;
+        volatile int maxConcurrentRequests;
+        volatile int maxConcurrentLists;
+        volatile long delayMillis;
+        volatile long listDelayMillis;
+
+        BucketS3(int count) {
+            for (int i = 0; i < count; i++) {
+                put(key(i));
+            }
+        }
+
+        void put(String key) {
+            objects.put(key, "v-" + objects.size());
+        }
+
+        static String key(int i) {
+            return String.format("key-%05d", i);
+        }
+
+        @Override
+        public ListObjectsV2Result listObjectsV2(ListObjectsV2Request request) {
+            final ListObjectsV2Result result = new ListObjectsV2Result();
+            result.setBucketName(request.getBucketName());
+            result.setPrefix(request.getPrefix());
+            result.setDelimiter(request.getDelimiter());
+
+            final Page page = list(request.getPrefix(), request.getDelimiter(), request.getContinuationToken(),
+                    request.getMaxKeys() != null ? request.getMaxKeys() : PAGE_SIZE);
+            for (String key : page.keys) {
+                S3ObjectSummary summary = new S3ObjectSummary();
+                summary.setBucketName(request.getBucketName());
+                summary.setKey(key);
+                result.getObjectSummaries().add(summary);
+            }
+
+            result.setCommonPrefixes(page.commonPrefixes);
+            result.setTruncated(page.nextMarker != null);
+            result.setNextContinuationToken(page.nextMarker);
+            return result;
+        }
+
+        @Override
+        public VersionListing listVersions(ListVersionsRequest request) {
+            return versions(request.getBucketName(), request.getPrefix(), request.getDelimiter(), request.getKeyMarker(),
+                    request.getMaxResults() != null ? request.getMaxResults() : PAGE_SIZE);
+        }
+
+        @Override
+        public VersionListing listNextBatchOfVersions(VersionListing previous) {
+            return versions(previous.getBucketName(), previous.getPrefix(), previous.getDelimiter(), previous.getNextKeyMarker(), PAGE_SIZE);
+        }
+
+        @Override
+        public DeleteObjectsResult deleteObjects(DeleteObjectsRequest request) {
+            deleteRequests.incrementAndGet();
+            int concurrent = inFlight.incrementAndGet();
+            synchronized (this) {
+                maxConcurrentRequests = Math.max(maxConcurrentRequests, concurrent);
+                maxKeysPerRequest = Math.max(maxKeysPerRequest, request.getKeys().size());
+            }
+
+            try {
+                if (delayMillis > 0) {
+                    Thread.sleep(delayMillis);
+                }
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            } finally {
+                inFlight.decrementAndGet();
+            }
+
+            List<DeleteError> errors = new ArrayList<>();
+            for (KeyVersion key : request.getKeys()) {
+                Integer failures = failuresPerKey.get(key.getKey());
+                if (failures != null && failures > 0) {
+                    failuresPerKey.put(key.getKey(), failures - 1);
+
+                    DeleteError error = new DeleteError();
+                    error.setKey(key.getKey());
+                    error.setVersionId(key.getVersion());
+                    error.setCode("InternalError");
+                    error.setMessage("We encountered an internal error. Please try again.");
+                    errors.add(error);
+                } else {
+                    if (failuresPerKey.containsKey(key.getKey())) {
+                        retriedKeys.incrementAndGet();
+                    }
+
+                    objects.remove(key.getKey());
+                }
+            }
+
+            if (!errors.isEmpty()) {
+                throw new MultiObjectDeleteException(errors, Collections.emptyList());
+            }
+
+            return new DeleteObjectsResult(Collections.emptyList());
+        }
+
+        private VersionListing versions(String bucketName, String prefix, String delimiter, String marker, int maxResults) {
+            final VersionListing listing = new VersionListing();
+            listing.setBucketName(bucketName);
+            listing.setPrefix(prefix);
+            listing.setDelimiter(delimiter);
+
+            final Page page = list(prefix, delimiter, marker, maxResults);
+            final List<S3VersionSummary> versions = new ArrayList<>();
+            for (String key : page.keys) {
+                S3VersionSummary summary = new S3VersionSummary();
+                summary.setBucketName(bucketName);
+                summary.setKey(key);
+                summary.setVersionId(objects.get(key));
+                versions.add(summary);
+            }
+
+            listing.setVersionSummaries(versions);
+            listing.setCommonPrefixes(page.commonPrefixes);
+            listing.setTruncated(page.nextMarker != null);
+            listing.setNextKeyMarker(page.nextMarker);
+            return listing;
+        }
+
+        /**
+         * Lists a page of keys after the marker, rolling keys up to the first delimiter after the prefix into common
+         * prefixes. Listing requests take as long as the configured list delay.
+         */
+        private Page list(String prefix, String delimiter, String marker, int maxKeys) {
+            listRequests.incrementAndGet();
+            final int concurrent = listsInFlight.incrementAndGet();
+            synchronized (this) {
+                maxConcurrentLists = Math.max(maxConcurrentLists, concurrent);
+            }
+
+            try {
+                if (listDelayMillis > 0) {
+                    Thread.sleep(listDelayMillis);
+                }
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            } finally {
+                listsInFlight.decrementAndGet();
+            }
+
+            final String from = prefix != null ? prefix : "";
+            final Page page = new Page();
+            String last = null;
+            for (String key : (marker == null ? objects.tailMap(from, true) : objects.tailMap(marker, false)).keySet()) {
+                if (!key.startsWith(from)) {
+                    break;
+                }
+
+                if (page.keys.size() + page.commonPrefixes.size() == maxKeys) {
+                    page.nextMarker = last;
+                    break;
+                }
+
+                final int end = delimiter != null ? key.indexOf(delimiter, from.length()) : -1;
+                if (end >= 0) {
+                    final String commonPrefix = key.substring(0, end + delimiter.length());
+                    if (!page.commonPrefixes.contains(commonPrefix)) {
+                        page.commonPrefixes.add(commonPrefix);
+                    }
+
+                    // Skip the rest of the keys rolled up into the prefix
+                    last = objects.subMap(commonPrefix, true, commonPrefix + Character.MAX_VALUE, true).lastKey();
+                    continue;
+                }
+
+                page.keys.add(key);
+                last = key;
+            }
+
+            return page;
+        }
+    }
+
+    private static class Page {
+        final List<String> keys = new ArrayList<>();
+        final List<String> commonPrefixes = new ArrayList<>();
+        String nextMarker;
+    }
+}
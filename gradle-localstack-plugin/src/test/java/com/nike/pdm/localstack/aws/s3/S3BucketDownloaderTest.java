@@ -0,0 +1,260 @@
+/**
+ * Copyright 2020-present, Nike, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the Apache-2.0 license found in
+ * the LICENSE file in the root directory of this source tree.
+ */
+package com.nike.pdm.localstack.aws.s3;
+
+import com.amazonaws.services.s3.AbstractAmazonS3;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.ListObjectsV2Request;
+import com.amazonaws.services.s3.model.ListObjectsV2Result;
+import com.amazonaws.services.s3.model.S3Object;
+import com.amazonaws.services.s3.model.S3ObjectSummary;
+import org.apache.commons.io.FileUtils;
+import org.gradle.api.GradleException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class S3BucketDownloaderTest {
+
+    private static final Date YESTERDAY = new Date(System.currentTimeMillis() - 86_400_000);
+    private static final Date NOW = new Date();
+
+    private Path tempDir;
+
+    @Before
+    public void setup() throws IOException {
+        tempDir = Files.createTempDirectory("s3-download");
+    }
+
+    @After
+    public void cleanup() throws IOException {
+        FileUtils.deleteDirectory(tempDir.toFile());
+    }
+
+    @Test
+    public void shouldDownloadEveryObjectUnderItsKey() throws IOException {
+        ContentS3 s3 = new ContentS3();
+        s3.put("manifest.json", "{}", NOW);
+        s3.put("tenant-1/2020-01-01/order.json", "{\"id\":1}", NOW);
+        s3.put("tenant-1/2020-01-02/order.json", "{\"id\":2}", NOW);
+        s3.put("tenant-2/2020-01-01/order.json", "{\"id\":3}", NOW);
+        s3.put("tenant-2/", "", NOW);
+
+        S3BucketDownloader downloader = new S3BucketDownloader(s3, "orders", null, null, 3, 1024);
+        downloader.download(tempDir.toFile());
+
+        assertEquals(4, downloader.getDownloaded());
+        assertEquals("{\"id\":2}", read("tenant-1/2020-01-02/order.json"));
+        assertEquals("{}", read("manifest.json"));
+        assertEquals(0, s3.rangedRequests.get());
+        assertTrue(s3.listRequests.get() > 3);
+        assertNoTempFiles();
+    }
+
+    @Test
+    public void shouldDownloadLargeObjectsInRanges() throws IOException {
+        byte[] content = new byte[10_000];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) (i % 251);
+        }
+
+        ContentS3 s3 = new ContentS3();
+        s3.objects.put("images/large.bin", content);
+        s3.put("images/small.bin", "small", NOW);
+
+        S3BucketDownloader downloader = new S3BucketDownloader(s3, "orders", null, null, 4, 1024);
+        downloader.download(tempDir.toFile());
+
+        assertEquals(2, downloader.getDownloaded());
+        assertEquals(10_005, downloader.getDownloadedBytes());
+        assertEquals(10, s3.rangedRequests.get());
+        assertArrayEquals(content, Files.readAllBytes(tempDir.resolve("images/large.bin")));
+    }
+
+    @Test
+    public void shouldFilterByPrefixAndLastModified() throws IOException {
+        ContentS3 s3 = new ContentS3();
+        s3.put("tenant-1/old.json", "old", YESTERDAY);
+        s3.put("tenant-1/new.json", "new", NOW);
+        s3.put("tenant-2/new.json", "other", NOW);
+
+        S3BucketDownloader downloader = new S3BucketDownloader(s3, "orders", "tenant-1/", new Date(NOW.getTime() - 60_000), 2, 1024);
+        downloader.download(tempDir.toFile());
+
+        assertEquals(1, downloader.getDownloaded());
+        assertEquals(1, downloader.getFiltered());
+        assertEquals("new", read("tenant-1/new.json"));
+        assertFalse(Files.exists(tempDir.resolve("tenant-1/old.json")));
+        assertFalse(Files.exists(tempDir.resolve("tenant-2")));
+    }
+
+    @Test
+    public void shouldRetryFailedRanges() throws IOException {
+        byte[] content = new byte[4096];
+        Arrays.fill(content, (byte) 7);
+
+        ContentS3 s3 = new ContentS3();
+        s3.objects.put("large.bin", content);
+        s3.failuresPerRange.put(2048L, 2);
+
+        S3BucketDownloader downloader = new S3BucketDownloader(s3, "orders", null, null, 2, 1024, 1);
+        downloader.download(tempDir.toFile());
+
+        assertEquals(1, downloader.getDownloaded());
+        assertArrayEquals(content, Files.readAllBytes(tempDir.resolve("large.bin")));
+    }
+
+    @Test
+    public void shouldNotLeavePartialFilesWhenRangeKeepsFailing() throws IOException {
+        ContentS3 s3 = new ContentS3();
+        s3.objects.put("large.bin", new byte[4096]);
+        s3.put("small.json", "{}", NOW);
+        s3.failuresPerRange.put(1024L, Integer.MAX_VALUE);
+
+        S3BucketDownloader downloader = new S3BucketDownloader(s3, "orders", null, null, 2, 1024, 1);
+        try {
+            downloader.download(tempDir.toFile());
+            fail("Expected the download to fail");
+        } catch (GradleException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("Failed to download 1 object(s) from bucket orders, downloaded 1: large.bin"));
+        }
+
+        assertFalse(Files.exists(tempDir.resolve("large.bin")));
+        assertEquals("{}", read("small.json"));
+        assertNoTempFiles();
+    }
+
+    @Test
+    public void shouldRejectKeysOutsideOfDestination() {
+        ContentS3 s3 = new ContentS3();
+        s3.put("../escape.json", "{}", NOW);
+
+        try {
+            new S3BucketDownloader(s3, "orders", null, null, 1, 1024).download(tempDir.resolve("bucket").toFile());
+            fail("Expected the download to fail");
+        } catch (GradleException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("../escape.json (key resolves outside of the destination directory)"));
+        }
+
+        assertFalse(Files.exists(tempDir.resolve("escape.json")));
+    }
+
+    private String read(String key) throws IOException {
+        return new String(Files.readAllBytes(tempDir.resolve(key)), StandardCharsets.UTF_8);
+    }
+
+    private void assertNoTempFiles() throws IOException {
+        Files.walk(tempDir).forEach(path -> assertFalse(path.toString(), path.toString().endsWith(".download")));
+    }
+
+    /**
+     * Fake S3 client holding the content of the objects of a single bucket, listed in pages of two keys.
+     */
+    static class ContentS3 extends AbstractAmazonS3 {
+        static final int PAGE_SIZE = 2;
+
+        final NavigableMap<String, byte[]> objects = new ConcurrentSkipListMap<>();
+        final Map<String, Date> lastModified = new ConcurrentHashMap<>();
+        final Map<Long, Integer> failuresPerRange = new ConcurrentHashMap<>();
+        final AtomicInteger rangedRequests = new AtomicInteger();
+        final AtomicInteger listRequests = new AtomicInteger();
+
+        void put(String key, String content, Date modified) {
+            objects.put(key, content.getBytes(StandardCharsets.UTF_8));
+            lastModified.put(key, modified);
+        }
+
+        @Override
+        public ListObjectsV2Result listObjectsV2(ListObjectsV2Request request) {
+            listRequests.incrementAndGet();
+
+            final String prefix = request.getPrefix() != null ? request.getPrefix() : "";
+            final String marker = request.getContinuationToken();
+
+            ListObjectsV2Result result = new ListObjectsV2Result();
+            String last = null;
+            int count = 0;
+            for (String key : (marker == null ? objects.tailMap(prefix, true) : objects.tailMap(marker, false)).keySet()) {
+                if (!key.startsWith(prefix)) {
+                    break;
+                }
+
+                if (count == PAGE_SIZE) {
+                    result.setTruncated(true);
+                    result.setNextContinuationToken(last);
+                    break;
+                }
+
+                int end = request.getDelimiter() != null ? key.indexOf(request.getDelimiter(), prefix.length()) : -1;
+                if (end >= 0) {
+                    String commonPrefix = key.substring(0, end + 1);
+                    if (!result.getCommonPrefixes().contains(commonPrefix)) {
+                        result.getCommonPrefixes().add(commonPrefix);
+                        count++;
+                    }
+
+                    last = objects.subMap(commonPrefix, true, commonPrefix + Character.MAX_VALUE, true).lastKey();
+                    continue;
+                }
+
+                S3ObjectSummary summary = new S3ObjectSummary();
+                summary.setKey(key);
+                summary.setSize(objects.get(key).length);
+                summary.setLastModified(lastModified.getOrDefault(key, NOW));
+                result.getObjectSummaries().add(summary);
+                last = key;
+                count++;
+            }
+
+            return result;
+        }
+
+        @Override
+        public S3Object getObject(GetObjectRequest request) {
+            byte[] content = objects.get(request.getKey());
+            int start = 0;
+            int end = content.length - 1;
+
+            if (request.getRange() != null) {
+                rangedRequests.incrementAndGet();
+                start = (int) request.getRange()[0];
+                end = (int) request.getRange()[1];
+
+                Integer failures = failuresPerRange.get((long) start);
+                if (failures != null && failures > 0) {
+                    failuresPerRange.put((long) start, failures - 1);
+                    throw new IllegalStateException("Simulated failure at byte " + start);
+                }
+            }
+
+            S3Object object = new S3Object();
+            object.setKey(request.getKey());
+            object.setObjectContent(new ByteArrayInputStream(content, start, end - start + 1));
+            return object;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+/**
+ * Copyright 2020-present, Nike, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the Apache-2.0 license found in
+ * the LICENSE file in the root directory of this source tree.
+ */
+package com.nike.pdm.localstack.aws.s3;
+
+import com.nike.pdm.localstack.aws.s3.S3BatchDeleterTest.BucketS3;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class S3BucketPurgerTest {
+
+    @Test
+    public void shouldPurgeEveryPageOfObjects() {
+        BucketS3 s3 = new BucketS3(3500);
+
+        assertEquals(3500, new S3BucketPurger(s3).purge("fixtures", false));
+        assertTrue(s3.objects.isEmpty());
+        assertEquals(4, s3.listRequests.get());
+        assertEquals(4, s3.deleteRequests.get());
+    }
+
+    @Test
+    public void shouldPurgeEveryVersionOfVersionedBucket() {
+        BucketS3 s3 = new BucketS3(1200);
+
+        assertEquals(1200, new S3BucketPurger(s3).purge("fixtures", true));
+        assertTrue(s3.objects.isEmpty());
+        assertEquals(2, s3.listRequests.get());
+    }
+
+    @Test
+    public void shouldPurgeEmptyBucket() {
+        BucketS3 s3 = new BucketS3(0);
+
+        assertEquals(0, new S3BucketPurger(s3).purge("fixtures", false));
+        assertEquals(0, s3.deleteRequests.get());
+    }
+
+    @Test
+    public void shouldPurgeTopLevelPrefixesInParallel() {
+        BucketS3 s3 = tenants(6, 1500);
+        s3.listDelayMillis = 50;
+
+        assertEquals(6 * 1500 + 5, new S3BucketPurger(s3).purgeSharded("fixtures", false, 3));
+        assertTrue(s3.objects.isEmpty());
+        assertEquals(3, s3.maxConcurrentLists);
+    }
+
+    @Test
+    public void shouldPurgeTopLevelPrefixesOfVersionedBucket() {
+        BucketS3 s3 = tenants(4, 250);
+
+        assertEquals(4 * 250 + 5, new S3BucketPurger(s3).purgeSharded("fixtures", true, 2));
+        assertTrue(s3.objects.isEmpty());
+    }
+
+    @Test
+    public void shouldPageThroughTopLevelPrefixes() {
+        BucketS3 s3 = tenants(2500, 1);
+
+        assertEquals(2500 + 5, new S3BucketPurger(s3).purgeSharded("fixtures", false, 8));
+        assertTrue(s3.objects.isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectParallelismBelowOne() {
+        new S3BucketPurger(new BucketS3(0)).purgeSharded("fixtures", false, 0);
+    }
+
+    @Test
+    public void shouldCheckWhetherBucketIsEmpty() {
+        assertTrue(new S3BucketPurger(new BucketS3(0)).isEmpty("fixtures", false));
+        assertTrue(new S3BucketPurger(new BucketS3(0)).isEmpty("fixtures", true));
+        assertFalse(new S3BucketPurger(new BucketS3(5)).isEmpty("fixtures", false));
+        assertFalse(new S3BucketPurger(new BucketS3(5)).isEmpty("fixtures", true));
+    }
+
+    /**
+     * Creates a bucket laid out as <code>tenant/date/object</code>, with a few objects at its root.
+     */
+    private static BucketS3 tenants(int tenantCount, int objectsPerTenant) {
+        BucketS3 s3 = new BucketS3(5);
+        for (int tenant = 0; tenant < tenantCount; tenant++) {
+            for (int i = 0; i < objectsPerTenant; i++) {
+                s3.put(String.format("tenant-%04d/2020-01-%02d/object-%05d.json", tenant, 1 + i % 28, i));
+            }
+        }
+
+        return s3;
+    }
+}
@@ -0,0 +1,472 @@
+/**
+ * Copyright 2020-present, Nike, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the Apache-2.0 license found in
+ * the LICENSE file in the root directory of this source tree.
+ */
+package com.nike.pdm.localstack.aws.s3;
+
+import com.amazonaws.services.s3.AbstractAmazonS3;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadResult;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadResult;
+import com.amazonaws.services.s3.model.ListObjectsV2Request;
+import com.amazonaws.services.s3.model.ListPartsRequest;
+import com.amazonaws.services.s3.model.ListObjectsV2Result;
+import com.amazonaws.services.s3.model.PartListing;
+import com.amazonaws.services.s3.model.PutObjectRequest;
+import com.amazonaws.services.s3.model.PutObjectResult;
+import com.amazonaws.services.s3.model.S3ObjectSummary;
+import com.amazonaws.services.s3.model.UploadPartRequest;
+import com.amazonaws.services.s3.model.UploadPartResult;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorOutputStream;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.gradle.api.GradleException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class S3FixtureUploaderTest {
+
+    /**
+     * Modification time of every archive entry, so that rewriting an archive only changes the entries whose size does.
+     */
+    private static final Date MODIFIED = new Date(1_577_836_800_000L);
+
+    private Path tempDir;
+    private File fixturesDir;
+    private File manifestFile;
+
+    @Before
+    public void setup() throws IOException {
+        tempDir = Files.createTempDirectory("s3-fixtures");
+        fixturesDir = new File(tempDir.toFile(), "fixtures");
+        manifestFile = new File(tempDir.toFile(), ".manifests/uploadS3Fixtures.properties");
+
+        write("products/1.json", "{\"id\":1}");
+        write("products/2.json", "{\"id\":2}");
+        write("catalog.json", "{}");
+    }
+
+    @After
+    public void cleanup() throws IOException {
+        FileUtils.deleteDirectory(tempDir.toFile());
+    }
+
+    @Test
+    public void shouldUploadEveryFileUnderPrefix() throws IOException {
+        UploadS3 s3 = new UploadS3();
+
+        S3FixtureUploader.Summary summary = upload(s3, "seed");
+
+        assertEquals(3, summary.getUploaded());
+        assertEquals(0, summary.getSkipped());
+        assertEquals(new TreeSet<>(Arrays.asList("seed/catalog.json", "seed/products/1.json", "seed/products/2.json")), s3.objects.keySet());
+        assertEquals("{\"id\":2}", new String(s3.objects.get("seed/products/2.json"), StandardCharsets.UTF_8));
+        assertTrue(manifestFile.exists());
+    }
+
+    @Test
+    public void shouldSkipUnchangedFiles() throws IOException {
+        UploadS3 s3 = new UploadS3();
+        upload(s3, null);
+
+        write("products/2.json", "{\"id\":2,\"name\":\"shoe\"}");
+        S3FixtureUploader.Summary summary = upload(s3, null);
+
+        assertEquals(1, summary.getUploaded());
+        assertEquals(2, summary.getSkipped());
+        assertEquals(4, s3.puts.get());
+        assertEquals("{\"id\":2,\"name\":\"shoe\"}", new String(s3.objects.get("products/2.json"), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void shouldUploadAgainWhenBucketNoLongerHoldsObject() throws IOException {
+        UploadS3 s3 = new UploadS3();
+        upload(s3, null);
+        assertTrue(new S3FixtureUploader(s3, "fixtures", null, 2, S3FixtureUploader.DEFAULT_MULTIPART_THRESHOLD)
+                .holdsAll(S3UploadManifest.open(manifestFile, "fixtures")));
+
+        s3.objects.remove("catalog.json");
+        assertFalse(new S3FixtureUploader(s3, "fixtures", null, 2, S3FixtureUploader.DEFAULT_MULTIPART_THRESHOLD)
+                .holdsAll(S3UploadManifest.open(manifestFile, "fixtures")));
+
+        S3FixtureUploader.Summary summary = upload(s3, null);
+
+        assertEquals(1, summary.getUploaded());
+        assertEquals(2, summary.getSkipped());
+        assertTrue(s3.objects.containsKey("catalog.json"));
+    }
+
+    @Test
+    public void shouldIgnoreManifestOfOtherBucket() throws IOException {
+        UploadS3 s3 = new UploadS3();
+        upload(s3, null);
+
+        S3FixtureUploader.Summary summary = new S3FixtureUploader(s3, "other", null, 2, S3FixtureUploader.DEFAULT_MULTIPART_THRESHOLD)
+                .upload(fixturesDir, S3UploadManifest.open(manifestFile, "other"));
+
+        assertEquals(3, summary.getUploaded());
+    }
+
+    @Test
+    public void shouldForgetDeletedFiles() throws IOException {
+        UploadS3 s3 = new UploadS3();
+        upload(s3, null);
+
+        Files.delete(new File(fixturesDir, "catalog.json").toPath());
+        upload(s3, null);
+
+        assertEquals(null, S3UploadManifest.open(manifestFile, "fixtures").get("catalog.json"));
+        assertEquals(S3FixtureUploader.sha256(new File(fixturesDir, "products/1.json").toPath()),
+                S3UploadManifest.open(manifestFile, "fixtures").get("products/1.json"));
+    }
+
+    @Test
+    public void shouldUploadLargeFilesInParts() throws IOException {
+        byte[] content = new byte[12 * 1024 * 1024];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) (i % 251);
+        }
+        Files.write(new File(fixturesDir, "images.bin").toPath(), content);
+
+        UploadS3 s3 = new UploadS3();
+        S3FixtureUploader.Summary summary = new S3FixtureUploader(s3, "fixtures", null, 4, 1024)
+                .upload(fixturesDir, S3UploadManifest.open(manifestFile, "fixtures"));
+
+        assertEquals(4, summary.getUploaded());
+        assertTrue(s3.parts.get() > 1);
+        assertArrayEquals(content, s3.objects.get("images.bin"));
+    }
+
+    @Test
+    public void shouldSaveManifestOfUploadedFilesWhenSomeFail() throws IOException {
+        UploadS3 s3 = new UploadS3();
+        s3.failingKeys.add("products/1.json");
+
+        try {
+            upload(s3, null);
+            fail("Expected the upload to fail");
+        } catch (GradleException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("Failed to upload 1 file(s) to bucket fixtures, uploaded 2"));
+        }
+
+        s3.failingKeys.clear();
+        S3FixtureUploader.Summary summary = upload(s3, null);
+
+        assertEquals(1, summary.getUploaded());
+        assertEquals(2, summary.getSkipped());
+    }
+
+    @Test
+    public void shouldUploadEveryEntryOfArchive() throws IOException {
+        File archive = writeTarGz("fixtures.tar.gz", entries("./products/3.json", "{\"id\":3}", "orders/1.json", "{\"id\":1}"));
+
+        UploadS3 s3 = new UploadS3();
+        S3FixtureUploader.Summary summary = new S3FixtureUploader(s3, "fixtures", "seed", 2, S3FixtureUploader.DEFAULT_MULTIPART_THRESHOLD)
+                .upload(fixturesDir, Collections.singletonList(archive), S3UploadManifest.open(manifestFile, "fixtures"));
+
+        assertEquals(5, summary.getUploaded());
+        assertEquals(new TreeSet<>(Arrays.asList("seed/catalog.json", "seed/orders/1.json", "seed/products/1.json",
+                "seed/products/2.json", "seed/products/3.json")), s3.objects.keySet());
+        assertEquals("{\"id\":3}", new String(s3.objects.get("seed/products/3.json"), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void shouldSkipUnchangedArchiveEntries() throws IOException {
+        File archive = writeTarGz("fixtures.tgz", entries("products/3.json", "{\"id\":3}", "orders/1.json", "{\"id\":1}"));
+        UploadS3 s3 = new UploadS3();
+        uploadArchives(s3, archive);
+
+        writeTarGz("fixtures.tgz", entries("products/3.json", "{\"id\":3}", "orders/1.json", "{\"id\":1,\"total\":2}"));
+        S3FixtureUploader.Summary summary = uploadArchives(s3, archive);
+
+        assertEquals(1, summary.getUploaded());
+        assertEquals(1, summary.getSkipped());
+        assertEquals("{\"id\":1,\"total\":2}", new String(s3.objects.get("orders/1.json"), StandardCharsets.UTF_8));
+        assertEquals(new TreeSet<>(Arrays.asList("orders/1.json", "products/3.json")), S3UploadManifest.open(manifestFile, "fixtures").getKeys());
+    }
+
+    @Test
+    public void shouldStreamLargeArchiveEntriesInParts() throws IOException {
+        byte[] content = new byte[12 * 1024 * 1024];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) (i % 251);
+        }
+
+        Map<String, byte[]> entries = new LinkedHashMap<>();
+        entries.put("images.bin", content);
+        entries.put("catalog.json", "{}".getBytes(StandardCharsets.UTF_8));
+        File archive = writeTarGz("images.tar.gz", entries);
+
+        UploadS3 s3 = new UploadS3();
+        S3FixtureUploader.Summary summary = new S3FixtureUploader(s3, "fixtures", null, 2, 1024)
+                .upload(null, Collections.singletonList(archive), S3UploadManifest.open(manifestFile, "fixtures"));
+
+        assertEquals(2, summary.getUploaded());
+        assertTrue(s3.parts.get() > 1);
+        assertArrayEquals(content, s3.objects.get("images.bin"));
+        assertEquals(S3FixtureUploader.sha256(content), S3UploadManifest.open(manifestFile, "fixtures").get("images.bin"));
+    }
+
+    @Test
+    public void shouldSkipUnchangedLargeArchiveEntriesWithoutReadingThem() throws IOException {
+        Map<String, byte[]> entries = new LinkedHashMap<>();
+        entries.put("images.bin", new byte[4096]);
+        entries.put("catalog.json", "{}".getBytes(StandardCharsets.UTF_8));
+        File archive = writeTarGz("images.tar.gz", entries);
+
+        UploadS3 s3 = new UploadS3();
+        new S3FixtureUploader(s3, "fixtures", null, 2, 1024)
+                .upload(null, Collections.singletonList(archive), S3UploadManifest.open(manifestFile, "fixtures"));
+        int parts = s3.parts.get();
+
+        S3FixtureUploader.Summary summary = new S3FixtureUploader(s3, "fixtures", null, 2, 1024)
+                .upload(null, Collections.singletonList(archive), S3UploadManifest.open(manifestFile, "fixtures"));
+
+        assertEquals(0, summary.getUploaded());
+        assertEquals(2, summary.getSkipped());
+        assertEquals(parts, s3.parts.get());
+        assertEquals(S3FixtureUploader.sha256(new byte[4096]), S3UploadManifest.open(manifestFile, "fixtures").get("images.bin"));
+    }
+
+    @Test
+    public void shouldUploadLargeArchiveEntryAgainWhenItChanges() throws IOException {
+        UploadS3 s3 = new UploadS3();
+        File archive = writeTarGz("images.tar.gz", Collections.singletonMap("images.bin", new byte[4096]));
+        new S3FixtureUploader(s3, "fixtures", null, 2, 1024)
+                .upload(null, Collections.singletonList(archive), S3UploadManifest.open(manifestFile, "fixtures"));
+
+        writeTarGz("images.tar.gz", Collections.singletonMap("images.bin", new byte[5000]));
+        S3FixtureUploader.Summary summary = new S3FixtureUploader(s3, "fixtures", null, 2, 1024)
+                .upload(null, Collections.singletonList(archive), S3UploadManifest.open(manifestFile, "fixtures"));
+
+        assertEquals(1, summary.getUploaded());
+        assertEquals(5000, s3.objects.get("images.bin").length);
+    }
+
+    @Test
+    public void shouldFailOnKeyUploadedFromMoreThanOneFixture() throws IOException {
+        File archive = writeTarGz("fixtures.tar.gz", entries("catalog.json", "{\"archived\":true}", "orders/1.json", "{\"id\":1}"));
+
+        try {
+            new S3FixtureUploader(new UploadS3(), "fixtures", null, 2, S3FixtureUploader.DEFAULT_MULTIPART_THRESHOLD)
+                    .upload(fixturesDir, Collections.singletonList(archive), S3UploadManifest.open(manifestFile, "fixtures"));
+            fail("Expected the upload to fail");
+        } catch (GradleException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("Failed to upload 1 file(s) to bucket fixtures, uploaded 4: "
+                    + "fixtures.tar.gz!/catalog.json (Key is uploaded from more than one fixture: catalog.json)"));
+        }
+    }
+
+    @Test
+    public void shouldRejectUnsupportedArchive() throws IOException {
+        File archive = new File(tempDir.toFile(), "fixtures.zip");
+        Files.write(archive.toPath(), new byte[0]);
+
+        try {
+            uploadArchives(new UploadS3(), archive);
+            fail("Expected the upload to fail");
+        } catch (GradleException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("Unsupported fixture archive"));
+        }
+    }
+
+    @Test
+    public void shouldNormalizeEntryName() {
+        assertEquals("products/1.json", S3FixtureUploader.toEntryName("./products/1.json"));
+        assertEquals("products/1.json", S3FixtureUploader.toEntryName("/products/1.json"));
+        assertEquals("", S3FixtureUploader.toEntryName("./"));
+    }
+
+    @Test
+    public void shouldNormalizePrefix() {
+        assertEquals("", S3FixtureUploader.normalizePrefix(null));
+        assertEquals("", S3FixtureUploader.normalizePrefix(" "));
+        assertEquals("seed/", S3FixtureUploader.normalizePrefix("/seed"));
+        assertEquals("seed/v1/", S3FixtureUploader.normalizePrefix("seed/v1/"));
+    }
+
+    private S3FixtureUploader.Summary upload(UploadS3 s3, String prefix) throws IOException {
+        return new S3FixtureUploader(s3, "fixtures", prefix, 2, S3FixtureUploader.DEFAULT_MULTIPART_THRESHOLD)
+                .upload(fixturesDir, S3UploadManifest.open(manifestFile, "fixtures"));
+    }
+
+    private S3FixtureUploader.Summary uploadArchives(UploadS3 s3, File... archives) throws IOException {
+        return new S3FixtureUploader(s3, "fixtures", null, 2, S3FixtureUploader.DEFAULT_MULTIPART_THRESHOLD)
+                .upload(null, Arrays.asList(archives), S3UploadManifest.open(manifestFile, "fixtures"));
+    }
+
+    private Map<String, byte[]> entries(String... namesAndContents) {
+        Map<String, byte[]> entries = new LinkedHashMap<>();
+        for (int i = 0; i < namesAndContents.length; i += 2) {
+            entries.put(namesAndContents[i], namesAndContents[i + 1].getBytes(StandardCharsets.UTF_8));
+        }
+
+        return entries;
+    }
+
+    private File writeTarGz(String name, Map<String, byte[]> entries) throws IOException {
+        File archive = new File(tempDir.toFile(), name);
+        try (OutputStream out = new GzipCompressorOutputStream(new FileOutputStream(archive));
+             TarArchiveOutputStream tar = new TarArchiveOutputStream(new BufferedOutputStream(out))) {
+            tar.putArchiveEntry(new TarArchiveEntry("./"));
+            tar.closeArchiveEntry();
+
+            for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+                TarArchiveEntry tarEntry = new TarArchiveEntry(entry.getKey());
+                tarEntry.setSize(entry.getValue().length);
+                tarEntry.setModTime(MODIFIED);
+                tar.putArchiveEntry(tarEntry);
+                tar.write(entry.getValue());
+                tar.closeArchiveEntry();
+            }
+        }
+
+        return archive;
+    }
+
+    private void write(String path, String content) throws IOException {
+        File file = new File(fixturesDir, path);
+        Files.createDirectories(file.getParentFile().toPath());
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Fake S3 client holding the content of the objects of a single bucket.
+     */
+    static class UploadS3 extends AbstractAmazonS3 {
+        final NavigableMap<String, byte[]> objects = new ConcurrentSkipListMap<>();
+        final Map<String, NavigableMap<Integer, byte[]>> multipartUploads = new ConcurrentHashMap<>();
+        final Set<String> failingKeys = ConcurrentHashMap.newKeySet();
+        final AtomicInteger puts = new AtomicInteger();
+        final AtomicInteger parts = new AtomicInteger();
+
+        @Override
+        public ListObjectsV2Result listObjectsV2(ListObjectsV2Request request) {
+            ListObjectsV2Result result = new ListObjectsV2Result();
+            objects.forEach((key, content) -> {
+                if (request.getPrefix() == null || key.startsWith(request.getPrefix())) {
+                    S3ObjectSummary summary = new S3ObjectSummary();
+                    summary.setKey(key);
+                    summary.setSize(content.length);
+                    result.getObjectSummaries().add(summary);
+                }
+            });
+
+            return result;
+        }
+
+        @Override
+        public PutObjectResult putObject(PutObjectRequest request) {
+            puts.incrementAndGet();
+            if (failingKeys.contains(request.getKey())) {
+                throw new IllegalStateException("Simulated failure: " + request.getKey());
+            }
+
+            try {
+                objects.put(request.getKey(), request.getFile() != null
+                        ? Files.readAllBytes(request.getFile().toPath())
+                        : IOUtils.toByteArray(request.getInputStream()));
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+
+            return new PutObjectResult();
+        }
+
+        @Override
+        public InitiateMultipartUploadResult initiateMultipartUpload(InitiateMultipartUploadRequest request) {
+            String uploadId = UUID.randomUUID().toString();
+            multipartUploads.put(uploadId, new ConcurrentSkipListMap<>());
+
+            InitiateMultipartUploadResult result = new InitiateMultipartUploadResult();
+            result.setBucketName(request.getBucketName());
+            result.setKey(request.getKey());
+            result.setUploadId(uploadId);
+            return result;
+        }
+
+        @Override
+        public UploadPartResult uploadPart(UploadPartRequest request) {
+            parts.incrementAndGet();
+
+            byte[] content = new byte[(int) request.getPartSize()];
+            try {
+                if (request.getFile() != null) {
+                    try (RandomAccessFile file = new RandomAccessFile(request.getFile(), "r")) {
+                        file.seek(request.getFileOffset());
+                        file.readFully(content);
+                    }
+                } else {
+                    try (InputStream in = request.getInputStream()) {
+                        IOUtils.readFully(in, content);
+                    }
+                }
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+
+            multipartUploads.get(request.getUploadId()).put(request.getPartNumber(), content);
+
+            UploadPartResult result = new UploadPartResult();
+            result.setPartNumber(request.getPartNumber());
+            result.setETag("etag-" + request.getPartNumber());
+            return result;
+        }
+
+        @Override
+        public PartListing listParts(ListPartsRequest request) {
+            PartListing listing = new PartListing();
+            listing.setParts(new ArrayList<>());
+            return listing;
+        }
+
+        @Override
+        public CompleteMultipartUploadResult completeMultipartUpload(CompleteMultipartUploadRequest request) {
+            ByteArrayOutputStream content = new ByteArrayOutputStream();
+            multipartUploads.remove(request.getUploadId()).values().forEach(part -> content.write(part, 0, part.length));
+            objects.put(request.getKey(), content.toByteArray());
+
+            CompleteMultipartUploadResult result = new CompleteMultipartUploadResult();
+            result.setKey(request.getKey());
+            return result;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+/**
+ * Copyright 2020-present, Nike, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the Apache-2.0 license found in
+ * the LICENSE file in the root directory of this source tree.
+ */
+package com.nike.pdm.localstack.aws.sqs;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+public class FifoKeyExtractorTest {
+
+    @Test
+    public void shouldExtractTopLevelFields() {
+        FifoKeyExtractor extractor = new FifoKeyExtractor("customerId", null, "orderId", null);
+
+        FifoKeyExtractor.Keys keys = extractor.extract("{\"orderId\": 42, \"customerId\": \"c-1\", \"items\": [1, 2]}");
+
+        assertEquals("c-1", keys.getGroupId());
+        assertEquals("42", keys.getDeduplicationId());
+    }
+
+    @Test
+    public void shouldExtractNestedFields() {
+        FifoKeyExtractor extractor = new FifoKeyExtractor("order.customer.id", null, "order.id", null);
+
+        FifoKeyExtractor.Keys keys = extractor.extract("{\"customer\": {\"id\": \"wrong\"}, "
+                + "\"order\": {\"lines\": [{\"id\": \"x\"}], \"customer\": {\"name\": \"n\", \"id\": \"c-2\"}, \"id\": \"o-1\"}}");
+
+        assertEquals("c-2", keys.getGroupId());
+        assertEquals("o-1", keys.getDeduplicationId());
+    }
+
+    @Test
+    public void shouldLeaveDeduplicationIdUnsetWhenNotConfigured() {
+        FifoKeyExtractor extractor = new FifoKeyExtractor("group", null, null, null);
+
+        FifoKeyExtractor.Keys keys = extractor.extract("{\"group\": true}");
+
+        assertEquals("true", keys.getGroupId());
+        assertNull(keys.getDeduplicationId());
+    }
+
+    @Test
+    public void shouldPreferExtractorsOverFields() {
+        FifoKeyExtractor extractor = new FifoKeyExtractor("group", message -> message.substring(0, 1), null, message -> "d" + message.length());
+
+        FifoKeyExtractor.Keys keys = extractor.extract("not json");
+
+        assertEquals("n", keys.getGroupId());
+        assertEquals("d8", keys.getDeduplicationId());
+    }
+
+    @Test
+    public void shouldRejectMessagesWithoutGroupId() {
+        FifoKeyExtractor extractor = new FifoKeyExtractor("order.customerId", null, null, null);
+
+        for (String message : new String[]{"{\"order\": {}}", "{\"order\": {\"customerId\": null}}", "{\"order\": {\"customerId\": {}}}", "[1]", "{\"order\""}) {
+            try {
+                extractor.extract(message);
+                fail("Expected message to be rejected: " + message);
+            } catch (IllegalArgumentException e) {
+                // Expected
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRequireGroupId() {
+        new FifoKeyExtractor(null, null, "id", null);
+    }
+}
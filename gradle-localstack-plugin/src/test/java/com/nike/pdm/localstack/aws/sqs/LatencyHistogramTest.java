@@ -0,0 +1,85 @@
+/**
+ * Copyright 2020-present, Nike, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the Apache-2.0 license found in
+ * the LICENSE file in the root directory of this source tree.
+ */
+package com.nike.pdm.localstack.aws.sqs;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void shouldBucketLatenciesByPowersOfTwo() {
+        assertEquals(0, LatencyHistogram.bucket(0));
+        assertEquals(1, LatencyHistogram.bucket(1));
+        assertEquals(2, LatencyHistogram.bucket(2));
+        assertEquals(2, LatencyHistogram.bucket(3));
+        assertEquals(3, LatencyHistogram.bucket(4));
+        assertEquals(10, LatencyHistogram.bucket(1000));
+        assertEquals(LatencyHistogram.BUCKETS - 1, LatencyHistogram.bucket(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void shouldReportPercentilesAsBucketUpperBounds() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 90; i++) {
+            histogram.record(5);
+        }
+        for (int i = 0; i < 10; i++) {
+            histogram.record(1000);
+        }
+
+        assertEquals(100, histogram.getCount());
+        assertEquals(8, histogram.getPercentile(50));
+        assertEquals(8, histogram.getPercentile(90));
+        assertEquals(1000, histogram.getPercentile(99));
+        assertEquals(1000, histogram.getMax());
+        assertEquals(104.5, histogram.getMean(), 0.001);
+    }
+
+    @Test
+    public void shouldRecordNegativeLatenciesAsZero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-20);
+
+        assertEquals(0, histogram.getMax());
+        assertEquals(0, histogram.getPercentile(100));
+    }
+
+    @Test
+    public void shouldRenderNonEmptyRange() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(3);
+        histogram.record(3);
+        histogram.record(40);
+
+        String rendered = histogram.render("Latency");
+
+        assertTrue(rendered.startsWith("Latency"));
+        assertTrue(rendered.contains("2 - 4 ms | " + LatencyHistogram.bar(2, 2)));
+        assertTrue(rendered.contains("32 - 64 ms"));
+        assertFalse(rendered.contains("1 - 2 ms"));
+        assertFalse(rendered.contains("64 - 128 ms"));
+        assertTrue(rendered.contains("p99: 40 ms"));
+    }
+
+    @Test
+    public void shouldRenderEmptyHistogram() {
+        assertTrue(new LatencyHistogram().render("Latency").contains("No latencies recorded"));
+    }
+
+    @Test
+    public void shouldScaleBars() {
+        assertEquals(50, LatencyHistogram.bar(10, 10).length());
+        assertEquals(25, LatencyHistogram.bar(5, 10).length());
+        assertEquals(1, LatencyHistogram.bar(1, 1000).length());
+        assertEquals(0, LatencyHistogram.bar(0, 1000).length());
+    }
+}
@@ -0,0 +1,84 @@
+/**
+ * Copyright 2020-present, Nike, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the Apache-2.0 license found in
+ * the LICENSE file in the root directory of this source tree.
+ */
+package com.nike.pdm.localstack.aws.sqs;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class LinePrefetcherTest {
+
+    @Test
+    public void shouldReturnAllLinesInOrder() throws IOException {
+        final int lineCount = LinePrefetcher.MAX_CHUNK_LINES * LinePrefetcher.MAX_CHUNKS * 3 + 7;
+        List<String> received = new ArrayList<>();
+
+        try (LinePrefetcher prefetcher = new LinePrefetcher("test", consumer -> {
+            for (int i = 0; i < lineCount; i++) {
+                consumer.accept(Integer.toString(i));
+            }
+        })) {
+            List<String> chunk;
+            while ((chunk = prefetcher.next()) != null) {
+                assertTrue(chunk.size() <= LinePrefetcher.MAX_CHUNK_LINES);
+                received.addAll(chunk);
+            }
+
+            assertNull(prefetcher.next());
+        }
+
+        assertEquals(lineCount, received.size());
+        for (int i = 0; i < lineCount; i++) {
+            assertEquals(Integer.toString(i), received.get(i));
+        }
+    }
+
+    @Test
+    public void shouldReportReadFailureAfterLinesReadBeforeIt() throws IOException {
+        List<String> received = new ArrayList<>();
+
+        try (LinePrefetcher prefetcher = new LinePrefetcher("test", consumer -> {
+            consumer.accept("line");
+            throw new IOException("corrupt archive");
+        })) {
+            try {
+                List<String> chunk;
+                while ((chunk = prefetcher.next()) != null) {
+                    received.addAll(chunk);
+                }
+
+                fail("Expected read failure");
+            } catch (IOException e) {
+                assertEquals("corrupt archive", e.getMessage());
+            }
+        }
+
+        assertEquals(1, received.size());
+    }
+
+    @Test
+    public void shouldStopReaderWhenClosedEarly() throws IOException {
+        LinePrefetcher prefetcher = new LinePrefetcher("test", consumer -> {
+            while (true) {
+                consumer.accept("line");
+            }
+        });
+
+        prefetcher.next();
+
+        // Returns once the blocked reader thread has stopped
+        prefetcher.close();
+    }
+}
@@ -0,0 +1,129 @@
+/**
+ * Copyright 2020-present, Nike, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the Apache-2.0 license found in
+ * the LICENSE file in the root directory of this source tree.
+ */
+package com.nike.pdm.localstack.aws.sqs;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class MappedLineReaderTest {
+
+    private File file;
+
+    @Before
+    public void setup() throws IOException {
+        file = Files.createTempFile("messages", ".json").toFile();
+    }
+
+    @After
+    public void cleanup() throws IOException {
+        Files.deleteIfExists(file.toPath());
+    }
+
+    @Test
+    public void shouldReadNonEmptyLines() throws IOException {
+        write("one\r\ntwo\n\n\u00e9\u00e8\nlast");
+
+        assertEquals(Arrays.asList("one", "two", "\u00e9\u00e8", "last"), readAll(MappedLineReader.MAX_MAPPING_BYTES));
+    }
+
+    @Test
+    public void shouldReadLinesAcrossMappings() throws IOException {
+        write("first line\nsecond line\nthird line\n");
+
+        assertEquals(Arrays.asList("first line", "second line", "third line"), readAll(16));
+    }
+
+    @Test
+    public void shouldReportLinesLongerThanMappingAsOversized() throws IOException {
+        write("short\nthis line is longer than a mapping\nend\n");
+
+        final List<Utf8Line> lines = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            MappedLineReader.read(channel, 0, channel.size(), 8, lines::add);
+        }
+
+        assertEquals(3, lines.size());
+        assertEquals("short", lines.get(0).toString());
+        assertEquals("this line is longer than a mapping".length(), lines.get(1).getByteLength());
+        assertEquals("end", lines.get(2).toString());
+    }
+
+    @Test
+    public void shouldMeasureUtf8LengthWithoutDecoding() throws IOException {
+        write("\u00e9\u00e8\n");
+
+        final List<Utf8Line> lines = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            MappedLineReader.read(channel, 0, channel.size(), lines::add);
+        }
+
+        assertEquals(4, SqsMessageBatch.utf8Length(lines.get(0)));
+    }
+
+    @Test
+    public void shouldSplitOnLineBoundaries() throws IOException {
+        final StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            sb.append("message-").append(i).append('\n');
+        }
+        write(sb.toString());
+
+        final List<String> lines = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            final long[] bounds = MappedLineReader.split(channel, 4);
+            assertEquals(5, bounds.length);
+            assertEquals(channel.size(), bounds[4]);
+
+            for (int i = 0; i < bounds.length - 1; i++) {
+                assertTrue(bounds[i] < bounds[i + 1]);
+                MappedLineReader.read(channel, bounds[i], bounds[i + 1], line -> lines.add(line.toString()));
+            }
+        }
+
+        assertEquals(100, lines.size());
+        for (int i = 0; i < 100; i++) {
+            assertEquals("message-" + i, lines.get(i));
+        }
+    }
+
+    @Test
+    public void shouldNotSplitSingleLine() throws IOException {
+        write("only line");
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            assertEquals(2, MappedLineReader.split(channel, 4).length);
+        }
+    }
+
+    private void write(String contents) throws IOException {
+        Files.write(file.toPath(), contents.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private List<String> readAll(int mappingBytes) throws IOException {
+        final List<String> lines = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            MappedLineReader.read(channel, 0, channel.size(), mappingBytes, line -> lines.add(line.toString()));
+        }
+
+        return lines;
+    }
+}
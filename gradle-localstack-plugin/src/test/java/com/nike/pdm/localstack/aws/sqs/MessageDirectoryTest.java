@@ -0,0 +1,79 @@
+/**
+ * Copyright 2020-present, Nike, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the Apache-2.0 license found in
+ * the LICENSE file in the root directory of this source tree.
+ */
+package com.nike.pdm.localstack.aws.sqs;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+
+public class MessageDirectoryTest {
+
+    private File dir;
+
+    @Before
+    public void setup() throws IOException {
+        dir = Files.createTempDirectory("messages").toFile();
+
+        create("b.json");
+        create("a.json");
+        create("notes.txt");
+        create(".hidden.json");
+        create("orders/2020/c.json");
+        create("orders/d.txt");
+        create(".git/e.json");
+    }
+
+    @After
+    public void cleanup() throws IOException {
+        FileUtils.deleteDirectory(dir);
+    }
+
+    @Test
+    public void shouldListAllVisibleFilesInOrder() throws IOException {
+        assertEquals(Arrays.asList("a.json", "b.json", "notes.txt", "orders/2020/c.json", "orders/d.txt"), list(null, null));
+    }
+
+    @Test
+    public void shouldMatchNamePatternsInAllDirectories() throws IOException {
+        assertEquals(Arrays.asList("a.json", "b.json", "orders/2020/c.json"), list(Collections.singletonList("*.json"), null));
+    }
+
+    @Test
+    public void shouldMatchPathPatternsFromRoot() throws IOException {
+        assertEquals(Arrays.asList("orders/2020/c.json", "orders/d.txt"), list(Collections.singletonList("orders/**"), null));
+    }
+
+    @Test
+    public void shouldExcludeMatchingFiles() throws IOException {
+        assertEquals(Arrays.asList("a.json", "b.json", "orders/2020/c.json"), list(null, Arrays.asList("*.txt")));
+        assertEquals(Arrays.asList("a.json", "b.json"), list(Collections.singletonList("*.json"), Collections.singletonList("orders/**")));
+    }
+
+    private List<String> list(List<String> includes, List<String> excludes) throws IOException {
+        return MessageDirectory.list(dir, includes, excludes).stream()
+                .map(file -> dir.toPath().relativize(file.toPath()).toString().replace(File.separatorChar, '/'))
+                .collect(Collectors.toList());
+    }
+
+    private void create(String path) throws IOException {
+        final File file = new File(dir, path);
+        file.getParentFile().mkdirs();
+        Files.write(file.toPath(), path.getBytes());
+    }
+}
@@ -0,0 +1,107 @@
+/**
+ * Copyright 2020-present, Nike, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the Apache-2.0 license found in
+ * the LICENSE file in the root directory of this source tree.
+ */
+package com.nike.pdm.localstack.aws.sqs;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class MessageFilePrefetcherTest {
+
+    private File dir;
+    private List<File> files;
+
+    @Before
+    public void setup() throws IOException {
+        dir = Files.createTempDirectory("messages").toFile();
+        files = new ArrayList<>();
+
+        for (int i = 0; i < 50; i++) {
+            final File file = new File(dir, String.format("%03d.json", i));
+            Files.write(file.toPath(), ("message-" + i + "\n").getBytes(StandardCharsets.UTF_8));
+            files.add(file);
+        }
+    }
+
+    @After
+    public void cleanup() throws IOException {
+        FileUtils.deleteDirectory(dir);
+    }
+
+    @Test
+    public void shouldHandOnFilesInOrder() throws IOException {
+        final List<String> contents = new ArrayList<>();
+
+        try (MessageFilePrefetcher prefetcher = new MessageFilePrefetcher(files, 4, true)) {
+            MessageFilePrefetcher.Entry entry;
+            while ((entry = prefetcher.next()) != null) {
+                assertTrue(entry.isPreloaded());
+                MappedLineReader.read(entry.getContents(), line -> contents.add(line.toString()));
+            }
+        }
+
+        assertEquals(50, contents.size());
+        for (int i = 0; i < 50; i++) {
+            assertEquals("message-" + i, contents.get(i));
+        }
+    }
+
+    @Test
+    public void shouldHandOnEveryFileWhenUnordered() throws IOException {
+        final List<String> contents = new ArrayList<>();
+
+        try (MessageFilePrefetcher prefetcher = new MessageFilePrefetcher(files, 4, false)) {
+            MessageFilePrefetcher.Entry entry;
+            while ((entry = prefetcher.next()) != null) {
+                MappedLineReader.read(entry.getContents(), line -> contents.add(line.toString()));
+            }
+        }
+
+        Collections.sort(contents);
+        assertEquals(50, contents.size());
+        assertEquals("message-0", contents.get(0));
+    }
+
+    @Test
+    public void shouldNotPreloadArchives() throws IOException {
+        final File archive = new File(dir, "messages.tar.gz");
+        Files.write(archive.toPath(), new byte[0]);
+
+        try (MessageFilePrefetcher prefetcher = new MessageFilePrefetcher(Collections.singletonList(archive), 1, true)) {
+            final MessageFilePrefetcher.Entry entry = prefetcher.next();
+            assertFalse(entry.isPreloaded());
+            assertEquals(archive, entry.getFile());
+            assertNull(prefetcher.next());
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void shouldReportFilesThatCannotBeRead() throws IOException {
+        final File missing = new File(dir, "missing.json");
+
+        try (MessageFilePrefetcher prefetcher = new MessageFilePrefetcher(Collections.singletonList(missing), 1, true)) {
+            final MessageFilePrefetcher.Entry entry = prefetcher.next();
+            assertTrue(entry.isPreloaded());
+            entry.getContents();
+        }
+    }
+}
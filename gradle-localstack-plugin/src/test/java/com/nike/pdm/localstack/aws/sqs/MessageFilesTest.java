@@ -0,0 +1,150 @@
+/**
+ * Copyright 2020-present, Nike, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the Apache-2.0 license found in
+ * the LICENSE file in the root directory of this source tree.
+ */
+package com.nike.pdm.localstack.aws.sqs;
+
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorOutputStream;
+import org.apache.commons.compress.compressors.zstandard.ZstdCompressorOutputStream;
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class MessageFilesTest {
+
+    private File dir;
+    private Map<String, String> entries;
+
+    @Before
+    public void setup() throws IOException {
+        dir = Files.createTempDirectory("archives").toFile();
+
+        entries = new LinkedHashMap<>();
+        for (int i = 0; i < 20; i++) {
+            entries.put(String.format("messages-%02d.json", i), "{\"id\": " + i + "}\n{\"id\": " + (i + 100) + "}\n");
+        }
+    }
+
+    @After
+    public void cleanup() throws IOException {
+        FileUtils.deleteDirectory(dir);
+    }
+
+    @Test
+    public void shouldReadZipEntriesInOrder() throws IOException {
+        final File zip = new File(dir, "messages.zip");
+        try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(zip))) {
+            for (Map.Entry<String, String> entry : entries.entrySet()) {
+                out.putNextEntry(new ZipEntry(entry.getKey()));
+                out.write(entry.getValue().getBytes(StandardCharsets.UTF_8));
+                out.closeEntry();
+            }
+
+            out.putNextEntry(new ZipEntry("dir/"));
+            out.closeEntry();
+        }
+
+        assertArchiveContents(zip);
+    }
+
+    @Test
+    public void shouldReadTar() throws IOException {
+        final File tar = new File(dir, "messages.tar");
+        writeTar(new FileOutputStream(tar));
+
+        assertArchiveContents(tar);
+    }
+
+    @Test
+    public void shouldReadTarGz() throws IOException {
+        final File tar = new File(dir, "messages.tar.gz");
+        writeTar(new GzipCompressorOutputStream(new FileOutputStream(tar)));
+
+        assertArchiveContents(tar);
+    }
+
+    @Test
+    public void shouldReadTarZst() throws IOException {
+        final File tar = new File(dir, "messages.tar.zst");
+        writeTar(new ZstdCompressorOutputStream(new FileOutputStream(tar)));
+
+        assertArchiveContents(tar);
+    }
+
+    @Test
+    public void shouldReadGzipFile() throws IOException {
+        final File gz = new File(dir, "messages.json.gz");
+        try (OutputStream out = new GzipCompressorOutputStream(new FileOutputStream(gz))) {
+            out.write("one\ntwo\n".getBytes(StandardCharsets.UTF_8));
+        }
+
+        final List<String> sources = new ArrayList<>();
+        final List<String> lines = new ArrayList<>();
+        MessageFiles.read(gz, (sourceId, reader) -> {
+            sources.add(sourceId);
+            reader.lines().forEach(lines::add);
+        });
+
+        assertEquals(Arrays.asList(gz.getAbsolutePath()), sources);
+        assertEquals(Arrays.asList("one", "two"), lines);
+    }
+
+    @Test
+    public void shouldRecognizeSupportedArchives() {
+        for (String name : Arrays.asList("a.zip", "a.tar", "a.tar.gz", "a.tgz", "a.tar.zst", "a.tzst", "a.json.gz", "a.json.zst")) {
+            assertTrue(name, MessageFiles.isSupportedArchive(new File(name)));
+        }
+
+        assertFalse(MessageFiles.isSupportedArchive(new File("a.json")));
+    }
+
+    private void writeTar(OutputStream out) throws IOException {
+        try (TarArchiveOutputStream tar = new TarArchiveOutputStream(new BufferedOutputStream(out))) {
+            for (Map.Entry<String, String> entry : entries.entrySet()) {
+                final byte[] bytes = entry.getValue().getBytes(StandardCharsets.UTF_8);
+                final TarArchiveEntry tarEntry = new TarArchiveEntry(entry.getKey());
+                tarEntry.setSize(bytes.length);
+
+                tar.putArchiveEntry(tarEntry);
+                tar.write(bytes);
+                tar.closeArchiveEntry();
+            }
+        }
+    }
+
+    private void assertArchiveContents(File archive) throws IOException {
+        final Map<String, String> read = new LinkedHashMap<>();
+        MessageFiles.read(archive, 4, (sourceId, reader) -> {
+            final StringBuilder sb = new StringBuilder();
+            reader.lines().forEach(line -> sb.append(line).append('\n'));
+            read.put(sourceId.substring(sourceId.indexOf("!/") + 2), sb.toString());
+        });
+
+        assertEquals(new ArrayList<>(entries.entrySet()), new ArrayList<>(read.entrySet()));
+    }
+}
@@ -0,0 +1,97 @@
+/**
+ * Copyright 2020-present, Nike, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the Apache-2.0 license found in
+ * the LICENSE file in the root directory of this source tree.
+ */
+package com.nike.pdm.localstack.aws.sqs;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class MessageTemplateTest {
+
+    @Test
+    public void shouldRenderLiteralTemplate() {
+        final MessageTemplate template = MessageTemplate.compile("{ \"productId\": \"12345\" }");
+
+        assertEquals("{ \"productId\": \"12345\" }", template.render(0, new SplittableRandom(1)));
+    }
+
+    @Test
+    public void shouldRenderSequence() {
+        final MessageTemplate template = MessageTemplate.compile("{ \"id\": {{seq}} }");
+
+        assertEquals("{ \"id\": 0 }", template.render(0, new SplittableRandom(1)));
+        assertEquals("{ \"id\": 42 }", template.render(42, new SplittableRandom(1)));
+    }
+
+    @Test
+    public void shouldRenderUuid() {
+        final String value = MessageTemplate.compile("{{uuid}}").render(0, new SplittableRandom(1));
+        final UUID uuid = UUID.fromString(value);
+
+        assertEquals(value, uuid.toString());
+        assertEquals(4, uuid.version());
+        assertEquals(2, uuid.variant());
+    }
+
+    @Test
+    public void shouldRenderRandomWithinBounds() {
+        final MessageTemplate template = MessageTemplate.compile("{{random:-5:5}}");
+        final SplittableRandom random = new SplittableRandom(1);
+
+        for (int i = 0; i < 1000; i++) {
+            final long value = Long.parseLong(template.render(i, random));
+            assertTrue(value >= -5 && value <= 5);
+        }
+    }
+
+    @Test
+    public void shouldRenderWeightedChoice() {
+        final MessageTemplate template = MessageTemplate.compile("{{choice:red=3|blue}}");
+        final SplittableRandom random = new SplittableRandom(1);
+        final Map<String, Integer> counts = new HashMap<>();
+
+        for (int i = 0; i < 10_000; i++) {
+            counts.merge(template.render(i, random), 1, Integer::sum);
+        }
+
+        assertEquals(2, counts.size());
+        assertTrue(counts.get("red") > 7_000 && counts.get("red") < 8_000);
+    }
+
+    @Test
+    public void shouldRenderSameMessagesForSameSeed() {
+        final MessageTemplate template = MessageTemplate.compile("{{uuid}} {{random:1:100}} {{choice:a|b|c}}");
+        final SplittableRandom first = new SplittableRandom(7);
+        final SplittableRandom second = new SplittableRandom(7);
+
+        for (int i = 0; i < 100; i++) {
+            assertEquals(template.render(i, first), template.render(i, second));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectUnknownPlaceholder() {
+        MessageTemplate.compile("{{unknown}}");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectUnclosedPlaceholder() {
+        MessageTemplate.compile("{ \"id\": {{seq }");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectInvalidRandomBounds() {
+        MessageTemplate.compile("{{random:10:1}}");
+    }
+}
@@ -0,0 +1,125 @@
+/**
+ * Copyright 2020-present, Nike, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the Apache-2.0 license found in
+ * the LICENSE file in the root directory of this source tree.
+ */
+package com.nike.pdm.localstack.aws.sqs;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class PublishCheckpointTest {
+
+    private static final List<String> QUEUES = Arrays.asList("queue1", "queue2");
+
+    private File dir;
+    private File file;
+
+    @Before
+    public void setup() throws IOException {
+        dir = Files.createTempDirectory("checkpoint").toFile();
+        file = new File(dir, "publishSqs.properties");
+    }
+
+    @After
+    public void cleanup() throws IOException {
+        FileUtils.deleteDirectory(dir);
+    }
+
+    @Test
+    public void shouldResumeFromAcknowledgedOffsetOfEachSource() throws IOException {
+        PublishCheckpoint checkpoint = PublishCheckpoint.open(file, QUEUES, false);
+        checkpoint.restart();
+        readMessages(checkpoint, "file1", 10);
+        readMessages(checkpoint, "file2", 10);
+        checkpoint.acknowledge(13);
+        checkpoint.save();
+
+        PublishCheckpoint resumed = PublishCheckpoint.open(file, QUEUES, true);
+        resumed.restart();
+        assertEquals(10, resumed.startSource("file1"));
+        resumed.endSource();
+        assertEquals(3, resumed.startSource("file2"));
+        resumed.endSource();
+        assertEquals(0, resumed.startSource("file3"));
+    }
+
+    @Test
+    public void shouldAccumulateOffsetsAcrossAttempts() throws IOException {
+        PublishCheckpoint checkpoint = PublishCheckpoint.open(file, QUEUES, false);
+        checkpoint.restart();
+        readMessages(checkpoint, "file1", 10);
+        checkpoint.acknowledge(4);
+
+        // Second attempt only reads the 6 messages that were not acknowledged
+        checkpoint.restart();
+        assertEquals(4, checkpoint.startSource("file1"));
+        for (int i = 0; i < 6; i++) {
+            checkpoint.messageRead();
+        }
+        checkpoint.endSource();
+        checkpoint.acknowledge(6);
+        checkpoint.save();
+
+        PublishCheckpoint resumed = PublishCheckpoint.open(file, QUEUES, true);
+        resumed.restart();
+        assertEquals(10, resumed.startSource("file1"));
+    }
+
+    @Test
+    public void shouldIgnoreCheckpointWhenNotResuming() throws IOException {
+        PublishCheckpoint checkpoint = PublishCheckpoint.open(file, QUEUES, false);
+        checkpoint.restart();
+        readMessages(checkpoint, "file1", 10);
+        checkpoint.acknowledge(10);
+        checkpoint.save();
+
+        PublishCheckpoint fresh = PublishCheckpoint.open(file, QUEUES, false);
+        fresh.restart();
+        assertEquals(0, fresh.startSource("file1"));
+    }
+
+    @Test
+    public void shouldIgnoreCheckpointForDifferentQueues() throws IOException {
+        PublishCheckpoint checkpoint = PublishCheckpoint.open(file, QUEUES, false);
+        checkpoint.restart();
+        readMessages(checkpoint, "file1", 10);
+        checkpoint.acknowledge(10);
+        checkpoint.save();
+
+        PublishCheckpoint other = PublishCheckpoint.open(file, Collections.singletonList("queue3"), true);
+        other.restart();
+        assertEquals(0, other.startSource("file1"));
+    }
+
+    @Test
+    public void shouldDeleteCheckpoint() throws IOException {
+        PublishCheckpoint checkpoint = PublishCheckpoint.open(file, QUEUES, false);
+        checkpoint.save();
+        checkpoint.delete();
+
+        assertFalse(file.exists());
+    }
+
+    private static void readMessages(PublishCheckpoint checkpoint, String sourceId, int count) {
+        checkpoint.startSource(sourceId);
+        for (int i = 0; i < count; i++) {
+            checkpoint.messageRead();
+        }
+        checkpoint.endSource();
+    }
+}
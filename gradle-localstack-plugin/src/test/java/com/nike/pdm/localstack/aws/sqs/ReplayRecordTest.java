@@ -0,0 +1,70 @@
+/**
+ * Copyright 2020-present, Nike, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the Apache-2.0 license found in
+ * the LICENSE file in the root directory of this source tree.
+ */
+package com.nike.pdm.localstack.aws.sqs;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+
+public class ReplayRecordTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @Test
+    public void shouldParseEpochMillis() {
+        final ReplayRecord record = ReplayRecord.parse(MAPPER, "{\"timestamp\": 1600000000123, \"id\": 1}", "timestamp", null);
+
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(1600000000123L), record.getEventNanos());
+        assertEquals("{\"timestamp\": 1600000000123, \"id\": 1}", record.getBody());
+    }
+
+    @Test
+    public void shouldParseFractionalEpochMillis() {
+        final ReplayRecord record = ReplayRecord.parse(MAPPER, "{\"ts\": \"1600000000123.5\"}", "ts", null);
+
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(1600000000123L) + 500_000, record.getEventNanos());
+    }
+
+    @Test
+    public void shouldParseIsoTimestamps() {
+        final long expected = TimeUnit.SECONDS.toNanos(1600000000L) + 250_000_000;
+
+        assertEquals(expected, ReplayRecord.parse(MAPPER, "{\"timestamp\": \"2020-09-13T12:26:40.25Z\"}", "timestamp", null).getEventNanos());
+        assertEquals(expected, ReplayRecord.parse(MAPPER, "{\"timestamp\": \"2020-09-13T14:26:40.25+02:00\"}", "timestamp", null).getEventNanos());
+        assertEquals(expected, ReplayRecord.parse(MAPPER, "{\"timestamp\": \"2020-09-13T12:26:40.25\"}", "timestamp", null).getEventNanos());
+    }
+
+    @Test
+    public void shouldExtractBodyField() {
+        assertEquals("hello", ReplayRecord.parse(MAPPER, "{\"timestamp\": 1, \"body\": \"hello\"}", "timestamp", "body").getBody());
+        assertEquals("{\"productId\":\"12345\"}", ReplayRecord.parse(MAPPER, "{\"timestamp\": 1, \"body\": {\"productId\": \"12345\"}}", "timestamp", "body").getBody());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectMissingTimestamp() {
+        ReplayRecord.parse(MAPPER, "{\"body\": \"hello\"}", "timestamp", null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectInvalidTimestamp() {
+        ReplayRecord.parse(MAPPER, "{\"timestamp\": \"yesterday\"}", "timestamp", null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectMissingBody() {
+        ReplayRecord.parse(MAPPER, "{\"timestamp\": 1}", "timestamp", "body");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectInvalidJson() {
+        ReplayRecord.parse(MAPPER, "not json", "timestamp", null);
+    }
+}
@@ -0,0 +1,111 @@
+/**
+ * Copyright 2020-present, Nike, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the Apache-2.0 license found in
+ * the LICENSE file in the root directory of this source tree.
+ */
+package com.nike.pdm.localstack.aws.sqs;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ReplaySchedulerTest {
+
+    @Test
+    public void shouldReleaseEventsAtTheirOffset() {
+        final ReplayScheduler scheduler = new ReplayScheduler(1);
+
+        final long start = System.nanoTime();
+        scheduler.await(0, () -> {});
+        scheduler.await(TimeUnit.MILLISECONDS.toNanos(100), () -> {});
+        final long elapsed = System.nanoTime() - start;
+
+        assertTrue(elapsed >= TimeUnit.MILLISECONDS.toNanos(100));
+        assertTrue(elapsed < TimeUnit.MILLISECONDS.toNanos(1_000));
+    }
+
+    @Test
+    public void shouldSpeedUpReplay() {
+        final ReplayScheduler scheduler = new ReplayScheduler(10);
+
+        final long start = System.nanoTime();
+        scheduler.await(0, () -> {});
+        scheduler.await(TimeUnit.SECONDS.toNanos(1), () -> {});
+        final long elapsed = System.nanoTime() - start;
+
+        assertTrue(elapsed >= TimeUnit.MILLISECONDS.toNanos(100));
+        assertTrue(elapsed < TimeUnit.MILLISECONDS.toNanos(1_000));
+    }
+
+    @Test
+    public void shouldNotWaitAtMaxSpeed() {
+        final ReplayScheduler scheduler = new ReplayScheduler(Double.POSITIVE_INFINITY);
+
+        final long start = System.nanoTime();
+        scheduler.await(0, () -> {});
+        scheduler.await(TimeUnit.HOURS.toNanos(1), () -> {});
+
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1));
+    }
+
+    @Test
+    public void shouldReleaseOutOfOrderEventsImmediately() {
+        final ReplayScheduler scheduler = new ReplayScheduler(1);
+
+        final long start = System.nanoTime();
+        scheduler.await(TimeUnit.HOURS.toNanos(1), () -> {});
+        scheduler.await(0, () -> {});
+
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1));
+    }
+
+    @Test
+    public void shouldFlushBeforeWaitingOnHeldMessages() {
+        final ReplayScheduler scheduler = new ReplayScheduler(1);
+        final AtomicInteger flushes = new AtomicInteger();
+
+        // Messages due together are held for batching
+        scheduler.await(0, flushes::incrementAndGet);
+        scheduler.await(0, flushes::incrementAndGet);
+        assertEquals(0, flushes.get());
+
+        // Held messages are sent before waiting for a message that is due later
+        scheduler.await(TimeUnit.MILLISECONDS.toNanos(20), flushes::incrementAndGet);
+        assertEquals(1, flushes.get());
+    }
+
+    @Test
+    public void shouldHoldMessagesForConfiguredTime() {
+        final ReplayScheduler scheduler = new ReplayScheduler(1, TimeUnit.MILLISECONDS.toNanos(50));
+        final AtomicInteger flushes = new AtomicInteger();
+
+        scheduler.await(0, flushes::incrementAndGet);
+        scheduler.await(TimeUnit.MILLISECONDS.toNanos(20), flushes::incrementAndGet);
+        assertEquals(0, flushes.get());
+
+        scheduler.await(TimeUnit.MILLISECONDS.toNanos(100), flushes::incrementAndGet);
+        assertEquals(1, flushes.get());
+    }
+
+    @Test
+    public void shouldReturnTimeAtWhichEachMessageWasDue() {
+        final ReplayScheduler scheduler = new ReplayScheduler(2);
+
+        final long first = scheduler.await(0, () -> {});
+        final long second = scheduler.await(TimeUnit.MILLISECONDS.toNanos(40), () -> {});
+
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(20), second - first);
+        assertTrue(System.nanoTime() - second >= 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectZeroSpeed() {
+        new ReplayScheduler(0);
+    }
+}
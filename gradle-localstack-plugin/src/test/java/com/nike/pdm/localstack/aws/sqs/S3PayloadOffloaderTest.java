@@ -0,0 +1,94 @@
+/**
+ * Copyright 2020-present, Nike, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the Apache-2.0 license found in
+ * the LICENSE file in the root directory of this source tree.
+ */
+package com.nike.pdm.localstack.aws.sqs;
+
+import com.amazonaws.services.s3.AbstractAmazonS3;
+import com.amazonaws.services.s3.model.PutObjectRequest;
+import com.amazonaws.services.s3.model.PutObjectResult;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class S3PayloadOffloaderTest {
+
+    @Test
+    public void shouldOffloadOnlyPayloadsAboveThreshold() {
+        try (S3PayloadOffloader offloader = new S3PayloadOffloader(new RecordingS3(), "payloads", 4, 1)) {
+            assertFalse(offloader.shouldOffload("1234"));
+            assertTrue(offloader.shouldOffload("12345"));
+            assertTrue(offloader.shouldOffload("\u00e9\u00e9\u00e9"));
+        }
+    }
+
+    @Test
+    public void shouldUploadPayloadAndReturnPointer() throws IOException {
+        RecordingS3 s3 = new RecordingS3();
+        String message = "{\"text\": \"\u00e9t\u00e9\"}";
+
+        S3PayloadOffloader.OffloadedPayload payload;
+        try (S3PayloadOffloader offloader = new S3PayloadOffloader(s3, "payloads", 0, 2)) {
+            payload = offloader.offload(message);
+            payload.getUpload().join();
+            assertEquals(1, offloader.getOffloaded());
+        }
+
+        JsonNode pointer = new ObjectMapper().readTree(payload.getPointer());
+        assertEquals("software.amazon.payloadoffloading.PayloadS3Pointer", pointer.get(0).asText());
+        assertEquals("payloads", pointer.get(1).get("s3BucketName").asText());
+
+        String key = pointer.get(1).get("s3Key").asText();
+        assertEquals(message, s3.objects.get("payloads/" + key));
+        assertEquals(Integer.toString(SqsMessageBatch.utf8Length(message)),
+                payload.getAttributes().get(S3PayloadOffloader.PAYLOAD_SIZE_ATTRIBUTE).getStringValue());
+    }
+
+    @Test
+    public void shouldStreamLinesFromTheirBuffer() throws IOException {
+        RecordingS3 s3 = new RecordingS3();
+        ByteBuffer buffer = ByteBuffer.wrap("skip\npayload\n".getBytes(StandardCharsets.UTF_8));
+
+        S3PayloadOffloader.OffloadedPayload payload;
+        try (S3PayloadOffloader offloader = new S3PayloadOffloader(s3, "payloads", 0, 1)) {
+            payload = offloader.offload(new Utf8Line(buffer, 5, 7));
+            payload.getUpload().join();
+        }
+
+        String key = new ObjectMapper().readTree(payload.getPointer()).get(1).get("s3Key").asText();
+        assertEquals("payload", s3.objects.get("payloads/" + key));
+    }
+
+    /**
+     * Fake S3 client that records the objects put in each bucket.
+     */
+    static class RecordingS3 extends AbstractAmazonS3 {
+        final Map<String, String> objects = new ConcurrentHashMap<>();
+
+        @Override
+        public PutObjectResult putObject(PutObjectRequest request) {
+            try {
+                objects.put(request.getBucketName() + "/" + request.getKey(), IOUtils.toString(request.getInputStream(), StandardCharsets.UTF_8));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+
+            return new PutObjectResult();
+        }
+    }
+}
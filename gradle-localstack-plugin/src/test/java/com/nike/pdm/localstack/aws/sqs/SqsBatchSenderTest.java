@@ -0,0 +1,216 @@
+/**
+ * Copyright 2020-present, Nike, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the Apache-2.0 license found in
+ * the LICENSE file in the root directory of this source tree.
+ */
+package com.nike.pdm.localstack.aws.sqs;
+
+import com.amazonaws.services.sqs.AbstractAmazonSQS;
+import com.amazonaws.services.sqs.model.BatchResultErrorEntry;
+import com.amazonaws.services.sqs.model.SendMessageBatchRequest;
+import com.amazonaws.services.sqs.model.SendMessageBatchRequestEntry;
+import com.amazonaws.services.sqs.model.SendMessageBatchResult;
+import com.amazonaws.services.sqs.model.SendMessageBatchResultEntry;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SqsBatchSenderTest {
+
+    @Test
+    public void shouldSendBatchInSingleRequest() {
+        RecordingSqs sqs = new RecordingSqs();
+        SqsPublishStats stats = new SqsPublishStats();
+
+        new SqsBatchSender(sqs, stats).send("queue", batchOf("one", "two", "three"));
+
+        assertEquals(1, sqs.requests.size());
+        assertEquals(3, sqs.requests.get(0).getEntries().size());
+        assertEquals(3, stats.getSent());
+        assertEquals(0, stats.getFailed());
+    }
+
+    @Test
+    public void shouldResendOnlyFailedEntries() {
+        RecordingSqs sqs = new RecordingSqs();
+        sqs.failIdsOnce.add("1");
+        SqsPublishStats stats = new SqsPublishStats();
+
+        new SqsBatchSender(sqs, stats).send("queue", batchOf("one", "two", "three"));
+
+        assertEquals(2, sqs.requests.size());
+        assertEquals(1, sqs.requests.get(1).getEntries().size());
+        assertEquals("two", sqs.requests.get(1).getEntries().get(0).getMessageBody());
+        assertEquals(3, stats.getSent());
+        assertEquals(0, stats.getFailed());
+    }
+
+    @Test
+    public void shouldNotResendSenderFaults() {
+        RecordingSqs sqs = new RecordingSqs();
+        sqs.senderFaultIds.add("0");
+        SqsPublishStats stats = new SqsPublishStats();
+
+        new SqsBatchSender(sqs, stats).send("queue", batchOf("one", "two"));
+
+        assertEquals(1, sqs.requests.size());
+        assertEquals(1, stats.getSent());
+        assertEquals(1, stats.getFailed());
+    }
+
+    @Test
+    public void shouldReportEachAcceptedMessage() {
+        RecordingSqs sqs = new RecordingSqs();
+        sqs.failIdsOnce.add("1");
+        sqs.senderFaultIds.add("2");
+        List<Integer> accepted = new ArrayList<>();
+
+        new SqsBatchSender(sqs, new SqsPublishStats()).send("queue", batchOf("one", "two", "three"), accepted::add);
+
+        assertEquals(Arrays.asList(0, 1), accepted);
+    }
+
+    @Test
+    public void shouldLogErrorsOfLastAttemptOnceAttemptsAreExhausted() throws Exception {
+        RecordingSqs sqs = new RecordingSqs();
+        sqs.alwaysFailIds.add("1");
+        SqsPublishStats stats = new SqsPublishStats();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        PrintStream stdout = System.out;
+        System.setOut(new PrintStream(out, true, "UTF-8"));
+        boolean sent;
+        try {
+            sent = new SqsBatchSender(sqs, stats, 3, 1, null).send("queue", batchOf("one", "two", "three"));
+        } finally {
+            System.setOut(stdout);
+        }
+
+        assertFalse(sent);
+        assertEquals(3, sqs.requests.size());
+        assertEquals(2, stats.getSent());
+        assertEquals(1, stats.getFailed());
+
+        String log = new String(out.toByteArray(), StandardCharsets.UTF_8);
+        assertTrue(log, log.contains("Failed to publish 1 messages to queue queue after 3 attempts: [ServiceUnavailable] Try again"));
+    }
+
+    @Test
+    public void shouldHoldBackLaterEntriesOfGroupWhileResendingFailedEntry() {
+        RecordingSqs sqs = new RecordingSqs();
+        sqs.failIdsOnce.add("0");
+        sqs.failIdsOnce.add("1");
+        SqsPublishStats stats = new SqsPublishStats();
+        List<Integer> accepted = new ArrayList<>();
+
+        boolean sent = new SqsBatchSender(sqs, stats, 5, 1, null)
+                .send("queue.fifo", fifoBatchOf("a:one", "a:two", "b:three"), accepted::add);
+
+        assertTrue(sent);
+        assertEquals(3, sqs.requests.size());
+        assertEquals(Arrays.asList("0", "1", "2"), idsOf(sqs.requests.get(0)));
+        assertEquals(Arrays.asList("0"), idsOf(sqs.requests.get(1)));
+        assertEquals(Arrays.asList("1"), idsOf(sqs.requests.get(2)));
+        assertEquals(Arrays.asList(2, 0, 1), accepted);
+        assertEquals(3, stats.getSent());
+        assertEquals(0, stats.getFailed());
+    }
+
+    @Test
+    public void shouldNotResendFifoEntryOnceLaterEntryOfGroupWasAccepted() {
+        RecordingSqs sqs = new RecordingSqs();
+        sqs.failIdsOnce.add("0");
+        SqsPublishStats stats = new SqsPublishStats();
+
+        boolean sent = new SqsBatchSender(sqs, stats, 5, 1, null).send("queue.fifo", fifoBatchOf("a:one", "a:two", "b:three"));
+
+        assertFalse(sent);
+        assertEquals(1, sqs.requests.size());
+        assertEquals(2, stats.getSent());
+        assertEquals(1, stats.getFailed());
+    }
+
+    @Test
+    public void shouldFailLaterEntriesOfGroupOnSenderFault() {
+        RecordingSqs sqs = new RecordingSqs();
+        sqs.senderFaultIds.add("0");
+        sqs.failIdsOnce.add("1");
+        SqsPublishStats stats = new SqsPublishStats();
+
+        boolean sent = new SqsBatchSender(sqs, stats, 5, 1, null).send("queue.fifo", fifoBatchOf("a:one", "a:two", "b:three"));
+
+        assertFalse(sent);
+        assertEquals(1, sqs.requests.size());
+        assertEquals(1, stats.getSent());
+        assertEquals(2, stats.getFailed());
+    }
+
+    private static List<String> idsOf(SendMessageBatchRequest request) {
+        return request.getEntries().stream().map(SendMessageBatchRequestEntry::getId).collect(Collectors.toList());
+    }
+
+    /**
+     * Creates a batch for a FIFO queue from messages of the form <code>group:body</code>.
+     */
+    private static SqsMessageBatch fifoBatchOf(String... messages) {
+        FifoKeyExtractor fifoKeys = new FifoKeyExtractor(null, message -> message.substring(0, message.indexOf(':')), null, null);
+        SqsMessageBatch batch = new SqsMessageBatch(SqsMessageBatch.MAX_ENTRIES);
+        for (String message : messages) {
+            batch.add(message, fifoKeys.extract(message), null);
+        }
+
+        return batch;
+    }
+
+    private static SqsMessageBatch batchOf(String... messages) {
+        SqsMessageBatch batch = new SqsMessageBatch(SqsMessageBatch.MAX_ENTRIES);
+        for (String message : messages) {
+            batch.add(message);
+        }
+
+        return batch;
+    }
+
+    /**
+     * Fake SQS client that records batch requests and fails the configured entry ids.
+     */
+    static class RecordingSqs extends AbstractAmazonSQS {
+        final List<SendMessageBatchRequest> requests = new ArrayList<>();
+        final List<String> failIdsOnce = new ArrayList<>();
+        final List<String> senderFaultIds = new ArrayList<>();
+        final List<String> alwaysFailIds = new ArrayList<>();
+
+        @Override
+        public SendMessageBatchResult sendMessageBatch(SendMessageBatchRequest request) {
+            requests.add(request);
+
+            List<SendMessageBatchResultEntry> successful = new ArrayList<>();
+            List<BatchResultErrorEntry> failed = new ArrayList<>();
+            request.getEntries().forEach(entry -> {
+                if (senderFaultIds.contains(entry.getId())) {
+                    failed.add(new BatchResultErrorEntry().withId(entry.getId()).withSenderFault(true).withCode("InvalidMessageContents"));
+                } else if (alwaysFailIds.contains(entry.getId())) {
+                    failed.add(new BatchResultErrorEntry().withId(entry.getId()).withSenderFault(false).withCode("ServiceUnavailable").withMessage("Try again"));
+                } else if (failIdsOnce.remove(entry.getId())) {
+                    failed.add(new BatchResultErrorEntry().withId(entry.getId()).withSenderFault(false).withCode("InternalError"));
+                } else {
+                    successful.add(new SendMessageBatchResultEntry().withId(entry.getId()));
+                }
+            });
+
+            return new SendMessageBatchResult().withSuccessful(successful).withFailed(failed);
+        }
+    }
+}
@@ -0,0 +1,182 @@
+/**
+ * Copyright 2020-present, Nike, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the Apache-2.0 license found in
+ * the LICENSE file in the root directory of this source tree.
+ */
+package com.nike.pdm.localstack.aws.sqs;
+
+import com.amazonaws.services.sqs.AbstractAmazonSQS;
+import com.amazonaws.services.sqs.model.DeleteMessageBatchRequest;
+import com.amazonaws.services.sqs.model.DeleteMessageBatchRequestEntry;
+import com.amazonaws.services.sqs.model.DeleteMessageBatchResult;
+import com.amazonaws.services.sqs.model.DeleteMessageBatchResultEntry;
+import com.amazonaws.services.sqs.model.Message;
+import com.amazonaws.services.sqs.model.QueueDoesNotExistException;
+import com.amazonaws.services.sqs.model.ReceiveMessageRequest;
+import com.amazonaws.services.sqs.model.ReceiveMessageResult;
+import com.nike.pdm.localstack.core.TokenBucket;
+import org.gradle.api.GradleException;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SqsConsumerSimulatorTest {
+
+    private static final String ORDERS = "http://localhost:4566/000000000000/orders";
+    private static final String PAYMENTS = "http://localhost:4566/000000000000/payments";
+
+    @Test
+    public void shouldConsumeEveryQueue() {
+        ConsumerSqs sqs = new ConsumerSqs();
+        sqs.add(ORDERS, 45);
+        sqs.add(PAYMENTS, 12);
+
+        SqsConsumerSimulator simulator = new SqsConsumerSimulator(sqs, Arrays.asList(ORDERS, PAYMENTS), 3, 200, 0, 0, 0, null);
+        simulator.start();
+        simulator.await();
+
+        assertEquals(45, simulator.getReceived(0));
+        assertEquals(45, simulator.getConsumed(0));
+        assertEquals(12, simulator.getConsumed(1));
+        assertEquals(0, simulator.getFailed(0));
+        assertEquals(57, sqs.deleted.size());
+
+        assertEquals(57, simulator.getQueueLatency().getCount());
+        assertEquals(57, simulator.getProcessingLatency().getCount());
+        assertTrue(simulator.getQueueLatency().getPercentile(50) >= 1000);
+        assertTrue(simulator.renderThroughput().startsWith("Throughput"));
+    }
+
+    @Test
+    public void shouldLeaveFailedMessagesOnQueue() {
+        ConsumerSqs sqs = new ConsumerSqs();
+        sqs.add(ORDERS, 20);
+
+        SqsConsumerSimulator simulator = new SqsConsumerSimulator(sqs, Collections.singletonList(ORDERS), 2, 200, 0, 0, 100, null);
+        simulator.start();
+        simulator.await();
+
+        assertEquals(20, simulator.getReceived(0));
+        assertEquals(20, simulator.getFailed(0));
+        assertEquals(0, simulator.getConsumed(0));
+        assertTrue(sqs.deleted.isEmpty());
+        assertEquals(0, simulator.getProcessingLatency().getCount());
+    }
+
+    @Test
+    public void shouldStopAfterDuration() {
+        ConsumerSqs sqs = new ConsumerSqs();
+        sqs.add(ORDERS, 0);
+        sqs.endless = true;
+
+        SqsConsumerSimulator simulator = new SqsConsumerSimulator(sqs, Collections.singletonList(ORDERS), 2, 10_000, 300, 1, 0, null);
+        simulator.start();
+        simulator.await();
+
+        assertTrue(simulator.getConsumed(0) > 0);
+        assertTrue("Elapsed: " + simulator.getElapsedMillis(), simulator.getElapsedMillis() < 5_000);
+    }
+
+    @Test
+    public void shouldLimitRate() {
+        ConsumerSqs sqs = new ConsumerSqs();
+        sqs.add(ORDERS, 30);
+
+        SqsConsumerSimulator simulator = new SqsConsumerSimulator(sqs, Collections.singletonList(ORDERS), 4, 200, 0, 0, 0,
+                new TokenBucket(40, SqsQueueDrainer.MAX_MESSAGES_PER_RECEIVE, 0));
+        simulator.start();
+        simulator.await();
+
+        // The first 10 messages use the burst, the other 20 take half a second at 40 per second
+        assertEquals(30, simulator.getConsumed(0));
+        assertTrue("Elapsed: " + simulator.getElapsedMillis(), simulator.getElapsedMillis() >= 450);
+    }
+
+    @Test(expected = GradleException.class)
+    public void shouldFailWhenQueueDoesNotExist() {
+        SqsConsumerSimulator simulator = new SqsConsumerSimulator(new ConsumerSqs(), Collections.singletonList(ORDERS), 1, 200, 0, 0, 0, null);
+        simulator.start();
+        simulator.await();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectFailurePercentAbove100() {
+        new SqsConsumerSimulator(new ConsumerSqs(), Collections.singletonList(ORDERS), 1, 200, 0, 0, 101, null);
+    }
+
+    /**
+     * Fake SQS client holding the messages of several queues, each sent a few seconds ago.
+     */
+    static class ConsumerSqs extends AbstractAmazonSQS {
+        final Map<String, Queue<Message>> queues = new ConcurrentHashMap<>();
+        final Set<String> deleted = ConcurrentHashMap.newKeySet();
+        final AtomicLong generated = new AtomicLong();
+        volatile boolean endless;
+
+        void add(String queueUrl, int count) {
+            Queue<Message> messages = new ConcurrentLinkedQueue<>();
+            for (int i = 0; i < count; i++) {
+                messages.add(message(queueUrl, i));
+            }
+
+            queues.put(queueUrl, messages);
+        }
+
+        @Override
+        public ReceiveMessageResult receiveMessage(ReceiveMessageRequest request) {
+            Queue<Message> messages = queues.get(request.getQueueUrl());
+            if (messages == null) {
+                throw new QueueDoesNotExistException("The specified queue does not exist");
+            }
+
+            List<Message> received = new ArrayList<>();
+            while (received.size() < request.getMaxNumberOfMessages()) {
+                Message message = endless ? message(request.getQueueUrl(), generated.incrementAndGet()) : messages.poll();
+                if (message == null) {
+                    break;
+                }
+
+                received.add(message);
+            }
+
+            return new ReceiveMessageResult().withMessages(received);
+        }
+
+        @Override
+        public DeleteMessageBatchResult deleteMessageBatch(DeleteMessageBatchRequest request) {
+            List<DeleteMessageBatchResultEntry> successful = new ArrayList<>();
+            for (DeleteMessageBatchRequestEntry entry : request.getEntries()) {
+                deleted.add(entry.getReceiptHandle());
+                successful.add(new DeleteMessageBatchResultEntry().withId(entry.getId()));
+            }
+
+            DeleteMessageBatchResult result = new DeleteMessageBatchResult();
+            result.setSuccessful(successful);
+            result.setFailed(new ArrayList<>());
+            return result;
+        }
+
+        private static Message message(String queueUrl, long i) {
+            return new Message()
+                    .withMessageId("id-" + i)
+                    .withReceiptHandle(queueUrl + "#" + i)
+                    .withBody("message-" + i)
+                    .withAttributes(Collections.singletonMap(SqsConsumerSimulator.SENT_TIMESTAMP_ATTRIBUTE,
+                            String.valueOf(System.currentTimeMillis() - 2_000)));
+        }
+    }
+}
@@ -0,0 +1,93 @@
+/**
+ * Copyright 2020-present, Nike, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the Apache-2.0 license found in
+ * the LICENSE file in the root directory of this source tree.
+ */
+package com.nike.pdm.localstack.aws.sqs;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SqsDistributionTest {
+
+    @Test
+    public void shouldBroadcastToAllQueues() {
+        SqsDistribution distribution = new SqsDistribution(SqsDistribution.Mode.BROADCAST, 3, null, null);
+
+        assertTrue(distribution.isBroadcast());
+        assertFalse(distribution.needsKey());
+        assertEquals(SqsDistribution.ALL_QUEUES, distribution.select(null, null));
+    }
+
+    @Test
+    public void shouldSelectQueuesInTurn() {
+        SqsDistribution distribution = new SqsDistribution(SqsDistribution.Mode.ROUND_ROBIN, 3, null, null);
+
+        for (int i = 0; i < 10; i++) {
+            assertEquals(i % 3, distribution.select(null, null));
+        }
+    }
+
+    @Test
+    public void shouldSelectSameQueueForSameKey() {
+        SqsDistribution distribution = new SqsDistribution(SqsDistribution.Mode.KEY_HASH, 4, "customer.id", null);
+        assertTrue(distribution.needsKey());
+
+        Map<String, Integer> queues = new HashMap<>();
+        int[] counts = new int[4];
+        for (int i = 0; i < 4_000; i++) {
+            String key = "c" + (i % 400);
+            int queue = distribution.select("{\"customer\": {\"id\": \"" + key + "\"}, \"seq\": " + i + "}", null);
+
+            Integer previous = queues.put(key, queue);
+            assertTrue(previous == null || previous == queue);
+            counts[queue]++;
+        }
+
+        // Keys are spread across every queue
+        for (int count : counts) {
+            assertTrue("Uneven distribution: " + count, count > 600);
+        }
+    }
+
+    @Test
+    public void shouldHashMessageGroupIdWithoutKey() {
+        SqsDistribution distribution = new SqsDistribution(SqsDistribution.Mode.KEY_HASH, 4, null, null);
+        assertFalse(distribution.needsKey());
+
+        FifoKeyExtractor.Keys keys = new FifoKeyExtractor.Keys("group", null);
+        assertEquals(distribution.select("a", keys), distribution.select("b", keys));
+    }
+
+    @Test
+    public void shouldPreferKeyExtractor() {
+        SqsDistribution distribution = new SqsDistribution(SqsDistribution.Mode.KEY_HASH, 4, "id", message -> "same");
+
+        assertEquals(distribution.select("not json", null), distribution.select("{\"id\": 1}", null));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectMessagesWithoutKey() {
+        new SqsDistribution(SqsDistribution.Mode.KEY_HASH, 2, "id", null).select("{\"other\": 1}", null);
+    }
+
+    @Test
+    public void shouldParseModeNames() {
+        assertEquals(SqsDistribution.Mode.BROADCAST, SqsDistribution.Mode.fromName("broadcast"));
+        assertEquals(SqsDistribution.Mode.ROUND_ROBIN, SqsDistribution.Mode.fromName("roundRobin"));
+        assertEquals(SqsDistribution.Mode.KEY_HASH, SqsDistribution.Mode.fromName(" KEYHASH "));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectUnknownModeNames() {
+        SqsDistribution.Mode.fromName("random");
+    }
+}
@@ -0,0 +1,175 @@
+/**
+ * Copyright 2020-present, Nike, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the Apache-2.0 license found in
+ * the LICENSE file in the root directory of this source tree.
+ */
+package com.nike.pdm.localstack.aws.sqs;
+
+import com.amazonaws.services.sqs.AbstractAmazonSQS;
+import com.amazonaws.services.sqs.model.BatchResultErrorEntry;
+import com.amazonaws.services.sqs.model.DeleteMessageBatchRequest;
+import com.amazonaws.services.sqs.model.DeleteMessageBatchRequestEntry;
+import com.amazonaws.services.sqs.model.DeleteMessageBatchResult;
+import com.amazonaws.services.sqs.model.DeleteMessageBatchResultEntry;
+import com.amazonaws.services.sqs.model.Message;
+import com.amazonaws.services.sqs.model.MessageAttributeValue;
+import com.amazonaws.services.sqs.model.ReceiveMessageRequest;
+import com.amazonaws.services.sqs.model.ReceiveMessageResult;
+import com.amazonaws.services.sqs.model.SendMessageBatchRequest;
+import com.amazonaws.services.sqs.model.SendMessageBatchRequestEntry;
+import com.amazonaws.services.sqs.model.SendMessageBatchResult;
+import com.amazonaws.services.sqs.model.SendMessageBatchResultEntry;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SqsDlqRedriverTest {
+
+    @Test
+    public void shouldMoveEveryMessageToSourceQueue() {
+        RedriveSqs sqs = new RedriveSqs(45);
+        SqsPublishStats stats = new SqsPublishStats();
+
+        SqsDlqRedriver redriver = new SqsDlqRedriver(sqs, "dlq", "source", 3, 100, stats, null);
+        redriver.start();
+        redriver.await();
+
+        assertEquals(45, stats.getSent());
+        assertEquals(0, stats.getFailed());
+        assertEquals(0, redriver.getDeleteFailures());
+        assertEquals(45, sqs.sent.size());
+        assertEquals(45, sqs.deleted.size());
+        assertTrue(sqs.dlq.isEmpty());
+        assertEquals(45, sqs.sent.stream().map(SendMessageBatchRequestEntry::getMessageBody).distinct().count());
+    }
+
+    @Test
+    public void shouldKeepMessageAttributes() {
+        RedriveSqs sqs = new RedriveSqs(1);
+        sqs.dlq.peek().setMessageAttributes(Collections.singletonMap("type", new MessageAttributeValue().withDataType("String").withStringValue("order")));
+
+        SqsDlqRedriver redriver = new SqsDlqRedriver(sqs, "dlq", "source", 1, 100, new SqsPublishStats(), null);
+        redriver.start();
+        redriver.await();
+
+        assertEquals("order", sqs.sent.get(0).getMessageAttributes().get("type").getStringValue());
+    }
+
+    @Test
+    public void shouldLeaveMessagesThatCannotBeSentOnDlq() {
+        RedriveSqs sqs = new RedriveSqs(5);
+        sqs.senderFaultBodies.add("message-2");
+        SqsPublishStats stats = new SqsPublishStats();
+
+        SqsDlqRedriver redriver = new SqsDlqRedriver(sqs, "dlq", "source", 2, 100, stats, null);
+        redriver.start();
+        redriver.await();
+
+        // The failed message is received again, but only counted once
+        assertEquals(4, stats.getSent());
+        assertEquals(1, stats.getFailed());
+        assertEquals(4, sqs.deleted.size());
+        List<String> remaining = new ArrayList<>();
+        sqs.dlq.forEach(message -> remaining.add(message.getBody()));
+        sqs.inFlight.values().forEach(message -> remaining.add(message.getBody()));
+        assertEquals(Collections.singletonList("message-2"), remaining);
+    }
+
+    @Test
+    public void shouldKeepMessageGroupWhenMovingToFifoQueue() {
+        RedriveSqs sqs = new RedriveSqs(3);
+        sqs.dlq.forEach(message -> message.setAttributes(Collections.singletonMap("MessageGroupId", "group-" + message.getBody())));
+
+        SqsDlqRedriver redriver = new SqsDlqRedriver(sqs, "dlq", "source.fifo", 1, 100, new SqsPublishStats(), null);
+        redriver.start();
+        redriver.await();
+
+        assertEquals(3, sqs.sent.size());
+        for (SendMessageBatchRequestEntry entry : sqs.sent) {
+            assertEquals("group-" + entry.getMessageBody(), entry.getMessageGroupId());
+            assertEquals("id-" + entry.getMessageBody().substring("message-".length()), entry.getMessageDeduplicationId());
+        }
+
+        assertTrue(sqs.fifoReceive);
+    }
+
+    /**
+     * Fake SQS client holding a dead-letter queue and recording the messages sent to the source queue.
+     */
+    static class RedriveSqs extends AbstractAmazonSQS {
+        final Queue<Message> dlq = new ConcurrentLinkedQueue<>();
+        final Map<String, Message> inFlight = new ConcurrentHashMap<>();
+        final List<SendMessageBatchRequestEntry> sent = Collections.synchronizedList(new ArrayList<>());
+        final Set<String> deleted = ConcurrentHashMap.newKeySet();
+        final Set<String> senderFaultBodies = ConcurrentHashMap.newKeySet();
+        volatile boolean fifoReceive;
+
+        RedriveSqs(int count) {
+            for (int i = 0; i < count; i++) {
+                dlq.add(new Message().withMessageId("id-" + i).withReceiptHandle("handle-" + i).withBody("message-" + i));
+            }
+        }
+
+        @Override
+        public synchronized ReceiveMessageResult receiveMessage(ReceiveMessageRequest request) {
+            fifoReceive |= request.getAttributeNames().contains("MessageGroupId");
+
+            // Messages that could not be sent become visible again, as they would once their visibility timeout expires
+            inFlight.values().removeIf(message -> senderFaultBodies.contains(message.getBody()) && dlq.add(message));
+
+            List<Message> received = new ArrayList<>();
+            Message message;
+            while (received.size() < request.getMaxNumberOfMessages() && (message = dlq.poll()) != null) {
+                received.add(message);
+                inFlight.put(message.getReceiptHandle(), message);
+            }
+
+            return new ReceiveMessageResult().withMessages(received);
+        }
+
+        @Override
+        public SendMessageBatchResult sendMessageBatch(SendMessageBatchRequest request) {
+            List<SendMessageBatchResultEntry> successful = new ArrayList<>();
+            List<BatchResultErrorEntry> failed = new ArrayList<>();
+            for (SendMessageBatchRequestEntry entry : request.getEntries()) {
+                if (senderFaultBodies.contains(entry.getMessageBody())) {
+                    failed.add(new BatchResultErrorEntry().withId(entry.getId()).withCode("InvalidMessageContents").withSenderFault(true));
+                } else {
+                    sent.add(entry);
+                    successful.add(new SendMessageBatchResultEntry().withId(entry.getId()));
+                }
+            }
+
+            SendMessageBatchResult result = new SendMessageBatchResult();
+            result.setSuccessful(successful);
+            result.setFailed(failed);
+            return result;
+        }
+
+        @Override
+        public synchronized DeleteMessageBatchResult deleteMessageBatch(DeleteMessageBatchRequest request) {
+            List<DeleteMessageBatchResultEntry> successful = new ArrayList<>();
+            for (DeleteMessageBatchRequestEntry entry : request.getEntries()) {
+                inFlight.remove(entry.getReceiptHandle());
+                deleted.add(entry.getReceiptHandle());
+                successful.add(new DeleteMessageBatchResultEntry().withId(entry.getId()));
+            }
+
+            DeleteMessageBatchResult result = new DeleteMessageBatchResult();
+            result.setSuccessful(successful);
+            return result;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+/**
+ * Copyright 2020-present, Nike, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the Apache-2.0 license found in
+ * the LICENSE file in the root directory of this source tree.
+ */
+package com.nike.pdm.localstack.aws.sqs;
+
+import com.amazonaws.services.sqs.model.SendMessageBatchRequestEntry;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SqsMessageBatchTest {
+
+    @Test
+    public void shouldBeFullAtMaxEntries() {
+        SqsMessageBatch batch = new SqsMessageBatch(3);
+        batch.add("one");
+        batch.add("two");
+        assertFalse(batch.isFull());
+
+        batch.add("three");
+        assertTrue(batch.isFull());
+        assertFalse(batch.canAdd("four"));
+    }
+
+    @Test
+    public void shouldNotExceedMaxPayloadBytes() {
+        char[] chars = new char[SqsMessageBatch.MAX_PAYLOAD_BYTES / 2];
+        Arrays.fill(chars, 'a');
+        String half = new String(chars);
+
+        SqsMessageBatch batch = new SqsMessageBatch(SqsMessageBatch.MAX_ENTRIES);
+        batch.add(half);
+        assertTrue(batch.canAdd(half));
+
+        batch.add(half);
+        assertFalse(batch.canAdd("a"));
+        assertEquals(SqsMessageBatch.MAX_PAYLOAD_BYTES, batch.getPayloadBytes());
+    }
+
+    @Test
+    public void shouldCreateEntriesWithIndexIds() {
+        SqsMessageBatch batch = new SqsMessageBatch(SqsMessageBatch.MAX_ENTRIES);
+        batch.add("one");
+        batch.add("two");
+
+        List<SendMessageBatchRequestEntry> entries = batch.toEntries();
+        assertEquals(2, entries.size());
+        assertEquals("0", entries.get(0).getId());
+        assertEquals("one", entries.get(0).getMessageBody());
+        assertEquals("1", entries.get(1).getId());
+        assertEquals("two", entries.get(1).getMessageBody());
+    }
+
+    @Test
+    public void shouldCalculateUtf8Length() {
+        assertEquals(3, SqsMessageBatch.utf8Length("abc"));
+        assertEquals(2, SqsMessageBatch.utf8Length("\u00e9"));
+        assertEquals(3, SqsMessageBatch.utf8Length("\u20ac"));
+        assertEquals(4, SqsMessageBatch.utf8Length("\ud83d\ude00"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectInvalidBatchSize() {
+        new SqsMessageBatch(SqsMessageBatch.MAX_ENTRIES + 1);
+    }
+}
@@ -0,0 +1,122 @@
+/**
+ * Copyright 2020-present, Nike, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the Apache-2.0 license found in
+ * the LICENSE file in the root directory of this source tree.
+ */
+package com.nike.pdm.localstack.aws.sqs;
+
+import com.amazonaws.services.sqs.model.Message;
+import com.amazonaws.services.sqs.model.MessageAttributeValue;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.assertEquals;
+
+public class SqsMessageFileWriterTest {
+
+    private File dir;
+
+    @Before
+    public void setup() throws IOException {
+        dir = Files.createTempDirectory("drain").toFile();
+    }
+
+    @After
+    public void cleanup() throws IOException {
+        FileUtils.deleteDirectory(dir);
+    }
+
+    @Test
+    public void shouldWriteOneBodyPerLine() throws Exception {
+        File file = new File(dir, "queue.ndjson");
+
+        try (SqsMessageFileWriter writer = new SqsMessageFileWriter(file, false)) {
+            writer.write(Arrays.asList(message("{\"id\":1}"), message("plain \u00e9")));
+            writer.write(Collections.singletonList(message("{\"id\":2}")));
+
+            assertEquals(3, writer.getWritten());
+            assertEquals(0, writer.getQuoted());
+        }
+
+        assertEquals(Arrays.asList("{\"id\":1}", "plain \u00e9", "{\"id\":2}"), Files.readAllLines(file.toPath(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void shouldKeepMultiLineBodiesOnOneLine() throws Exception {
+        File file = new File(dir, "queue.ndjson");
+
+        try (SqsMessageFileWriter writer = new SqsMessageFileWriter(file, false)) {
+            writer.write(Arrays.asList(message("{\n  \"id\": 1\n}"), message("first\r\nsecond")));
+
+            assertEquals(1, writer.getQuoted());
+        }
+
+        assertEquals(Arrays.asList("{\"id\":1}", "\"first\\r\\nsecond\""), Files.readAllLines(file.toPath(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void shouldCompressGzipFiles() throws Exception {
+        File file = new File(dir, "queue.ndjson.gz");
+
+        try (SqsMessageFileWriter writer = new SqsMessageFileWriter(file, false)) {
+            writer.write(Arrays.asList(message("one"), message("two")));
+        }
+
+        try (GZIPInputStream in = new GZIPInputStream(new FileInputStream(file))) {
+            assertEquals("one\ntwo\n", IOUtils.toString(in, StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    public void shouldWriteRecords() throws Exception {
+        File file = new File(dir, "queue.ndjson");
+
+        Map<String, MessageAttributeValue> messageAttributes = new HashMap<>();
+        messageAttributes.put("type", new MessageAttributeValue().withDataType("String").withStringValue("order"));
+        messageAttributes.put("raw", new MessageAttributeValue().withDataType("Binary").withBinaryValue(ByteBuffer.wrap(new byte[]{1, 2})));
+
+        Message message = message("{\"id\":1}")
+                .withMessageId("abc")
+                .withAttributes(Collections.singletonMap("SentTimestamp", "1600000000000"))
+                .withMessageAttributes(messageAttributes);
+
+        try (SqsMessageFileWriter writer = new SqsMessageFileWriter(file, true)) {
+            writer.write(Collections.singletonList(message));
+        }
+
+        List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+        assertEquals(1, lines.size());
+
+        JsonNode record = new ObjectMapper().readTree(lines.get(0));
+        assertEquals("abc", record.get("messageId").asText());
+        assertEquals(1600000000000L, record.get(SqsMessageFileWriter.TIMESTAMP_FIELD).asLong());
+        assertEquals("{\"id\":1}", record.get(SqsMessageFileWriter.BODY_FIELD).asText());
+        assertEquals("1600000000000", record.get("attributes").get("SentTimestamp").asText());
+        assertEquals("order", record.get("messageAttributes").get("type").get("stringValue").asText());
+        assertEquals("AQI=", record.get("messageAttributes").get("raw").get("binaryValue").asText());
+    }
+
+    private static Message message(String body) {
+        return new Message().withBody(body);
+    }
+}
@@ -0,0 +1,328 @@
+/**
+ * Copyright 2020-present, Nike, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the Apache-2.0 license found in
+ * the LICENSE file in the root directory of this source tree.
+ */
+package com.nike.pdm.localstack.aws.sqs;
+
+import com.amazonaws.services.sqs.AbstractAmazonSQS;
+import com.amazonaws.services.sqs.model.BatchResultErrorEntry;
+import com.amazonaws.services.sqs.model.QueueDoesNotExistException;
+import com.amazonaws.services.sqs.model.SendMessageBatchRequest;
+import com.amazonaws.services.sqs.model.SendMessageBatchRequestEntry;
+import com.amazonaws.services.sqs.model.SendMessageBatchResult;
+import com.amazonaws.services.sqs.model.SendMessageBatchResultEntry;
+import org.gradle.api.GradleException;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class SqsPublisherTest {
+
+    @Test
+    public void shouldPublishEveryMessageToEveryQueueInOrder() {
+        OrderRecordingSqs sqs = new OrderRecordingSqs();
+        SqsPublishStats stats = new SqsPublishStats();
+        List<String> queueUrls = Arrays.asList("queue1", "queue2", "queue3");
+
+        try (SqsPublisher publisher = new SqsPublisher(sqs, queueUrls, stats, new SqsPublisher.Options().withParallelism(2))) {
+            for (int i = 0; i < 1_000; i++) {
+                publisher.publish(Integer.toString(i));
+            }
+        }
+
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 1_000; i++) {
+            expected.add(Integer.toString(i));
+        }
+
+        queueUrls.forEach(queueUrl -> assertEquals(expected, sqs.bodies.get(queueUrl)));
+        assertEquals(3_000, stats.getSent());
+        assertEquals(0, stats.getFailed());
+    }
+
+    @Test
+    public void shouldAcknowledgeAllMessagesOnceClosed() {
+        SqsPublisher publisher = new SqsPublisher(new OrderRecordingSqs(), Arrays.asList("queue1", "queue2"), new SqsPublishStats(),
+                new SqsPublisher.Options().withBatchSize(3).withParallelism(2));
+        for (int i = 0; i < 100; i++) {
+            publisher.publish(Integer.toString(i));
+        }
+        publisher.close();
+
+        assertEquals(100, publisher.getPublished());
+        assertEquals(100, publisher.getAcknowledged());
+    }
+
+    @Test
+    public void shouldStopPublishingWhenQueueDoesNotExist() {
+        AbstractAmazonSQS sqs = new AbstractAmazonSQS() {
+            @Override
+            public SendMessageBatchResult sendMessageBatch(SendMessageBatchRequest request) {
+                throw new QueueDoesNotExistException("test");
+            }
+        };
+
+        try (SqsPublisher publisher = new SqsPublisher(sqs, Collections.singletonList("queue"), new SqsPublishStats(),
+                new SqsPublisher.Options().withBatchSize(1))) {
+            for (int i = 0; i < 1_000; i++) {
+                publisher.publish(Integer.toString(i));
+            }
+
+            fail("Expected publisher to stop after the first error");
+        } catch (GradleException e) {
+            assertEquals(QueueDoesNotExistException.class, e.getCause().getCause().getClass());
+        }
+    }
+
+    @Test
+    public void shouldPublishMessageGroupsInOrderToFifoQueues() {
+        OrderRecordingSqs sqs = new OrderRecordingSqs();
+        SqsPublishStats stats = new SqsPublishStats();
+        List<String> queueUrls = Arrays.asList("queue1.fifo", "queue2.fifo");
+        FifoKeyExtractor fifoKeys = new FifoKeyExtractor("group", null, "id", null);
+
+        try (SqsPublisher publisher = new SqsPublisher(sqs, queueUrls, stats,
+                new SqsPublisher.Options().withParallelism(4).withFifoKeys(fifoKeys))) {
+            for (int i = 0; i < 1_000; i++) {
+                publisher.publish(String.format("{\"group\": \"g%d\", \"id\": %d}", i % 7, i));
+            }
+
+            publisher.publish("{\"id\": 1000}");
+        }
+
+        for (String queueUrl : queueUrls) {
+            List<SendMessageBatchRequestEntry> entries = sqs.entries.get(queueUrl);
+            assertEquals(1_000, entries.size());
+
+            Map<String, Integer> lastIds = new HashMap<>();
+            for (SendMessageBatchRequestEntry entry : entries) {
+                int id = Integer.parseInt(entry.getMessageDeduplicationId());
+                assertEquals("g" + (id % 7), entry.getMessageGroupId());
+
+                Integer last = lastIds.put(entry.getMessageGroupId(), id);
+                assertTrue("Message group out of order", last == null || last < id);
+            }
+        }
+
+        assertEquals(2_000, stats.getSent());
+        assertEquals(2, stats.getFailed());
+    }
+
+    @Test
+    public void shouldStopSendingFifoLaneOnceBatchFails() {
+        OrderRecordingSqs sqs = new OrderRecordingSqs() {
+            @Override
+            public SendMessageBatchResult sendMessageBatch(SendMessageBatchRequest request) {
+                if (request.getEntries().get(0).getMessageBody().equals("0")) {
+                    throw new IllegalStateException("Simulated failure");
+                }
+
+                return super.sendMessageBatch(request);
+            }
+        };
+        SqsPublishStats stats = new SqsPublishStats();
+
+        SqsPublisher publisher = new SqsPublisher(sqs, Collections.singletonList("queue.fifo"), stats, new SqsPublisher.Options()
+                .withBatchSize(1)
+                .withFifoKeys(new FifoKeyExtractor(null, message -> "group", null, null))
+                .withRetries(1, 1));
+        for (int i = 0; i < 3; i++) {
+            publisher.publish(Integer.toString(i));
+        }
+        publisher.close();
+
+        assertTrue(sqs.bodies.isEmpty());
+        assertEquals(0, stats.getSent());
+        assertEquals(3, stats.getFailed());
+        assertEquals(0, publisher.getAcknowledged());
+    }
+
+    @Test
+    public void shouldStopSendingFifoLaneOnceMessageIsRejected() {
+        OrderRecordingSqs sqs = new OrderRecordingSqs() {
+            @Override
+            public SendMessageBatchResult sendMessageBatch(SendMessageBatchRequest request) {
+                if (request.getEntries().get(0).getMessageBody().equals("0")) {
+                    return new SendMessageBatchResult().withFailed(new BatchResultErrorEntry()
+                            .withId(request.getEntries().get(0).getId()).withSenderFault(true).withCode("InvalidMessageContents"));
+                }
+
+                return super.sendMessageBatch(request);
+            }
+        };
+        SqsPublishStats stats = new SqsPublishStats();
+
+        SqsPublisher publisher = new SqsPublisher(sqs, Collections.singletonList("queue.fifo"), stats, new SqsPublisher.Options()
+                .withBatchSize(1)
+                .withFifoKeys(new FifoKeyExtractor(null, message -> "group", null, null))
+                .withRetries(3, 1));
+        for (int i = 0; i < 3; i++) {
+            publisher.publish(Integer.toString(i));
+        }
+        publisher.close();
+
+        assertTrue(sqs.bodies.isEmpty());
+        assertEquals(0, stats.getSent());
+        assertEquals(3, stats.getFailed());
+    }
+
+    @Test
+    public void shouldAcknowledgeOnlyThroughOldestUnsentMessageOfAnyLane() {
+        SqsPublisher publisher = new SqsPublisher(new OrderRecordingSqs(), Collections.singletonList("queue.fifo"), new SqsPublishStats(),
+                new SqsPublisher.Options().withBatchSize(3).withParallelism(2).withFifoKeys(new FifoKeyExtractor(null, message -> message, null, null)));
+
+        // Groups a and b are sent through different lanes and the batch of group a is never filled
+        publisher.publish("a");
+        for (int i = 0; i < 30; i++) {
+            publisher.publish("b");
+        }
+
+        assertEquals(0, publisher.getAcknowledged());
+
+        publisher.close();
+        assertEquals(31, publisher.getAcknowledged());
+    }
+
+    @Test
+    public void shouldPublishPointersToOffloadedPayloadsOnceUploaded() {
+        OrderRecordingSqs sqs = new OrderRecordingSqs();
+        SqsPublishStats stats = new SqsPublishStats();
+        List<String> queueUrls = Arrays.asList("queue1", "queue2");
+        S3PayloadOffloaderTest.RecordingS3 s3 = new S3PayloadOffloaderTest.RecordingS3();
+
+        char[] chars = new char[SqsMessageBatch.MAX_PAYLOAD_BYTES + 1];
+        Arrays.fill(chars, 'a');
+        String large = new String(chars);
+
+        try (S3PayloadOffloader offloader = new S3PayloadOffloader(s3, "payloads", SqsMessageBatch.MAX_PAYLOAD_BYTES, 2);
+             SqsPublisher publisher = new SqsPublisher(sqs, queueUrls, stats,
+                     new SqsPublisher.Options().withParallelism(2).withOffloader(offloader))) {
+            publisher.publish("small");
+            publisher.publish(large);
+        }
+
+        assertEquals(1, s3.objects.size());
+        assertEquals(large, s3.objects.values().iterator().next());
+
+        for (String queueUrl : queueUrls) {
+            List<SendMessageBatchRequestEntry> entries = sqs.entries.get(queueUrl);
+            assertEquals("small", entries.get(0).getMessageBody());
+            assertTrue(entries.get(0).getMessageAttributes().isEmpty());
+            assertTrue(entries.get(1).getMessageBody().contains("\"s3BucketName\":\"payloads\""));
+            assertEquals(Integer.toString(large.length()),
+                    entries.get(1).getMessageAttributes().get(S3PayloadOffloader.PAYLOAD_SIZE_ATTRIBUTE).getStringValue());
+        }
+
+        assertEquals(4, stats.getSent());
+        assertEquals(0, stats.getFailed());
+    }
+
+    @Test
+    public void shouldPublishEachMessageToOneQueueWhenDistributed() {
+        OrderRecordingSqs sqs = new OrderRecordingSqs();
+        SqsPublishStats stats = new SqsPublishStats();
+        List<String> queueUrls = Arrays.asList("queue1", "queue2", "queue3");
+        SqsDistribution distribution = new SqsDistribution(SqsDistribution.Mode.ROUND_ROBIN, queueUrls.size(), null, null);
+
+        SqsPublisher publisher = new SqsPublisher(sqs, queueUrls, stats,
+                new SqsPublisher.Options().withParallelism(2).withDistribution(distribution));
+        for (int i = 0; i < 999; i++) {
+            publisher.publish(Integer.toString(i));
+        }
+        publisher.close();
+
+        for (int q = 0; q < queueUrls.size(); q++) {
+            List<String> expected = new ArrayList<>();
+            for (int i = q; i < 999; i += queueUrls.size()) {
+                expected.add(Integer.toString(i));
+            }
+
+            assertEquals(expected, sqs.bodies.get(queueUrls.get(q)));
+        }
+
+        assertEquals(999, stats.getSent());
+        assertEquals(999, publisher.getAcknowledged());
+    }
+
+    @Test
+    public void shouldSendBatchesOfStandardQueueInParallelThroughSeveralLanes() {
+        CountDownLatch bothInFlight = new CountDownLatch(2);
+        OrderRecordingSqs sqs = new OrderRecordingSqs() {
+            @Override
+            public SendMessageBatchResult sendMessageBatch(SendMessageBatchRequest request) {
+                // Each batch only completes once the other one is being sent as well
+                bothInFlight.countDown();
+                try {
+                    bothInFlight.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+
+                return super.sendMessageBatch(request);
+            }
+        };
+        SqsPublishStats stats = new SqsPublishStats();
+
+        SqsPublisher publisher = new SqsPublisher(sqs, Collections.singletonList("queue"), stats,
+                new SqsPublisher.Options().withBatchSize(1).withParallelism(2).withLanesPerQueue(2));
+        publisher.publish("0");
+        publisher.publish("1");
+        publisher.close();
+
+        assertEquals(0, bothInFlight.getCount());
+        assertEquals(2, stats.getSent());
+        assertEquals(2, publisher.getAcknowledged());
+    }
+
+    @Test
+    public void shouldReportLagOfEachMessageAcknowledgedByEachQueue() {
+        List<Long> lags = Collections.synchronizedList(new ArrayList<>());
+
+        SqsPublisher publisher = new SqsPublisher(new OrderRecordingSqs(), Arrays.asList("queue1", "queue2"), new SqsPublishStats(),
+                new SqsPublisher.Options().withBatchSize(2).withLagListener(lags::add));
+        final long due = System.nanoTime() - TimeUnit.SECONDS.toNanos(1);
+        for (int i = 0; i < 3; i++) {
+            publisher.publish(Integer.toString(i), due);
+        }
+        publisher.close();
+
+        assertEquals(6, lags.size());
+        lags.forEach(lag -> assertTrue(Long.toString(lag), lag >= TimeUnit.SECONDS.toNanos(1)));
+    }
+
+    /**
+     * Fake SQS client that records the message bodies received by each queue.
+     */
+    static class OrderRecordingSqs extends AbstractAmazonSQS {
+        final Map<String, List<String>> bodies = new ConcurrentHashMap<>();
+        final Map<String, List<SendMessageBatchRequestEntry>> entries = new ConcurrentHashMap<>();
+
+        @Override
+        public SendMessageBatchResult sendMessageBatch(SendMessageBatchRequest request) {
+            bodies.computeIfAbsent(request.getQueueUrl(), k -> Collections.synchronizedList(new ArrayList<>()))
+                    .addAll(request.getEntries().stream().map(e -> e.getMessageBody()).collect(Collectors.toList()));
+            entries.computeIfAbsent(request.getQueueUrl(), k -> Collections.synchronizedList(new ArrayList<>()))
+                    .addAll(request.getEntries());
+
+            return new SendMessageBatchResult().withSuccessful(request.getEntries().stream()
+                    .map(e -> new SendMessageBatchResultEntry().withId(e.getId()))
+                    .collect(Collectors.toList()));
+        }
+    }
+}
@@ -0,0 +1,147 @@
+/**
+ * Copyright 2020-present, Nike, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the Apache-2.0 license found in
+ * the LICENSE file in the root directory of this source tree.
+ */
+package com.nike.pdm.localstack.aws.sqs;
+
+import com.amazonaws.services.sqs.AbstractAmazonSQS;
+import com.amazonaws.services.sqs.model.GetQueueAttributesRequest;
+import com.amazonaws.services.sqs.model.GetQueueAttributesResult;
+import org.gradle.api.GradleException;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class SqsQueueDepthPollerTest {
+
+    private final AtomicLong clock = new AtomicLong();
+    private final List<Long> sleeps = new ArrayList<>();
+
+    @Test
+    public void shouldReturnOnceEveryQueueReachesTargetDepth() {
+        DepthSqs sqs = new DepthSqs();
+        sqs.depths.put("a", new long[]{30, 20, 10, 0});
+        sqs.depths.put("b", new long[]{5, 0});
+
+        try (SqsQueueDepthPoller poller = poller(sqs, "a", "b")) {
+            poller.await(0, 60_000);
+
+            assertEquals(4, poller.getPolls());
+            assertEquals(0, poller.getDepth(0));
+            assertEquals(0, poller.getDepth(1));
+        }
+    }
+
+    @Test
+    public void shouldCountInFlightMessages() {
+        DepthSqs sqs = new DepthSqs();
+        sqs.depths.put("a", new long[]{0, 0});
+        sqs.notVisible.put("a", new long[]{3, 0});
+
+        try (SqsQueueDepthPoller poller = poller(sqs, "a")) {
+            poller.await(0, 60_000);
+
+            assertEquals(2, poller.getPolls());
+        }
+    }
+
+    @Test
+    public void shouldBackOffWhileDepthIsFlat() {
+        DepthSqs sqs = new DepthSqs();
+        sqs.depths.put("a", new long[]{10, 10, 10, 10, 9, 9, 0});
+
+        try (SqsQueueDepthPoller poller = poller(sqs, "a")) {
+            poller.await(0, 60_000);
+        }
+
+        assertEquals(Arrays.asList(100L, 200L, 400L, 800L, 100L, 200L), sleeps);
+    }
+
+    @Test
+    public void shouldNotBackOffBeyondMaximumInterval() {
+        DepthSqs sqs = new DepthSqs();
+        sqs.depths.put("a", new long[]{1, 1, 1, 1, 1, 1, 1, 0});
+
+        try (SqsQueueDepthPoller poller = poller(sqs, "a")) {
+            poller.await(0, 60_000);
+        }
+
+        assertEquals(Long.valueOf(1000), sleeps.get(sleeps.size() - 1));
+    }
+
+    @Test
+    public void shouldFailWhenTimeoutExpires() {
+        DepthSqs sqs = new DepthSqs();
+        sqs.depths.put("a", new long[]{0});
+        sqs.depths.put("b", new long[]{50, 40});
+
+        try (SqsQueueDepthPoller poller = poller(sqs, "a", "b")) {
+            poller.await(0, 2_000);
+            fail("Expected timeout");
+        } catch (GradleException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("b (depth: 40"));
+            assertTrue(e.getMessage(), !e.getMessage().contains("a (depth"));
+        }
+
+        long slept = sleeps.stream().mapToLong(Long::longValue).sum();
+        assertEquals(2_000, slept);
+    }
+
+    @Test
+    public void shouldReportDrainRate() {
+        DepthSqs sqs = new DepthSqs();
+        sqs.depths.put("a", new long[]{100, 90, 80, 0});
+
+        try (SqsQueueDepthPoller poller = poller(sqs, "a")) {
+            poller.await(0, 60_000);
+
+            // 100 messages over three polls 100 ms apart
+            assertEquals(100 / 0.3, poller.getDrainRate(0), 0.001);
+        }
+    }
+
+    private SqsQueueDepthPoller poller(DepthSqs sqs, String... queueUrls) {
+        return new SqsQueueDepthPoller(sqs, Arrays.asList(queueUrls), 100, 1000, clock::get, millis -> {
+            sleeps.add(millis);
+            clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+        });
+    }
+
+    /**
+     * Fake SQS client returning a scripted depth for each poll of a queue, repeating the last depth once the script
+     * runs out.
+     */
+    static class DepthSqs extends AbstractAmazonSQS {
+        final Map<String, long[]> depths = new HashMap<>();
+        final Map<String, long[]> notVisible = new HashMap<>();
+        final Map<String, Integer> polls = new HashMap<>();
+
+        @Override
+        public synchronized GetQueueAttributesResult getQueueAttributes(GetQueueAttributesRequest request) {
+            int poll = polls.merge(request.getQueueUrl(), 1, Integer::sum) - 1;
+
+            Map<String, String> attributes = new HashMap<>();
+            attributes.put(SqsQueueDepthPoller.VISIBLE_ATTRIBUTE, Long.toString(scripted(depths, request.getQueueUrl(), poll)));
+            attributes.put(SqsQueueDepthPoller.NOT_VISIBLE_ATTRIBUTE, Long.toString(scripted(notVisible, request.getQueueUrl(), poll)));
+            return new GetQueueAttributesResult().withAttributes(attributes);
+        }
+
+        private static long scripted(Map<String, long[]> script, String queueUrl, int poll) {
+            long[] values = script.get(queueUrl);
+            return values == null ? 0 : values[Math.min(poll, values.length - 1)];
+        }
+    }
+}
@@ -0,0 +1,216 @@
+/**
+ * Copyright 2020-present, Nike, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the Apache-2.0 license found in
+ * the LICENSE file in the root directory of this source tree.
+ */
+package com.nike.pdm.localstack.aws.sqs;
+
+import com.amazonaws.services.sqs.AbstractAmazonSQS;
+import com.amazonaws.services.sqs.model.BatchResultErrorEntry;
+import com.amazonaws.services.sqs.model.DeleteMessageBatchRequest;
+import com.amazonaws.services.sqs.model.DeleteMessageBatchRequestEntry;
+import com.amazonaws.services.sqs.model.DeleteMessageBatchResult;
+import com.amazonaws.services.sqs.model.DeleteMessageBatchResultEntry;
+import com.amazonaws.services.sqs.model.Message;
+import com.amazonaws.services.sqs.model.QueueDoesNotExistException;
+import com.amazonaws.services.sqs.model.ReceiveMessageRequest;
+import com.amazonaws.services.sqs.model.ReceiveMessageResult;
+import org.apache.commons.io.FileUtils;
+import org.gradle.api.GradleException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class SqsQueueDrainerTest {
+
+    private File dir;
+
+    @Before
+    public void setup() throws IOException {
+        dir = Files.createTempDirectory("drain").toFile();
+    }
+
+    @After
+    public void cleanup() throws IOException {
+        FileUtils.deleteDirectory(dir);
+    }
+
+    @Test
+    public void shouldWriteAndDeleteEveryMessage() throws Exception {
+        QueueSqs sqs = new QueueSqs(25);
+        File file = new File(dir, "queue.ndjson");
+
+        try (SqsMessageFileWriter writer = new SqsMessageFileWriter(file, false)) {
+            SqsQueueDrainer drainer = new SqsQueueDrainer(sqs, "queue", writer, 3, 100, false);
+            drainer.start();
+            drainer.await();
+
+            assertEquals(25, writer.getWritten());
+            assertEquals(0, drainer.getDeleteFailures());
+        }
+
+        Set<String> lines = new HashSet<>(Files.readAllLines(file.toPath(), StandardCharsets.UTF_8));
+        assertEquals(25, lines.size());
+        assertEquals(25, sqs.deleted.size());
+        assertTrue(sqs.messages.isEmpty());
+        assertTrue(sqs.maxReceived <= SqsQueueDrainer.MAX_MESSAGES_PER_RECEIVE);
+    }
+
+    @Test
+    public void shouldCountMessagesThatCouldNotBeDeleted() throws Exception {
+        QueueSqs sqs = new QueueSqs(3);
+        sqs.senderFaultHandles.add("handle-1");
+
+        try (SqsMessageFileWriter writer = new SqsMessageFileWriter(new File(dir, "queue.ndjson"), false)) {
+            SqsQueueDrainer drainer = new SqsQueueDrainer(sqs, "queue", writer, 1, 100, false);
+            drainer.start();
+            drainer.await();
+
+            assertEquals(3, writer.getWritten());
+            assertEquals(1, drainer.getDeleteFailures());
+        }
+
+        assertEquals(2, sqs.deleted.size());
+    }
+
+    @Test
+    public void shouldNotDeleteMessagesThatWereNotWritten() throws Exception {
+        QueueSqs sqs = new QueueSqs(25);
+
+        // Accepts the first batch of messages, then fails like a full disk
+        ByteArrayOutputStream out = new ByteArrayOutputStream() {
+            private boolean flushed;
+
+            @Override
+            public synchronized void write(byte[] b, int off, int len) {
+                if (flushed) {
+                    throw new IllegalStateException("No space left on device");
+                }
+
+                super.write(b, off, len);
+            }
+
+            @Override
+            public void flush() {
+                flushed = true;
+            }
+        };
+
+        SqsMessageFileWriter writer = new SqsMessageFileWriter(out, false, false);
+        SqsQueueDrainer drainer = new SqsQueueDrainer(sqs, "queue", writer, 1, 100, false);
+        drainer.start();
+        try {
+            drainer.await();
+            fail("Expected the drain to fail");
+        } catch (GradleException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("No space left on device"));
+        }
+
+        String written = new String(out.toByteArray(), StandardCharsets.UTF_8);
+        assertEquals(SqsQueueDrainer.MAX_MESSAGES_PER_RECEIVE, sqs.deleted.size());
+        for (String handle : sqs.deleted) {
+            assertTrue(handle, written.contains("message-" + handle.substring("handle-".length()) + "\n"));
+        }
+    }
+
+    @Test(expected = GradleException.class)
+    public void shouldFailWhenQueueDoesNotExist() throws Exception {
+        QueueSqs sqs = new QueueSqs(0);
+        sqs.missing = true;
+
+        try (SqsMessageFileWriter writer = new SqsMessageFileWriter(new File(dir, "queue.ndjson"), false)) {
+            SqsQueueDrainer drainer = new SqsQueueDrainer(sqs, "queue", writer, 2, 100, false);
+            drainer.start();
+            drainer.await();
+        }
+    }
+
+    @Test
+    public void shouldStopWorkersWithoutWaitingForIdleTimeout() throws Exception {
+        QueueSqs sqs = new QueueSqs(0);
+
+        try (SqsMessageFileWriter writer = new SqsMessageFileWriter(new File(dir, "queue.ndjson"), false)) {
+            SqsQueueDrainer drainer = new SqsQueueDrainer(sqs, "queue", writer, 2, 60_000, false);
+            drainer.start();
+
+            long start = System.nanoTime();
+            drainer.stop();
+            drainer.await();
+
+            assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(10));
+            assertEquals(0, writer.getWritten());
+        }
+    }
+
+    /**
+     * Fake SQS client holding a single queue of messages, which are removed once received.
+     */
+    static class QueueSqs extends AbstractAmazonSQS {
+        final Queue<Message> messages = new ConcurrentLinkedQueue<>();
+        final Set<String> deleted = ConcurrentHashMap.newKeySet();
+        final Set<String> senderFaultHandles = ConcurrentHashMap.newKeySet();
+        volatile boolean missing;
+        volatile int maxReceived;
+
+        QueueSqs(int count) {
+            for (int i = 0; i < count; i++) {
+                messages.add(new Message().withMessageId("id-" + i).withReceiptHandle("handle-" + i).withBody("message-" + i));
+            }
+        }
+
+        @Override
+        public ReceiveMessageResult receiveMessage(ReceiveMessageRequest request) {
+            if (missing) {
+                throw new QueueDoesNotExistException("Queue does not exist");
+            }
+
+            List<Message> received = new ArrayList<>();
+            Message message;
+            while (received.size() < request.getMaxNumberOfMessages() && (message = messages.poll()) != null) {
+                received.add(message);
+            }
+
+            maxReceived = Math.max(maxReceived, received.size());
+            return new ReceiveMessageResult().withMessages(received);
+        }
+
+        @Override
+        public DeleteMessageBatchResult deleteMessageBatch(DeleteMessageBatchRequest request) {
+            List<DeleteMessageBatchResultEntry> successful = new ArrayList<>();
+            List<BatchResultErrorEntry> failed = new ArrayList<>();
+            for (DeleteMessageBatchRequestEntry entry : request.getEntries()) {
+                if (senderFaultHandles.contains(entry.getReceiptHandle())) {
+                    failed.add(new BatchResultErrorEntry().withId(entry.getId()).withCode("ReceiptHandleIsInvalid").withSenderFault(true));
+                } else {
+                    deleted.add(entry.getReceiptHandle());
+                    successful.add(new DeleteMessageBatchResultEntry().withId(entry.getId()));
+                }
+            }
+
+            DeleteMessageBatchResult result = new DeleteMessageBatchResult();
+            result.setSuccessful(successful);
+            result.setFailed(failed);
+            return result;
+        }
+    }
+}
@@ -0,0 +1,111 @@
+/**
+ * Copyright 2020-present, Nike, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the Apache-2.0 license found in
+ * the LICENSE file in the root directory of this source tree.
+ */
+package com.nike.pdm.localstack.aws.sqs;
+
+import com.amazonaws.services.sqs.AbstractAmazonSQS;
+import com.amazonaws.services.sqs.model.GetQueueUrlResult;
+import com.amazonaws.services.sqs.model.ListQueuesRequest;
+import com.amazonaws.services.sqs.model.ListQueuesResult;
+import com.amazonaws.services.sqs.model.QueueDoesNotExistException;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SqsQueueInventoryTest {
+
+    @Test
+    public void shouldServeLookupsFromSingleListing() {
+        InventorySqs sqs = new InventorySqs(3);
+        SqsQueueInventory inventory = new SqsQueueInventory(sqs);
+
+        assertTrue(inventory.exists("queue-0"));
+        assertTrue(inventory.exists("queue-2"));
+        assertFalse(inventory.exists("missing"));
+        assertEquals("http://localhost:4566/000000000000/queue-1", inventory.getQueueUrl("queue-1"));
+
+        assertEquals(1, sqs.listCalls);
+        assertEquals(0, sqs.getQueueUrlCalls);
+        assertTrue(inventory.isComplete());
+    }
+
+    @Test
+    public void shouldServeCreatedQueuesWithoutListingAgain() {
+        InventorySqs sqs = new InventorySqs(1);
+        SqsQueueInventory inventory = new SqsQueueInventory(sqs);
+
+        assertFalse(inventory.exists("created"));
+        inventory.put("created", "http://localhost:4566/000000000000/created");
+
+        assertTrue(inventory.exists("created"));
+        assertEquals("http://localhost:4566/000000000000/created", inventory.getQueueUrl("created"));
+        assertEquals(1, sqs.listCalls);
+        assertEquals(0, sqs.getQueueUrlCalls);
+    }
+
+    @Test(expected = QueueDoesNotExistException.class)
+    public void shouldFailToResolveMissingQueue() {
+        new SqsQueueInventory(new InventorySqs(1)).getQueueUrl("missing");
+    }
+
+    @Test
+    public void shouldLookUpQueuesMissingFromFullListing() {
+        InventorySqs sqs = new InventorySqs(SqsQueueInventory.MAX_LIST_RESULTS + 5);
+        SqsQueueInventory inventory = new SqsQueueInventory(sqs);
+
+        assertFalse(inventory.isComplete());
+        assertTrue(inventory.exists("queue-1002"));
+        assertTrue(inventory.exists("queue-1002"));
+        assertFalse(inventory.exists("missing"));
+
+        assertEquals(1, sqs.listCalls);
+        assertEquals(2, sqs.getQueueUrlCalls);
+    }
+
+    /**
+     * Fake SQS client holding a number of queues and counting the requests made to find them.
+     */
+    static class InventorySqs extends AbstractAmazonSQS {
+        final Map<String, String> queues = new LinkedHashMap<>();
+        int listCalls;
+        int getQueueUrlCalls;
+
+        InventorySqs(int count) {
+            for (int i = 0; i < count; i++) {
+                queues.put("queue-" + i, "http://localhost:4566/000000000000/queue-" + i);
+            }
+        }
+
+        @Override
+        public ListQueuesResult listQueues(ListQueuesRequest request) {
+            listCalls++;
+
+            // Like SQS, return no more than the first 1,000 queues
+            ListQueuesResult result = new ListQueuesResult();
+            result.setQueueUrls(new ArrayList<>(queues.values()).subList(0, Math.min(queues.size(), SqsQueueInventory.MAX_LIST_RESULTS)));
+            return result;
+        }
+
+        @Override
+        public GetQueueUrlResult getQueueUrl(String queueName) {
+            getQueueUrlCalls++;
+
+            String queueUrl = queues.get(queueName);
+            if (queueUrl == null) {
+                throw new QueueDoesNotExistException("The specified queue does not exist");
+            }
+
+            return new GetQueueUrlResult().withQueueUrl(queueUrl);
+        }
+    }
+}
@@ -0,0 +1,215 @@
+/**
+ * Copyright 2020-present, Nike, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the Apache-2.0 license found in
+ * the LICENSE file in the root directory of this source tree.
+ */
+package com.nike.pdm.localstack.aws.sqs;
+
+import com.amazonaws.services.sqs.AbstractAmazonSQS;
+import com.amazonaws.services.sqs.model.CreateQueueRequest;
+import com.amazonaws.services.sqs.model.CreateQueueResult;
+import com.amazonaws.services.sqs.model.ListQueuesRequest;
+import com.amazonaws.services.sqs.model.ListQueuesResult;
+import com.amazonaws.services.sqs.model.QueueNameExistsException;
+import com.amazonaws.services.sqs.model.SetQueueAttributesResult;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SqsQueuePairCreatorTest {
+
+    private static final String ARN_PREFIX = "arn:aws:sqs:us-east-1:000000000000:";
+
+    @Test
+    public void shouldCreateDeadletterQueuesBeforeQueues() {
+        PairSqs sqs = new PairSqs();
+
+        List<SqsQueuePairCreator.Result> results = create(sqs, 4, new SqsQueueSpec("orders"), new SqsQueueSpec("payments"), new SqsQueueSpec("refunds"));
+
+        assertEquals(6, sqs.created.size());
+        assertEquals(new HashSet<>(Arrays.asList("orders-dlq", "payments-dlq", "refunds-dlq")), new HashSet<>(sqs.created.subList(0, 3)));
+        assertEquals(new HashSet<>(Arrays.asList("orders", "payments", "refunds")), new HashSet<>(sqs.created.subList(3, 6)));
+
+        assertEquals(3, results.size());
+        assertEquals("payments", results.get(1).getQueueName());
+        assertEquals("payments-dlq", results.get(1).getDeadletterQueueName());
+        results.forEach(result -> {
+            assertFalse(result.isFailed());
+            assertEquals(SqsQueuePairCreator.Action.CREATED, result.getDeadletterQueue().getAction());
+            assertEquals(SqsQueuePairCreator.Action.CREATED, result.getQueue().getAction());
+        });
+
+        assertEquals(1, sqs.listCalls);
+    }
+
+    @Test
+    public void shouldSetRedrivePolicyWhenCreatingQueue() {
+        PairSqs sqs = new PairSqs();
+
+        SqsQueueSpec spec = new SqsQueueSpec("orders");
+        spec.setDeadletterQueueName("orders-failed");
+        spec.setMaxReceiveCount(5);
+        spec.setQueueAttributes(Collections.singletonMap("VisibilityTimeout", "60"));
+        spec.setDeadletterQueueAttributes(Collections.singletonMap("MessageRetentionPeriod", "1209600"));
+
+        create(sqs, 4, spec);
+
+        assertEquals("1209600", sqs.attributes.get("orders-failed").get("MessageRetentionPeriod"));
+        assertEquals("60", sqs.attributes.get("orders").get("VisibilityTimeout"));
+        assertEquals("{\"deadLetterTargetArn\":\"" + ARN_PREFIX + "orders-failed\",\"maxReceiveCount\":\"5\"}",
+                sqs.attributes.get("orders").get(SqsQueuePairCreator.REDRIVE_POLICY_ATTRIBUTE));
+
+        // Everything is set at create time
+        assertEquals(0, sqs.setAttributesCalls.get());
+        assertFalse(spec.getQueueAttributes().containsKey(SqsQueuePairCreator.REDRIVE_POLICY_ATTRIBUTE));
+    }
+
+    @Test
+    public void shouldCreateSharedDeadletterQueueOnce() {
+        PairSqs sqs = new PairSqs();
+
+        SqsQueueSpec orders = new SqsQueueSpec("orders");
+        orders.setDeadletterQueueName("shared-dlq");
+        SqsQueueSpec payments = new SqsQueueSpec("payments");
+        payments.setDeadletterQueueName("shared-dlq");
+
+        List<SqsQueuePairCreator.Result> results = create(sqs, 4, orders, payments);
+
+        assertEquals(1, Collections.frequency(sqs.created, "shared-dlq"));
+        assertEquals(3, sqs.created.size());
+        assertFalse(results.get(0).isFailed());
+        assertFalse(results.get(1).isFailed());
+    }
+
+    @Test
+    public void shouldUpdateExistingQueuesAndLeaveExistingDeadletterQueues() {
+        PairSqs sqs = new PairSqs();
+        sqs.attributes.put("orders", new HashMap<>());
+        sqs.attributes.put("orders-dlq", new HashMap<>());
+
+        List<SqsQueuePairCreator.Result> results = create(sqs, 4, new SqsQueueSpec("orders"));
+
+        assertTrue(sqs.created.isEmpty());
+        assertEquals(SqsQueuePairCreator.Action.EXISTED, results.get(0).getDeadletterQueue().getAction());
+        assertEquals(SqsQueuePairCreator.Action.UPDATED, results.get(0).getQueue().getAction());
+        assertEquals(1, sqs.setAttributesCalls.get());
+        assertTrue(sqs.attributes.get("orders").get(SqsQueuePairCreator.REDRIVE_POLICY_ATTRIBUTE).contains(ARN_PREFIX + "orders-dlq"));
+    }
+
+    @Test
+    public void shouldSkipQueueWhoseDeadletterQueueFailed() {
+        PairSqs sqs = new PairSqs();
+        sqs.conflicting.add("orders-dlq");
+
+        List<SqsQueuePairCreator.Result> results = create(sqs, 4, new SqsQueueSpec("orders"), new SqsQueueSpec("payments"));
+
+        assertTrue(results.get(0).isFailed());
+        assertEquals(SqsQueuePairCreator.Action.FAILED, results.get(0).getDeadletterQueue().getAction());
+        assertTrue(results.get(0).getDeadletterQueue().getError().startsWith("A queue already exists"));
+        assertEquals(SqsQueuePairCreator.Action.SKIPPED, results.get(0).getQueue().getAction());
+        assertFalse(sqs.created.contains("orders"));
+
+        assertFalse(results.get(1).isFailed());
+        assertTrue(sqs.created.contains("payments"));
+    }
+
+    @Test
+    public void shouldCreateQueuesInParallel() throws Exception {
+        PairSqs sqs = new PairSqs();
+        sqs.inFlight = new CountDownLatch(4);
+
+        List<SqsQueuePairCreator.Result> results = create(sqs, 4, new SqsQueueSpec("a"), new SqsQueueSpec("b"), new SqsQueueSpec("c"), new SqsQueueSpec("d"));
+
+        // Every create waits for the other three, which only completes if all four run at once
+        assertEquals(0, sqs.timedOut.get());
+        assertEquals(4, results.size());
+        results.forEach(result -> assertFalse(result.isFailed()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectZeroParallelism() {
+        new SqsQueuePairCreator(new PairSqs(), null, name -> name, 0);
+    }
+
+    private static List<SqsQueuePairCreator.Result> create(PairSqs sqs, int parallelism, SqsQueueSpec... specs) {
+        return new SqsQueuePairCreator(sqs, new SqsQueueInventory(sqs), name -> ARN_PREFIX + name, parallelism)
+                .create(Arrays.asList(specs));
+    }
+
+    /**
+     * Fake SQS client that records the queues created and their attributes.
+     */
+    static class PairSqs extends AbstractAmazonSQS {
+        final Map<String, Map<String, String>> attributes = new ConcurrentHashMap<>();
+        final List<String> created = Collections.synchronizedList(new ArrayList<>());
+        final Set<String> conflicting = new HashSet<>();
+        final AtomicInteger setAttributesCalls = new AtomicInteger();
+        final AtomicInteger timedOut = new AtomicInteger();
+        volatile CountDownLatch inFlight;
+        int listCalls;
+
+        @Override
+        public ListQueuesResult listQueues(ListQueuesRequest request) {
+            listCalls++;
+
+            List<String> queueUrls = new ArrayList<>();
+            attributes.keySet().forEach(queueName -> queueUrls.add(url(queueName)));
+
+            ListQueuesResult result = new ListQueuesResult();
+            result.setQueueUrls(queueUrls);
+            return result;
+        }
+
+        @Override
+        public CreateQueueResult createQueue(CreateQueueRequest request) {
+            if (conflicting.contains(request.getQueueName())) {
+                throw new QueueNameExistsException("A queue already exists with the same name and a different value for attribute");
+            }
+
+            CountDownLatch latch = inFlight;
+            if (latch != null) {
+                latch.countDown();
+                try {
+                    if (!latch.await(5, TimeUnit.SECONDS)) {
+                        timedOut.incrementAndGet();
+                    }
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+
+            attributes.put(request.getQueueName(), new HashMap<>(request.getAttributes()));
+            created.add(request.getQueueName());
+
+            return new CreateQueueResult().withQueueUrl(url(request.getQueueName()));
+        }
+
+        @Override
+        public SetQueueAttributesResult setQueueAttributes(String queueUrl, Map<String, String> queueAttributes) {
+            setAttributesCalls.incrementAndGet();
+            attributes.get(queueUrl.substring(queueUrl.lastIndexOf('/') + 1)).putAll(queueAttributes);
+            return new SetQueueAttributesResult();
+        }
+
+        private static String url(String queueName) {
+            return "http://localhost:4566/000000000000/" + queueName;
+        }
+    }
+}
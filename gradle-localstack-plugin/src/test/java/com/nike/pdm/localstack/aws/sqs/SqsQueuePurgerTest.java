@@ -0,0 +1,180 @@
+/**
+ * Copyright 2020-present, Nike, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the Apache-2.0 license found in
+ * the LICENSE file in the root directory of this source tree.
+ */
+package com.nike.pdm.localstack.aws.sqs;
+
+import com.amazonaws.services.sqs.AbstractAmazonSQS;
+import com.amazonaws.services.sqs.model.DeleteMessageBatchRequest;
+import com.amazonaws.services.sqs.model.DeleteMessageBatchRequestEntry;
+import com.amazonaws.services.sqs.model.DeleteMessageBatchResult;
+import com.amazonaws.services.sqs.model.DeleteMessageBatchResultEntry;
+import com.amazonaws.services.sqs.model.Message;
+import com.amazonaws.services.sqs.model.PurgeQueueInProgressException;
+import com.amazonaws.services.sqs.model.PurgeQueueRequest;
+import com.amazonaws.services.sqs.model.PurgeQueueResult;
+import com.amazonaws.services.sqs.model.QueueDoesNotExistException;
+import com.amazonaws.services.sqs.model.ReceiveMessageRequest;
+import com.amazonaws.services.sqs.model.ReceiveMessageResult;
+import org.gradle.api.GradleException;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SqsQueuePurgerTest {
+
+    private static final String ORDERS = "http://localhost:4566/000000000000/orders";
+    private static final String PAYMENTS = "http://localhost:4566/000000000000/payments";
+    private static final String REFUNDS = "http://localhost:4566/000000000000/refunds";
+
+    @Test
+    public void shouldPurgeQueues() {
+        PurgeSqs sqs = new PurgeSqs();
+        sqs.add(ORDERS, 5);
+        sqs.add(PAYMENTS, 3);
+
+        List<SqsQueuePurger.Result> results = new SqsQueuePurger(sqs).purge(Arrays.asList(ORDERS, PAYMENTS));
+
+        assertEquals(ORDERS, results.get(0).getQueueUrl());
+        assertTrue(results.get(0).isPurged());
+        assertTrue(results.get(1).isPurged());
+        assertTrue(sqs.queues.get(ORDERS).isEmpty());
+        assertTrue(sqs.queues.get(PAYMENTS).isEmpty());
+        assertEquals(0, sqs.receiveCalls.get());
+    }
+
+    @Test
+    public void shouldDeleteMessagesWhenPurgedTooRecently() {
+        PurgeSqs sqs = new PurgeSqs();
+        sqs.add(ORDERS, 25);
+        sqs.add(PAYMENTS, 3);
+        sqs.recentlyPurged.add(ORDERS);
+
+        List<SqsQueuePurger.Result> results = new SqsQueuePurger(sqs).purge(Arrays.asList(ORDERS, PAYMENTS));
+
+        assertFalse(results.get(0).isPurged());
+        assertEquals(25, results.get(0).getDeleted());
+        assertEquals(25, sqs.deleted.size());
+        assertTrue(sqs.queues.get(ORDERS).isEmpty());
+
+        assertTrue(results.get(1).isPurged());
+    }
+
+    @Test
+    public void shouldPurgeQueuesInParallel() {
+        PurgeSqs sqs = new PurgeSqs();
+        sqs.add(ORDERS, 1);
+        sqs.add(PAYMENTS, 1);
+        sqs.add(REFUNDS, 1);
+        sqs.inFlight = new CountDownLatch(3);
+
+        new SqsQueuePurger(sqs).purge(Arrays.asList(ORDERS, PAYMENTS, REFUNDS));
+
+        // Every purge waits for the other two, which only completes if all three run at once
+        assertEquals(0, sqs.timedOut.get());
+    }
+
+    @Test(expected = GradleException.class)
+    public void shouldFailWhenQueueDoesNotExist() {
+        new SqsQueuePurger(new PurgeSqs()).purge(Arrays.asList(ORDERS));
+    }
+
+    /**
+     * Fake SQS client holding the messages of several queues.
+     */
+    static class PurgeSqs extends AbstractAmazonSQS {
+        final Map<String, Queue<Message>> queues = new ConcurrentHashMap<>();
+        final Set<String> recentlyPurged = ConcurrentHashMap.newKeySet();
+        final Set<String> deleted = ConcurrentHashMap.newKeySet();
+        final AtomicInteger receiveCalls = new AtomicInteger();
+        final AtomicInteger timedOut = new AtomicInteger();
+        volatile CountDownLatch inFlight;
+
+        void add(String queueUrl, int count) {
+            Queue<Message> messages = new ConcurrentLinkedQueue<>();
+            for (int i = 0; i < count; i++) {
+                messages.add(new Message().withMessageId("id-" + i).withReceiptHandle(queueUrl + "#" + i).withBody("message-" + i));
+            }
+
+            queues.put(queueUrl, messages);
+        }
+
+        @Override
+        public PurgeQueueResult purgeQueue(PurgeQueueRequest request) {
+            Queue<Message> messages = getQueue(request.getQueueUrl());
+
+            CountDownLatch latch = inFlight;
+            if (latch != null) {
+                latch.countDown();
+                try {
+                    if (!latch.await(5, TimeUnit.SECONDS)) {
+                        timedOut.incrementAndGet();
+                    }
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+
+            if (recentlyPurged.contains(request.getQueueUrl())) {
+                throw new PurgeQueueInProgressException("Only one PurgeQueue operation on " + request.getQueueUrl() + " is allowed every 60 seconds.");
+            }
+
+            messages.clear();
+            return new PurgeQueueResult();
+        }
+
+        @Override
+        public ReceiveMessageResult receiveMessage(ReceiveMessageRequest request) {
+            receiveCalls.incrementAndGet();
+
+            Queue<Message> messages = getQueue(request.getQueueUrl());
+            List<Message> received = new ArrayList<>();
+            Message message;
+            while (received.size() < request.getMaxNumberOfMessages() && (message = messages.poll()) != null) {
+                received.add(message);
+            }
+
+            return new ReceiveMessageResult().withMessages(received);
+        }
+
+        @Override
+        public DeleteMessageBatchResult deleteMessageBatch(DeleteMessageBatchRequest request) {
+            List<DeleteMessageBatchResultEntry> successful = new ArrayList<>();
+            for (DeleteMessageBatchRequestEntry entry : request.getEntries()) {
+                deleted.add(entry.getReceiptHandle());
+                successful.add(new DeleteMessageBatchResultEntry().withId(entry.getId()));
+            }
+
+            DeleteMessageBatchResult result = new DeleteMessageBatchResult();
+            result.setSuccessful(successful);
+            result.setFailed(new ArrayList<>());
+            return result;
+        }
+
+        private Queue<Message> getQueue(String queueUrl) {
+            Queue<Message> messages = queues.get(queueUrl);
+            if (messages == null) {
+                throw new QueueDoesNotExistException("The specified queue does not exist");
+            }
+
+            return messages;
+        }
+    }
+}
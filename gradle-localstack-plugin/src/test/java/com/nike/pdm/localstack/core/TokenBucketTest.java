@@ -0,0 +1,103 @@
+/**
+ * Copyright 2020-present, Nike, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the Apache-2.0 license found in
+ * the LICENSE file in the root directory of this source tree.
+ */
+package com.nike.pdm.localstack.core;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TokenBucketTest {
+
+    @Test
+    public void shouldAllowBurstWhenFull() {
+        final AtomicLong clock = new AtomicLong();
+        final TokenBucket bucket = new TokenBucket(10, 5, 0, clock::get);
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals(0, bucket.tryAcquire(1));
+        }
+
+        assertTrue(bucket.tryAcquire(1) > 0);
+    }
+
+    @Test
+    public void shouldRefillAtRate() {
+        final AtomicLong clock = new AtomicLong();
+        final TokenBucket bucket = new TokenBucket(10, 10, 0, clock::get);
+
+        assertEquals(0, bucket.tryAcquire(10));
+
+        final long wait = bucket.tryAcquire(2);
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(200), wait, TimeUnit.MILLISECONDS.toNanos(1));
+
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(100));
+        assertTrue(bucket.tryAcquire(2) > 0);
+
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(100));
+        assertEquals(0, bucket.tryAcquire(2));
+    }
+
+    @Test
+    public void shouldNotRefillBeyondBurst() {
+        final AtomicLong clock = new AtomicLong();
+        final TokenBucket bucket = new TokenBucket(10, 5, 0, clock::get);
+
+        assertEquals(0, bucket.tryAcquire(5));
+
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(10));
+        assertEquals(0, bucket.tryAcquire(5));
+        assertTrue(bucket.tryAcquire(1) > 0);
+    }
+
+    @Test
+    public void shouldAllowRequestLargerThanBurstWhenFull() {
+        final AtomicLong clock = new AtomicLong();
+        final TokenBucket bucket = new TokenBucket(10, 5, 0, clock::get);
+
+        assertEquals(0, bucket.tryAcquire(10));
+
+        // The tokens borrowed by the oversized request are repaid before more are allowed
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(500));
+        assertTrue(bucket.tryAcquire(1) > 0);
+
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(100));
+        assertEquals(0, bucket.tryAcquire(1));
+    }
+
+    @Test
+    public void shouldRampUpRate() {
+        final AtomicLong clock = new AtomicLong();
+        final TokenBucket bucket = new TokenBucket(100, 100, TimeUnit.SECONDS.toMillis(10), clock::get);
+
+        assertTrue(bucket.tryAcquire(1) > 0);
+        assertEquals(25.0, bucket.currentRate(TimeUnit.MILLISECONDS.toNanos(2_500)), 0.001);
+        assertEquals(100.0, bucket.currentRate(TimeUnit.SECONDS.toNanos(10)), 0.001);
+        assertEquals(100.0, bucket.currentRate(TimeUnit.SECONDS.toNanos(60)), 0.001);
+    }
+
+    @Test
+    public void shouldBlockUntilTokensAvailable() {
+        final TokenBucket bucket = new TokenBucket(100, 1, 0);
+
+        final long start = System.nanoTime();
+        for (int i = 0; i < 21; i++) {
+            bucket.acquire(1);
+        }
+
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(190));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectZeroRate() {
+        new TokenBucket(0, 1, 0);
+    }
+}